@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.commons.json.JsopReader;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link JsopTokenizer} and {@link JsopBuilder}, using a
+ * node state serialized as in a flat file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsopBenchmark {
+
+    private String json;
+
+    private final JsopBuilder builder = new JsopBuilder();
+
+    @Setup
+    public void setup() {
+        json = build(new JsopBuilder());
+    }
+
+    /**
+     * Read all tokens, only materializing the keys.
+     */
+    @Benchmark
+    public void tokenizeKeys(Blackhole bh) {
+        JsopTokenizer t = new JsopTokenizer(json);
+        t.read('{');
+        if (!t.matches('}')) {
+            do {
+                bh.consume(t.readString());
+                t.read(':');
+                bh.consume(t.readRawValue());
+            } while (t.matches(','));
+        }
+    }
+
+    /**
+     * Read all tokens, materializing all values.
+     */
+    @Benchmark
+    public void tokenizeAll(Blackhole bh) {
+        JsopTokenizer t = new JsopTokenizer(json);
+        while (true) {
+            int type = t.read();
+            if (type == JsopReader.END) {
+                break;
+            }
+            if (type == JsopReader.STRING || type == JsopReader.NUMBER) {
+                bh.consume(t.getToken());
+            }
+        }
+    }
+
+    /**
+     * Build the json, reusing the builder.
+     */
+    @Benchmark
+    public String build() {
+        builder.resetWriter();
+        return build(builder);
+    }
+
+    private static String build(JsopBuilder b) {
+        b.object();
+        b.key("jcr:primaryType").value("nam:cq:PageContent");
+        b.key("jcr:title").value("Products \"New\"\tand\u0001Old");
+        b.key("jcr:lastModified").value("dat:2024-01-01T00:00:00.000Z");
+        b.key("cq:lastReplicated").value(1704067200000L);
+        b.key("hidden").value(false);
+        b.key("tags").array();
+        for (int i = 0; i < 10; i++) {
+            b.value("tag:" + i);
+        }
+        b.endArray();
+        b.key("sizes").array();
+        for (int i = 0; i < 10; i++) {
+            b.value(i * 1024L);
+        }
+        b.endArray();
+        b.endObject();
+        return b.toString();
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeState;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreBuilder.newDocumentNodeStoreBuilder;
+
+/**
+ * Benchmarks for {@link NodeDocument#getNodeAtRevision}, on a document with
+ * a number of changes, in a {@link MemoryDocumentStore}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeDocumentBenchmark {
+
+    @Param({"10", "100"})
+    public int changes;
+
+    private DocumentNodeStore nodeStore;
+
+    private NodeDocument document;
+
+    private RevisionVector head;
+
+    private RevisionVector old;
+
+    @Setup
+    public void setup() throws CommitFailedException {
+        nodeStore = newDocumentNodeStoreBuilder()
+                .setDocumentStore(new MemoryDocumentStore())
+                .setAsyncDelay(0)
+                .build();
+        for (int i = 0; i < changes; i++) {
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            NodeBuilder test = builder.child("test");
+            test.setProperty("counter", i);
+            test.setProperty("p" + (i % 10), "value " + i);
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            if (i == changes / 2) {
+                old = nodeStore.getHeadRevision();
+            }
+        }
+        head = nodeStore.getHeadRevision();
+        document = nodeStore.getDocumentStore().find(
+                Collection.NODES, Utils.getIdFromPath("/test"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        nodeStore.dispose();
+    }
+
+    @Benchmark
+    public DocumentNodeState headRevision() {
+        return document.getNodeAtRevision(nodeStore, head, null);
+    }
+
+    @Benchmark
+    public DocumentNodeState oldRevision() {
+        return document.getNodeAtRevision(nodeStore, old, null);
+    }
+
+}
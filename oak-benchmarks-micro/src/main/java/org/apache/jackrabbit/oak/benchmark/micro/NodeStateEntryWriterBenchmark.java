@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.index.indexer.document.flatfile.NodeStateEntryWriter;
+import org.apache.jackrabbit.oak.spi.blob.MemoryBlobStore;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+
+/**
+ * Benchmarks for {@link NodeStateEntryWriter}, which serializes node states
+ * to flat file entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeStateEntryWriterBenchmark {
+
+    private static final String PATH = "/content/site/en/products/jcr:content";
+
+    private NodeStateEntryWriter writer;
+
+    private NodeState state;
+
+    @Setup
+    public void setup() {
+        writer = new NodeStateEntryWriter(new MemoryBlobStore());
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.setProperty("jcr:primaryType", "cq:PageContent", Type.NAME);
+        builder.setProperty("jcr:title", "Products");
+        builder.setProperty("cq:lastReplicated", 1704067200000L);
+        builder.setProperty("hidden", false);
+        builder.setProperty("cq:tags",
+                Arrays.asList("tag:products", "tag:en", "tag:catalog"), Type.STRINGS);
+        state = builder.getNodeState();
+    }
+
+    @Benchmark
+    public String asJson() {
+        return writer.asJson(state);
+    }
+
+    @Benchmark
+    public String toEntry() {
+        return writer.toString(PATH, writer.asJson(state));
+    }
+
+}
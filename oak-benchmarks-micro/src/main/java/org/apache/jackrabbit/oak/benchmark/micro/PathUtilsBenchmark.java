@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the path operations of {@link PathUtils}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathUtilsBenchmark {
+
+    @Param({"/content", "/content/site/en/products/category/item/jcr:content/par/image"})
+    public String path;
+
+    @Benchmark
+    public String getName() {
+        return PathUtils.getName(path);
+    }
+
+    @Benchmark
+    public String getParentPath() {
+        return PathUtils.getParentPath(path);
+    }
+
+    @Benchmark
+    public int getDepth() {
+        return PathUtils.getDepth(path);
+    }
+
+    @Benchmark
+    public void elements(Blackhole bh) {
+        for (String e : PathUtils.elements(path)) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public String concat() {
+        return PathUtils.concat(path, "child");
+    }
+
+    @Benchmark
+    public boolean isAncestor() {
+        return PathUtils.isAncestor("/content", path);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.segment.file.PriorityCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link PriorityCache}, as used for the string and template
+ * deduplication caches of the segment store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriorityCacheBenchmark {
+
+    @Param({"65536"})
+    public int size;
+
+    private PriorityCache<String, String> cache;
+
+    private String[] keys;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        cache = new PriorityCache<>(size);
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key-" + i;
+            if (i % 2 == 0) {
+                // half of the lookups are hits
+                cache.put(keys[i], keys[i], 0, (byte) 0);
+            }
+        }
+    }
+
+    private String nextKey() {
+        index = (index + 1) & (size - 1);
+        return keys[index];
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(nextKey(), 0);
+    }
+
+    @Benchmark
+    public boolean put() {
+        String key = nextKey();
+        return cache.put(key, key, 0, (byte) 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getConcurrent() {
+        // threads share the index; lost updates only change the key order
+        return cache.get(nextKey(), 0);
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for parsing and formatting {@link Revision} and
+ * {@link RevisionVector}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RevisionBenchmark {
+
+    private String revisionString;
+
+    private Revision revision;
+
+    private String vectorString;
+
+    private RevisionVector vector;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis();
+        revision = new Revision(now, 3, 1);
+        revisionString = revision.toString();
+        vector = new RevisionVector(revision,
+                new Revision(now - 1000, 0, 2),
+                new Revision(now - 2000, 1, 3));
+        vectorString = vector.toString();
+    }
+
+    @Benchmark
+    public Revision parseRevision() {
+        return Revision.fromString(revisionString);
+    }
+
+    @Benchmark
+    public String formatRevision() {
+        return revision.toString();
+    }
+
+    @Benchmark
+    public RevisionVector parseRevisionVector() {
+        return RevisionVector.fromString(vectorString);
+    }
+
+    @Benchmark
+    public String formatRevisionVector() {
+        return vector.toString();
+    }
+
+}
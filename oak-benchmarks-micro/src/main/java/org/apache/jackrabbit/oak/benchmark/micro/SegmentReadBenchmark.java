@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark.micro;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.segment.RecordId;
+import org.apache.jackrabbit.oak.segment.SegmentNodeState;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.memory.MemoryStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for reading segment node states from a {@link MemoryStore}:
+ * child node lookups (map records), property reads, and record id parsing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentReadBenchmark {
+
+    @Param({"10", "10000"})
+    public int childCount;
+
+    private MemoryStore store;
+
+    private NodeState parent;
+
+    private String[] names;
+
+    private String recordId;
+
+    private int index;
+
+    @Setup
+    public void setup() throws IOException, CommitFailedException {
+        store = new MemoryStore();
+        NodeStore nodeStore = SegmentNodeStoreBuilders.builder(store).build();
+        NodeBuilder builder = nodeStore.getRoot().builder();
+        NodeBuilder test = builder.child("test");
+        names = new String[childCount];
+        for (int i = 0; i < childCount; i++) {
+            names[i] = "node-" + i;
+            NodeBuilder child = test.child(names[i]);
+            child.setProperty("jcr:primaryType", "nt:unstructured");
+            child.setProperty("title", "Node " + i);
+            child.setProperty("index", i);
+        }
+        nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        parent = nodeStore.getRoot().getChildNode("test");
+        recordId = ((SegmentNodeState) parent).getRecordId().toString();
+    }
+
+    private String nextName() {
+        index = (index + 1) % childCount;
+        return names[index];
+    }
+
+    @Benchmark
+    public boolean getChildNode() {
+        return parent.getChildNode(nextName()).exists();
+    }
+
+    @Benchmark
+    public void readProperties(Blackhole bh) {
+        for (PropertyState p : parent.getChildNode(nextName()).getProperties()) {
+            bh.consume(p.getValue(p.getType()));
+        }
+    }
+
+    @Benchmark
+    public RecordId parseRecordId() {
+        return RecordId.fromString(store.getSegmentIdProvider(), recordId);
+    }
+
+}
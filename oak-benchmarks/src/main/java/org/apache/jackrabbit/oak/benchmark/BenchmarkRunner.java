@@ -197,6 +197,8 @@ public class BenchmarkRunner {
             new SmallFileReadTest(),
             new SmallFileWriteTest(),
             new ConcurrentReadTest(),
+            VirtualThreadReadTest.withPlatformThreads(),
+            VirtualThreadReadTest.withVirtualThreads(),
             new ConcurrentReadWriteTest(),
             new ConcurrentWriteReadTest(),
             new ConcurrentWriteTest(),
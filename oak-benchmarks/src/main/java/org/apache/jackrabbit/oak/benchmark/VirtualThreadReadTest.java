@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.commons.concurrent.VirtualThreads;
+
+/**
+ * Test case that runs 10k concurrent requests, each logging in, reading
+ * random nodes from a tree of 10k nodes (100x100) and logging out. The
+ * requests either run on a pool of platform threads, as with a thread per
+ * request servlet container, or each on its own virtual thread.
+ */
+public abstract class VirtualThreadReadTest extends AbstractTest {
+
+    private static final int NODE_COUNT = 100;
+
+    private static final int REQUEST_COUNT = getScale(10000);
+
+    private static final int READS_PER_REQUEST = 10;
+
+    /**
+     * The size of the platform thread pool (the default of Jetty)
+     */
+    private static final int PLATFORM_THREADS = Integer.getInteger("platformThreads", 200);
+
+    private static final String ROOT_NODE_NAME = "test" + TEST_ID;
+
+    private final String name;
+
+    private ExecutorService executor;
+
+    public static Benchmark withPlatformThreads() {
+        return new VirtualThreadReadTest("ConcurrentReadPlatformThreads") {
+            @Override
+            protected ExecutorService createExecutor() {
+                return Executors.newFixedThreadPool(PLATFORM_THREADS);
+            }
+        };
+    }
+
+    public static Benchmark withVirtualThreads() {
+        return new VirtualThreadReadTest("ConcurrentReadVirtualThreads") {
+            @Override
+            protected ExecutorService createExecutor() {
+                return VirtualThreads.newVirtualThreadPerTaskExecutor();
+            }
+        };
+    }
+
+    protected VirtualThreadReadTest(String name) {
+        this.name = name;
+    }
+
+    protected abstract ExecutorService createExecutor();
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public void beforeSuite() throws Exception {
+        executor = createExecutor();
+        if (executor == null) {
+            issueHaltRequest("Virtual threads are not available");
+            return;
+        }
+        Session session = loginWriter();
+        Node root = session.getRootNode().addNode(ROOT_NODE_NAME, "nt:unstructured");
+        for (int i = 0; i < NODE_COUNT; i++) {
+            Node node = root.addNode("node" + i, "nt:unstructured");
+            for (int j = 0; j < NODE_COUNT; j++) {
+                node.addNode("node" + j, "nt:unstructured");
+            }
+            session.save();
+        }
+    }
+
+    @Override
+    public void runTest() throws Exception {
+        if (executor == null) {
+            return;
+        }
+        List<Future<Void>> requests = new ArrayList<Future<Void>>(REQUEST_COUNT);
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            requests.add(executor.submit(new Request()));
+        }
+        for (Future<Void> request : requests) {
+            request.get();
+        }
+    }
+
+    @Override
+    public void afterSuite() throws Exception {
+        new ExecutorCloser(executor).close();
+        if (executor == null) {
+            return;
+        }
+        Session session = loginWriter();
+        session.getRootNode().getNode(ROOT_NODE_NAME).remove();
+        session.save();
+    }
+
+    private class Request implements Callable<Void> {
+
+        @Override
+        public Void call() throws Exception {
+            Session session = getRepository().login(getCredentials());
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < READS_PER_REQUEST; i++) {
+                    int a = random.nextInt(NODE_COUNT);
+                    int b = random.nextInt(NODE_COUNT);
+                    session.getNode("/" + ROOT_NODE_NAME + "/node" + a + "/node" + b);
+                }
+            } finally {
+                session.logout();
+            }
+            return null;
+        }
+    }
+}
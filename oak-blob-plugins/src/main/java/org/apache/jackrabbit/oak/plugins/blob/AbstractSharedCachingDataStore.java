@@ -23,7 +23,6 @@ import static org.apache.jackrabbit.oak.commons.FileIOUtils.copyInputStreamToFil
 import static org.apache.jackrabbit.oak.spi.blob.BlobOptions.UploadType.SYNCHRONOUS;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -45,6 +44,7 @@ import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.core.data.MultiDataStoreAware;
 import org.apache.jackrabbit.guava.common.cache.CacheLoader;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.RangedDataRecord;
 import org.apache.jackrabbit.oak.plugins.blob.datastore.TypedDataStore;
 import org.apache.jackrabbit.oak.spi.blob.AbstractDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
@@ -74,6 +74,8 @@ import org.apache.jackrabbit.guava.common.util.concurrent.ListeningExecutorServi
  *     &lt;param name="{@link #setUploadThreads(int) uploadThreads}" value="10"/&gt;
  *     &lt;param name="{@link #setStagingPurgeInterval(int) stagingPurgeInterval}" value="300"/&gt;
  *     &lt;param name="{@link #setStagingRetryInterval(int) stagingRetryInterval} " value="600"/&gt;
+ *     &lt;param name="{@link #setMultipartThreshold(long) multipartThreshold}" value="268435456"/&gt;
+ *     &lt;param name="{@link #setPartSize(long) partSize}" value="67108864"/&gt;
  * &lt;/DataStore&gt;
  * </pre>
  */
@@ -114,6 +116,16 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
      */
     private int stagingRetryInterval = 600;
 
+    /**
+     * The size in bytes from which staged files are uploaded in parts.
+     */
+    private long multipartThreshold = UploadStagingCache.MULTIPART_THRESHOLD;
+
+    /**
+     * The size in bytes of the parts of multipart uploads.
+     */
+    private long partSize = UploadStagingCache.PART_SIZE;
+
     /**
      * The root rootDirectory where the files are created.
      */
@@ -176,8 +188,13 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
                 @Override public void adopt(File f, File moved) throws IOException {
                     FileUtils.moveFile(f, moved);
                 }
+
+                @Override public MultipartUploadBackend getMultipartUploadBackend() {
+                    return backend instanceof MultipartUploadBackend ? (MultipartUploadBackend) backend : null;
+                }
             }, statisticsProvider, listeningExecutor, schedulerExecutor, executor, stagingPurgeInterval,
                 stagingRetryInterval);
+        cache.setMultipartUpload(multipartThreshold, partSize);
     }
 
     protected abstract AbstractSharedBackend createBackend();
@@ -292,9 +309,11 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
     }
 
     /**
-     * DataRecord implementation fetching the stream from the cache.
+     * DataRecord implementation fetching the stream from the cache. A stream
+     * at an offset only waits until the download of a file not yet cached
+     * reaches the offset.
      */
-    static class FileCacheDataRecord extends AbstractDataRecord {
+    static class FileCacheDataRecord extends AbstractDataRecord implements RangedDataRecord {
         private final long length;
         private final long lastModified;
         private final AbstractSharedCachingDataStore store;
@@ -317,29 +336,41 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
 
         @Override
         public InputStream getStream() throws DataStoreException {
-            File cached = null;
+            return getStream(0);
+        }
+
+        @Override
+        public InputStream getStream(long offset) throws DataStoreException {
+            InputStream cached = null;
             // Need a catch as there's a possibility of eviction of this from cache
             try {
-                cached = store.cache.get(getIdentifier().toString());
+                cached = store.cache.getStream(getIdentifier().toString(), offset);
             } catch (final Exception e) {
                 LOG.debug("Error retrieving from cache " + getIdentifier(), e);
             }
 
             try {
                 // If cache configured to 0 will return null
-                if (cached == null || !cached.exists()) {
+                if (cached == null) {
                     InputStream in = null;
                     try {
                         TransientFileFactory fileFactory = TransientFileFactory.getInstance();
                         File tmpFile = fileFactory.createTransientFile("temp0cache", null, temp);
                         in = backend.getRecord(getIdentifier()).getStream();
                         copyInputStreamToFile(in, tmpFile);
-                        return new LazyFileInputStream(tmpFile);
+                        InputStream file = new LazyFileInputStream(tmpFile);
+                        try {
+                            IOUtils.skipFully(file, offset);
+                        } catch (IOException e) {
+                            Closeables.close(file, true);
+                            throw e;
+                        }
+                        return file;
                     } finally {
                         Closeables.close(in, false);
                     }
                 } else {
-                    return new FileInputStream(cached);
+                    return new CacheFallbackInputStream(cached, offset);
                 }
             } catch (final Exception e) {
                 throw new DataStoreException(
@@ -351,6 +382,91 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
         public long getLastModified() {
             return lastModified;
         }
+
+        /**
+         * Stream on a file of the cache, which may still be downloading. If
+         * the download fails, reading continues from the backend at the same
+         * position.
+         */
+        private class CacheFallbackInputStream extends InputStream {
+            private InputStream in;
+            private long position;
+            private boolean fallback;
+
+            CacheFallbackInputStream(InputStream in, long position) {
+                this.in = in;
+                this.position = position;
+            }
+
+            @Override
+            public int read() throws IOException {
+                while (true) {
+                    try {
+                        int b = in.read();
+                        if (b != -1) {
+                            position++;
+                        }
+                        return b;
+                    } catch (IOException e) {
+                        fallBack(e);
+                    }
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                while (true) {
+                    try {
+                        int n = in.read(b, off, len);
+                        if (n > 0) {
+                            position += n;
+                        }
+                        return n;
+                    } catch (IOException e) {
+                        fallBack(e);
+                    }
+                }
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                while (true) {
+                    try {
+                        long skipped = in.skip(n);
+                        position += skipped;
+                        return skipped;
+                    } catch (IOException e) {
+                        fallBack(e);
+                    }
+                }
+            }
+
+            @Override
+            public int available() throws IOException {
+                return in.available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+
+            private void fallBack(IOException e) throws IOException {
+                if (fallback) {
+                    throw e;
+                }
+                LOG.warn("Error reading {} from cache, reading from the backend", getIdentifier(), e);
+                Closeables.close(in, true);
+                fallback = true;
+                try {
+                    in = backend.getRecord(getIdentifier()).getStream();
+                } catch (DataStoreException dse) {
+                    e.addSuppressed(dse);
+                    throw e;
+                }
+                IOUtils.skipFully(in, position);
+            }
+        }
     }
 
     /**
@@ -407,6 +523,14 @@ public abstract class AbstractSharedCachingDataStore extends AbstractDataStore
         this.stagingRetryInterval = stagingRetryInterval;
     }
 
+    public void setMultipartThreshold(long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    public void setPartSize(long partSize) {
+        this.partSize = partSize;
+    }
+
     public void setStatisticsProvider(StatisticsProvider statisticsProvider) {
         this.statisticsProvider = statisticsProvider;
     }
@@ -19,6 +19,8 @@
 package org.apache.jackrabbit.oak.plugins.blob;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 
@@ -35,5 +37,18 @@ public interface BlobReferenceRetriever {
      * @throws IOException
      */
     void collectReferences(ReferenceCollector collector) throws IOException;
+
+    /**
+     * Split the retrieval of references into partitions which can be
+     * collected concurrently. Together the partitions must collect all the
+     * references collected by {@link #collectReferences(ReferenceCollector)}.
+     * The default implementation doesn't split the retrieval.
+     *
+     * @param maxPartitions the maximum number of partitions
+     * @return the retrievers of the partitions
+     */
+    default List<BlobReferenceRetriever> partition(int maxPartitions) {
+        return Collections.singletonList(this);
+    }
 }
 
@@ -22,6 +22,7 @@ import static org.apache.jackrabbit.guava.common.base.Preconditions.checkArgumen
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.ExecutorService;
@@ -118,6 +119,30 @@ public class CompositeDataStoreCache extends AbstractCache<String, File> impleme
         }
     }
 
+    /**
+     * Opens a stream on the file for the given key, starting at the given
+     * offset. Files not cached are streamed while being downloaded (see
+     * {@link FileCache#getStream(String, long)}).
+     *
+     * @param key of the file
+     * @param offset position of the first byte to read
+     * @return stream on the file or {@code null} if the cache is disabled
+     * @throws IOException if the file cannot be opened or downloaded
+     */
+    @Nullable
+    public InputStream getStream(String key, long offset) throws IOException {
+        // Check if the file scheduled for async upload
+        File staged = stagingCache.getIfPresent(key);
+        if (staged != null && staged.exists()) {
+            InputStream in = new FileInputStream(staged);
+            if (offset > 0) {
+                IOUtils.skipFully(in, offset);
+            }
+            return in;
+        }
+        return downloadCache.getStream(key, offset);
+    }
+
     @Override
     public void invalidate(Object key) {
         stagingCache.invalidate((String) key);
@@ -129,6 +154,18 @@ public class CompositeDataStoreCache extends AbstractCache<String, File> impleme
     }
 
 
+    /**
+     * Configures the multipart uploads of the staged files.
+     *
+     * @param multipartThreshold files of at least this size in bytes are
+     *                           uploaded in parts
+     * @param partSize size in bytes of the parts
+     */
+    public void setMultipartUpload(long multipartThreshold, long partSize) {
+        stagingCache.setMultipartThreshold(multipartThreshold);
+        stagingCache.setPartSize(partSize);
+    }
+
     public DataStoreCacheStatsMBean getStagingCacheStats() {
         return stagingCache.getStats();
     }
@@ -29,4 +29,36 @@ public interface DataStoreCacheStatsMBean extends CacheStatsMBean {
      */
     //Computing weight is costly hence its an operation
     long estimateCurrentMemoryWeight();
+
+    /**
+     * Number of uploads of small files waiting to be started
+     * @return the queue size of the small file upload lane
+     */
+    default long getSmallUploadQueueSize() {
+        return 0;
+    }
+
+    /**
+     * Number of uploads of large files waiting to be started
+     * @return the queue size of the large file upload lane
+     */
+    default long getLargeUploadQueueSize() {
+        return 0;
+    }
+
+    /**
+     * Average throughput of an upload of a small file
+     * @return the throughput in bytes per second
+     */
+    default double getSmallUploadThroughput() {
+        return 0;
+    }
+
+    /**
+     * Average throughput of an upload of a large file
+     * @return the throughput in bytes per second
+     */
+    default double getLargeUploadThroughput() {
+        return 0;
+    }
 }
@@ -19,21 +19,31 @@
 package org.apache.jackrabbit.oak.plugins.blob;
 
 import static org.apache.commons.io.FilenameUtils.normalizeNoEndSeparator;
-import static org.apache.jackrabbit.oak.commons.FileIOUtils.copyInputStreamToFile;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.guava.common.cache.Cache;
 import org.apache.jackrabbit.guava.common.cache.CacheLoader;
 import org.apache.jackrabbit.guava.common.cache.RemovalCause;
@@ -49,7 +59,6 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.jackrabbit.guava.common.base.Stopwatch;
 import org.apache.jackrabbit.guava.common.cache.AbstractCache;
-import org.apache.jackrabbit.guava.common.io.Closeables;
 
 /**
  */
@@ -61,8 +70,20 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
 
     private static final int SEGMENT_COUNT = Integer.getInteger("oak.blob.fileCache.segmentCount", 1);
 
+    /**
+     * Maximum number of downloads running in the background for
+     * {@link #getStream(String, long)}. Further downloads are run by the
+     * calling thread.
+     */
+    private static final int DOWNLOAD_THREADS = Integer.getInteger("oak.blob.fileCache.downloadThreads", 10);
+
     protected static final String DOWNLOAD_DIR = "download";
 
+    /**
+     * Suffix of the files being downloaded
+     */
+    static final String PARTIAL_SUFFIX = ".part";
+
     /**
      * Parent of the cache root directory
      */
@@ -81,6 +102,15 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
 
     private CacheLoader<String, File> cacheLoader;
 
+    private CacheLoader<String, InputStream> loader;
+
+    /**
+     * The downloads in progress by key
+     */
+    private final ConcurrentMap<String, Download> downloads = new ConcurrentHashMap<>();
+
+    private ExecutorService downloadExecutor;
+
     /**
      * Convert the size calculation to KB to support max file size of 2 TB
      */
@@ -102,31 +132,17 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
         // convert to number of 4 KB blocks
         long size = Math.round(maxSize / (1024L * 4));
 
+        this.loader = loader;
         cacheLoader = new CacheLoader<>() {
             @Override
             public File load(String key) throws Exception {
-                // Fetch from local cache directory and if not found load from backend
+                // Fetch from local cache directory and if not found load from backend,
+                // sharing a download already in progress
                 File cachedFile = DataStoreCacheUtils.getFile(key, cacheRoot);
                 if (cachedFile.exists()) {
                     return cachedFile;
                 } else {
-                    InputStream is = null;
-                    boolean threw = true;
-                    long startNanos = System.nanoTime();
-                    try {
-                        is = loader.load(key);
-                        copyInputStreamToFile(is, cachedFile);
-                        threw = false;
-                    } catch (Exception e) {
-                        LOG.warn("Error reading object for id [{}] from backend", key, e);
-                        throw e;
-                    } finally {
-                        Closeables.close(is, threw);
-                    }
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Loaded file: {} in {}", key, (System.nanoTime() - startNanos) / 1_000_000);
-                    }
-                    return cachedFile;
+                    return download(key, false).await();
                 }
             }
         };
@@ -160,6 +176,10 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
             this.executor = executor;
         }
         this.executor.submit(new CacheBuildJob());
+
+        this.downloadExecutor = new ThreadPoolExecutor(0, DOWNLOAD_THREADS, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new NamedThreadFactory("oak-ds-download-thread"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     private FileCache() {
@@ -189,6 +209,10 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
                 return null;
             }
 
+            @Nullable @Override public InputStream getStream(String key, long offset) {
+                return null;
+            }
+
             @Override public void invalidate(Object key) {
             }
 
@@ -268,6 +292,53 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
         }
     }
 
+    /**
+     * Opens a stream on the file for the given key, starting at the given
+     * offset. If the file is not cached, it is downloaded in the background
+     * and the stream returns the bytes as they are downloaded. Concurrent
+     * readers of the same key share the download.
+     *
+     * @param key of the file
+     * @param offset position of the first byte to read
+     * @return stream on the file
+     * @throws IOException if the file cannot be opened or the download fails
+     */
+    @Nullable
+    public InputStream getStream(String key, long offset) throws IOException {
+        File cached = getIfPresent(key);
+        if (cached != null) {
+            try {
+                FileChannel channel = FileChannel.open(cached.toPath(), StandardOpenOption.READ);
+                return new DownloadInputStream(null, channel, offset);
+            } catch (IOException e) {
+                LOG.debug("Cached file [{}] not readable, downloading again", cached, e);
+            }
+        }
+        Download download = download(key, true);
+        return new DownloadInputStream(download, download.open(), offset);
+    }
+
+    /**
+     * Returns the download of the file for the given key, starting it if
+     * none is in progress.
+     *
+     * @param async whether a new download runs in the background or in the
+     *              calling thread
+     */
+    private Download download(String key, boolean async) {
+        Download download = new Download(key, async);
+        Download existing = downloads.putIfAbsent(key, download);
+        if (existing != null) {
+            return existing;
+        }
+        if (async) {
+            downloadExecutor.execute(download);
+        } else {
+            download.run();
+        }
+        return download;
+    }
+
     @Override
     public void invalidate(Object key) {
         cache.invalidate(key);
@@ -281,6 +352,216 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
     public void close() {
         LOG.info("Cache stats on close [{}]", cacheStats.cacheInfoAsString());
         new ExecutorCloser(executor).close();
+        new ExecutorCloser(downloadExecutor).close();
+    }
+
+    /**
+     * Download of a file from the backend into the cache. The file is first
+     * written to a partial file next to the cached one, which is readable
+     * while the download is in progress, and renamed once complete.
+     */
+    private class Download implements Runnable {
+        private final String key;
+        private final File target;
+        private final File partial;
+        private final boolean async;
+
+        private long length;
+        private boolean done;
+        private boolean moved;
+        private Exception failure;
+
+        /**
+         * @param async whether the download runs in the background, in which
+         *              case it adds the downloaded file to the cache, otherwise
+         *              the calling cache loader does it
+         */
+        Download(String key, boolean async) {
+            this.key = key;
+            this.async = async;
+            this.target = DataStoreCacheUtils.getFile(key, cacheRoot);
+            this.partial = new File(target.getParentFile(), target.getName() + PARTIAL_SUFFIX);
+        }
+
+        @Override
+        public void run() {
+            Exception error = null;
+            long startNanos = System.nanoTime();
+            try {
+                if (!target.exists()) {
+                    try (InputStream in = loader.load(key);
+                         OutputStream out = new FileOutputStream(partial)) {
+                        byte[] buffer = new byte[64 * 1024];
+                        int n;
+                        while ((n = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, n);
+                            written(n);
+                        }
+                    }
+                    synchronized (this) {
+                        FileUtils.moveFile(partial, target);
+                        moved = true;
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Loaded file: {} in {}", key, (System.nanoTime() - startNanos) / 1_000_000);
+                    }
+                } else {
+                    synchronized (this) {
+                        length = target.length();
+                        moved = true;
+                    }
+                }
+                if (async) {
+                    cache.put(key, target);
+                }
+            } catch (Exception e) {
+                LOG.warn("Error reading object for id [{}] from backend", key, e);
+                FileUtils.deleteQuietly(partial);
+                error = e;
+            } finally {
+                downloads.remove(key, this);
+                done(error);
+            }
+        }
+
+        private synchronized void written(int n) {
+            length += n;
+            notifyAll();
+        }
+
+        private synchronized void done(Exception error) {
+            failure = error;
+            done = true;
+            notifyAll();
+        }
+
+        /**
+         * Opens a channel on the file being downloaded.
+         */
+        synchronized FileChannel open() throws IOException {
+            if (done && failure != null) {
+                throw new IOException("Error downloading " + key, failure);
+            }
+            File file = moved ? target : partial;
+            if (!moved) {
+                // The download might not have created the file yet
+                FileUtils.touch(partial);
+            }
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        /**
+         * Waits for the download to complete.
+         *
+         * @return the downloaded file
+         */
+        synchronized File await() throws IOException {
+            while (!done) {
+                waitForProgress();
+            }
+            if (failure != null) {
+                throw new IOException("Error downloading " + key, failure);
+            }
+            return target;
+        }
+
+        /**
+         * Waits until the byte at the given position is downloaded or the
+         * download is complete.
+         *
+         * @return the number of bytes downloaded
+         */
+        synchronized long awaitPosition(long position) throws IOException {
+            while (position >= length && !done) {
+                waitForProgress();
+            }
+            if (failure != null) {
+                throw new IOException("Error downloading " + key, failure);
+            }
+            return length;
+        }
+
+        synchronized long length() {
+            return length;
+        }
+
+        private void waitForProgress() throws InterruptedIOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while downloading " + key);
+            }
+        }
+    }
+
+    /**
+     * Stream reading a cached file, or a file being downloaded in which case
+     * reads block until the requested bytes are downloaded.
+     */
+    private static class DownloadInputStream extends InputStream {
+        @Nullable
+        private final Download download;
+        private final FileChannel channel;
+        private final byte[] single = new byte[1];
+        private long position;
+
+        DownloadInputStream(@Nullable Download download, FileChannel channel, long position) {
+            this.download = download;
+            this.channel = channel;
+            this.position = position;
+        }
+
+        private long awaitPosition() throws IOException {
+            if (download == null) {
+                return channel.size();
+            }
+            return download.awaitPosition(position);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long length = awaitPosition();
+            if (position >= length) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, length - position)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            long length = awaitPosition();
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            long length = download == null ? channel.size() : download.length();
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length - position));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
     }
 
     /**
@@ -309,6 +590,17 @@ public class FileCache extends AbstractCache<String, File> implements Closeable
                 .filter(file -> file.isFile() &&
                         !normalizeNoEndSeparator(file.getParent()).equals(cacheRoot.getAbsolutePath())
                 )
+                .filter(file -> {
+                    // Remove downloads interrupted by a shutdown
+                    String name = file.getName();
+                    if (name.endsWith(PARTIAL_SUFFIX)) {
+                        if (!downloads.containsKey(name.substring(0, name.length() - PARTIAL_SUFFIX.length()))) {
+                            FileUtils.deleteQuietly(file);
+                        }
+                        return false;
+                    }
+                    return true;
+                })
                 .flatMap(toBeSyncedFile -> {
                     try {
                         put(toBeSyncedFile.getName(), toBeSyncedFile, false);
@@ -48,6 +48,9 @@ import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -67,6 +70,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.LineIterator;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.oak.api.jmx.CheckpointMBean;
 import org.apache.jackrabbit.oak.commons.FileIOUtils;
 import org.apache.jackrabbit.oak.commons.io.FileLineDifferenceIterator;
@@ -114,6 +118,20 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
             return "";
         }};
 
+    /**
+     * Orders the marked references by their blob id, ignoring the node id
+     * which may be logged with it.
+     */
+    private static final Comparator<String> markedRefsComparator = comparing(s -> s.split(DELIM)[0]);
+
+    /**
+     * Number of threads collecting blob references in the mark phase. If more
+     * than one thread is configured the reference retrieval is partitioned,
+     * provided the {@link BlobReferenceRetriever} supports it, and the blob ids
+     * available in the blob store are retrieved concurrently with marking.
+     */
+    static final int MARK_THREADS = Integer.getInteger("oak.blob.gc.markThreads", 1);
+
     /** The last modified time before current time of blobs to consider for garbage collection. */
     private final long maxLastModifiedInterval;
 
@@ -156,6 +174,8 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
 
     private Clock clock;
 
+    private int markThreads = MARK_THREADS;
+
     /**
      * Creates an instance of MarkSweepGarbageCollector
      *
@@ -338,10 +358,18 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
         boolean threw = true;
         GarbageCollectorFileState fs = new GarbageCollectorFileState(root);
         Stopwatch sw = Stopwatch.createStarted();
+        ExecutorService retrieveExecutor = null;
 
         try {
             LOG.info("Starting Blob garbage collection with markOnly [{}] for repositoryId [{}]", markOnly, repoId);
 
+            // Retrieve the available blob ids while marking when marking in parallel
+            Future<Integer> blobIdRetriever = null;
+            if (!markOnly && markThreads > 1) {
+                retrieveExecutor = newExecutor(1);
+                blobIdRetriever = retrieveExecutor.submit(new BlobIdRetriever(fs, forceBlobRetrieve));
+            }
+
             long markStart = System.currentTimeMillis();
             long markFinish;
             try {
@@ -356,7 +384,11 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
             if (!markOnly) {
                 long deleteCount;
                 try {
-                    deleteCount = sweep(fs, markStart, forceBlobRetrieve);
+                    if (blobIdRetriever != null) {
+                        deleteCount = sweep(fs, markStart, blobIdRetriever::get);
+                    } else {
+                        deleteCount = sweep(fs, markStart, forceBlobRetrieve);
+                    }
 
                     long maxTime = getMaxModifiedTime(markStart) > 0 ? getMaxModifiedTime(markStart) : markStart;
                     LOG.info("Blob garbage collection completed in {} ({} ms). Number of blobs deleted [{}] with max modification time of [{}]",
@@ -375,6 +407,9 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
             LOG.error("Blob garbage collection error", e);
             throw e;
         } finally {
+            if (retrieveExecutor != null) {
+                retrieveExecutor.shutdownNow();
+            }
             statsCollector.updateDuration(sw.elapsed(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
             if (!LOG.isTraceEnabled() && !traceOutput) {
                 Closeables.close(fs, threw);
@@ -483,6 +518,11 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
      * @param forceBlobRetrieve
      */
     protected long sweep(GarbageCollectorFileState fs, long markStart, boolean forceBlobRetrieve) throws Exception {
+        return sweep(fs, markStart, new BlobIdRetriever(fs, forceBlobRetrieve));
+    }
+
+    private long sweep(GarbageCollectorFileState fs, long markStart, Callable<Integer> blobIdRetriever)
+            throws Exception {
         long earliestRefAvailTime;
         // Merge all the blob references available from all the reference files in the data store meta store
         // Only go ahead if merge succeeded
@@ -493,7 +533,7 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
         earliestRefAvailTime = (earliestRefAvailTime < markStart ? earliestRefAvailTime : markStart);
 
         // Find all blob references after iterating over the whole repository
-        (new BlobIdRetriever(fs, forceBlobRetrieve)).call();
+        blobIdRetriever.call();
 
         // Calculate the references not used
         difference(fs);
@@ -538,6 +578,11 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
             closeQuietly(removesWriter);
         }
 
+        if (deleted > 0 && blobStore instanceof PackedBlobStore) {
+            // reclaim the packs of the deleted binaries once for the whole sweep
+            ((PackedBlobStore) blobStore).repack();
+        }
+
         if (checkConsistencyAfterGc) {
             BlobCollectionType.get(blobStore).checkConsistencyAfterGC(blobStore, fs, consistencyStats);
         }
@@ -618,10 +663,76 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
      * @param logPath whether to log path in the file or not
      */
     protected void iterateNodeTree(GarbageCollectorFileState fs, final boolean logPath) throws IOException {
-        final BufferedWriter writer = Files.newWriter(fs.getMarkedRefs(), StandardCharsets.UTF_8);
         final AtomicInteger count = new AtomicInteger();
+        List<BlobReferenceRetriever> partitions = markThreads > 1
+            ? marker.partition(markThreads)
+            : Collections.singletonList(marker);
+
+        if (partitions.size() <= 1) {
+            collectReferences(marker, fs.getMarkedRefs(), logPath, count);
+            LOG.info("Number of valid blob references marked under mark phase of " +
+                    "Blob garbage collection [{}]", count.get());
+            // sort the marked references with the first part of the key
+            sort(fs.getMarkedRefs(), markedRefsComparator);
+        } else {
+            List<File> runs = collectReferences(partitions, fs, logPath, count);
+            LOG.info("Number of valid blob references marked under mark phase of " +
+                    "Blob garbage collection [{}] in {} partitions", count.get(), runs.size());
+            // merge the sorted runs of the partitions
+            merge(runs, fs.getMarkedRefs(), markedRefsComparator);
+        }
+    }
+
+    /**
+     * Collect the references of the given partitions concurrently. Each
+     * partition is written to its own file, which is sorted once the
+     * partition has been collected.
+     *
+     * @return the sorted files of the partitions
+     */
+    private List<File> collectReferences(List<BlobReferenceRetriever> partitions, GarbageCollectorFileState fs,
+            boolean logPath, AtomicInteger count) throws IOException {
+        ExecutorService markExecutor = newExecutor(Math.min(markThreads, partitions.size()));
         try {
-            marker.collectReferences(
+            List<File> runs = newArrayList();
+            List<Future<?>> futures = newArrayList();
+            for (BlobReferenceRetriever partition : partitions) {
+                File run = new File(fs.getMarkedRefs().getParentFile(),
+                    fs.getMarkedRefs().getName() + "-" + runs.size());
+                runs.add(run);
+                futures.add(markExecutor.submit(() -> {
+                    collectReferences(partition, run, logPath, count);
+                    sort(run, markedRefsComparator);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while collecting references", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException("Error in collecting references", cause);
+                }
+            }
+            return runs;
+        } finally {
+            markExecutor.shutdownNow();
+        }
+    }
+
+    private void collectReferences(BlobReferenceRetriever retriever, File file, final boolean logPath,
+            final AtomicInteger count) throws IOException {
+        final BufferedWriter writer = Files.newWriter(file, StandardCharsets.UTF_8);
+        try {
+            retriever.collectReferences(
                     new ReferenceCollector() {
                         private final boolean debugMode = LOG.isTraceEnabled();
 
@@ -658,21 +769,15 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
                         }
                     }
             );
-            LOG.info("Number of valid blob references marked under mark phase of " +
-                    "Blob garbage collection [{}]", count.get());
-            // sort the marked references with the first part of the key
-            sort(fs.getMarkedRefs(),
-                new Comparator<String>() {
-                    @Override
-                    public int compare(String s1, String s2) {
-                        return s1.split(DELIM)[0].compareTo(s2.split(DELIM)[0]);
-                    }
-                });
         } finally {
             closeQuietly(writer);
         }
     }
-    
+
+    private static ExecutorService newExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new NamedThreadFactory("oak-blob-gc-thread"));
+    }
+
     @Override
     public long checkConsistency(boolean markOnly) throws Exception {
         consistencyStatsCollector.start();
@@ -799,6 +904,10 @@ public class MarkSweepGarbageCollector implements BlobGarbageCollector {
         this.clock = clock;
     }
 
+    public void setMarkThreads(int markThreads) {
+        this.markThreads = markThreads;
+    }
+
     /**
      * BlobIdRetriever class to retrieve all blob ids.
      */
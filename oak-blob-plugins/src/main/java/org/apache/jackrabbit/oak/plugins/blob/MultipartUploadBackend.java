@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import java.io.File;
+
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.apache.jackrabbit.core.data.DataStoreException;
+
+/**
+ * Backend which can write a record in several parts uploaded concurrently.
+ * Implemented by backends of an {@link AbstractSharedCachingDataStore} to
+ * speed up the upload of large files from the {@link UploadStagingCache}.
+ */
+public interface MultipartUploadBackend {
+
+    /**
+     * @return the minimum size in bytes of all the parts of an upload except
+     * the last one
+     */
+    long getMinPartSize();
+
+    /**
+     * Start writing a record in parts.
+     *
+     * @param identifier the identifier of the record
+     * @param length the total length of the record
+     * @return the upload, to which the parts are added
+     * @throws DataStoreException if the upload can't be started
+     */
+    MultipartUpload initiateMultipartUpload(DataIdentifier identifier, long length) throws DataStoreException;
+
+    /**
+     * A record being written in parts. Parts may be uploaded concurrently and
+     * in any order. The record only becomes visible once the upload is
+     * completed.
+     */
+    interface MultipartUpload {
+
+        /**
+         * Upload a part of the record.
+         *
+         * @param partNumber the number of the part, starting at {@code 1}
+         * @param file the file containing the record
+         * @param offset the offset of the part in the file
+         * @param length the length of the part
+         * @throws DataStoreException if the part can't be uploaded
+         */
+        void uploadPart(int partNumber, File file, long offset, long length) throws DataStoreException;
+
+        /**
+         * Complete the upload after all the parts have been uploaded.
+         *
+         * @throws DataStoreException if the record can't be completed
+         */
+        void complete() throws DataStoreException;
+
+        /**
+         * Abort the upload and discard the parts uploaded so far.
+         */
+        void abort();
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jackrabbit.guava.common.collect.Iterators;
+import org.apache.jackrabbit.guava.common.collect.Lists;
+import org.apache.jackrabbit.oak.commons.IOUtils;
+import org.apache.jackrabbit.oak.commons.StringUtils;
+import org.apache.jackrabbit.oak.spi.blob.BlobOptions;
+import org.apache.jackrabbit.oak.spi.blob.GarbageCollectableBlobStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A blob store which packs small binaries into large pack files, to avoid
+ * storing each of them as an individual record of the wrapped blob store.
+ * Binaries larger than the configured size are passed through to the wrapped
+ * blob store.
+ * <p>
+ * Small binaries are appended to a pack file in a local directory. Once it
+ * reaches the configured pack size, the pack file is written to the wrapped
+ * blob store as a single blob. The location of the packed binaries is kept in
+ * an append only index file in the same directory. The local directory must
+ * therefore be as persistent as the repository itself, and the store is not
+ * suitable to be shared by several cluster nodes.
+ * <p>
+ * Packed binaries are garbage collected like the other blobs: they are listed
+ * by {@link #getAllChunkIds(long)} and deleted with
+ * {@link #countDeleteChunks(List, long)}, while the pack blobs themselves are
+ * hidden from the garbage collector. Deleting packed binaries only removes
+ * them from the index. The packs which became mostly garbage are reclaimed by
+ * {@link #repack()}, which the {@link MarkSweepGarbageCollector} runs once at
+ * the end of its sweep.
+ */
+public class PackedBlobStore implements GarbageCollectableBlobStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PackedBlobStore.class);
+
+    /**
+     * Binaries up to this size in bytes are packed.
+     */
+    public static final int DEFAULT_MAX_BLOB_SIZE = Integer.getInteger("oak.blob.packed.maxBlobSize", 64 * 1024);
+
+    /**
+     * Size in bytes from which a pack is written to the wrapped blob store.
+     */
+    public static final int DEFAULT_PACK_SIZE = Integer.getInteger("oak.blob.packed.packSize", 16 * 1024 * 1024);
+
+    /**
+     * The prefix of the identifiers of packed binaries
+     */
+    static final String PREFIX = "pb-";
+
+    private static final String INDEX_FILE = "index";
+
+    private static final String CURRENT_PACK_FILE = "current.pack";
+
+    /**
+     * Marks the entries of the current pack in the index file.
+     */
+    private static final String CURRENT_PACK = "-";
+
+    private final GarbageCollectableBlobStore delegate;
+
+    private final File directory;
+
+    private final int maxBlobSize;
+
+    private final int packSize;
+
+    /**
+     * The location of the packed binaries
+     */
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    /**
+     * The ids of the packs written to the wrapped blob store, with their size
+     */
+    private final Map<String, Long> packs = new ConcurrentHashMap<>();
+
+    /**
+     * The binaries in the current pack
+     */
+    private final List<String> currentIds = new ArrayList<>();
+
+    private FileChannel currentPack;
+
+    private long currentSize;
+
+    private Writer indexWriter;
+
+    public PackedBlobStore(GarbageCollectableBlobStore delegate, File directory) throws IOException {
+        this(delegate, directory, DEFAULT_MAX_BLOB_SIZE, DEFAULT_PACK_SIZE);
+    }
+
+    public PackedBlobStore(GarbageCollectableBlobStore delegate, File directory, int maxBlobSize, int packSize)
+            throws IOException {
+        checkArgument(maxBlobSize > 0 && maxBlobSize <= packSize,
+                "Max blob size must be positive and not larger than the pack size: %s", maxBlobSize);
+        this.delegate = delegate;
+        this.directory = directory;
+        this.maxBlobSize = maxBlobSize;
+        this.packSize = packSize;
+        Files.createDirectories(directory.toPath());
+        open();
+    }
+
+    //~---------------------------------------------< BlobStore >
+
+    @Override
+    public String writeBlob(InputStream in) throws IOException {
+        return writeBlob(in, null);
+    }
+
+    @Override
+    public String writeBlob(InputStream in, BlobOptions options) throws IOException {
+        byte[] buffer = new byte[maxBlobSize + 1];
+        int n = IOUtils.readFully(in, buffer, 0, buffer.length);
+        if (n <= maxBlobSize) {
+            in.close();
+            return writePacked(buffer, n);
+        }
+        InputStream stream = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, n), in);
+        return options == null ? delegate.writeBlob(stream) : delegate.writeBlob(stream, options);
+    }
+
+    @Override
+    public int readBlob(String blobId, long pos, byte[] buff, int off, int length) throws IOException {
+        if (!isPacked(blobId)) {
+            return delegate.readBlob(blobId, pos, buff, off, length);
+        }
+        byte[] data = readPacked(blobId);
+        if (pos >= data.length) {
+            return -1;
+        }
+        int n = (int) Math.min(length, data.length - pos);
+        System.arraycopy(data, (int) pos, buff, off, n);
+        return n;
+    }
+
+    @Override
+    public long getBlobLength(String blobId) throws IOException {
+        if (!isPacked(blobId)) {
+            return delegate.getBlobLength(blobId);
+        }
+        return getLocation(blobId).length;
+    }
+
+    @Override
+    public InputStream getInputStream(String blobId) throws IOException {
+        if (!isPacked(blobId)) {
+            return delegate.getInputStream(blobId);
+        }
+        return new ByteArrayInputStream(readPacked(blobId));
+    }
+
+    @Override
+    public @Nullable String getBlobId(@NotNull String reference) {
+        return delegate.getBlobId(reference);
+    }
+
+    /**
+     * References are not created for packed binaries.
+     */
+    @Override
+    public @Nullable String getReference(@NotNull String blobId) {
+        return isPacked(blobId) ? null : delegate.getReference(blobId);
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        if (currentPack != null) {
+            currentPack.close();
+            indexWriter.close();
+            currentPack = null;
+        }
+        delegate.close();
+    }
+
+    //~---------------------------------------------< GarbageCollectableBlobStore >
+
+    @Override
+    public void setBlockSize(int x) {
+        delegate.setBlockSize(x);
+    }
+
+    @Override
+    public String writeBlob(String tempFileName) throws IOException {
+        File file = new File(tempFileName);
+        if (file.length() > maxBlobSize) {
+            return delegate.writeBlob(tempFileName);
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        String blobId = writePacked(data, data.length);
+        Files.delete(file.toPath());
+        return blobId;
+    }
+
+    @Override
+    public int sweep() throws IOException {
+        return delegate.sweep();
+    }
+
+    @Override
+    public void startMark() throws IOException {
+        delegate.startMark();
+    }
+
+    @Override
+    public void clearInUse() {
+        delegate.clearInUse();
+    }
+
+    @Override
+    public void clearCache() {
+        delegate.clearCache();
+    }
+
+    @Override
+    public long getBlockSizeMin() {
+        return delegate.getBlockSizeMin();
+    }
+
+    /**
+     * Returns the ids of the packed binaries and of the blobs of the wrapped
+     * blob store, except for the pack blobs.
+     */
+    @Override
+    public Iterator<String> getAllChunkIds(long maxLastModifiedTime) throws Exception {
+        Set<String> packChunks = new HashSet<>();
+        for (String pack : packs.keySet()) {
+            Iterators.addAll(packChunks, delegate.resolveChunks(pack));
+        }
+        List<String> packed = new ArrayList<>();
+        for (Map.Entry<String, Location> e : index.entrySet()) {
+            if (isOlder(e.getValue(), maxLastModifiedTime)) {
+                packed.add(e.getKey());
+            }
+        }
+        return Iterators.concat(
+                Iterators.filter(delegate.getAllChunkIds(maxLastModifiedTime), id -> !packChunks.contains(id)),
+                packed.iterator());
+    }
+
+    @Override
+    public boolean deleteChunks(List<String> chunkIds, long maxLastModifiedTime) throws Exception {
+        return (chunkIds.size() == countDeleteChunks(chunkIds, maxLastModifiedTime));
+    }
+
+    @Override
+    public long countDeleteChunks(List<String> chunkIds, long maxLastModifiedTime) throws Exception {
+        List<String> delegated = new ArrayList<>();
+        long count = 0;
+        synchronized (this) {
+            for (String chunkId : chunkIds) {
+                if (!isPacked(chunkId)) {
+                    delegated.add(chunkId);
+                    continue;
+                }
+                Location location = index.get(chunkId);
+                if (location != null && isOlder(location, maxLastModifiedTime)) {
+                    index.remove(chunkId);
+                    if (location.pack == null) {
+                        currentIds.remove(chunkId);
+                    }
+                    indexWriter.write("- " + chunkId + "\n");
+                    count++;
+                }
+            }
+            if (count > 0) {
+                indexWriter.flush();
+            }
+        }
+        if (!delegated.isEmpty()) {
+            count += delegate.countDeleteChunks(delegated, maxLastModifiedTime);
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<String> resolveChunks(String blobId) throws IOException {
+        if (!isPacked(blobId)) {
+            return delegate.resolveChunks(blobId);
+        }
+        return Collections.singletonList(blobId).iterator();
+    }
+
+    /**
+     * Copy the live binaries of the packs which are mostly garbage to the
+     * current pack, rewrite the index and delete the packs from the wrapped
+     * blob store. This is a maintenance operation to run after packed
+     * binaries were deleted, rather than after each deletion.
+     *
+     * @return the number of packs deleted
+     */
+    public synchronized int repack() throws Exception {
+        Map<String, Long> liveBytes = new HashMap<>();
+        for (Location location : index.values()) {
+            if (location.pack != null) {
+                liveBytes.merge(location.pack, (long) location.length, Long::sum);
+            }
+        }
+        Set<String> garbage = new HashSet<>();
+        for (Map.Entry<String, Long> pack : packs.entrySet()) {
+            if (liveBytes.getOrDefault(pack.getKey(), 0L) * 2 <= pack.getValue()) {
+                garbage.add(pack.getKey());
+            }
+        }
+
+        for (Map.Entry<String, Location> e : new ArrayList<>(index.entrySet())) {
+            Location location = e.getValue();
+            if (location.pack != null && garbage.contains(location.pack)) {
+                byte[] data = readFromPack(location);
+                append(e.getKey(), data, data.length, location.lastModified);
+            }
+        }
+        packs.keySet().removeAll(garbage);
+        writeIndex();
+
+        for (String pack : garbage) {
+            delegate.countDeleteChunks(Lists.newArrayList(delegate.resolveChunks(pack)), 0);
+        }
+        LOG.info("Repacked {} packs, {} packs remaining", garbage.size(), packs.size());
+        return garbage.size();
+    }
+
+    //~---------------------------------------------< internal >
+
+    static boolean isPacked(String blobId) {
+        return blobId.startsWith(PREFIX);
+    }
+
+    private static boolean isOlder(Location location, long maxLastModifiedTime) {
+        return maxLastModifiedTime <= 0 || location.lastModified <= maxLastModifiedTime;
+    }
+
+    private Location getLocation(String blobId) throws IOException {
+        Location location = index.get(blobId);
+        if (location == null) {
+            throw new IOException("Packed blob not found: " + blobId);
+        }
+        return location;
+    }
+
+    private String writePacked(byte[] data, int length) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update(data, 0, length);
+        String blobId = PREFIX + StringUtils.convertBytesToHex(digest.digest());
+        synchronized (this) {
+            Location location = index.get(blobId);
+            if (location != null) {
+                // same content already packed, only update the timestamp
+                location = new Location(location.pack, location.offset, location.length,
+                        System.currentTimeMillis());
+                index.put(blobId, location);
+                writeEntry(indexWriter, blobId, location);
+            } else {
+                append(blobId, data, length, System.currentTimeMillis());
+            }
+        }
+        return blobId;
+    }
+
+    /**
+     * Append a binary to the current pack, and write the pack to the wrapped
+     * blob store if it is full.
+     */
+    private void append(String blobId, byte[] data, int length, long lastModified) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        long offset = currentSize;
+        while (buffer.hasRemaining()) {
+            currentPack.write(buffer, offset + buffer.position());
+        }
+        currentSize += length;
+        Location location = new Location(null, offset, length, lastModified);
+        index.put(blobId, location);
+        currentIds.add(blobId);
+        writeEntry(indexWriter, blobId, location);
+        if (currentSize >= packSize) {
+            seal();
+        }
+    }
+
+    /**
+     * Write the current pack to the wrapped blob store and start a new one.
+     */
+    private void seal() throws IOException {
+        currentPack.force(false);
+        String pack;
+        try (InputStream in = Files.newInputStream(new File(directory, CURRENT_PACK_FILE).toPath())) {
+            pack = delegate.writeBlob(in);
+        }
+        packs.put(pack, currentSize);
+        for (String blobId : currentIds) {
+            Location location = index.get(blobId);
+            index.put(blobId, new Location(pack, location.offset, location.length, location.lastModified));
+        }
+        indexWriter.write("S " + pack + " " + currentSize + "\n");
+        indexWriter.flush();
+        LOG.debug("Written pack {} of {} bytes with {} blobs", pack, currentSize, currentIds.size());
+
+        currentIds.clear();
+        currentPack.truncate(0);
+        currentSize = 0;
+    }
+
+    private byte[] readPacked(String blobId) throws IOException {
+        Location location = getLocation(blobId);
+        if (location.pack == null) {
+            synchronized (this) {
+                location = getLocation(blobId);
+                if (location.pack == null) {
+                    ByteBuffer buffer = ByteBuffer.allocate(location.length);
+                    while (buffer.hasRemaining()) {
+                        if (currentPack.read(buffer, location.offset + buffer.position()) < 0) {
+                            throw new EOFException("Unexpected end of pack for " + blobId);
+                        }
+                    }
+                    return buffer.array();
+                }
+            }
+        }
+        try {
+            return readFromPack(location);
+        } catch (IOException e) {
+            // the pack may have been repacked concurrently
+            Location current = getLocation(blobId);
+            if (current.equals(location)) {
+                throw e;
+            }
+            return readPacked(blobId);
+        }
+    }
+
+    private byte[] readFromPack(Location location) throws IOException {
+        byte[] data = new byte[location.length];
+        int pos = 0;
+        while (pos < data.length) {
+            int n = delegate.readBlob(location.pack, location.offset + pos, data, pos, data.length - pos);
+            if (n <= 0) {
+                throw new EOFException("Unexpected end of pack " + location.pack);
+            }
+            pos += n;
+        }
+        return data;
+    }
+
+    /**
+     * Read the index and open the current pack.
+     */
+    private void open() throws IOException {
+        File indexFile = new File(directory, INDEX_FILE);
+        if (indexFile.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readEntry(line);
+                }
+            }
+        }
+
+        File currentFile = new File(directory, CURRENT_PACK_FILE);
+        currentPack = FileChannel.open(currentFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        currentSize = currentPack.size();
+        for (Iterator<String> it = currentIds.iterator(); it.hasNext(); ) {
+            String blobId = it.next();
+            Location location = index.get(blobId);
+            if (location.offset + location.length > currentSize) {
+                LOG.warn("Packed blob {} missing from the current pack", blobId);
+                index.remove(blobId);
+                it.remove();
+            }
+        }
+        if (currentIds.isEmpty()) {
+            // the current pack was written, but not truncated
+            currentPack.truncate(0);
+            currentSize = 0;
+        }
+        writeIndex();
+    }
+
+    private void readEntry(String line) throws IOException {
+        String[] parts = line.split(" ");
+        switch (parts[0]) {
+            case "+":
+                String pack = CURRENT_PACK.equals(parts[2]) ? null : parts[2];
+                Location location = new Location(pack, Long.parseLong(parts[3]),
+                        Integer.parseInt(parts[4]), Long.parseLong(parts[5]));
+                Location previous = index.get(parts[1]);
+                if (pack == null && (previous == null || previous.pack != null)) {
+                    currentIds.add(parts[1]);
+                }
+                index.put(parts[1], location);
+                break;
+            case "-":
+                if (index.remove(parts[1]) != null) {
+                    currentIds.remove(parts[1]);
+                }
+                break;
+            case "S":
+                for (String blobId : currentIds) {
+                    Location current = index.get(blobId);
+                    index.put(blobId, new Location(parts[1], current.offset, current.length, current.lastModified));
+                }
+                currentIds.clear();
+                packs.put(parts[1], Long.parseLong(parts[2]));
+                break;
+            default:
+                throw new IOException("Invalid entry in pack index: " + line);
+        }
+    }
+
+    private static void writeEntry(Writer writer, String blobId, Location location) throws IOException {
+        writer.write("+ " + blobId + " " + (location.pack == null ? CURRENT_PACK : location.pack)
+                + " " + location.offset + " " + location.length + " " + location.lastModified + "\n");
+        writer.flush();
+    }
+
+    /**
+     * Rewrite the index with the current entries only, replacing the existing
+     * one atomically.
+     */
+    private void writeIndex() throws IOException {
+        if (indexWriter != null) {
+            indexWriter.close();
+        }
+        File indexFile = new File(directory, INDEX_FILE);
+        File tmpFile = new File(directory, INDEX_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> pack : packs.entrySet()) {
+                writer.write("S " + pack.getKey() + " " + pack.getValue() + "\n");
+            }
+            for (Map.Entry<String, Location> e : index.entrySet()) {
+                writeEntry(writer, e.getKey(), e.getValue());
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexWriter = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * The location of a packed binary.
+     */
+    private static final class Location {
+
+        /**
+         * The id of the pack, or {@code null} for the current pack
+         */
+        private final String pack;
+
+        private final long offset;
+
+        private final int length;
+
+        private final long lastModified;
+
+        Location(String pack, long offset, int length, long lastModified) {
+            this.pack = pack;
+            this.offset = offset;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Location)) {
+                return false;
+            }
+            Location that = (Location) o;
+            return offset == that.offset && length == that.length
+                    && lastModified == that.lastModified && Objects.equals(pack, that.pack);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pack, offset, length);
+        }
+    }
+}
@@ -28,10 +28,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -46,11 +50,13 @@ import org.apache.jackrabbit.guava.common.util.concurrent.ListenableFuture;
 import org.apache.jackrabbit.guava.common.util.concurrent.ListeningExecutorService;
 import org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors;
 import org.apache.jackrabbit.guava.common.util.concurrent.SettableFuture;
+import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.oak.commons.StringUtils;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
+import org.apache.jackrabbit.oak.plugins.blob.MultipartUploadBackend.MultipartUpload;
 import org.apache.jackrabbit.oak.stats.CounterStats;
 import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
 import org.apache.jackrabbit.oak.stats.MeterStats;
@@ -62,6 +68,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.apache.jackrabbit.guava.common.base.MoreObjects.toStringHelper;
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static org.apache.jackrabbit.oak.commons.IOUtils.humanReadableByteCount;
 import static org.apache.jackrabbit.oak.plugins.blob.DataStoreCacheUpgradeUtils
@@ -83,6 +90,28 @@ public class UploadStagingCache implements Closeable {
 
     protected static final String UPLOAD_STAGING_DIR = "upload";
 
+    /**
+     * Files smaller than this size in bytes are uploaded in a lane of their
+     * own, so that they don't queue behind the uploads of large files.
+     */
+    static final long SMALL_FILE_SIZE = Long.getLong("oak.blob.upload.smallFileSize", 4L * 1024 * 1024);
+
+    /**
+     * Number of threads uploading small files.
+     */
+    static final int SMALL_FILE_THREADS = Integer.getInteger("oak.blob.upload.smallFileThreads", 2);
+
+    /**
+     * Default size in bytes from which files are uploaded in parts written
+     * concurrently, if the backend supports it.
+     */
+    static final long MULTIPART_THRESHOLD = Long.getLong("oak.blob.upload.multipartThreshold", 256L * 1024 * 1024);
+
+    /**
+     * Default size in bytes of the parts of multipart uploads.
+     */
+    static final long PART_SIZE = Long.getLong("oak.blob.upload.partSize", 64L * 1024 * 1024);
+
     //Rough estimate of the in-memory key, value pair
     private final Weigher<String, File> memWeigher = new Weigher<>() {
         @Override public int weigh(String key, File value) {
@@ -105,6 +134,31 @@ public class UploadStagingCache implements Closeable {
      */
     private ListeningExecutorService executor;
 
+    /**
+     * Lane for the uploads of small files
+     */
+    private UploadLane smallLane;
+
+    /**
+     * Lane for the uploads of large files
+     */
+    private UploadLane largeLane;
+
+    /**
+     * Executor for the parts of multipart uploads
+     */
+    private ExecutorService partExecutor;
+
+    /**
+     * Files of at least this size in bytes are uploaded in parts
+     */
+    private volatile long multipartThreshold = MULTIPART_THRESHOLD;
+
+    /**
+     * Size in bytes of the parts of multipart uploads
+     */
+    private volatile long partSize = PART_SIZE;
+
     /**
      * Scheduled executor for build and remove
      */
@@ -163,7 +217,15 @@ public class UploadStagingCache implements Closeable {
         if (executor == null) {
             this.executor = MoreExecutors.listeningDecorator(Executors
                 .newFixedThreadPool(uploadThreads, new NamedThreadFactory("oak-ds-async-upload-thread")));
+            this.smallLane = new UploadLane(MoreExecutors.listeningDecorator(Executors
+                .newFixedThreadPool(SMALL_FILE_THREADS, new NamedThreadFactory("oak-ds-async-small-upload-thread"))));
+        } else {
+            // a given executor is used for all uploads
+            this.smallLane = new UploadLane(executor);
         }
+        this.largeLane = new UploadLane(this.executor);
+        this.partExecutor = Executors
+            .newFixedThreadPool(uploadThreads, new NamedThreadFactory("oak-ds-async-part-upload-thread"));
 
         this.scheduledExecutor = scheduledExecutor;
         if (scheduledExecutor == null) {
@@ -357,12 +419,18 @@ public class UploadStagingCache implements Closeable {
     private SettableFuture<Integer> stage(final String id, final File upload) {
         final SettableFuture<Integer> result = SettableFuture.create();
 
+        final long length = upload.length();
+        final UploadLane lane = length < SMALL_FILE_SIZE ? smallLane : largeLane;
+        lane.queued.incrementAndGet();
         try {
             // create an async job
-            ListenableFuture<Integer> future = executor.submit(() -> {
+            ListenableFuture<Integer> future = lane.executor.submit(() -> {
+                lane.queued.decrementAndGet();
+                long start = System.nanoTime();
                 try (TimerStats.Context uploadContext = cacheStats.startUpLoaderTimer()) {
 
-                    uploader.write(id, upload);
+                    write(id, upload, length);
+                    lane.uploaded(length, System.nanoTime() - start);
                     LOG.debug("File added to backend [{}]", upload);
 
                     return 1;
@@ -405,11 +473,59 @@ public class UploadStagingCache implements Closeable {
             }, new SameThreadExecutorService());
             LOG.debug("File [{}] scheduled for upload [{}]", upload, result);
         } catch (Exception e) {
+            lane.queued.decrementAndGet();
             LOG.error("Error staging file for upload [{}]", upload, e);
         }
         return result;
     }
 
+    /**
+     * Write a file to the backend, in parts uploaded concurrently if the file
+     * is large and the backend supports it.
+     */
+    private void write(String id, File upload, long length) throws DataStoreException {
+        MultipartUploadBackend backend = uploader.getMultipartUploadBackend();
+        if (backend == null || length < multipartThreshold) {
+            uploader.write(id, upload);
+            return;
+        }
+
+        long partSize = Math.max(this.partSize, backend.getMinPartSize());
+        MultipartUpload multipartUpload = backend.initiateMultipartUpload(new DataIdentifier(id), length);
+        List<Future<?>> parts = Lists.newArrayList();
+        boolean completed = false;
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < length; offset += partSize, partNumber++) {
+                final int number = partNumber;
+                final long partOffset = offset;
+                final long partLength = Math.min(partSize, length - offset);
+                parts.add(partExecutor.submit(() -> {
+                    multipartUpload.uploadPart(number, upload, partOffset, partLength);
+                    return null;
+                }));
+            }
+            for (Future<?> part : parts) {
+                part.get();
+            }
+            multipartUpload.complete();
+            completed = true;
+            LOG.debug("File [{}] uploaded in [{}] parts", upload, parts.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("Interrupted while uploading " + id, e);
+        } catch (ExecutionException e) {
+            throw new DataStoreException("Error uploading part of " + id, e.getCause());
+        } finally {
+            if (!completed) {
+                for (Future<?> part : parts) {
+                    part.cancel(true);
+                }
+                multipartUpload.abort();
+            }
+        }
+    }
+
 
     /**
      * Invalidate called externally.
@@ -523,6 +639,8 @@ public class UploadStagingCache implements Closeable {
         LOG.info("Uploads completed but not cleared from cache [{}]", attic.size());
         LOG.info("Staging cache stats on close [{}]", cacheStats.cacheInfoAsString());
         new ExecutorCloser(executor).close();
+        new ExecutorCloser(smallLane.executor).close();
+        new ExecutorCloser(partExecutor).close();
         new ExecutorCloser(scheduledExecutor).close();
         new ExecutorCloser(statsExecutor).close();
     }
@@ -531,6 +649,64 @@ public class UploadStagingCache implements Closeable {
         this.downloadCache = downloadCache;
     }
 
+    protected void setMultipartThreshold(long multipartThreshold) {
+        checkArgument(multipartThreshold > 0, "Multipart threshold should be positive");
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    protected void setPartSize(long partSize) {
+        checkArgument(partSize > 0, "Part size should be positive");
+        this.partSize = partSize;
+    }
+
+    @Nullable
+    UploadLane getSmallLane() {
+        return smallLane;
+    }
+
+    @Nullable
+    UploadLane getLargeLane() {
+        return largeLane;
+    }
+
+    /**
+     * Uploads of files of similar sizes, scheduled on their own executor.
+     */
+    static class UploadLane {
+        private final ListeningExecutorService executor;
+
+        /**
+         * Number of uploads waiting for a thread
+         */
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private final AtomicLong uploadedBytes = new AtomicLong();
+
+        private final AtomicLong uploadTime = new AtomicLong();
+
+        UploadLane(ListeningExecutorService executor) {
+            this.executor = executor;
+        }
+
+        private void uploaded(long bytes, long nanos) {
+            uploadedBytes.addAndGet(bytes);
+            uploadTime.addAndGet(nanos);
+        }
+
+        long getQueueSize() {
+            return queued.get();
+        }
+
+        /**
+         * @return the average number of bytes uploaded per second by a
+         * single upload
+         */
+        double getThroughput() {
+            long nanos = uploadTime.get();
+            return nanos == 0 ? 0 : (double) uploadedBytes.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+    }
+
     /**
      * Class which calls remove on all
      */
@@ -786,9 +962,37 @@ class StagingCacheStats extends AnnotatedStandardMBean implements DataStoreCache
             .add("currentMemSize", estimateCurrentMemoryWeight())
             .add("totalWeight", humanReadableByteCount(estimateCurrentWeight()))
             .add("maxWeight", humanReadableByteCount(getMaxTotalWeight()))
+            .add("smallUploadQueueSize", getSmallUploadQueueSize())
+            .add("largeUploadQueueSize", getLargeUploadQueueSize())
+            .add("smallUploadThroughput", humanReadableByteCount((long) getSmallUploadThroughput()) + "/s")
+            .add("largeUploadThroughput", humanReadableByteCount((long) getLargeUploadThroughput()) + "/s")
             .toString();
     }
 
+    @Override
+    public long getSmallUploadQueueSize() {
+        UploadStagingCache.UploadLane lane = cache.getSmallLane();
+        return lane == null ? 0 : lane.getQueueSize();
+    }
+
+    @Override
+    public long getLargeUploadQueueSize() {
+        UploadStagingCache.UploadLane lane = cache.getLargeLane();
+        return lane == null ? 0 : lane.getQueueSize();
+    }
+
+    @Override
+    public double getSmallUploadThroughput() {
+        UploadStagingCache.UploadLane lane = cache.getSmallLane();
+        return lane == null ? 0 : lane.getThroughput();
+    }
+
+    @Override
+    public double getLargeUploadThroughput() {
+        UploadStagingCache.UploadLane lane = cache.getLargeLane();
+        return lane == null ? 0 : lane.getThroughput();
+    }
+
     //~--------------------------------------< CacheStatsMBean - stats that are not (yet) available
     @Override
     public long getTotalLoadTime() {
@@ -823,4 +1027,13 @@ interface StagingUploader {
     void write(String id, File f) throws DataStoreException;
 
     void adopt(File f, File moved) throws IOException;
+
+    /**
+     * @return the backend to upload large files in parts, or {@code null} if
+     * not supported
+     */
+    @Nullable
+    default MultipartUploadBackend getMultipartUploadBackend() {
+        return null;
+    }
 }
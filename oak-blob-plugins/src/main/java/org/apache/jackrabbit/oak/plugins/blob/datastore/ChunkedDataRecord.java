@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob.datastore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.apache.jackrabbit.core.data.DataRecord;
+import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreBlobStore.BlobId;
+
+/**
+ * Represents a binary split into content defined chunks. The chunks are
+ * stored as records of their own, and a manifest record lists the encoded
+ * ids of the chunks, one per line. The identifier of a chunked binary is the
+ * identifier of its manifest prefixed with {@code cdc-}.
+ */
+class ChunkedDataRecord implements DataRecord {
+
+    /**
+     * the prefix of the identifiers of chunked binaries
+     */
+    private static final String PREFIX = "cdc-";
+
+    private final DataStoreBlobStore store;
+
+    private final DataRecord manifest;
+
+    private final List<BlobId> chunks;
+
+    private final long length;
+
+    private DataIdentifier identifier;
+
+    ChunkedDataRecord(DataStoreBlobStore store, DataRecord manifest, List<BlobId> chunks) {
+        this.store = store;
+        this.manifest = manifest;
+        this.chunks = Collections.unmodifiableList(chunks);
+        long length = 0;
+        for (BlobId chunk : chunks) {
+            length += chunk.getLength();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Checks if the identifier of a record denotes a chunked binary.
+     * @param id DataRecord identifier
+     * @return true if it denotes a chunked binary
+     */
+    static boolean isInstance(String id) {
+        return id.startsWith(PREFIX);
+    }
+
+    /**
+     * @param id the identifier of a chunked binary
+     * @return the identifier of its manifest record
+     */
+    static DataIdentifier getManifestIdentifier(String id) {
+        assert id.startsWith(PREFIX);
+        return new DataIdentifier(id.substring(PREFIX.length()));
+    }
+
+    /**
+     * Reads a chunked binary from its manifest record.
+     *
+     * @param store    the blob store containing the chunks
+     * @param manifest the manifest record
+     * @return the chunked binary
+     */
+    static ChunkedDataRecord getInstance(DataStoreBlobStore store, DataRecord manifest) throws DataStoreException {
+        List<BlobId> chunks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(manifest.getStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    BlobId chunk = BlobId.of(line);
+                    if (!chunk.hasLengthInfo()) {
+                        throw new DataStoreException("Invalid chunk " + line + " in manifest " + manifest.getIdentifier());
+                    }
+                    chunks.add(chunk);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataStoreException("Unable to read manifest " + manifest.getIdentifier(), e);
+        }
+        return new ChunkedDataRecord(store, manifest, chunks);
+    }
+
+    /**
+     * @param chunks the chunks of a binary
+     * @return the content of the manifest record listing them
+     */
+    static byte[] toManifest(List<BlobId> chunks) {
+        StringBuilder builder = new StringBuilder();
+        for (BlobId chunk : chunks) {
+            builder.append(chunk.encodedValue()).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    DataRecord getManifest() {
+        return manifest;
+    }
+
+    List<BlobId> getChunks() {
+        return chunks;
+    }
+
+    @Override
+    public DataIdentifier getIdentifier() {
+        if (identifier == null) {
+            identifier = new DataIdentifier(PREFIX + manifest.getIdentifier());
+        }
+        return identifier;
+    }
+
+    /**
+     * References are not created for chunked binaries.
+     */
+    @Override
+    public String getReference() {
+        return null;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getStream() {
+        return new ChunkedInputStream();
+    }
+
+    @Override
+    public long getLastModified() {
+        return manifest.getLastModified();
+    }
+
+    @Override
+    public String toString() {
+        return getIdentifier().toString();
+    }
+
+    /**
+     * Reads the chunks one after the other. Chunks are opened through the
+     * blob store, which caches the content of small chunks, and chunks
+     * skipped over entirely aren't opened at all.
+     */
+    private class ChunkedInputStream extends InputStream {
+
+        private int index;
+
+        private InputStream current;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                InputStream in = current();
+                if (in == null) {
+                    return -1;
+                }
+                int n = in.read(b, off, len);
+                if (n >= 0) {
+                    return n;
+                }
+                nextChunk();
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (current == null) {
+                    if (index >= chunks.size()) {
+                        break;
+                    }
+                    // skip whole chunks without opening them
+                    long chunkLength = chunks.get(index).getLength();
+                    if (n - skipped >= chunkLength) {
+                        skipped += chunkLength;
+                        index++;
+                        continue;
+                    }
+                }
+                InputStream in = current();
+                long s = in.skip(n - skipped);
+                if (s > 0) {
+                    skipped += s;
+                } else if (in.read() >= 0) {
+                    skipped++;
+                } else {
+                    nextChunk();
+                }
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            index = chunks.size();
+        }
+
+        private InputStream current() throws IOException {
+            if (current == null && index < chunks.size()) {
+                current = store.getInputStream(chunks.get(index).encodedValue());
+            }
+            return current;
+        }
+
+        private void nextChunk() throws IOException {
+            current.close();
+            current = null;
+            index++;
+        }
+    }
+}
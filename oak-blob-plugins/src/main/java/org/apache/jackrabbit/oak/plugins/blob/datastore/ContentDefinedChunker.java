@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob.datastore;
+
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Splits a stream into chunks whose boundaries depend on the content of the
+ * stream, so that inserting or removing bytes only changes the chunks around
+ * the modification. Boundaries are found with a gear rolling hash and
+ * normalized chunking as described for FastCDC: chunks are at least a quarter
+ * and at most four times the average size, and a stricter boundary condition
+ * is used before the average size is reached than after.
+ */
+final class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // The table must never change, otherwise the chunks of previously
+        // stored binaries wouldn't be found again
+        Random random = new Random(0x6f616b2d636463L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final InputStream in;
+
+    private final int minSize;
+
+    private final int averageSize;
+
+    /**
+     * Boundary condition before the average size is reached.
+     */
+    private final long strictMask;
+
+    /**
+     * Boundary condition after the average size is reached.
+     */
+    private final long looseMask;
+
+    /**
+     * Bytes read from the stream and not returned yet.
+     */
+    private final byte[] buffer;
+
+    private int available;
+
+    private boolean eof;
+
+    /**
+     * @param in          the stream to split
+     * @param averageSize the average size of the chunks, a power of two of at
+     *                    least 64 bytes
+     */
+    ContentDefinedChunker(InputStream in, int averageSize) {
+        checkArgument(averageSize >= 64 && Integer.bitCount(averageSize) == 1,
+                "Average chunk size must be a power of two of at least 64: %s", averageSize);
+        this.in = in;
+        this.averageSize = averageSize;
+        this.minSize = averageSize / 4;
+        this.buffer = new byte[averageSize * 4];
+
+        // The hash is shifted left for every byte, so its upper bits depend
+        // on more bytes than the lower ones
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.strictMask = -1L << (Long.SIZE - bits - 1);
+        this.looseMask = -1L << (Long.SIZE - bits + 1);
+    }
+
+    /**
+     * @return the next chunk, or {@code null} if the end of the stream has
+     * been reached
+     */
+    byte[] next() throws IOException {
+        fill();
+        if (available == 0) {
+            return null;
+        }
+        int length = boundary();
+        byte[] chunk = Arrays.copyOf(buffer, length);
+        System.arraycopy(buffer, length, buffer, 0, available - length);
+        available -= length;
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        while (!eof && available < buffer.length) {
+            int n = in.read(buffer, available, buffer.length - available);
+            if (n < 0) {
+                eof = true;
+            } else {
+                available += n;
+            }
+        }
+    }
+
+    private int boundary() {
+        if (available <= minSize) {
+            return available;
+        }
+        int normal = Math.min(averageSize, available);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+            if ((hash & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < available; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+            if ((hash & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+        return available;
+    }
+}
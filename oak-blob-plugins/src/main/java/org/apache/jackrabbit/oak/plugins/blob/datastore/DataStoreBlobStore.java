@@ -145,6 +145,24 @@ public class DataStoreBlobStore
 
     private String repositoryId;
 
+    /**
+     * Minimum size of binaries which are split into content defined chunks,
+     * stored as records of their own. Chunking is disabled if not positive.
+     * Up to this many bytes of a binary are kept in memory while deciding
+     * whether to split it.
+     */
+    private static final int CHUNKING_THRESHOLD = Integer.getInteger("oak.datastore.chunking.threshold", 0);
+
+    /**
+     * Average size of the chunks of binaries split into chunks.
+     */
+    private static final int CHUNKING_AVERAGE_SIZE =
+        Integer.getInteger("oak.datastore.chunking.averageSize", 1024 * 1024);
+
+    private int chunkingThreshold = CHUNKING_THRESHOLD;
+
+    private int chunkingAverageSize = CHUNKING_AVERAGE_SIZE;
+
     public DataStoreBlobStore(DataStore delegate) {
         this(delegate, true, DEFAULT_CACHE_SIZE);
     }
@@ -332,7 +350,15 @@ public class DataStoreBlobStore
             requireNonNull(stream);
             DataRecord dr = writeStream(stream, options);
             String id = getBlobId(dr);
-            updateTracker(id);
+            if (dr instanceof ChunkedDataRecord) {
+                // track the records of the chunked binary, which are the ones
+                // available for garbage collection
+                for (String recordId : getRecordIds((ChunkedDataRecord) dr)) {
+                    updateTracker(recordId);
+                }
+            } else {
+                updateTracker(id);
+            }
             threw = false;
 
             stats.uploaded(System.nanoTime() - start, TimeUnit.NANOSECONDS, dr.getLength());
@@ -366,10 +392,26 @@ public class DataStoreBlobStore
         //This is inefficient as repeated calls for same blobId would involve opening new Stream
         //instead clients should directly access the stream from DataRecord by special casing for
         //BlobStore which implements DataStore
-        InputStream stream = getInputStream(encodedBlobId);
+        BlobId blobId = BlobId.of(encodedBlobId);
+        // binaries cached in memory are read from the cache, others are
+        // streamed from the position if the data record supports it
+        boolean ranged = pos > 0 && !isCachedInMemory(blobId);
+        InputStream stream;
+        if (ranged) {
+            try {
+                stream = getStream(blobId.blobId, pos);
+            } catch (IOException e) {
+                stats.downloadFailed(blobId.blobId);
+                throw e;
+            }
+        } else {
+            stream = getInputStream(encodedBlobId);
+        }
         boolean threw = true;
         try {
-            ByteStreams.skipFully(stream, pos);
+            if (!ranged) {
+                ByteStreams.skipFully(stream, pos);
+            }
             int readCount = stream.read(buff, off, length);
             threw = false;
             return readCount;
@@ -411,8 +453,8 @@ public class DataStoreBlobStore
     public String getReference(@NotNull String encodedBlobId) {
         requireNonNull(encodedBlobId);
         String blobId = extractBlobId(encodedBlobId);
-        //Reference are not created for in memory record
-        if (InMemoryDataRecord.isInstance(blobId)) {
+        //Reference are not created for in memory and chunked records
+        if (InMemoryDataRecord.isInstance(blobId) || ChunkedDataRecord.isInstance(blobId)) {
             return null;
         }
 
@@ -433,9 +475,7 @@ public class DataStoreBlobStore
     @Override
     public InputStream getInputStream(final String encodedBlobId) throws IOException {
         final BlobId blobId = BlobId.of(encodedBlobId);
-        if (encodeLengthInId
-                && blobId.hasLengthInfo()
-                && blobId.length <= maxCachedBinarySize) {
+        if (isCachedInMemory(blobId)) {
             try {
                 byte[] content = cache.get(blobId.blobId, new Callable<byte[]>() {
                     @Override
@@ -575,10 +615,31 @@ public class DataStoreBlobStore
 
     @Override
     public Iterator<String> resolveChunks(String blobId) throws IOException {
-        if (!InMemoryDataRecord.isInstance(blobId)) {
-            return Iterators.singletonIterator(blobId);
+        if (InMemoryDataRecord.isInstance(blobId)) {
+            return Collections.emptyIterator();
         }
-        return Collections.emptyIterator();
+        String id = extractBlobId(blobId);
+        if (ChunkedDataRecord.isInstance(id)) {
+            try {
+                return getRecordIds((ChunkedDataRecord) getDataRecord(id)).iterator();
+            } catch (DataStoreException e) {
+                throw new IOException(e);
+            }
+        }
+        return Iterators.singletonIterator(blobId);
+    }
+
+    /**
+     * @return the ids of the manifest and the chunks of a chunked binary, in
+     * the form returned by {@link #getAllChunkIds(long)}
+     */
+    private List<String> getRecordIds(ChunkedDataRecord record) {
+        List<String> ids = Lists.newArrayListWithCapacity(record.getChunks().size() + 1);
+        ids.add(getBlobId(record.getManifest()));
+        for (BlobId chunk : record.getChunks()) {
+            ids.add(encodeLengthInId ? chunk.encodedValue() : chunk.blobId);
+        }
+        return ids;
     }
 
     @Override
@@ -859,6 +920,19 @@ public class DataStoreBlobStore
         this.maxCachedBinarySize = maxCachedBinarySize;
     }
 
+    /**
+     * Enables splitting binaries of at least the given size into content
+     * defined chunks.
+     *
+     * @param chunkingThreshold the minimum size of chunked binaries, or
+     *                          {@code 0} to disable chunking
+     * @param chunkingAverageSize the average size of the chunks, a power of two
+     */
+    public void setChunking(int chunkingThreshold, int chunkingAverageSize) {
+        this.chunkingThreshold = chunkingThreshold;
+        this.chunkingAverageSize = chunkingAverageSize;
+    }
+
     public void setBlobStatsCollector(BlobStatsCollector stats) {
         this.stats = stats;
     }
@@ -878,10 +952,32 @@ public class DataStoreBlobStore
 
     //~---------------------------------------------< Internal >
 
+    private boolean isCachedInMemory(BlobId blobId) {
+        return encodeLengthInId
+                && blobId.hasLengthInfo()
+                && blobId.length <= maxCachedBinarySize;
+    }
+
     protected InputStream getStream(String blobId) throws IOException {
+        return getStream(blobId, 0);
+    }
+
+    /**
+     * Opens a stream on a binary, starting at the given offset. The binary of
+     * a {@link RangedDataRecord} is streamed from the offset, the bytes
+     * before it are skipped for other records.
+     */
+    protected InputStream getStream(String blobId, long offset) throws IOException {
         try {
             long startTime = System.nanoTime();
-            InputStream in = getDataRecord(blobId).getStream();
+            DataRecord record = getDataRecord(blobId);
+            InputStream in;
+            if (offset > 0 && record instanceof RangedDataRecord) {
+                in = ((RangedDataRecord) record).getStream(offset);
+            } else {
+                in = record.getStream();
+                skipFully(in, offset);
+            }
             if (!(in instanceof BufferedInputStream)){
                 in = new BufferedInputStream(in);
             }
@@ -891,10 +987,25 @@ public class DataStoreBlobStore
         }
     }
 
+    private static void skipFully(InputStream in, long n) throws IOException {
+        boolean threw = true;
+        try {
+            ByteStreams.skipFully(in, n);
+            threw = false;
+        } finally {
+            if (threw) {
+                Closeables.close(in, true);
+            }
+        }
+    }
+
     protected DataRecord getDataRecord(String blobId) throws DataStoreException {
         DataRecord id;
         if (InMemoryDataRecord.isInstance(blobId)) {
             id = InMemoryDataRecord.getInstance(blobId);
+        } else if (ChunkedDataRecord.isInstance(blobId)) {
+            DataRecord manifest = delegate.getRecord(ChunkedDataRecord.getManifestIdentifier(blobId));
+            id = ChunkedDataRecord.getInstance(this, manifest);
         } else {
             id = delegate.getRecord(new DataIdentifier(blobId));
         }
@@ -935,11 +1046,56 @@ public class DataStoreBlobStore
         } else {
             // a few bytes are already read, need to re-build the input stream
             in = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, pos), in);
-            record = addRecordInternal(in, options);
+            if (chunkingThreshold > 0) {
+                record = writeChunked(in, options);
+            } else {
+                record = addRecordInternal(in, options);
+            }
         }
         return record;
     }
 
+    /**
+     * Split a binary into content defined chunks if it is at least as large
+     * as the chunking threshold. Chunks already stored, e.g. as part of a
+     * previous version of the binary, are deduplicated by the data store.
+     *
+     * @param in the input stream
+     * @param options
+     * @return the record of the binary, which is a {@link ChunkedDataRecord}
+     * if it was split
+     */
+    private DataRecord writeChunked(InputStream in, BlobOptions options) throws IOException, DataStoreException {
+        ContentDefinedChunker chunker = new ContentDefinedChunker(in, chunkingAverageSize);
+        List<byte[]> head = Lists.newArrayList();
+        long size = 0;
+        byte[] data;
+        while (size < chunkingThreshold && (data = chunker.next()) != null) {
+            head.add(data);
+            size += data.length;
+        }
+        if (size < chunkingThreshold) {
+            // too small, store as a whole
+            List<InputStream> streams = Lists.newArrayListWithCapacity(head.size());
+            for (byte[] chunk : head) {
+                streams.add(new ByteArrayInputStream(chunk));
+            }
+            return addRecordInternal(new SequenceInputStream(Collections.enumeration(streams)), options);
+        }
+
+        List<BlobId> chunks = Lists.newArrayList();
+        for (byte[] chunk : head) {
+            chunks.add(BlobId.of(addRecordInternal(new ByteArrayInputStream(chunk), options)));
+        }
+        head.clear();
+        while ((data = chunker.next()) != null) {
+            chunks.add(BlobId.of(addRecordInternal(new ByteArrayInputStream(data), options)));
+        }
+        DataRecord manifest = addRecordInternal(
+            new ByteArrayInputStream(ChunkedDataRecord.toManifest(chunks)), options);
+        return new ChunkedDataRecord(this, manifest, chunks);
+    }
+
     private String getBlobId(DataRecord dr) {
         if (encodeLengthInId) {
             return BlobId.of(dr).encodedValue();
@@ -1076,7 +1232,7 @@ public class DataStoreBlobStore
             long start = System.nanoTime();
 
             String blobId = blob.getContentIdentity();
-            if (blobId != null) {
+            if (blobId != null && !ChunkedDataRecord.isInstance(extractBlobId(blobId))) {
                 String extractedBlobId = extractBlobId(blobId);
                 URI uri = ((DataRecordAccessProvider) delegate).getDownloadURI(
                         new DataIdentifier(extractedBlobId),
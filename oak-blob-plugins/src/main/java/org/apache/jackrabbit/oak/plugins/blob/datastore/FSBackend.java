@@ -24,8 +24,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +43,7 @@ import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.core.data.LazyFileInputStream;
 import org.apache.jackrabbit.oak.commons.io.FileTreeTraverser;
+import org.apache.jackrabbit.oak.plugins.blob.MultipartUploadBackend;
 import org.apache.jackrabbit.oak.spi.blob.AbstractDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
 import org.apache.jackrabbit.util.TransientFileFactory;
@@ -53,7 +56,7 @@ import static org.apache.commons.io.FilenameUtils.normalizeNoEndSeparator;
 
 /**
  */
-public class FSBackend extends AbstractSharedBackend {
+public class FSBackend extends AbstractSharedBackend implements MultipartUploadBackend {
     private static final Logger LOG = LoggerFactory.getLogger(FSBackend.class);
 
     public static final String FS_BACKEND_PATH = "fsBackendPath";
@@ -142,6 +145,26 @@ public class FSBackend extends AbstractSharedBackend {
         }
     }
 
+    @Override
+    public long getMinPartSize() {
+        return 0;
+    }
+
+    @Override
+    public MultipartUpload initiateMultipartUpload(DataIdentifier identifier, long length)
+        throws DataStoreException {
+        TransientFileFactory fileFactory = TransientFileFactory.getInstance();
+        try {
+            File tmpFile = fileFactory.createTransientFile("fsbackend", null, fsPathDir);
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+                raf.setLength(length);
+            }
+            return new FSMultipartUpload(tmpFile, getFile(identifier, fsPathDir));
+        } catch (IOException e) {
+            throw new DataStoreException("Could not start upload of record " + identifier, e);
+        }
+    }
+
     @Override
     public DataRecord getRecord(DataIdentifier identifier) throws DataStoreException {
         long start = System.currentTimeMillis();
@@ -331,6 +354,68 @@ public class FSBackend extends AbstractSharedBackend {
 
     /*----------------------------------- Helper Methods-- -------------------------------------**/
 
+    /**
+     * Writes the parts into a temporary file at their offset, and moves the
+     * temporary file in place once complete.
+     */
+    private class FSMultipartUpload implements MultipartUpload {
+        private final File tmpFile;
+
+        private final File dest;
+
+        FSMultipartUpload(File tmpFile, File dest) {
+            this.tmpFile = tmpFile;
+            this.dest = dest;
+        }
+
+        @Override
+        public void uploadPart(int partNumber, File file, long offset, long length) throws DataStoreException {
+            try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+                out.position(offset);
+                long transferred = 0;
+                while (transferred < length) {
+                    long n = in.transferTo(offset + transferred, length - transferred, out);
+                    if (n <= 0) {
+                        throw new IOException("Unexpected end of file " + file.getAbsolutePath());
+                    }
+                    transferred += n;
+                }
+            } catch (IOException e) {
+                throw new DataStoreException("Could not upload part " + partNumber + " of " + dest.getName(), e);
+            }
+        }
+
+        @Override
+        public void complete() throws DataStoreException {
+            try {
+                if (dest.exists()) {
+                    long now = System.currentTimeMillis();
+                    if (getLastModified(dest) < now + ACCESS_TIME_RESOLUTION) {
+                        setLastModified(dest, now + ACCESS_TIME_RESOLUTION);
+                    }
+                    return;
+                }
+                dest.getParentFile().mkdirs();
+                synchronized (FSBackend.this) {
+                    if (!tmpFile.renameTo(dest)) {
+                        throw new DataStoreException(
+                                "Can not rename " + tmpFile.getAbsolutePath()
+                                + " to " + dest.getAbsolutePath()
+                                + " (media read only?)");
+                    }
+                }
+            } finally {
+                tmpFile.delete();
+            }
+        }
+
+        @Override
+        public void abort() {
+            tmpFile.delete();
+        }
+    }
+
     /**
      * Returns the identified file. This method implements the pattern used to
      * avoid problems with too many files in a single directory.
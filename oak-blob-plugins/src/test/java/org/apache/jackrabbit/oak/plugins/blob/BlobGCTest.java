@@ -579,6 +579,42 @@ public class BlobGCTest {
             BLOB_REFERENCES_SIZE));
     }
 
+    @Test
+    public void gcParallelMark() throws Exception {
+        log.info("Starting gcParallelMark()");
+
+        BlobReferenceRetriever retriever = cluster.referenceRetriever;
+        cluster.referenceRetriever = new BlobReferenceRetriever() {
+            @Override
+            public void collectReferences(ReferenceCollector collector) throws IOException {
+                retriever.collectReferences(collector);
+            }
+
+            @Override
+            public List<BlobReferenceRetriever> partition(int maxPartitions) {
+                List<BlobReferenceRetriever> partitions = Lists.newArrayList();
+                for (int i = 0; i < maxPartitions; i++) {
+                    int partition = i;
+                    partitions.add(collector -> retriever.collectReferences((blobId, nodeId) -> {
+                        if (Math.floorMod(blobId.hashCode(), maxPartitions) == partition) {
+                            collector.addReference(blobId, nodeId);
+                        }
+                    }));
+                }
+                return partitions;
+            }
+        };
+        MarkSweepGarbageCollector collector = cluster.getCollector(0);
+        collector.setMarkThreads(4);
+
+        Set<String> existingAfterGC = executeGarbageCollection(cluster, collector, false);
+        assertTrue(Sets.symmetricDifference(cluster.blobStoreState.blobsPresent, existingAfterGC).isEmpty());
+        assertStats(cluster.statsProvider, 1, 0,
+            cluster.blobStoreState.blobsAdded.size() - cluster.blobStoreState.blobsPresent.size(),
+            cluster.blobStoreState.blobsAdded.size() - cluster.blobStoreState.blobsPresent.size(),
+            cluster.blobStoreState.blobsPresent.size(), cluster.blobSize, NAME);
+    }
+
     protected Set<String> executeGarbageCollection(Cluster cluster, MarkSweepGarbageCollector collector, boolean markOnly)
         throws Exception {
         collector.collectGarbage(markOnly);
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -42,6 +43,8 @@ import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreBlobStore;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.RangedDataRecord;
 import org.apache.jackrabbit.oak.spi.blob.AbstractSharedBackend;
 import org.apache.jackrabbit.oak.spi.blob.BlobOptions;
 import org.apache.jackrabbit.oak.stats.DefaultStatisticsProvider;
@@ -59,6 +62,7 @@ import org.slf4j.LoggerFactory;
 import static org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.apache.commons.codec.binary.Hex.encodeHexString;
 import static org.apache.jackrabbit.oak.spi.blob.BlobOptions.UploadType.SYNCHRONOUS;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -193,15 +197,22 @@ public class CachingDataStoreTest extends AbstractDataStoreCacheTest {
         closer.register(is);
 
         assertNotNull(is);
-        assertTrue(is instanceof LazyFileInputStream);
-        ((LazyFileInputStream)is).open();
+        if (cacheSize != 0) {
+            // streamed from the cache while downloading, the failed download
+            // is continued from the backend
+            assertFile(is, f, folder, false);
+            assertNull(dataStore.cache.getIfPresent(id));
+        } else {
+            assertTrue(is instanceof LazyFileInputStream);
+            ((LazyFileInputStream)is).open();
 
-        File tmp = new File(new File(path), "tmp");
-        Collection<File> temp0cacheFiles =
-            FileUtils.listFiles(tmp, FileFilterUtils.prefixFileFilter("temp0cache"), null);
-        assertEquals(1, temp0cacheFiles.size());
+            File tmp = new File(new File(path), "tmp");
+            Collection<File> temp0cacheFiles =
+                FileUtils.listFiles(tmp, FileFilterUtils.prefixFileFilter("temp0cache"), null);
+            assertEquals(1, temp0cacheFiles.size());
 
-        assertFile(is, f, folder, false);
+            assertFile(is, f, folder, false);
+        }
 
         LOG.info("Finished loadDirectBackendTemp");
     }
@@ -413,6 +424,41 @@ public class CachingDataStoreTest extends AbstractDataStoreCacheTest {
         LOG.info("Finished lazyLoadStream");
     }
 
+    /**
+     * Read a record not in the cache at an offset, directly and through the
+     * {@link DataStoreBlobStore}.
+     */
+    @Test
+    public void rangedRead() throws Exception {
+        LOG.info("Starting rangedRead");
+
+        File f = copyToFile(randomStream(0, 4 * 1024), folder.newFile());
+        byte[] expected = Files.toByteArray(f);
+        String id = getIdForInputStream(f);
+        FileInputStream fin = new FileInputStream(f);
+        closer.register(fin);
+
+        dataStore.addRecord(fin, new BlobOptions().setUpload(SYNCHRONOUS));
+        dataStore.getCache().invalidate(id);
+
+        DataRecord rec = dataStore.getRecordIfStored(new DataIdentifier(id));
+        assertTrue(rec instanceof RangedDataRecord);
+        try (InputStream in = ((RangedDataRecord) rec).getStream(1000)) {
+            assertArrayEquals(Arrays.copyOfRange(expected, 1000, expected.length),
+                IOUtils.toByteArray(in));
+        }
+
+        dataStore.getCache().invalidate(id);
+        DataStoreBlobStore blobStore = new DataStoreBlobStore(dataStore);
+        byte[] buff = new byte[100];
+        int n = blobStore.readBlob(id, 3000, buff, 0, buff.length);
+        assertTrue(n > 0);
+        assertArrayEquals(Arrays.copyOfRange(expected, 3000, 3000 + n),
+            Arrays.copyOf(buff, n));
+
+        LOG.info("Finished rangedRead");
+    }
+
     /**
      * {@link CompositeDataStoreCache#get(String)} when no cache.
      * @throws IOException
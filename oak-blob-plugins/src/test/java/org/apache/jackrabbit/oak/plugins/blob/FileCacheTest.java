@@ -18,13 +18,20 @@
  */
 package org.apache.jackrabbit.oak.plugins.blob;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.guava.common.cache.CacheLoader;
 import org.apache.jackrabbit.guava.common.io.Closer;
 import org.apache.jackrabbit.guava.common.io.Files;
 import org.apache.jackrabbit.guava.common.util.concurrent.Futures;
@@ -43,6 +50,7 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.rules.TestName;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -484,6 +492,56 @@ public class FileCacheTest extends AbstractDataStoreCacheTest {
         LOG.info("Finished upgrade");
     }
 
+    /**
+     * Streams from a download in progress, shared by concurrent readers.
+     * @throws Exception
+     */
+    @Test
+    public void streamWhileDownloading() throws Exception {
+        LOG.info("Started streamWhileDownloading");
+
+        byte[] data = new byte[8 * 1024];
+        new Random(1).nextBytes(data);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CacheLoader<String, InputStream> slowLoader = new CacheLoader<String, InputStream>() {
+            @Override public InputStream load(String key) {
+                loads.incrementAndGet();
+                return new SequenceInputStream(new ByteArrayInputStream(data, 0, 4 * 1024),
+                    new InputStream() {
+                        private final InputStream rest = new ByteArrayInputStream(data, 4 * 1024, 4 * 1024);
+
+                        @Override public int read() throws IOException {
+                            try {
+                                resume.await();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                            return rest.read();
+                        }
+                    });
+            }
+        };
+        cache = FileCache.build(64 * 1024/* bytes */, root, slowLoader, null);
+        closer.register(cache);
+
+        try (InputStream first = cache.getStream(ID_PREFIX + 0, 0);
+             InputStream ranged = cache.getStream(ID_PREFIX + 0, 6 * 1024)) {
+            byte[] head = new byte[4 * 1024];
+            IOUtils.readFully(first, head);
+            assertArrayEquals(Arrays.copyOf(data, 4 * 1024), head);
+
+            resume.countDown();
+            assertArrayEquals(Arrays.copyOfRange(data, 4 * 1024, data.length), IOUtils.toByteArray(first));
+            assertArrayEquals(Arrays.copyOfRange(data, 6 * 1024, data.length), IOUtils.toByteArray(ranged));
+        }
+        assertEquals(1, loads.get());
+        assertNotNull(cache.getIfPresent(ID_PREFIX + 0));
+
+        LOG.info("Finished streamWhileDownloading");
+    }
+
     /**------------------------------ Helper methods --------------------------------------------**/
 
     private static SettableFuture<File> retrieveThread(ListeningExecutorService executor,
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.guava.common.collect.ImmutableList;
+import org.apache.jackrabbit.guava.common.collect.Sets;
+import org.apache.jackrabbit.oak.spi.blob.MemoryBlobStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackedBlobStoreTest {
+
+    private static final int MAX_BLOB_SIZE = 1024;
+
+    private static final int PACK_SIZE = 16 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    private final Random random = new Random(0);
+
+    private MemoryBlobStore delegate;
+
+    private File directory;
+
+    private PackedBlobStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = new MemoryBlobStore();
+        directory = folder.newFolder();
+        store = new PackedBlobStore(delegate, directory, MAX_BLOB_SIZE, PACK_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    public void smallAndLargeBlobs() throws Exception {
+        byte[] small = randomBytes(MAX_BLOB_SIZE);
+        byte[] large = randomBytes(MAX_BLOB_SIZE + 1);
+
+        String smallId = store.writeBlob(new ByteArrayInputStream(small));
+        String largeId = store.writeBlob(new ByteArrayInputStream(large));
+        assertTrue(PackedBlobStore.isPacked(smallId));
+        assertFalse(PackedBlobStore.isPacked(largeId));
+
+        assertEquals(small.length, store.getBlobLength(smallId));
+        assertEquals(large.length, store.getBlobLength(largeId));
+        assertArrayEquals(small, read(store.getInputStream(smallId)));
+        assertArrayEquals(large, read(store.getInputStream(largeId)));
+
+        // same content is packed once
+        assertEquals(smallId, store.writeBlob(new ByteArrayInputStream(small)));
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        List<byte[]> blobs = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        // fills a few packs, and part of the current one
+        for (int i = 0; i < 50; i++) {
+            byte[] data = randomBytes(MAX_BLOB_SIZE);
+            blobs.add(data);
+            ids.add(store.writeBlob(new ByteArrayInputStream(data)));
+        }
+
+        reopen();
+        for (int i = 0; i < blobs.size(); i++) {
+            assertArrayEquals(blobs.get(i), read(store.getInputStream(ids.get(i))));
+        }
+    }
+
+    @Test
+    public void deleteAndRepack() throws Exception {
+        List<byte[]> blobs = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] data = randomBytes(MAX_BLOB_SIZE);
+            blobs.add(data);
+            ids.add(store.writeBlob(new ByteArrayInputStream(data)));
+        }
+        Set<String> packChunks = Sets.newHashSet(delegate.getAllChunkIds(0));
+        assertFalse(packChunks.isEmpty());
+
+        // the packs are hidden from the garbage collector
+        Set<String> chunks = Sets.newHashSet(store.getAllChunkIds(0));
+        assertEquals(Sets.newHashSet(ids), chunks);
+
+        // delete all but the last blob of the first packs
+        List<String> deleted = new ArrayList<>(ids.subList(0, 40));
+        deleted.remove(20);
+        assertEquals(deleted.size(), store.countDeleteChunks(deleted, 0));
+
+        // deleting doesn't repack
+        assertEquals(packChunks, Sets.newHashSet(delegate.getAllChunkIds(0)));
+
+        // the deletions survive a restart before repacking
+        reopen();
+        assertEquals(ids.size() - deleted.size(), Sets.newHashSet(store.getAllChunkIds(0)).size());
+
+        // the first packs were repacked
+        assertTrue(store.repack() > 0);
+        Set<String> remaining = Sets.newHashSet(delegate.getAllChunkIds(0));
+        assertNotEquals(packChunks, remaining);
+        assertTrue(Sets.difference(packChunks, remaining).size() > 0);
+
+        chunks = Sets.newHashSet(store.getAllChunkIds(0));
+        assertEquals(ids.size() - deleted.size(), chunks.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (deleted.contains(ids.get(i))) {
+                assertFalse(chunks.contains(ids.get(i)));
+            } else {
+                assertArrayEquals(blobs.get(i), read(store.getInputStream(ids.get(i))));
+            }
+        }
+
+        // the index survives the repacking
+        reopen();
+        assertEquals(chunks, Sets.newHashSet(store.getAllChunkIds(0)));
+        assertArrayEquals(blobs.get(20), read(store.getInputStream(ids.get(20))));
+        assertEquals(0, store.countDeleteChunks(ImmutableList.of(ids.get(0)), 0));
+    }
+
+    private void reopen() throws Exception {
+        store.close();
+        store = new PackedBlobStore(delegate, directory, MAX_BLOB_SIZE, PACK_SIZE);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+}
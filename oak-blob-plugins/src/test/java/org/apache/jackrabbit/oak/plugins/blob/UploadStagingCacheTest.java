@@ -22,6 +22,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
@@ -49,6 +50,7 @@ import org.apache.jackrabbit.guava.common.util.concurrent.ListeningExecutorServi
 import org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors;
 import org.apache.jackrabbit.guava.common.util.concurrent.SettableFuture;
 import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataStoreException;
 import org.apache.jackrabbit.oak.commons.FileIOUtils;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
@@ -181,6 +183,52 @@ public class UploadStagingCacheTest extends AbstractDataStoreCacheTest {
         assertCacheStats(stagingCache, 0, 0, 1, 1);
     }
 
+    /**
+     * Stage file and check the stats of its upload lane.
+     * @throws Exception
+     */
+    @Test
+    public void testAddUploadLaneStats() throws Exception {
+        // add load
+        List<ListenableFuture<Integer>> futures = put(folder);
+        assertEquals(1, stagingCache.getStats().getSmallUploadQueueSize());
+        assertEquals(0, stagingCache.getStats().getLargeUploadQueueSize());
+
+        //start
+        taskLatch.countDown();
+        callbackLatch.countDown();
+
+        assertFuture(futures, 0);
+        assertEquals(0, stagingCache.getStats().getSmallUploadQueueSize());
+        assertTrue(stagingCache.getStats().getSmallUploadThroughput() > 0);
+        assertEquals(0, stagingCache.getStats().getLargeUploadThroughput(), 0);
+    }
+
+    /**
+     * Stage a file uploaded in parts.
+     * @throws Exception
+     */
+    @Test
+    public void testAddMultipart() throws Exception {
+        MultipartStagingUploader multipartUploader = new MultipartStagingUploader(folder.newFolder());
+        init(0, multipartUploader, null);
+        stagingCache.setMultipartThreshold(1024);
+        stagingCache.setPartSize(1024);
+
+        // add load
+        List<ListenableFuture<Integer>> futures = put(folder);
+
+        //start
+        taskLatch.countDown();
+        callbackLatch.countDown();
+
+        assertFuture(futures, 0);
+        assertEquals(4, multipartUploader.parts.get());
+        assertEquals(1, multipartUploader.completed.get());
+        assertEquals(0, multipartUploader.writes.get());
+        assertCacheStats(stagingCache, 0, 0, 1, 1);
+    }
+
     /**
      * Stage file unsuccessful upload.
      * @throws Exception
@@ -844,4 +892,59 @@ public class UploadStagingCacheTest extends AbstractDataStoreCacheTest {
         assertEquals(hits, cache.getStats().getHitCount());
         assertEquals(count, cache.getStats().getRequestCount());
     }
+
+    /**
+     * Uploader writing the parts of multipart uploads at their offset in the
+     * uploaded file.
+     */
+    private static class MultipartStagingUploader extends TestStagingUploader {
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicInteger parts = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        MultipartStagingUploader(File dir) {
+            super(dir);
+        }
+
+        @Override public void write(String id, File f) throws DataStoreException {
+            writes.incrementAndGet();
+            super.write(id, f);
+        }
+
+        @Override public MultipartUploadBackend getMultipartUploadBackend() {
+            return new MultipartUploadBackend() {
+                @Override public long getMinPartSize() {
+                    return 1;
+                }
+
+                @Override public MultipartUpload initiateMultipartUpload(DataIdentifier identifier, long length) {
+                    File target = read(identifier.toString());
+                    target.getParentFile().mkdirs();
+                    return new MultipartUpload() {
+                        @Override public void uploadPart(int partNumber, File file, long offset, long length)
+                            throws DataStoreException {
+                            byte[] data = new byte[(int) length];
+                            try (RandomAccessFile in = new RandomAccessFile(file, "r");
+                                 RandomAccessFile out = new RandomAccessFile(target, "rw")) {
+                                in.seek(offset);
+                                in.readFully(data);
+                                out.seek(offset);
+                                out.write(data);
+                            } catch (IOException e) {
+                                throw new DataStoreException(e);
+                            }
+                            parts.incrementAndGet();
+                        }
+
+                        @Override public void complete() {
+                            completed.incrementAndGet();
+                        }
+
+                        @Override public void abort() {
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -220,6 +221,45 @@ public class DataStoreBlobStoreTest extends AbstractBlobStoreTest {
         assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(data), ds.getInputStream(id)));
     }
 
+    @Test
+    public void testChunkedBinary() throws Exception {
+        DataStoreBlobStore ds = (DataStoreBlobStore) store;
+        ds.setChunking(64 * 1024, 4096);
+
+        byte[] data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+        String id = ds.writeBlob(new ByteArrayInputStream(data));
+        assertTrue(ChunkedDataRecord.isInstance(BlobId.of(id).blobId));
+        assertEquals(data.length, ds.getBlobLength(id));
+        assertTrue(Arrays.equals(data, IOUtils.toByteArray(ds.getInputStream(id))));
+
+        byte[] buffer = new byte[100];
+        assertEquals(100, ds.readBlob(id, 200000, buffer, 0, 100));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, 200000, 200100), buffer));
+
+        // a small modification only adds a few chunks
+        byte[] modified = data.clone();
+        for (int i = 0; i < 10; i++) {
+            modified[128 * 1024 + i] ^= 1;
+        }
+        String modifiedId = ds.writeBlob(new ByteArrayInputStream(modified));
+        assertTrue(Arrays.equals(modified, IOUtils.toByteArray(ds.getInputStream(modifiedId))));
+        Set<String> chunks = Sets.newHashSet(ds.resolveChunks(id));
+        Set<String> modifiedChunks = Sets.newHashSet(ds.resolveChunks(modifiedId));
+        assertTrue(Sets.difference(modifiedChunks, chunks).size() < 5);
+
+        // the chunks are listed as records of the data store
+        Set<String> all = Sets.newHashSet(ds.getAllChunkIds(0));
+        assertTrue(all.containsAll(chunks));
+        assertTrue(all.containsAll(modifiedChunks));
+
+        // binaries below the threshold are stored as a whole
+        byte[] small = Arrays.copyOf(data, 32 * 1024);
+        String smallId = ds.writeBlob(new ByteArrayInputStream(small));
+        assertFalse(ChunkedDataRecord.isInstance(BlobId.of(smallId).blobId));
+        assertTrue(Arrays.equals(small, IOUtils.toByteArray(ds.getInputStream(smallId))));
+    }
+
     @Test
     public void testAddRepositoryId() throws DataStoreException {
         String repoId = UUID.randomUUID().toString();
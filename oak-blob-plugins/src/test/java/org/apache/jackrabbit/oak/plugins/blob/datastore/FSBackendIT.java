@@ -43,6 +43,7 @@ import org.apache.jackrabbit.core.data.util.NamedThreadFactory;
 import org.apache.jackrabbit.oak.commons.FileIOUtils;
 import org.apache.jackrabbit.oak.commons.PropertiesUtil;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.blob.MultipartUploadBackend;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -54,6 +55,7 @@ import org.slf4j.LoggerFactory;
 
 import static org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreUtils.randomStream;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -183,6 +185,35 @@ public class FSBackendIT {
         }
     }
 
+    /**
+     * Tests for multipart upload of a file with parts written concurrently
+     */
+    @Test
+    public void testMultipartUpload() throws Exception {
+        int length = 4 * 1024 * 1024;
+        long partSize = 1024 * 1024 + 17;
+        File f = copyToFile(randomStream(0, length), folder.newFile());
+        DataIdentifier identifier = new DataIdentifier("0000ID" + 0);
+
+        MultipartUploadBackend.MultipartUpload upload = backend.initiateMultipartUpload(identifier, length);
+        List<ListenableFuture<Object>> futures = Lists.newArrayList();
+        int partNumber = 1;
+        for (long offset = 0; offset < length; offset += partSize, partNumber++) {
+            final int number = partNumber;
+            final long partOffset = offset;
+            final long partLength = Math.min(partSize, length - offset);
+            futures.add(executor.submit(() -> {
+                upload.uploadPart(number, f, partOffset, partLength);
+                return null;
+            }));
+        }
+        Futures.allAsList(futures).get();
+        assertFalse(backend.exists(identifier));
+
+        upload.complete();
+        assertFile(0, folder);
+    }
+
     @After
     public void tearDown() {
         try {
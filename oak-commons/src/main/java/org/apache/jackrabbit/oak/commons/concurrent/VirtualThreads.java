@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.commons.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads on Java runtimes supporting them. Oak is
+ * compiled for runtimes without virtual threads, so they are looked up
+ * reflectively. Their use can be disabled with the
+ * {@code oak.virtualThreads.disabled} system property.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final boolean DISABLED = Boolean.getBoolean("oak.virtualThreads.disabled");
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, or {@code null}
+     * if not available
+     */
+    private static final MethodHandle NEW_EXECUTOR = lookupExecutorFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return {@code true} if virtual threads are supported by the runtime
+     *          and not disabled.
+     */
+    public static boolean isAvailable() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @return the executor, or {@code null} if virtual threads are not
+     *          {@link #isAvailable() available}.
+     */
+    @Nullable
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke();
+        } catch (Throwable t) {
+            LOG.warn("Could not create a virtual thread executor", t);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static MethodHandle lookupExecutorFactory() {
+        if (DISABLED) {
+            return null;
+        }
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            // fails if virtual threads are a preview feature which is not enabled
+            ((ExecutorService) handle.invoke()).shutdown();
+            return handle;
+        } catch (Throwable t) {
+            LOG.debug("Virtual threads are not available", t);
+            return null;
+        }
+    }
+}
@@ -28,6 +28,8 @@ public class JsopBuilder implements JsopWriter {
 
     private static final boolean JSON_NEWLINES = false;
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     private StringBuilder buff = new StringBuilder();
     private boolean needComma;
     private int lineLength, previous;
@@ -54,6 +56,12 @@ public class JsopBuilder implements JsopWriter {
      */
     @Override
     public JsopBuilder append(JsopWriter buffer) {
+        if (buffer instanceof JsopBuilder) {
+            // copy the content directly, without creating a string
+            buff.append(((JsopBuilder) buffer).buff);
+            needComma = false;
+            return this;
+        }
         appendTag(buffer.toString());
         return this;
     }
@@ -176,7 +184,10 @@ public class JsopBuilder implements JsopWriter {
      */
     @Override
     public JsopBuilder value(long value) {
-        return encodedValue(Long.toString(value));
+        optionalCommaAndNewline(lineLength > 0 ? numberLength(value) : 0);
+        buff.append(value);
+        needComma = true;
+        return this;
     }
 
     /**
@@ -219,6 +230,14 @@ public class JsopBuilder implements JsopWriter {
         return this;
     }
 
+    private static int numberLength(long value) {
+        int len = value < 0 ? 2 : 1;
+        for (long x = value / 10; x != 0; x /= 10) {
+            len++;
+        }
+        return len;
+    }
+
     private int strLength(@Nullable String value) {
         if (value != null) {
             return value.length();
@@ -365,7 +384,7 @@ public class JsopBuilder implements JsopWriter {
                 break;
             default:
                 if (c < ' ') {
-                    buff.append(String.format("\\u%04x", (int) c));
+                    appendUnicodeEscape(c, buff);
                 } else if (Character.isSurrogate(c)) {
                     if (i < length - 1 && Character.isSurrogatePair(c, s.charAt(i + 1))) {
                         // ok surrogate
@@ -374,7 +393,7 @@ public class JsopBuilder implements JsopWriter {
                         i += 1;
                     } else {
                         // broken surrogate -> escape
-                        buff.append(String.format("\\u%04x", (int) c));
+                        appendUnicodeEscape(c, buff);
                     }
                 } else {
                     buff.append(c);
@@ -383,6 +402,14 @@ public class JsopBuilder implements JsopWriter {
         }
     }
 
+    private static void appendUnicodeEscape(char c, StringBuilder buff) {
+        buff.append("\\u")
+                .append(HEX[(c >>> 12) & 0xf])
+                .append(HEX[(c >>> 8) & 0xf])
+                .append(HEX[(c >>> 4) & 0xf])
+                .append(HEX[c & 0xf]);
+    }
+
     /**
      * Get the buffer length.
      *
@@ -31,8 +31,12 @@ public class JsopTokenizer implements JsopReader {
     private int pos;
     private int currentType;
     private boolean currentEscaped;
+    private int currentStart;
+    private int currentEnd;
     private String currentToken;
     private int lastType;
+    private int lastStart;
+    private int lastEnd;
     private String lastToken;
     private boolean lastEscaped;
 
@@ -80,7 +84,8 @@ public class JsopTokenizer implements JsopReader {
         if (lastType > COMMENT) {
             return String.valueOf((char) lastType);
         }
-        return lastEscaped ? decode(lastToken) : lastToken;
+        String token = getEscapedToken();
+        return lastEscaped ? decode(token) : token;
     }
 
     /**
@@ -89,6 +94,10 @@ public class JsopTokenizer implements JsopReader {
      * @return the encoded string
      */
     public String getEscapedToken() {
+        if (lastToken == null && lastStart >= 0) {
+            // the token is only materialized when needed
+            lastToken = jsop.substring(lastStart, lastEnd);
+        }
         return lastToken;
     }
 
@@ -148,15 +157,19 @@ public class JsopTokenizer implements JsopReader {
     public int read() {
         lastPos = pos;
         lastType = currentType;
+        lastStart = currentStart;
+        lastEnd = currentEnd;
         lastToken = currentToken;
         lastEscaped = currentEscaped;
         try {
             currentType = readToken();
         } catch (IllegalArgumentException e) {
             currentType = ERROR;
+            currentStart = -1;
             currentToken = e.getMessage();
         } catch (StringIndexOutOfBoundsException e) {
             currentType = ERROR;
+            currentStart = -1;
             currentToken = addAsterisk(jsop, pos);
         }
         return lastType;
@@ -164,6 +177,8 @@ public class JsopTokenizer implements JsopReader {
 
     private int readToken() {
         currentEscaped = false;
+        currentStart = -1;
+        currentToken = null;
         char ch;
         while (true) {
             if (pos >= length) {
@@ -187,7 +202,7 @@ public class JsopTokenizer implements JsopReader {
                         pos++;
                     }
                 }
-                currentToken = jsop.substring(start + 1, pos - 1);
+                setCurrentToken(start + 1, pos - 1);
                 return STRING;
             }
             case '{':
@@ -215,7 +230,7 @@ public class JsopTokenizer implements JsopReader {
                         break;
                     }
                 }
-                currentToken = jsop.substring(start + 2, pos - 1);
+                setCurrentToken(start + 2, pos - 1);
                 pos += 2;
                 return COMMENT;
             }
@@ -258,7 +273,7 @@ public class JsopTokenizer implements JsopReader {
                             pos++;
                         }
                     }
-                    currentToken = jsop.substring(start, pos);
+                    setCurrentToken(start, pos);
                     return NUMBER;
                 } else if (ch >= 'a' && ch <= 'z') {
                     while (pos < length) {
@@ -268,18 +283,18 @@ public class JsopTokenizer implements JsopReader {
                         }
                         pos++;
                     }
-                    String s = jsop.substring(start, pos);
-                    if ("null".equals(s)) {
-                        currentToken = null;
+                    // compare in place, to avoid creating a string
+                    int len = pos - start;
+                    if (len == 4 && jsop.startsWith("null", start)) {
                         return NULL;
-                    } else if ("true".equals(s)) {
-                        currentToken = s;
+                    } else if (len == 4 && jsop.startsWith("true", start)) {
+                        currentToken = "true";
                         return TRUE;
-                    } else if ("false".equals(s)) {
-                        currentToken = s;
+                    } else if (len == 5 && jsop.startsWith("false", start)) {
+                        currentToken = "false";
                         return FALSE;
                     } else {
-                        currentToken = s;
+                        setCurrentToken(start, pos);
                         return IDENTIFIER;
                     }
                 }
@@ -287,6 +302,11 @@ public class JsopTokenizer implements JsopReader {
         }
     }
 
+    private void setCurrentToken(int start, int end) {
+        currentStart = start;
+        currentEnd = end;
+    }
+
     /**
      * Decode a quoted Json string.
      *
@@ -346,13 +366,19 @@ public class JsopTokenizer implements JsopReader {
                         buff.append('\t');
                         break;
                     case 'u': {
-                        try {
-                            c = (char) (Integer.parseInt(s.substring(i + 1, i + 5), 16));
-                        } catch (NumberFormatException e) {
+                        if (i + 4 >= length) {
                             throw getFormatException(s, i);
                         }
+                        int x = 0;
+                        for (int j = i + 1; j <= i + 4; j++) {
+                            int digit = Character.digit(s.charAt(j), 16);
+                            if (digit < 0) {
+                                throw getFormatException(s, i);
+                            }
+                            x = (x << 4) | digit;
+                        }
                         i += 4;
-                        buff.append(c);
+                        buff.append((char) x);
                         break;
                     }
                     default:
@@ -426,6 +426,51 @@ public class JsopTest extends TestCase {
                 JsopBuilder.prettyPrint("{\"a\":[1, 2]}"));
     }
 
+    public void testLazyToken() {
+        JsopTokenizer t = new JsopTokenizer("{\"a\\tb\":[-12, abc, true, null]}");
+        t.read('{');
+        assertEquals(JsopReader.STRING, t.read());
+        assertEquals("a\\tb", t.getEscapedToken());
+        assertSame(t.getEscapedToken(), t.getEscapedToken());
+        assertEquals("a\tb", t.getToken());
+        t.read(':');
+        t.read('[');
+        assertEquals("-12", t.read(JsopReader.NUMBER));
+        t.read(',');
+        assertEquals("abc", t.read(JsopReader.IDENTIFIER));
+        t.read(',');
+        assertEquals("true", t.read(JsopReader.TRUE));
+        t.read(',');
+        assertNull(t.read(JsopReader.NULL));
+        assertNull(t.getEscapedToken());
+        t.read(']');
+        t.read('}');
+        t.read(JsopReader.END);
+
+        assertEquals("\u00e9x", JsopTokenizer.decode("\\u00E9x"));
+        try {
+            JsopTokenizer.decode("short\\u12");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    public void testBuilderNumbers() {
+        JsopBuilder buff = new JsopBuilder();
+        buff.array().value(0).value(-1).value(Long.MAX_VALUE).value(Long.MIN_VALUE).endArray();
+        assertEquals("[0,-1," + Long.MAX_VALUE + "," + Long.MIN_VALUE + "]", buff.toString());
+
+        buff = new JsopBuilder();
+        buff.setLineLength(10);
+        buff.key("hello").value(12345);
+        assertEquals("\"hello\":\n12345", buff.toString());
+
+        JsopBuilder other = new JsopBuilder();
+        other.tag('+').key("x").value(1);
+        assertEquals("+\"x\":1", new JsopBuilder().append(other).toString());
+    }
+
     public static String format(String json) {
         return prettyPrint(new StringBuilder(),
                 new JsopTokenizer(json), "    ");
@@ -125,6 +125,7 @@ import org.apache.jackrabbit.oak.spi.state.Clusterable;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
 import org.apache.jackrabbit.oak.spi.toggle.Feature;
 import org.apache.jackrabbit.oak.spi.whiteboard.CompositeRegistration;
 import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
@@ -733,6 +734,9 @@ public class Oak {
         final List<Registration> regs = Lists.newArrayList();
         closer.register( () -> new CompositeRegistration(regs).unregister() );
         regs.add(whiteboard.register(Executor.class, getExecutor(), Collections.emptyMap()));
+        if (store instanceof RootStateResolver) {
+            regs.add(whiteboard.register(RootStateResolver.class, (RootStateResolver) store, emptyMap()));
+        }
 
         IndexEditorProvider indexEditors = CompositeIndexEditorProvider.compose(indexEditorProviders);
         QueryIndexProvider indexProvider = CompositeQueryIndexProvider.compose(queryIndexProviders);
@@ -65,6 +65,10 @@ public final class ImmutableRoot implements Root, ReadOnly {
             rootTree = ir.getTree(PathUtils.ROOT_PATH);
             authInfo = ir.authInfo;
             wspName = ir.wspName;
+        } else if (root instanceof SnapshotRoot) {
+            rootTree = ((SnapshotRoot) root).getBaseRoot().getTree(PathUtils.ROOT_PATH);
+            authInfo = root.getContentSession().getAuthInfo();
+            wspName = root.getContentSession().getWorkspaceName();
         } else {
             throw new IllegalArgumentException("Unsupported Root implementation: " + root.getClass());
         }
@@ -326,16 +326,7 @@ class MutableRoot implements Root, PermissionAware {
                     provider = new UUIDDiffIndexProviderWrapper(
                             provider, getBaseState(), getRootState());
                 }
-                return new ExecutionContext(
-                        getBaseState(),
-                        MutableRoot.this,
-                        queryEngineSettings,
-                        provider,
-                        permissionProvider.get(),
-                        store instanceof PrefetchNodeStore ?
-                                (PrefetchNodeStore) store :
-                                PrefetchNodeStore.NOOP
-                );
+                return createExecutionContext(MutableRoot.this, provider, permissionProvider.get());
             }
         };
     }
@@ -364,6 +355,49 @@ class MutableRoot implements Root, PermissionAware {
         return builder.getBaseState();
     }
 
+    /**
+     * Returns the base state of this root as seen through the permissions
+     * of its session.
+     *
+     * @return secured base node state
+     */
+    @NotNull
+    NodeState getSecureBaseState() {
+        return secureBuilder.getBaseState();
+    }
+
+    /**
+     * Creates the context for executing queries against the base state of
+     * this root.
+     *
+     * @param root the root for accessing the query results
+     * @param provider the query index provider
+     * @param permissionProvider the permission provider for filtering the results
+     * @return the execution context
+     */
+    @NotNull
+    ExecutionContext createExecutionContext(@NotNull Root root, @NotNull QueryIndexProvider provider,
+            @NotNull PermissionProvider permissionProvider) {
+        return new ExecutionContext(
+                getBaseState(),
+                root,
+                queryEngineSettings,
+                provider,
+                permissionProvider,
+                store instanceof PrefetchNodeStore ?
+                        (PrefetchNodeStore) store :
+                        PrefetchNodeStore.NOOP
+        );
+    }
+
+    /**
+     * @return the query index provider of this root
+     */
+    @NotNull
+    QueryIndexProvider getIndexProvider() {
+        return indexProvider;
+    }
+
     void updated() {
         modCount++;
     }
@@ -57,6 +57,14 @@ class SecureNodeState extends AbstractNodeState {
         this.treePermission = requireNonNull(treePermission);
     }
 
+    /**
+     * @return the underlying node state, without access control applied
+     */
+    @NotNull
+    NodeState getNodeState() {
+        return state;
+    }
+
     @Override
     public boolean exists() {
         return treePermission.canRead();
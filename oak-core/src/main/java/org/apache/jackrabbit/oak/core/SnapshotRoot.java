@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.core;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.ContentSession;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.QueryEngine;
+import org.apache.jackrabbit.oak.api.Root;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.plugins.tree.ReadOnly;
+import org.apache.jackrabbit.oak.plugins.tree.impl.ImmutableTree;
+import org.apache.jackrabbit.oak.query.ExecutionContext;
+import org.apache.jackrabbit.oak.query.QueryEngineImpl;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionAware;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.RepositoryPermission;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.TreePermission;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only {@code Root} pinned to the state of the repository at the time
+ * it was created or last {@link #refresh() refreshed}. Unlike a
+ * {@link MutableRoot}, it can be used by many threads concurrently: its trees
+ * are {@link ImmutableTree}s over the node states of the snapshot as seen
+ * through the permissions of the session, and a refresh replaces the snapshot
+ * instead of updating it in place. Trees obtained before a refresh keep
+ * reflecting the snapshot they were obtained from.
+ * <p>
+ * All write operations throw an {@code UnsupportedOperationException}.
+ */
+public final class SnapshotRoot implements Root, ReadOnly, PermissionAware {
+
+    private final ContentSession session;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param session the session to take the snapshots from. Its
+     *                {@link ContentSession#getLatestRoot()} must return
+     *                roots of this package.
+     */
+    public SnapshotRoot(@NotNull ContentSession session) {
+        this.session = requireNonNull(session);
+        this.snapshot = new Snapshot(session.getLatestRoot());
+    }
+
+    /**
+     * @return a root over the snapshot without access control applied
+     */
+    @NotNull
+    ImmutableRoot getBaseRoot() {
+        return snapshot.base;
+    }
+
+    //---------------------------------------------------------------< Root >---
+
+    @NotNull
+    @Override
+    public Tree getTree(@NotNull String path) {
+        return snapshot.secure.getTree(path);
+    }
+
+    @Override
+    public boolean move(String sourcePath, String destPath) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void rebase() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Replaces the snapshot with the latest state of the repository.
+     */
+    @Override
+    public void refresh() {
+        snapshot = new Snapshot(session.getLatestRoot());
+    }
+
+    @Override
+    public void commit(@NotNull Map<String, Object> info) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commit() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasPendingChanges() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public QueryEngine getQueryEngine() {
+        final Snapshot s = snapshot;
+        return new QueryEngineImpl() {
+            @Override
+            protected ExecutionContext getExecutionContext() {
+                return s.root.createExecutionContext(s.secure, s.root.getIndexProvider(), s.permissionProvider);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Blob createBlob(@NotNull InputStream stream) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    @Override
+    public Blob getBlob(@NotNull String reference) {
+        return snapshot.root.getBlob(reference);
+    }
+
+    @NotNull
+    @Override
+    public ContentSession getContentSession() {
+        return session;
+    }
+
+    //----------------------------------------------------< PermissionAware >---
+
+    @NotNull
+    @Override
+    public PermissionProvider getPermissionProvider() {
+        return snapshot.permissionProvider;
+    }
+
+    //------------------------------------------------------------< private >---
+
+    private static final class Snapshot {
+
+        final MutableRoot root;
+
+        /**
+         * Root over the snapshot as seen by the session
+         */
+        final ImmutableRoot secure;
+
+        /**
+         * Root over the snapshot without access control applied
+         */
+        final ImmutableRoot base;
+
+        final PermissionProvider permissionProvider;
+
+        Snapshot(Root latest) {
+            if (!(latest instanceof MutableRoot)) {
+                throw new IllegalArgumentException("Unsupported Root implementation: " + latest.getClass());
+            }
+            root = (MutableRoot) latest;
+            base = new ImmutableRoot(root);
+            permissionProvider = new SnapshotPermissionProvider(root.getPermissionProvider(), base);
+            // initialize the permissions of the session before the snapshot
+            // is shared with other threads
+            permissionProvider.getRepositoryPermission();
+            secure = new ImmutableRoot(new ImmutableTree(root.getSecureBaseState()));
+        }
+    }
+
+    /**
+     * Permission provider evaluating the permissions on the trees of a
+     * snapshot. The trees passed in are replaced with the trees of the
+     * snapshot without access control applied, as the permission evaluation
+     * needs to see access control content which the session may not be
+     * allowed to read. A refresh has no effect, as the snapshot never changes.
+     */
+    private static final class SnapshotPermissionProvider implements PermissionProvider {
+
+        private final PermissionProvider provider;
+
+        private final ImmutableRoot base;
+
+        SnapshotPermissionProvider(PermissionProvider provider, ImmutableRoot base) {
+            this.provider = provider;
+            this.base = base;
+        }
+
+        @Override
+        public void refresh() {
+            // the snapshot never changes
+        }
+
+        @NotNull
+        @Override
+        public Set<String> getPrivileges(@Nullable Tree tree) {
+            return provider.getPrivileges(tree == null ? null : getBaseTree(tree));
+        }
+
+        @Override
+        public boolean hasPrivileges(@Nullable Tree tree, @NotNull String... privilegeNames) {
+            return provider.hasPrivileges(tree == null ? null : getBaseTree(tree), privilegeNames);
+        }
+
+        @NotNull
+        @Override
+        public RepositoryPermission getRepositoryPermission() {
+            return provider.getRepositoryPermission();
+        }
+
+        @NotNull
+        @Override
+        public TreePermission getTreePermission(@NotNull Tree tree, @NotNull TreePermission parentPermission) {
+            return provider.getTreePermission(getBaseTree(tree), parentPermission);
+        }
+
+        @Override
+        public boolean isGranted(@NotNull Tree tree, @Nullable PropertyState property, long permissions) {
+            return provider.isGranted(getBaseTree(tree), property, permissions);
+        }
+
+        @Override
+        public boolean isGranted(@NotNull String oakPath, @NotNull String jcrActions) {
+            return provider.isGranted(oakPath, jcrActions);
+        }
+
+        /**
+         * The tree of the snapshot without access control applied at the
+         * location of the given tree. For the trees of the snapshot this
+         * wraps the node state underlying the secure one, resolving the
+         * parents only when asked for, instead of walking down from the root.
+         */
+        @NotNull
+        private ImmutableTree getBaseTree(@NotNull Tree tree) {
+            if (!(tree instanceof ImmutableTree)) {
+                return base.getTree(tree.getPath());
+            } else if (tree.isRoot()) {
+                return base.getTree(PathUtils.ROOT_PATH);
+            }
+            NodeState state = ((ImmutableTree) tree).getNodeState();
+            if (state instanceof SecureNodeState) {
+                state = ((SecureNodeState) state).getNodeState();
+            }
+            return new ImmutableTree(() -> getBaseTree(tree.getParent()), tree.getName(), state);
+        }
+    }
+}
@@ -205,6 +205,20 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
     private final boolean traverseNodesIfLaneNotPresentInIndex
             = !Boolean.getBoolean("oak.async.traverseNodesIfLanePresentInIndex");
 
+    /**
+     * Setting this to true updates each top level index of the lane on its own
+     * worker thread, so that a slow index does not hold back the other indexes
+     * of the same lane. The diff is still computed once per run.
+     */
+    private boolean parallelIndexEditors = Boolean.getBoolean("oak.async.parallelIndexEditors");
+
+    /**
+     * Number of pending changes that can be queued for each index editor when
+     * running with parallel index editors.
+     */
+    private final int parallelIndexEditorQueueSize
+            = Integer.getInteger("oak.async.parallelIndexEditorQueueSize", 10000);
+
     /**
      * The time in minutes since the epoch when the last checkpoint cleanup ran.
      */
@@ -811,6 +825,9 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
             indexUpdate =
                     new IndexUpdate(provider, name, after, builder, callback, callback, info, corruptIndexHandler)
                             .withMissingProviderStrategy(missingStrategy);
+            if (parallelIndexEditors) {
+                indexUpdate.withParallelIndexEditors(parallelIndexEditorQueueSize);
+            }
             configureRateEstimator(indexUpdate);
             CommitFailedException exception =
                     EditorDiff.process(VisibleEditor.wrap(indexUpdate), before, after);
@@ -981,6 +998,11 @@ public class AsyncIndexUpdate implements Runnable, Closeable {
         return this;
     }
 
+    protected AsyncIndexUpdate setParallelIndexEditors(boolean parallelIndexEditors) {
+        this.parallelIndexEditors = parallelIndexEditors;
+        return this;
+    }
+
     public void setValidatorProviders(List<ValidatorProvider> validatorProviders) {
         this.validatorProviders = requireNonNull(validatorProviders);
     }
@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.oak.plugins.index;
 
 import static java.util.Objects.requireNonNull;
+import static org.apache.jackrabbit.guava.common.base.Preconditions.checkArgument;
 import static org.apache.jackrabbit.guava.common.collect.Lists.newArrayList;
 import static org.apache.jackrabbit.guava.common.collect.Lists.newArrayListWithCapacity;
 import static org.apache.jackrabbit.guava.common.collect.Sets.newHashSet;
@@ -176,6 +177,9 @@ public class IndexUpdate implements Editor, PathSource {
             throws CommitFailedException {
         rootState.nodeRead(this);
         collectIndexEditors(builder.getChildNode(INDEX_DEFINITIONS_NAME), before);
+        if (parent == null && rootState.parallelEditors != null && !rootState.parallelEditors.isEmpty()) {
+            editors.add(rootState.parallelEditors);
+        }
 
         if (!reindex.isEmpty()) {
             log.info("Reindexing will be performed for following indexes: {}",
@@ -317,9 +321,14 @@ public class IndexUpdate implements Editor, PathSource {
                     continue;
                 }
 
+                // top level indexes which are updated incrementally may
+                // be updated on their own worker thread, if one is available
+                boolean parallel = parent == null && rootState.parallelEditors != null && !shouldReindex
+                        && rootState.parallelEditors.reserve();
+                NodeBuilder editorDefinition = parallel ? ParallelIndexEditors.isolate(definition) : definition;
                 Editor editor = null;
                 try {
-                    editor = rootState.provider.getIndexEditor(type, definition, rootState.root,
+                    editor = rootState.provider.getIndexEditor(type, editorDefinition, rootState.root,
                             rootState.newCallback(indexPath, shouldReindex, getEstimatedCount(definition)));
                 } catch (IllegalStateException e) {
                     // This will be caught here in case there is any config related error in the index definition
@@ -327,9 +336,15 @@ public class IndexUpdate implements Editor, PathSource {
                     // We log an error message here and continue - this way the bad index defintion is ignored and doesn't block the async index update
                     log.error("Unable to get Index Editor for index at {} . Please correct the index definition " +
                             "and reindex after correction. Additional Info : {}", indexPath, e.getMessage(), e);
+                    if (parallel) {
+                        rootState.parallelEditors.release();
+                    }
                     continue;
                 }
                 if (editor == null) {
+                    if (parallel) {
+                        rootState.parallelEditors.release();
+                    }
                     // if this isn't an async cycle AND definition has "async" property
                     // (and implicitly isIncluded method allows async def in non-async cycle only for nrt/sync defs)
                     // then we don't need to handle missing handler
@@ -371,7 +386,11 @@ public class IndexUpdate implements Editor, PathSource {
                     if (getAsyncLaneName(definition.getNodeState(), indexPath) == null || rootState.async != null) {
                         rootState.indexDisabler.disableOldIndexes(indexPath, definition);
                     }
-                    editors.add(editor);
+                    if (parallel) {
+                        rootState.parallelEditors.add(indexPath, editor, editorDefinition, definition);
+                    } else {
+                        editors.add(editor);
+                    }
                 }
             }
         }
@@ -537,6 +556,10 @@ public class IndexUpdate implements Editor, PathSource {
     }
 
     public void commitProgress(IndexProgress indexProgress) {
+        if (rootState.parallelEditors != null) {
+            // release workers left behind by a failed diff
+            rootState.parallelEditors.close();
+        }
         rootState.commitProgress(indexProgress);
     }
 
@@ -618,6 +641,22 @@ public class IndexUpdate implements Editor, PathSource {
         return this;
     }
 
+    /**
+     * Enables the parallel update of the top level indexes. Each index editor
+     * then runs on a worker thread of a shared pool, fed with the changes of
+     * the diff through a queue of the given capacity. Indexes which get
+     * reindexed, or which find no free worker thread, are still updated on
+     * the diff thread.
+     *
+     * @param queueSize capacity of the queue of each worker
+     */
+    public IndexUpdate withParallelIndexEditors(int queueSize) {
+        checkArgument(queueSize > 0, "Queue size must be positive: %s", queueSize);
+        rootState.parallelEditors = new ParallelIndexEditors(rootState.async, queueSize,
+                rootState::heartbeat);
+        return this;
+    }
+
     private static final class IndexUpdateRootState {
         final IndexEditorProvider provider;
         final String async;
@@ -628,6 +667,8 @@ public class IndexUpdate implements Editor, PathSource {
         final Set<IndexCommitCallback> indexCommitCallbacks = newIdentityHashSet();
         final CorruptIndexHandler corruptIndexHandler;
         final IndexingProgressReporter progressReporter;
+        final NodeTraversalCallback traversalCallback;
+        ParallelIndexEditors parallelEditors;
         private int changedNodeCount;
         private int changedPropertyCount;
         private MissingIndexProviderStrategy missingProvider = new MissingIndexProviderStrategy();
@@ -643,6 +684,7 @@ public class IndexUpdate implements Editor, PathSource {
             this.corruptIndexHandler = corruptIndexHandler;
             this.indexDisabler = new IndexDisabler(builder);
             this.progressReporter = new IndexingProgressReporter(updateCallback, traversalCallback);
+            this.traversalCallback = traversalCallback;
         }
 
         public IndexUpdateCallback newCallback(String indexPath, boolean reindex, long estimatedCount) {
@@ -656,7 +698,23 @@ public class IndexUpdate implements Editor, PathSource {
 
         public void nodeRead(PathSource pathSource) throws CommitFailedException {
             changedNodeCount++;
-            progressReporter.traversedNode(pathSource);
+            if (parallelEditors != null) {
+                synchronized (progressReporter) {
+                    progressReporter.traversedNode(pathSource);
+                }
+            } else {
+                progressReporter.traversedNode(pathSource);
+            }
+        }
+
+        /**
+         * Keeps the traversal callback informed while waiting for
+         * parallel index editors, without counting a traversed node.
+         */
+        void heartbeat(PathSource pathSource) throws CommitFailedException {
+            synchronized (progressReporter) {
+                traversalCallback.traversedNode(pathSource);
+            }
         }
 
         public void propertyChanged(String name){
@@ -677,7 +735,9 @@ public class IndexUpdate implements Editor, PathSource {
         }
 
         void registerIndexCommitCallbackInternal(IndexCommitCallback callback) {
-            indexCommitCallbacks.add(callback);
+            synchronized (indexCommitCallbacks) {
+                indexCommitCallbacks.add(callback);
+            }
         }
 
         public void commitProgress(IndexProgress indexProgress) {
@@ -701,7 +761,14 @@ public class IndexUpdate implements Editor, PathSource {
 
             @Override
             public void indexUpdate() throws CommitFailedException {
-               progressReporter.indexUpdate(indexPath);
+                if (parallelEditors != null) {
+                    // may be called concurrently by parallel index editors
+                    synchronized (progressReporter) {
+                        progressReporter.indexUpdate(indexPath);
+                    }
+                } else {
+                    progressReporter.indexUpdate(indexPath);
+                }
             }
 
             //~------------------------------< ContextAwareCallback >
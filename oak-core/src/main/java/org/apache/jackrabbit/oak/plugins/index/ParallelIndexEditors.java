@@ -0,0 +1,612 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeBuilder;
+import org.apache.jackrabbit.oak.spi.commit.Editor;
+import org.apache.jackrabbit.oak.spi.state.ApplyDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.jackrabbit.guava.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Editor which fans out the changes of a single content diff to a set of
+ * index editors, each running as a worker on a shared, bounded thread pool
+ * and fed through its own bounded queue. A slow index editor therefore no
+ * longer holds back the other editors of the same lane, while the diff is
+ * still computed only once. Indexes which do not get a worker because all
+ * threads are in use are updated on the diff thread.
+ * <p>
+ * Each editor writes to an isolated builder based on its index definition.
+ * Whenever an isolated builder has accumulated too many changes, and once all
+ * workers are done, its changes are applied to the definition in the lane
+ * builder by the diff thread. The lane builder may then persist them (for
+ * example to a branch), so the pending changes in memory stay bounded. The
+ * lane checkpoint still only advances after every index of the lane has been
+ * updated.
+ * <p>
+ * Only used for the top level index definitions of incremental updates,
+ * reindexing is always done on the diff thread.
+ */
+class ParallelIndexEditors implements Editor {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelIndexEditors.class);
+
+    /**
+     * Interval in milliseconds at which the diff thread reports progress
+     * (and thereby renews the lane lease) while waiting for the workers.
+     */
+    private static final long HEARTBEAT_INTERVAL_MS = 1000;
+
+    /**
+     * Interval in milliseconds at which the diff thread checks for workers
+     * waiting for their changes to be flushed.
+     */
+    private static final long FLUSH_CHECK_INTERVAL_MS = 10;
+
+    /**
+     * Maximum number of worker threads shared by all lanes.
+     */
+    static final int THREADS = Integer.getInteger("oak.async.parallelIndexEditorThreads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of changes an isolated builder may accumulate before they are
+     * flushed to the lane builder.
+     */
+    static final int UPDATE_LIMIT = Integer.getInteger("oak.async.parallelIndexEditorUpdateLimit", 10000);
+
+    /**
+     * Permits for the worker threads, so that tasks never queue up in the
+     * executor.
+     */
+    private static final Semaphore PERMITS = new Semaphore(THREADS);
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private enum EventType {
+        ENTER, LEAVE, PROPERTY_ADDED, PROPERTY_CHANGED, PROPERTY_DELETED,
+        CHILD_ADDED, CHILD_CHANGED, CHILD_DELETED, END
+    }
+
+    private static final class Event {
+        final EventType type;
+        final String name;
+        final NodeState before;
+        final NodeState after;
+        final PropertyState beforeProperty;
+        final PropertyState afterProperty;
+
+        Event(EventType type, String name, NodeState before, NodeState after,
+              PropertyState beforeProperty, PropertyState afterProperty) {
+            this.type = type;
+            this.name = name;
+            this.before = before;
+            this.after = after;
+            this.beforeProperty = beforeProperty;
+            this.afterProperty = afterProperty;
+        }
+    }
+
+    private static final Event END = new Event(EventType.END, null, null, null, null, null);
+
+    private final String async;
+
+    private final int queueSize;
+
+    private final int updateLimit;
+
+    private final NodeTraversalCallback heartbeat;
+
+    private final List<Worker> workers = new ArrayList<>();
+
+    /**
+     * Forwards the events of all nodes below the root. The workers keep track
+     * of the current editor of each level, so a single instance suffices.
+     */
+    private final Editor forwarder = new Forwarder();
+
+    /**
+     * Number of threads reserved, but not yet taken over by a worker.
+     */
+    private int reserved;
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param async name of the async lane, used for logging
+     * @param queueSize capacity of the queue of each worker
+     * @param heartbeat callback invoked periodically while waiting for the
+     *                  workers to finish
+     */
+    ParallelIndexEditors(String async, int queueSize, NodeTraversalCallback heartbeat) {
+        this(async, queueSize, UPDATE_LIMIT, heartbeat);
+    }
+
+    /**
+     * @param async name of the async lane, used for logging
+     * @param queueSize capacity of the queue of each worker
+     * @param updateLimit number of changes after which the changes of a
+     *                    worker are flushed to the lane builder
+     * @param heartbeat callback invoked periodically while waiting for the
+     *                  workers to finish
+     */
+    ParallelIndexEditors(String async, int queueSize, int updateLimit, NodeTraversalCallback heartbeat) {
+        this.async = async;
+        this.queueSize = queueSize;
+        this.updateLimit = updateLimit;
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Creates a builder isolated from the given index definition builder.
+     * Binaries are still created through the given builder.
+     */
+    static NodeBuilder isolate(NodeBuilder definition) {
+        return new IsolatedBuilder(definition.getNodeState(), definition);
+    }
+
+    /**
+     * Reserves a worker thread for an index. A successful reservation must
+     * either be passed on with {@link #add} or given back with
+     * {@link #release()}.
+     *
+     * @return {@code true} if a thread is available, {@code false} if the
+     *         index needs to be updated on the diff thread
+     */
+    boolean reserve() {
+        if (!PERMITS.tryAcquire()) {
+            return false;
+        }
+        reserved++;
+        return true;
+    }
+
+    void release() {
+        reserved--;
+        PERMITS.release();
+    }
+
+    /**
+     * Adds a worker for the given editor, taking over a reservation made
+     * with {@link #reserve()}.
+     */
+    void add(String indexPath, Editor editor, NodeBuilder isolated, NodeBuilder definition) {
+        reserved--;
+        workers.add(new Worker(indexPath, editor, (IsolatedBuilder) isolated, definition));
+    }
+
+    boolean isEmpty() {
+        return workers.isEmpty();
+    }
+
+    /**
+     * Stops all workers which are still running, discarding pending changes,
+     * and releases the threads reserved for them.
+     */
+    void close() {
+        cancelled = true;
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        workers.clear();
+        PERMITS.release(reserved);
+        reserved = 0;
+    }
+
+    //~--------------------------------------------------------< Editor >
+
+    @Override
+    public void enter(NodeState before, NodeState after) throws CommitFailedException {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        publish(new Event(EventType.ENTER, null, before, after, null, null));
+    }
+
+    @Override
+    public void leave(NodeState before, NodeState after) throws CommitFailedException {
+        publish(new Event(EventType.LEAVE, null, before, after, null, null));
+        publish(END);
+        for (Worker worker : workers) {
+            worker.await();
+        }
+        for (Worker worker : workers) {
+            worker.checkFailure();
+        }
+        for (Worker worker : workers) {
+            worker.applyChanges();
+        }
+        log.debug("[{}] Parallel update of {} indexes completed", async, workers.size());
+    }
+
+    @Override
+    public void propertyAdded(PropertyState after) throws CommitFailedException {
+        forwarder.propertyAdded(after);
+    }
+
+    @Override
+    public void propertyChanged(PropertyState before, PropertyState after) throws CommitFailedException {
+        forwarder.propertyChanged(before, after);
+    }
+
+    @Override
+    public void propertyDeleted(PropertyState before) throws CommitFailedException {
+        forwarder.propertyDeleted(before);
+    }
+
+    @Override
+    public Editor childNodeAdded(String name, NodeState after) throws CommitFailedException {
+        return forwarder.childNodeAdded(name, after);
+    }
+
+    @Override
+    public Editor childNodeChanged(String name, NodeState before, NodeState after) throws CommitFailedException {
+        return forwarder.childNodeChanged(name, before, after);
+    }
+
+    @Override
+    public Editor childNodeDeleted(String name, NodeState before) throws CommitFailedException {
+        return forwarder.childNodeDeleted(name, before);
+    }
+
+    //~------------------------------------------------------< internal >
+
+    private void publish(Event event) throws CommitFailedException {
+        flushRequested();
+        for (Worker worker : workers) {
+            worker.put(event);
+        }
+    }
+
+    /**
+     * Flushes the changes of all workers which wait for it. Must only be
+     * called from the diff thread.
+     */
+    private void flushRequested() {
+        for (Worker worker : workers) {
+            if (worker.flushRequested) {
+                worker.flush();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("async-index-update-worker-%d")
+                        .setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final class Forwarder implements Editor {
+
+        @Override
+        public void enter(NodeState before, NodeState after) throws CommitFailedException {
+            publish(new Event(EventType.ENTER, null, before, after, null, null));
+        }
+
+        @Override
+        public void leave(NodeState before, NodeState after) throws CommitFailedException {
+            publish(new Event(EventType.LEAVE, null, before, after, null, null));
+        }
+
+        @Override
+        public void propertyAdded(PropertyState after) throws CommitFailedException {
+            publish(new Event(EventType.PROPERTY_ADDED, null, null, null, null, after));
+        }
+
+        @Override
+        public void propertyChanged(PropertyState before, PropertyState after) throws CommitFailedException {
+            publish(new Event(EventType.PROPERTY_CHANGED, null, null, null, before, after));
+        }
+
+        @Override
+        public void propertyDeleted(PropertyState before) throws CommitFailedException {
+            publish(new Event(EventType.PROPERTY_DELETED, null, null, null, before, null));
+        }
+
+        @Override
+        public Editor childNodeAdded(String name, NodeState after) throws CommitFailedException {
+            publish(new Event(EventType.CHILD_ADDED, name, null, after, null, null));
+            return this;
+        }
+
+        @Override
+        public Editor childNodeChanged(String name, NodeState before, NodeState after) throws CommitFailedException {
+            publish(new Event(EventType.CHILD_CHANGED, name, before, after, null, null));
+            return this;
+        }
+
+        @Override
+        public Editor childNodeDeleted(String name, NodeState before) throws CommitFailedException {
+            publish(new Event(EventType.CHILD_DELETED, name, before, null, null, null));
+            return this;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final String indexPath;
+        private final Editor editor;
+        private final IsolatedBuilder isolated;
+        private final NodeBuilder definition;
+        private final BlockingQueue<Event> queue;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Released by the diff thread once the changes of the isolated
+         * builder have been flushed.
+         */
+        private final Semaphore flushed = new Semaphore(0);
+
+        /**
+         * Editors of the nodes on the path to the current node. An entry
+         * is {@code null} if the editor is not interested in that subtree.
+         */
+        private final List<Editor> editors = new ArrayList<>();
+
+        private volatile Throwable failure;
+
+        private volatile boolean flushRequested;
+
+        /**
+         * Whether the worker has been submitted to the executor, which then
+         * releases the reserved thread once the worker completes.
+         */
+        private boolean submitted;
+
+        private boolean stopped;
+
+        Worker(String indexPath, Editor editor, IsolatedBuilder isolated, NodeBuilder definition) {
+            this.indexPath = indexPath;
+            this.editor = editor;
+            this.isolated = isolated;
+            this.definition = definition;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        void start() {
+            submitted = true;
+            EXECUTOR.execute(this);
+        }
+
+        @Override
+        public void run() {
+            editors.add(editor);
+            try {
+                while (true) {
+                    Event event = queue.take();
+                    if (event == END) {
+                        break;
+                    }
+                    if (failure == null && !cancelled) {
+                        try {
+                            process(event);
+                        } catch (CommitFailedException | RuntimeException e) {
+                            log.debug("[{}] Parallel update of index {} failed", async, indexPath, e);
+                            failure = e;
+                        }
+                        if (isolated.changes >= updateLimit) {
+                            flushRequested = true;
+                            flushed.acquire();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+                Thread.currentThread().interrupt();
+            } finally {
+                PERMITS.release();
+                done.countDown();
+            }
+        }
+
+        private void process(Event event) throws CommitFailedException {
+            Editor current = editors.get(editors.size() - 1);
+            switch (event.type) {
+                case ENTER:
+                    if (current != null) {
+                        current.enter(event.before, event.after);
+                    }
+                    break;
+                case LEAVE:
+                    if (current != null) {
+                        current.leave(event.before, event.after);
+                    }
+                    if (editors.size() > 1) {
+                        editors.remove(editors.size() - 1);
+                    }
+                    break;
+                case PROPERTY_ADDED:
+                    if (current != null) {
+                        current.propertyAdded(event.afterProperty);
+                    }
+                    break;
+                case PROPERTY_CHANGED:
+                    if (current != null) {
+                        current.propertyChanged(event.beforeProperty, event.afterProperty);
+                    }
+                    break;
+                case PROPERTY_DELETED:
+                    if (current != null) {
+                        current.propertyDeleted(event.beforeProperty);
+                    }
+                    break;
+                case CHILD_ADDED:
+                    editors.add(current == null ? null : current.childNodeAdded(event.name, event.after));
+                    break;
+                case CHILD_CHANGED:
+                    editors.add(current == null ? null : current.childNodeChanged(event.name, event.before, event.after));
+                    break;
+                case CHILD_DELETED:
+                    editors.add(current == null ? null : current.childNodeDeleted(event.name, event.before));
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected event " + event.type);
+            }
+        }
+
+        void put(Event event) throws CommitFailedException {
+            checkFailure();
+            try {
+                while (!queue.offer(event, FLUSH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    // the worker (or another one) may wait for a flush
+                    flushRequested();
+                    if (done.getCount() == 0) {
+                        throw new CommitFailedException("IndexUpdate", 1,
+                                "Worker for index " + indexPath + " stopped unexpectedly", failure);
+                    }
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommitFailedException("IndexUpdate", 1,
+                        "Interrupted while updating index " + indexPath, e);
+            }
+        }
+
+        void await() throws CommitFailedException {
+            try {
+                long lastHeartbeat = System.currentTimeMillis();
+                while (!done.await(FLUSH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    flushRequested();
+                    long now = System.currentTimeMillis();
+                    if (now - lastHeartbeat >= HEARTBEAT_INTERVAL_MS) {
+                        heartbeat.traversedNode(() -> indexPath);
+                        lastHeartbeat = now;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommitFailedException("IndexUpdate", 1,
+                        "Interrupted while updating index " + indexPath, e);
+            }
+        }
+
+        void checkFailure() throws CommitFailedException {
+            Throwable t = failure;
+            if (t instanceof CommitFailedException) {
+                throw (CommitFailedException) t;
+            } else if (t != null) {
+                throw new CommitFailedException("IndexUpdate", 1,
+                        "Failed to update index " + indexPath, t);
+            }
+        }
+
+        void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            if (!submitted) {
+                PERMITS.release();
+                return;
+            }
+            if (done.getCount() == 0) {
+                return;
+            }
+            // the worker skips pending events once cancelled, so this does not block for long
+            flushed.release();
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Applies the pending changes to the definition in the lane builder
+         * and lets the worker continue with an empty isolated builder.
+         */
+        void flush() {
+            applyChanges();
+            flushRequested = false;
+            flushed.release();
+        }
+
+        void applyChanges() {
+            isolated.getNodeState().compareAgainstBaseState(
+                    isolated.getBaseState(), new ApplyDiff(definition));
+            // child builders held by the editor stay valid across the reset
+            isolated.reset(definition.getNodeState());
+            isolated.changes = 0;
+        }
+    }
+
+    /**
+     * In-memory builder which creates binaries through the builder of the
+     * index definition it has been isolated from, so that they end up in the
+     * backing store. Counts the changes since it was last reset.
+     */
+    private static final class IsolatedBuilder extends MemoryNodeBuilder {
+        private final NodeBuilder blobFactory;
+
+        /**
+         * Number of changes, only maintained on the root builder.
+         */
+        int changes;
+
+        IsolatedBuilder(@NotNull NodeState base, NodeBuilder blobFactory) {
+            super(base);
+            this.blobFactory = blobFactory;
+        }
+
+        private IsolatedBuilder(IsolatedBuilder parent, String name) {
+            super(parent, name);
+            this.blobFactory = parent.blobFactory;
+        }
+
+        @Override
+        protected MemoryNodeBuilder createChildBuilder(String name) {
+            return new IsolatedBuilder(this, name);
+        }
+
+        @Override
+        protected void updated() {
+            if (getParent() == null) {
+                changes++;
+            } else {
+                super.updated();
+            }
+        }
+
+        @Override
+        public Blob createBlob(InputStream stream) throws IOException {
+            return blobFactory.createBlob(stream);
+        }
+    }
+}
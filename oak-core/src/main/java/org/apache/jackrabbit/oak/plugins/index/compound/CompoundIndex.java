@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.compound;
+
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_CONTENT_NODE_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.TYPE_PROPERTY_NAME;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
+import org.apache.jackrabbit.oak.plugins.index.IndexSelectionPolicy;
+import org.apache.jackrabbit.oak.plugins.index.cursor.Cursors;
+import org.apache.jackrabbit.oak.spi.query.Cursor;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.Filter.PropertyRestriction;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.AdvancedQueryIndex;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides a QueryIndex that does lookups against a compound index, that is,
+ * an index on multiple properties.
+ * <p>
+ * The index definition is of type <code>compound</code>. The
+ * <code>propertyNames</code> property contains the indexed properties, in
+ * order. Equality conditions on the leading properties, and a range condition
+ * on the next property, are evaluated by the index. If the query is ordered
+ * by the property after the ones with equality conditions, the result is
+ * returned in that order, so that it doesn't need to be sorted in memory.
+ * Optionally, the index can be restricted to node types using
+ * <code>declaringNodeTypes</code>, and to paths using
+ * <code>includedPaths</code> and <code>excludedPaths</code>.
+ *
+ * <pre>
+ * <code>
+ * {
+ *     NodeBuilder index = root.child("oak:index");
+ *     index.child("statusTypeModified")
+ *         .setProperty("jcr:primaryType", "oak:QueryIndexDefinition", Type.NAME)
+ *         .setProperty("type", "compound")
+ *         .setProperty("propertyNames", Arrays.asList("status", "type", "modified"), Type.NAMES)
+ *         .setProperty("reindex", true);
+ * }
+ * </code>
+ * </pre>
+ *
+ * @see CompoundIndexEditor
+ */
+class CompoundIndex implements QueryIndex, AdvancedQueryIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompoundIndex.class);
+
+    //--------------------------------------------------------< QueryIndex >--
+
+    @Override
+    public double getMinimumCost() {
+        return CompoundIndexPlan.COST_OVERHEAD;
+    }
+
+    @Override
+    public String getIndexName() {
+        return CompoundIndexEditorProvider.TYPE;
+    }
+
+    @Override
+    public double getCost(Filter filter, NodeState rootState) {
+        throw new UnsupportedOperationException("Not supported as implementing AdvancedQueryIndex");
+    }
+
+    @Override
+    public Cursor query(Filter filter, NodeState rootState) {
+        throw new UnsupportedOperationException("Not supported as implementing AdvancedQueryIndex");
+    }
+
+    @Override
+    public String getPlan(Filter filter, NodeState rootState) {
+        throw new UnsupportedOperationException("Not supported as implementing AdvancedQueryIndex");
+    }
+
+    //------------------------------------------------< AdvancedQueryIndex >--
+
+    @Override
+    public List<IndexPlan> getPlans(Filter filter, List<OrderEntry> sortOrder,
+            NodeState rootState) {
+        List<IndexPlan> plans = new ArrayList<>();
+        if (filter.getFullTextConstraint() != null
+                || filter.containsNativeConstraint()
+                || filter.getPropertyRestrictions().isEmpty()) {
+            return plans;
+        }
+        // currently, only indexes on the root node are supported
+        NodeState state = rootState.getChildNode(INDEX_DEFINITIONS_NAME);
+        for (ChildNodeEntry entry : state.getChildNodeEntries()) {
+            NodeState definition = entry.getNodeState();
+            if (!CompoundIndexEditorProvider.TYPE.equals(definition.getString(TYPE_PROPERTY_NAME))
+                    || !definition.hasChildNode(INDEX_CONTENT_NODE_NAME)
+                    || wrongIndex(entry, filter)) {
+                continue;
+            }
+            CompoundIndexPlan plan = new CompoundIndexPlan(
+                    entry.getName(), definition, filter, sortOrder);
+            if (!plan.isUsable()) {
+                continue;
+            }
+            long count = plan.getEstimatedEntryCount(rootState);
+            double costPerExecution = plan.getCostPerExecution(rootState);
+            LOG.debug("compound index {} estimated entry count is {}, cost per execution is {}",
+                    plan.getName(), count, costPerExecution);
+            plans.add(new IndexPlan.Builder()
+                    .setCostPerExecution(costPerExecution)
+                    .setCostPerEntry(1)
+                    .setEstimatedEntryCount(count)
+                    .setFilter(filter)
+                    .setSortOrder(plan.getSortOrder())
+                    .setDefinition(definition)
+                    .setPlanName(plan.getName())
+                    .setDeprecated(definition.getBoolean(IndexConstants.INDEX_DEPRECATED))
+                    .build());
+        }
+        return plans;
+    }
+
+    @Override
+    public String getPlanDescription(IndexPlan plan, NodeState root) {
+        return getPlan(plan).toString()
+                + "    estimatedEntryCount: " + plan.getEstimatedEntryCount() + "\n";
+    }
+
+    @Override
+    public Cursor query(IndexPlan plan, NodeState rootState) {
+        return Cursors.newPathCursor(getPlan(plan).execute(),
+                plan.getFilter().getQueryLimits());
+    }
+
+    private static CompoundIndexPlan getPlan(IndexPlan plan) {
+        return new CompoundIndexPlan(plan.getPlanName(), plan.getDefinition(),
+                plan.getFilter(), plan.getSortOrder());
+    }
+
+    private static boolean wrongIndex(ChildNodeEntry entry, Filter filter) {
+        // REMARK: similar code is used in PropertyIndex
+        NodeState definition = entry.getNodeState();
+        PropertyRestriction indexName = filter.getPropertyRestriction(IndexConstants.INDEX_NAME_OPTION);
+        boolean wrong = false;
+        if (indexName != null && indexName.first != null) {
+            String name = indexName.first.getValue(Type.STRING);
+            if (entry.getName().equals(name)) {
+                // index name specified, and matches
+                return false;
+            }
+            wrong = true;
+        }
+        PropertyRestriction indexTag = filter.getPropertyRestriction(IndexConstants.INDEX_TAG_OPTION);
+        if (indexTag != null && indexTag.first != null) {
+            PropertyState tags = definition.getProperty(IndexConstants.INDEX_TAGS);
+            if (tags == null) {
+                return true;
+            }
+            String tag = indexTag.first.getValue(Type.STRING);
+            for (String t : tags.getValue(Type.STRINGS)) {
+                if (t.equals(tag)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (IndexSelectionPolicy.TAG.equals(definition.getString(IndexConstants.INDEX_SELECTION_POLICY))) {
+            // index tags are not specified in query, but required by the "tag" index selection policy
+            return true;
+        }
+        return wrong;
+    }
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.compound;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.apache.jackrabbit.JcrConstants.JCR_MIXINTYPES;
+import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
+import static org.apache.jackrabbit.oak.api.Type.LONG;
+import static org.apache.jackrabbit.oak.commons.PathUtils.concat;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.DECLARING_NODE_TYPES;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_CONTENT_NODE_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.PROPERTY_NAMES;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.jcr.PropertyType;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.plugins.index.IndexEditor;
+import org.apache.jackrabbit.oak.plugins.index.IndexUpdateCallback;
+import org.apache.jackrabbit.oak.plugins.index.counter.ApproximateCounter;
+import org.apache.jackrabbit.oak.plugins.index.property.PropertyIndexUtil;
+import org.apache.jackrabbit.oak.plugins.index.property.ValuePattern;
+import org.apache.jackrabbit.oak.plugins.index.property.strategy.ContentMirrorStoreStrategy;
+import org.apache.jackrabbit.oak.plugins.index.property.strategy.IndexStoreStrategy;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.plugins.nodetype.TypePredicate;
+import org.apache.jackrabbit.oak.spi.commit.Editor;
+import org.apache.jackrabbit.oak.spi.filter.PathFilter;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+import org.apache.jackrabbit.guava.common.collect.Lists;
+
+/**
+ * Index editor for keeping a compound index up to date.
+ * <p>
+ * The index content is a tree with one level per indexed property, in the
+ * order of the {@code propertyNames} of the index definition. The keys are
+ * the encoded property values, as in the property index. Below the last
+ * level, the paths of the indexed nodes are stored as in the content mirror
+ * strategy. Nodes without a value for the first property are not indexed;
+ * missing values of other properties are stored as {@link #NULL_KEY}. If a
+ * property has multiple values, the node is indexed once for each
+ * combination of values.
+ *
+ * @see CompoundIndex
+ */
+class CompoundIndexEditor implements IndexEditor {
+
+    /**
+     * The key used for nodes without a value for a property.
+     */
+    static final String NULL_KEY = ":null";
+
+    /**
+     * The prefix of the properties of the index content node that contain
+     * the property type of the values of a property, followed by the
+     * position of the property in the index definition.
+     */
+    static final String TYPE_PROPERTY_PREFIX = ":type";
+
+    private static final IndexStoreStrategy MIRROR = new ContentMirrorStoreStrategy();
+
+    /** Parent editor, or {@code null} if this is the root editor. */
+    private final CompoundIndexEditor parent;
+
+    /** Name of this node, or {@code null} for the root node. */
+    private final String name;
+
+    /** Path of this editor, built lazily in {@link #getPath()}. */
+    private String path;
+
+    /** Index definition node builder */
+    private final NodeBuilder definition;
+
+    private final List<String> propertyNames;
+
+    /** Type predicate, or {@code null} if there are no type restrictions */
+    private final Predicate<NodeState> typePredicate;
+
+    /**
+     * The property types of the indexed values, per property (shared by all
+     * editors of a commit).
+     */
+    private final int[] types;
+
+    private final IndexUpdateCallback updateCallback;
+
+    private final PathFilter pathFilter;
+
+    private final PathFilter.Result pathFilterResult;
+
+    /**
+     * Whether an indexed property (or the type) of this node changed.
+     */
+    private boolean changed;
+
+    CompoundIndexEditor(NodeBuilder definition, NodeState root,
+            IndexUpdateCallback updateCallback) {
+        this.parent = null;
+        this.name = null;
+        this.path = "/";
+        this.definition = definition;
+        this.propertyNames = Lists.newArrayList(definition.getNames(PROPERTY_NAMES));
+        if (definition.hasProperty(DECLARING_NODE_TYPES)) {
+            this.typePredicate = new TypePredicate(
+                    root, definition.getNames(DECLARING_NODE_TYPES));
+        } else {
+            this.typePredicate = null;
+        }
+        this.types = new int[propertyNames.size()];
+        this.updateCallback = updateCallback;
+        this.pathFilter = PathFilter.from(definition);
+        this.pathFilterResult = pathFilter.filter(path);
+    }
+
+    private CompoundIndexEditor(CompoundIndexEditor parent, String name,
+            PathFilter.Result pathFilterResult) {
+        this.parent = parent;
+        this.name = name;
+        this.path = null;
+        this.definition = parent.definition;
+        this.propertyNames = parent.propertyNames;
+        this.typePredicate = parent.typePredicate;
+        this.types = parent.types;
+        this.updateCallback = parent.updateCallback;
+        this.pathFilter = parent.pathFilter;
+        this.pathFilterResult = pathFilterResult;
+    }
+
+    /**
+     * Returns the path of this node, building it lazily when first requested.
+     */
+    private String getPath() {
+        if (path == null) {
+            path = concat(parent.getPath(), name);
+        }
+        return path;
+    }
+
+    @Override
+    public void enter(NodeState before, NodeState after) {
+        changed = false;
+    }
+
+    @Override
+    public void leave(NodeState before, NodeState after) {
+        if (changed && pathFilterResult == PathFilter.Result.INCLUDE
+                && !propertyNames.isEmpty()) {
+            Set<List<String>> beforeKeys = getKeys(before, null);
+            Set<List<String>> afterKeys = getKeys(after, types);
+            Set<List<String>> shared = new HashSet<>(beforeKeys);
+            shared.retainAll(afterKeys);
+            beforeKeys.removeAll(shared);
+            afterKeys.removeAll(shared);
+            if (!beforeKeys.isEmpty() || !afterKeys.isEmpty()) {
+                updateCallback.indexUpdate();
+                for (List<String> key : beforeKeys) {
+                    remove(key);
+                }
+                for (List<String> key : afterKeys) {
+                    insert(key);
+                }
+            }
+        }
+        if (parent == null) {
+            // make sure that the index node exist, even with no content
+            NodeBuilder index = definition.child(INDEX_CONTENT_NODE_NAME);
+            updateTypes(index);
+        }
+    }
+
+    /**
+     * Get the keys of a node: the combinations of the encoded values of the
+     * indexed properties.
+     *
+     * @param state the node
+     * @param types the array where to record the property types, or null
+     * @return the keys (empty if the node is not indexed)
+     */
+    private Set<List<String>> getKeys(NodeState state, int[] types) {
+        Set<List<String>> keys = new HashSet<>();
+        if (!state.exists()
+                || (typePredicate != null && !typePredicate.test(state))) {
+            return keys;
+        }
+        List<Set<String>> values = new ArrayList<>(propertyNames.size());
+        for (int i = 0; i < propertyNames.size(); i++) {
+            PropertyState property = state.getProperty(propertyNames.get(i));
+            if (property == null || property.count() == 0
+                    || property.getType().tag() == PropertyType.BINARY) {
+                if (i == 0) {
+                    return keys;
+                }
+                values.add(singleton(NULL_KEY));
+            } else {
+                values.add(PropertyIndexUtil.encode(
+                        PropertyValues.create(property), ValuePattern.MATCH_ALL));
+                if (types != null) {
+                    int type = property.getType().tag();
+                    if (types[i] == PropertyType.UNDEFINED) {
+                        types[i] = type;
+                    } else if (types[i] != type) {
+                        // mixed types: compare as strings
+                        types[i] = PropertyType.STRING;
+                    }
+                }
+            }
+        }
+        addKeys(keys, new ArrayList<>(values.size()), values);
+        return keys;
+    }
+
+    private static void addKeys(Set<List<String>> keys, List<String> prefix,
+            List<Set<String>> values) {
+        if (prefix.size() == values.size()) {
+            keys.add(new ArrayList<>(prefix));
+            return;
+        }
+        for (String value : values.get(prefix.size())) {
+            prefix.add(value);
+            addKeys(keys, prefix, values);
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+
+    private void insert(List<String> key) {
+        NodeBuilder node = definition.child(INDEX_CONTENT_NODE_NAME);
+        int last = key.size() - 1;
+        for (int i = 0; i < last; i++) {
+            // the last two levels are counted by the content mirror strategy
+            ApproximateCounter.adjustCountSync(node, 1);
+            node = node.child(key.get(i));
+        }
+        final NodeBuilder index = node;
+        MIRROR.update(() -> index, getPath(), null, null,
+                emptySet(), singleton(key.get(last)));
+    }
+
+    private void remove(List<String> key) {
+        List<NodeBuilder> builders = new ArrayList<>(key.size());
+        NodeBuilder node = definition.child(INDEX_CONTENT_NODE_NAME);
+        int last = key.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!node.exists()) {
+                return;
+            }
+            builders.add(node);
+            ApproximateCounter.adjustCountSync(node, -1);
+            node = node.getChildNode(key.get(i));
+        }
+        if (!node.exists()) {
+            return;
+        }
+        final NodeBuilder index = node;
+        MIRROR.update(() -> index, getPath(), null, null,
+                singleton(key.get(last)), emptySet());
+        // prune the key levels that are no longer needed
+        // (but not the index content node itself)
+        for (int i = last; i > 0; i--) {
+            if (node.getChildNodeCount(1) > 0) {
+                break;
+            }
+            node.remove();
+            node = builders.get(i - 1);
+        }
+    }
+
+    private void updateTypes(NodeBuilder index) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == PropertyType.UNDEFINED) {
+                continue;
+            }
+            String name = TYPE_PROPERTY_PREFIX + i;
+            PropertyState old = index.getProperty(name);
+            long type = types[i];
+            if (old != null) {
+                long oldType = old.getValue(LONG);
+                if (oldType == type || oldType == PropertyType.STRING) {
+                    continue;
+                }
+                // mixed types: compare as strings
+                type = PropertyType.STRING;
+            }
+            index.setProperty(name, type);
+        }
+    }
+
+    private static boolean isTypeProperty(String name) {
+        return JCR_PRIMARYTYPE.equals(name) || JCR_MIXINTYPES.equals(name);
+    }
+
+    private void propertyUpdated(String name) {
+        if (propertyNames.contains(name)
+                || (typePredicate != null && isTypeProperty(name))) {
+            changed = true;
+        }
+    }
+
+    @Override
+    public void propertyAdded(PropertyState after) {
+        propertyUpdated(after.getName());
+    }
+
+    @Override
+    public void propertyChanged(PropertyState before, PropertyState after) {
+        propertyUpdated(after.getName());
+    }
+
+    @Override
+    public void propertyDeleted(PropertyState before) {
+        propertyUpdated(before.getName());
+    }
+
+    @Override
+    public Editor childNodeAdded(String name, NodeState after) {
+        return getChildIndexEditor(name);
+    }
+
+    @Override
+    public Editor childNodeChanged(
+            String name, NodeState before, NodeState after) {
+        return getChildIndexEditor(name);
+    }
+
+    @Override
+    public Editor childNodeDeleted(String name, NodeState before) {
+        return getChildIndexEditor(name);
+    }
+
+    private Editor getChildIndexEditor(String name) {
+        PathFilter.Result filterResult = pathFilter.filter(concat(getPath(), name));
+        if (filterResult == PathFilter.Result.EXCLUDE) {
+            return null;
+        }
+        return new CompoundIndexEditor(this, name, filterResult);
+    }
+
+}
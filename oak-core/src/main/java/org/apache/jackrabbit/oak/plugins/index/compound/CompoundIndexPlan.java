@@ -0,0 +1,501 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.compound;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.DECLARING_NODE_TYPES;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_CONTENT_NODE_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.PROPERTY_NAMES;
+import static org.apache.jackrabbit.oak.plugins.index.compound.CompoundIndexEditor.NULL_KEY;
+import static org.apache.jackrabbit.oak.plugins.index.compound.CompoundIndexEditor.TYPE_PROPERTY_PREFIX;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import javax.jcr.PropertyType;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.PropertyValue;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
+import org.apache.jackrabbit.oak.plugins.index.property.PropertyIndexUtil;
+import org.apache.jackrabbit.oak.plugins.index.property.ValuePattern;
+import org.apache.jackrabbit.oak.plugins.index.property.strategy.ContentMirrorStoreStrategy;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.query.SQL2Parser;
+import org.apache.jackrabbit.oak.spi.filter.PathFilter;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.Filter.PropertyRestriction;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.OrderEntry;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+import org.apache.jackrabbit.guava.common.collect.Iterables;
+import org.apache.jackrabbit.guava.common.collect.Lists;
+
+/**
+ * Plan for querying a given compound index using a given filter and sort
+ * order. The index can be used if there is an equality condition on the
+ * first property, or a range condition on the first property. It uses the
+ * equality conditions on the leading properties, and a range condition on
+ * the next property. If the query is ordered by the next property, the
+ * result is returned in that order.
+ */
+class CompoundIndexPlan {
+
+    /**
+     * The cost overhead to use the index in number of read operations.
+     */
+    static final double COST_OVERHEAD = 2;
+
+    /**
+     * The cost to read, decode and sort a key of the property after the
+     * prefix, as the keys are stored unordered.
+     */
+    static final double COST_PER_KEY = 1;
+
+    /**
+     * The maximum number of index entries to read for the cost estimation.
+     */
+    static final int MAX_COUNT = 100;
+
+    /**
+     * The maximum length of an index key (longer values are truncated, see
+     * PropertyIndexUtil).
+     */
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final String name;
+
+    private final NodeState definition;
+
+    private final Filter filter;
+
+    private final List<String> propertyNames;
+
+    /**
+     * The keys of the leading properties with equality conditions.
+     */
+    private final List<String> prefix;
+
+    /**
+     * The condition of the property after the prefix (possibly "is not
+     * null"), or null.
+     */
+    private final PropertyRestriction range;
+
+    /**
+     * Whether the result is sorted by the property after the prefix.
+     */
+    private final boolean sorted;
+
+    private final boolean descending;
+
+    private final List<OrderEntry> sortOrder;
+
+    CompoundIndexPlan(String name, NodeState definition, Filter filter,
+            List<OrderEntry> sortOrder) {
+        this.name = name;
+        this.definition = definition;
+        this.filter = filter;
+        this.propertyNames = Lists.newArrayList(definition.getNames(PROPERTY_NAMES));
+        this.prefix = new ArrayList<>();
+        int size = propertyNames.size();
+        while (prefix.size() < size) {
+            String key = getEqualityKey(
+                    filter.getPropertyRestriction(propertyNames.get(prefix.size())));
+            if (key == null) {
+                break;
+            }
+            prefix.add(key);
+        }
+        PropertyRestriction r = null;
+        if (prefix.size() < size) {
+            r = filter.getPropertyRestriction(propertyNames.get(prefix.size()));
+            if (r != null && (r.isNullRestriction() || r.isNot || r.isLike || r.list != null)) {
+                r = null;
+            }
+        }
+        this.range = r;
+
+        // the sort order is supported if it only contains the properties
+        // with equality conditions, and the property after the prefix
+        boolean sorted = sortOrder != null;
+        boolean descending = false;
+        if (sortOrder != null) {
+            int orderedBy = 0;
+            for (OrderEntry e : sortOrder) {
+                int index = propertyNames.indexOf(e.getPropertyName());
+                if (index >= 0 && index < prefix.size()) {
+                    // constant
+                    continue;
+                }
+                if (index != prefix.size() || orderedBy++ > 0) {
+                    sorted = false;
+                    break;
+                }
+                descending = e.getOrder() == OrderEntry.Order.DESCENDING;
+            }
+        }
+        this.sorted = sorted;
+        this.descending = descending;
+        this.sortOrder = sorted ? sortOrder : null;
+    }
+
+    /**
+     * Whether this index can be used for the filter.
+     *
+     * @return true if it can be used
+     */
+    boolean isUsable() {
+        if (propertyNames.isEmpty()) {
+            return false;
+        }
+        if (prefix.isEmpty() && range == null) {
+            // no condition on the first property
+            return false;
+        }
+        boolean matchesAllTypes = !definition.hasProperty(DECLARING_NODE_TYPES);
+        if (!matchesAllTypes) {
+            boolean matches = false;
+            for (String type : definition.getNames(DECLARING_NODE_TYPES)) {
+                if (filter.getSupertypes().contains(type)) {
+                    matches = true;
+                    break;
+                }
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return PathFilter.from(definition.builder()).areAllDescendantsIncluded(filter.getPath());
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<OrderEntry> getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Estimate the number of entries, using the approximate counts of the
+     * index, or by counting up to {@link #MAX_COUNT} entries.
+     *
+     * @param root the root node
+     * @return the estimated number of entries
+     */
+    long getEstimatedEntryCount(NodeState root) {
+        NodeState parent = getPrefixParent();
+        String nodeName = getPrefixName();
+        if (!parent.getChildNode(nodeName).exists()) {
+            return 0;
+        }
+        long count = new ContentMirrorStoreStrategy(nodeName).count(
+                filter, root, parent, null, MAX_COUNT);
+        if (range != null && !range.isNotNullRestriction()) {
+            // assume half of the entries match the range condition
+            count = Math.max(1, count / 2);
+        }
+        return count;
+    }
+
+    /**
+     * Estimate the number of keys of the property after the prefix that are
+     * read and decoded at query time, to evaluate the range condition or
+     * the sort order. All keys of that level are read, whether they match
+     * or not.
+     *
+     * @param root the root node
+     * @return the estimated number of keys, 0 if the keys are not decoded
+     */
+    private long getEstimatedKeyCount(NodeState root) {
+        if (prefix.size() == propertyNames.size() || !isKeyScan()) {
+            return 0;
+        }
+        NodeState parent = getPrefixParent();
+        String nodeName = getPrefixName();
+        long count = parent.getChildNode(nodeName).getChildNodeCount(MAX_COUNT);
+        if (count > MAX_COUNT) {
+            // there is at most one key per entry
+            count = Math.max(MAX_COUNT, new ContentMirrorStoreStrategy(nodeName).count(
+                    root, parent, null, MAX_COUNT));
+        }
+        return count;
+    }
+
+    /**
+     * Estimate the cost to start the query: the overhead, plus reading and
+     * decoding all keys of the property after the prefix, plus sorting them
+     * if the result is returned in order. This work is done before the
+     * first row is returned, whatever the number of rows read.
+     *
+     * @param root the root node
+     * @return the cost per execution
+     */
+    double getCostPerExecution(NodeState root) {
+        long keys = getEstimatedKeyCount(root);
+        double cost = COST_OVERHEAD + keys * COST_PER_KEY;
+        if (sorted && keys > 1) {
+            cost += keys * (Math.log(keys) / Math.log(2)) * COST_PER_KEY;
+        }
+        return cost;
+    }
+
+    /**
+     * Get the paths of the matching nodes.
+     *
+     * @return the paths
+     */
+    Iterable<String> execute() {
+        return query(definition, INDEX_CONTENT_NODE_NAME, 0);
+    }
+
+    /**
+     * Query the index below a level of the index.
+     *
+     * @param parent the parent of the node
+     * @param nodeName the name of the node, which contains the keys of the
+     *            property at the given position
+     * @param position the position of the property
+     * @return the paths
+     */
+    private Iterable<String> query(final NodeState parent, final String nodeName, final int position) {
+        final NodeState node = parent.getChildNode(nodeName);
+        List<String> keys;
+        if (position < prefix.size()) {
+            String key = prefix.get(position);
+            keys = node.hasChildNode(key) ? Collections.singletonList(key) : emptyList();
+        } else if (position == prefix.size()) {
+            keys = getKeys(node, position);
+        } else {
+            keys = Lists.newArrayList(node.getChildNodeNames());
+        }
+        if (position == propertyNames.size() - 1) {
+            // the last level: the children of the keys are the paths
+            final ContentMirrorStoreStrategy mirror = new ContentMirrorStoreStrategy();
+            return Iterables.concat(Iterables.transform(keys,
+                    key -> mirror.query(filter, name, parent, nodeName, singleton(key))));
+        }
+        return Iterables.concat(Iterables.transform(keys,
+                key -> query(node, key, position + 1)));
+    }
+
+    /**
+     * Whether the keys of the property after the prefix need to be decoded,
+     * to evaluate the range condition or the sort order.
+     */
+    private boolean isKeyScan() {
+        return (range != null && !range.isNotNullRestriction()) || sorted;
+    }
+
+    /**
+     * The parent of the node with the keys of the property after the prefix.
+     */
+    private NodeState getPrefixParent() {
+        NodeState parent = definition;
+        String nodeName = INDEX_CONTENT_NODE_NAME;
+        for (String key : prefix) {
+            parent = parent.getChildNode(nodeName);
+            nodeName = key;
+        }
+        return parent;
+    }
+
+    /**
+     * The name of the node with the keys of the property after the prefix.
+     */
+    private String getPrefixName() {
+        return prefix.isEmpty() ? INDEX_CONTENT_NODE_NAME : prefix.get(prefix.size() - 1);
+    }
+
+    /**
+     * Get the keys of the property after the prefix that match the range
+     * condition, sorted if needed.
+     */
+    private List<String> getKeys(NodeState node, int position) {
+        if (!isKeyScan()) {
+            // all keys match, in any order
+            List<String> result = new ArrayList<>();
+            for (String k : node.getChildNodeNames()) {
+                if (range == null || !NULL_KEY.equals(k)) {
+                    result.add(k);
+                }
+            }
+            return result;
+        }
+        boolean hasNull = false;
+        int type = getType(position);
+        List<Key> keys = new ArrayList<>();
+        for (String k : node.getChildNodeNames()) {
+            if (NULL_KEY.equals(k)) {
+                // all conditions exclude nodes without value
+                hasNull = range == null;
+                continue;
+            }
+            Key key = new Key(k);
+            if (range != null && !key.matches(range)) {
+                continue;
+            }
+            keys.add(key);
+        }
+        if (sorted) {
+            Comparator<Key> comparator = Comparator.comparing(k -> k.getValue(type));
+            keys.sort(descending ? comparator.reversed() : comparator);
+        }
+        List<String> result = new ArrayList<>(keys.size() + 1);
+        // nulls first when sorting ascending, as in the query engine
+        if (hasNull && !descending) {
+            result.add(NULL_KEY);
+        }
+        for (Key key : keys) {
+            result.add(key.key);
+        }
+        if (hasNull && descending) {
+            result.add(NULL_KEY);
+        }
+        return result;
+    }
+
+    private int getType(int position) {
+        PropertyState p = definition.getChildNode(INDEX_CONTENT_NODE_NAME).getProperty(
+                TYPE_PROPERTY_PREFIX + position);
+        return p == null ? PropertyType.STRING : p.getValue(Type.LONG).intValue();
+    }
+
+    /**
+     * Get the encoded value of an equality condition.
+     *
+     * @param r the condition (may be null)
+     * @return the key, or null if this is not an equality condition
+     */
+    private static String getEqualityKey(PropertyRestriction r) {
+        if (r == null || r.first == null || r.isNot || r.isLike || r.list != null
+                || !r.firstIncluding || !r.lastIncluding || !r.first.equals(r.last)) {
+            return null;
+        }
+        Set<String> keys = PropertyIndexUtil.encode(r.first, ValuePattern.MATCH_ALL);
+        return keys.size() == 1 ? keys.iterator().next() : null;
+    }
+
+    /**
+     * A key of the index, with its decoded value.
+     */
+    private static class Key {
+
+        final String key;
+
+        final String value;
+
+        private PropertyValue typedValue;
+
+        Key(String key) {
+            this.key = key;
+            this.value = decode(key);
+        }
+
+        PropertyValue getValue(int type) {
+            if (typedValue == null) {
+                typedValue = convert(value, type);
+            }
+            return typedValue;
+        }
+
+        boolean matches(PropertyRestriction r) {
+            if (value.length() >= MAX_KEY_LENGTH) {
+                // the value might have been truncated
+                return true;
+            }
+            if (r.first != null) {
+                int comp = convert(value, r.first.getType().tag()).compareTo(r.first);
+                if (comp < 0 || (comp == 0 && !r.firstIncluding)) {
+                    return false;
+                }
+            }
+            if (r.last != null) {
+                int comp = convert(value, r.last.getType().tag()).compareTo(r.last);
+                if (comp > 0 || (comp == 0 && !r.lastIncluding)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String decode(String key) {
+            if (":".equals(key)) {
+                // the empty string
+                return "";
+            }
+            try {
+                return URLDecoder.decode(key, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return key;
+            }
+        }
+
+        private static PropertyValue convert(String value, int type) {
+            try {
+                return PropertyValues.create(PropertyStates.createProperty("", value, type));
+            } catch (IllegalArgumentException e) {
+                // not convertible: compare as a string
+                return PropertyValues.newString(value);
+            }
+        }
+
+    }
+
+    //------------------------------------------------------------< Object >--
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append("compound ").append(name).append("\n");
+        buffer.append("    indexDefinition: /");
+        buffer.append(IndexConstants.INDEX_DEFINITIONS_NAME);
+        buffer.append("/").append(name).append("\n");
+        buffer.append("    values: ");
+        for (int i = 0; i < prefix.size(); i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(propertyNames.get(i)).append("=");
+            buffer.append(SQL2Parser.escapeStringLiteral(prefix.get(i)));
+        }
+        buffer.append("\n");
+        if (range != null) {
+            buffer.append("    range: ");
+            buffer.append(propertyNames.get(prefix.size())).append(" ").append(range);
+            buffer.append("\n");
+        }
+        if (sortOrder != null && prefix.size() < propertyNames.size()) {
+            buffer.append("    orderBy: ").append(propertyNames.get(prefix.size()));
+            buffer.append(descending ? " DESC" : " ASC").append("\n");
+        }
+        return buffer.toString();
+    }
+
+}
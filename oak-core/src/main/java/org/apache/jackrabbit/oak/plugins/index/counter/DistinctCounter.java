@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.counter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+/**
+ * A distinct value counter, using the HyperLogLog algorithm. The registers
+ * are stored in a hidden property of a node. Values can only be added, so
+ * after values are removed, the count is an upper bound.
+ * <p>
+ * The stored registers only change when a register increases, which is rare
+ * once a few hundred distinct values were added, so that concurrent updates
+ * seldom conflict.
+ */
+public class DistinctCounter {
+
+    public static final String DISTINCT_PROPERTY_NAME = ":distinct";
+
+    /**
+     * The number of registers (the standard error is about 13%).
+     */
+    static final int REGISTER_COUNT = 64;
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    private boolean empty = true;
+
+    /**
+     * Add a value.
+     *
+     * @param value the value
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        int i = (int) (hash & (REGISTER_COUNT - 1));
+        byte rank = (byte) (1 + Long.numberOfLeadingZeros(hash));
+        if (rank > registers[i]) {
+            registers[i] = rank;
+        }
+        empty = false;
+    }
+
+    /**
+     * Whether no value was added so far.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Get the count estimation of the values added so far.
+     *
+     * @return the estimation
+     */
+    public long getCount() {
+        return estimate(registers);
+    }
+
+    /**
+     * Merge the values added so far into the registers stored in the given
+     * node. The node is only changed if a stored register increases.
+     *
+     * @param builder the node builder
+     */
+    public void merge(NodeBuilder builder) {
+        if (empty) {
+            return;
+        }
+        byte[] stored = read(builder.getProperty(DISTINCT_PROPERTY_NAME));
+        boolean changed = false;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] > stored[i]) {
+                stored[i] = registers[i];
+                changed = true;
+            }
+        }
+        if (changed) {
+            builder.setProperty(DISTINCT_PROPERTY_NAME, write(stored), Type.LONGS);
+        }
+    }
+
+    /**
+     * Get the count estimation stored in the given node.
+     *
+     * @param node the node
+     * @return the estimation (-1 if no estimation is available)
+     */
+    public static long getCount(NodeState node) {
+        PropertyState p = node.getProperty(DISTINCT_PROPERTY_NAME);
+        if (p == null) {
+            return -1;
+        }
+        return estimate(read(p));
+    }
+
+    static long estimate(byte[] registers) {
+        int m = registers.length;
+        double sum = 0;
+        int countZero = 0;
+        for (byte r : registers) {
+            if (r == 0) {
+                countZero++;
+            }
+            sum += Math.scalb(1.0, -r);
+        }
+        // bias correction for 64 registers
+        long est = (long) (0.709 * m * m / sum);
+        if (est <= 5 * m / 2 && countZero > 0) {
+            // linear counting for small cardinalities
+            est = Math.round(m * Math.log((double) m / countZero));
+        }
+        return est;
+    }
+
+    private static byte[] read(PropertyState p) {
+        byte[] registers = new byte[REGISTER_COUNT];
+        if (p == null || p.getType() != Type.LONGS) {
+            return registers;
+        }
+        int i = 0;
+        for (long x : p.getValue(Type.LONGS)) {
+            for (int j = 0; j < 8 && i < REGISTER_COUNT; j++, i++) {
+                registers[i] = (byte) (x >>> (8 * j));
+            }
+        }
+        return registers;
+    }
+
+    private static List<Long> write(byte[] registers) {
+        List<Long> list = new ArrayList<>(REGISTER_COUNT / 8);
+        for (int i = 0; i < REGISTER_COUNT; i += 8) {
+            long x = 0;
+            for (int j = 0; j < 8; j++) {
+                x |= (registers[i + j] & 0xffL) << (8 * j);
+            }
+            list.add(x);
+        }
+        return list;
+    }
+
+    /**
+     * A 64 bit hash code (FNV-1a, followed by the finalizer of MurmurHash3),
+     * as the leading zeros of the hash are used.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
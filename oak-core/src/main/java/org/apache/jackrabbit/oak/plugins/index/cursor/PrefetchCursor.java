@@ -16,6 +16,8 @@
  */
 package org.apache.jackrabbit.oak.plugins.index.cursor;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -38,7 +40,7 @@ import org.slf4j.LoggerFactory;
 /**
  * A cursor that is able to prefetch nodes from the node store.
  */
-public class PrefetchCursor extends AbstractCursor {
+public class PrefetchCursor extends AbstractCursor implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(PrefetchCursor.class);
 
@@ -67,6 +69,13 @@ public class PrefetchCursor extends AbstractCursor {
         return cursor.getSize(precision, max);
     }
 
+    @Override
+    public void close() throws IOException {
+        if (cursor instanceof Closeable) {
+            ((Closeable) cursor).close();
+        }
+    }
+
     @Override
     public IndexRow next() {
         if (!prefetched.hasNext()) {
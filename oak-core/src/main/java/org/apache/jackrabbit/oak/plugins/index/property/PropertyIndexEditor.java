@@ -41,9 +41,11 @@ import javax.jcr.PropertyType;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
 import org.apache.jackrabbit.oak.plugins.index.IndexEditor;
 import org.apache.jackrabbit.oak.plugins.index.IndexUpdateCallback;
+import org.apache.jackrabbit.oak.plugins.index.counter.DistinctCounter;
 import org.apache.jackrabbit.oak.plugins.index.property.strategy.IndexStoreStrategy;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
 import org.apache.jackrabbit.oak.plugins.nodetype.TypePredicate;
@@ -66,6 +68,13 @@ class PropertyIndexEditor implements IndexEditor {
 
     private static final Logger log = LoggerFactory.getLogger(PropertyIndexEditor.class);
 
+    /**
+     * Disables estimating the number of distinct keys (see
+     * {@link DistinctCounter}), which is used for the cost estimation.
+     */
+    private static final boolean DISTINCT_KEYS_DISABLED =
+            Boolean.getBoolean("oak.propertyIndex.distinctKeysDisabled");
+
     /** Parent editor, or {@code null} if this is the root editor. */
     private final PropertyIndexEditor parent;
 
@@ -94,6 +103,14 @@ class PropertyIndexEditor implements IndexEditor {
      */
     private final Set<String> keysToCheckForUniqueness;
 
+    /**
+     * Counter of the keys added in this commit, merged into the index content
+     * node when leaving the root. This field is null if the cost estimation
+     * does not use it (see {@link #isDistinctKeyCountUsed(NodeBuilder)}), for
+     * unique indexes, and if there are multiple mounts.
+     */
+    private final DistinctCounter distinctKeys;
+
     /**
      * Flag to indicate whether the type of this node may have changed.
      */
@@ -154,10 +171,27 @@ class PropertyIndexEditor implements IndexEditor {
         } else {
             this.keysToCheckForUniqueness = null;
         }
+        if (keysToCheckForUniqueness == null && !DISTINCT_KEYS_DISABLED
+                && !mountInfoProvider.hasNonDefaultMounts()
+                && isDistinctKeyCountUsed(definition)) {
+            this.distinctKeys = new DistinctCounter();
+        } else {
+            this.distinctKeys = null;
+        }
         this.updateCallback = updateCallback;
         this.mountInfoProvider = mountInfoProvider;
     }
     
+    /**
+     * Whether the cost estimation uses the number of distinct keys, which is
+     * the case if a non-negative "entryCount" is set, but "keyCount" is not.
+     */
+    private static boolean isDistinctKeyCountUsed(NodeBuilder definition) {
+        PropertyState entryCount = definition.getProperty(IndexConstants.ENTRY_COUNT_PROPERTY_NAME);
+        return entryCount != null && entryCount.getValue(Type.LONG) >= 0
+                && !definition.hasProperty(IndexConstants.KEY_COUNT_PROPERTY_NAME);
+    }
+
     PropertyIndexEditor(PropertyIndexEditor parent, String name, PathFilter.Result pathFilterResult) {
         this.parent = parent;
         this.name = name;
@@ -168,6 +202,7 @@ class PropertyIndexEditor implements IndexEditor {
         this.valuePattern = parent.valuePattern;
         this.typePredicate = parent.typePredicate;
         this.keysToCheckForUniqueness = parent.keysToCheckForUniqueness;
+        this.distinctKeys = parent.distinctKeys;
         this.updateCallback = parent.updateCallback;
         this.pathFilter = parent.pathFilter;
         this.pathFilterResult = pathFilterResult;
@@ -310,6 +345,11 @@ class PropertyIndexEditor implements IndexEditor {
                     strategy.update(index, getPath(), properties, definition,
                             beforeKeys, afterKeys);
                 }
+                if (distinctKeys != null) {
+                    for (String key : afterKeys) {
+                        distinctKeys.add(key);
+                    }
+                }
             }
         }
 
@@ -319,7 +359,10 @@ class PropertyIndexEditor implements IndexEditor {
     private void checkUniquenessConstraints() throws CommitFailedException {
         if (parent == null) {
             // make sure that the index node exist, even with no content
-            definition.child(INDEX_CONTENT_NODE_NAME);
+            NodeBuilder index = definition.child(INDEX_CONTENT_NODE_NAME);
+            if (distinctKeys != null) {
+                distinctKeys.merge(index);
+            }
 
             boolean uniqueIndex = keysToCheckForUniqueness != null;
             // check uniqueness constraints when leaving the root
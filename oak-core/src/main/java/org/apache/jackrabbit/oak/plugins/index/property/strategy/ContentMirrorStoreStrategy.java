@@ -31,6 +31,7 @@ import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.plugins.index.IndexUtils;
 import org.apache.jackrabbit.oak.plugins.index.counter.ApproximateCounter;
+import org.apache.jackrabbit.oak.plugins.index.counter.DistinctCounter;
 import org.apache.jackrabbit.oak.plugins.index.counter.NodeCounterEditor;
 import org.apache.jackrabbit.oak.plugins.index.counter.jmx.NodeCounter;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryChildNodeEntry;
@@ -248,6 +249,11 @@ public class ContentMirrorStoreStrategy implements IndexStoreStrategy {
                     ec = indexMeta.getProperty(KEY_COUNT_PROPERTY_NAME);
                     if (ec != null) {
                         keyCount = ec.getValue(Type.LONG);
+                    } else {
+                        long distinct = DistinctCounter.getCount(index);
+                        if (distinct > 0) {
+                            keyCount = distinct;
+                        }
                     }
                     // cast to double to avoid overflow 
                     // (entryCount could be Long.MAX_VALUE)
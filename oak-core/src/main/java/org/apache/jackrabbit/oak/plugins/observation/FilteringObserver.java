@@ -21,12 +21,16 @@ package org.apache.jackrabbit.oak.plugins.observation;
 import static java.util.Objects.requireNonNull;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.Executor;
 
 import org.apache.jackrabbit.oak.spi.commit.BackgroundObserver;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.ContentChangeLog;
 import org.apache.jackrabbit.oak.spi.commit.Observer;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -84,6 +88,20 @@ public class FilteringObserver implements Observer, Closeable {
         this.filter = requireNonNull(filter);
     }
 
+    /**
+     * Create a log to spill the changes of a BackgroundObserver wrapped by a
+     * FilteringObserver to. The log reads the NOOP_CHANGE back as the same
+     * instance, so that the FilteringDispatcher still skips it.
+     * @param directory the directory of the log files
+     * @param resolver the resolver of the root node states
+     * @return the log
+     * @throws IOException if the directory can't be created
+     */
+    public static ContentChangeLog createSpillLog(@NotNull File directory,
+            @NotNull RootStateResolver resolver) throws IOException {
+        return new ContentChangeLog(directory, resolver, NOOP_CHANGE);
+    }
+
     public BackgroundObserver getBackgroundObserver() {
         return backgroundObserver;
     }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.observation;
+
+import static org.apache.jackrabbit.guava.common.collect.Iterables.toArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Event handler which dispatches the changes of a single content diff to
+ * several handlers, each of which processes the changes below a base path.
+ * Used with an {@link EventGenerator} starting at the root, the content is
+ * diffed only once for all handlers, instead of once per handler.
+ * <p>
+ * The handlers form a trie: the diff only descends into a child node if
+ * at least one handler has a base path within that child, or a base path
+ * above it and a non {@code null} child handler for it. Changes are only
+ * passed to the handlers for which the current node is at or below their
+ * base path.
+ */
+public class MultiplexingHandler implements EventHandler {
+
+    private final List<Entry> entries;
+
+    /**
+     * Creates a new handler for the root node. Handlers need to be added
+     * through {@link #addHandler(String, EventHandler)}.
+     */
+    public MultiplexingHandler() {
+        this(new ArrayList<Entry>());
+    }
+
+    private MultiplexingHandler(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Add a handler for the changes below the given path. The handler is
+     * the handler of the root node, and its child handlers are used to get
+     * to the base path, the same way as with {@link EventGenerator#addHandler(NodeState, NodeState, EventHandler)}
+     * on the states at the base path.
+     *
+     * @param path the base path
+     * @param handler the handler of the root node
+     */
+    public void addHandler(@NotNull String path, @NotNull EventHandler handler) {
+        entries.add(new Entry(handler, toArray(PathUtils.elements(path), String.class), 0));
+    }
+
+    /**
+     * @return {@code true} if no handler was added
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public void enter(NodeState before, NodeState after) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.enter(before, after);
+            }
+        }
+    }
+
+    @Override
+    public void leave(NodeState before, NodeState after) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.leave(before, after);
+            }
+        }
+    }
+
+    @Override @Nullable
+    public EventHandler getChildHandler(
+            String name, NodeState before, NodeState after) {
+        List<Entry> children = null;
+        for (Entry e : entries) {
+            int depth = e.depth;
+            if (!e.isActive()) {
+                if (!e.path[depth].equals(name)) {
+                    continue;
+                }
+                depth++;
+            }
+            EventHandler h = e.handler.getChildHandler(name, before, after);
+            if (h != null) {
+                if (children == null) {
+                    children = new ArrayList<Entry>(entries.size());
+                }
+                children.add(new Entry(h, e.path, depth));
+            }
+        }
+        if (children == null) {
+            return null;
+        } else if (children.size() == 1 && children.get(0).isActive()) {
+            // only one handler left, no need to dispatch
+            return children.get(0).handler;
+        }
+        return new MultiplexingHandler(children);
+    }
+
+    @Override
+    public void propertyAdded(PropertyState after) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.propertyAdded(after);
+            }
+        }
+    }
+
+    @Override
+    public void propertyChanged(PropertyState before, PropertyState after) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.propertyChanged(before, after);
+            }
+        }
+    }
+
+    @Override
+    public void propertyDeleted(PropertyState before) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.propertyDeleted(before);
+            }
+        }
+    }
+
+    @Override
+    public void nodeAdded(String name, NodeState after) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.nodeAdded(name, after);
+            }
+        }
+    }
+
+    @Override
+    public void nodeDeleted(String name, NodeState before) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.nodeDeleted(name, before);
+            }
+        }
+    }
+
+    @Override
+    public void nodeMoved(String sourcePath, String name, NodeState moved) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.nodeMoved(sourcePath, name, moved);
+            }
+        }
+    }
+
+    @Override
+    public void nodeReordered(String destName, String name, NodeState reordered) {
+        for (Entry e : entries) {
+            if (e.isActive()) {
+                e.handler.nodeReordered(destName, name, reordered);
+            }
+        }
+    }
+
+    /**
+     * A handler, and how far the diff got on the way to its base path
+     */
+    private static final class Entry {
+
+        final EventHandler handler;
+
+        final String[] path;
+
+        /**
+         * The number of elements of the base path already descended into
+         */
+        final int depth;
+
+        Entry(EventHandler handler, String[] path, int depth) {
+            this.handler = handler;
+            this.path = path;
+            this.depth = depth;
+        }
+
+        boolean isActive() {
+            return depth == path.length;
+        }
+    }
+}
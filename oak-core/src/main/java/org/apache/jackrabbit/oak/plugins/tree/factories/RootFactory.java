@@ -17,8 +17,10 @@
 package org.apache.jackrabbit.oak.plugins.tree.factories;
 
 import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentSession;
 import org.apache.jackrabbit.oak.api.Root;
 import org.apache.jackrabbit.oak.core.ImmutableRoot;
+import org.apache.jackrabbit.oak.core.SnapshotRoot;
 import org.apache.jackrabbit.oak.core.SystemRoot;
 import org.apache.jackrabbit.oak.query.QueryEngineSettings;
 import org.apache.jackrabbit.oak.spi.commit.CommitHook;
@@ -51,6 +53,17 @@ public final class RootFactory {
         return ImmutableRoot.getInstance(root);
     }
 
+    /**
+     * Creates a read-only root pinned to the latest state of the given
+     * session, which can be used by many threads concurrently. Calling
+     * {@link Root#refresh()} moves it to the latest state of the session.
+     * The returned root is {@code PermissionAware}.
+     */
+    @NotNull
+    public static Root createSnapshotRoot(@NotNull ContentSession session) {
+        return new SnapshotRoot(session);
+    }
+
     /**
      * @deprecated with Oak 1.7.2 due to the usage of deprecated {@link QueryEngineSettings}
      */
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.DefaultNodeStateDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
+
+/**
+ * Caches the work of the query engine which only depends on the statement of
+ * a query, and is repeated for each execution of the same statement:
+ * <ul>
+ * <li>the conversion of XPath statements to SQL-2, and</li>
+ * <li>the index selected for queries without joins. When the entry of a
+ * query is found, only the cost of the cached index (and of traversal) is
+ * estimated, instead of the cost of all indexes. The entries are
+ * invalidated when the index definitions change, or an asynchronous
+ * indexing lane runs for the first time.</li>
+ * </ul>
+ * The parsed queries themselves are not cached, as they are bound to the
+ * session (namespace mappings, node types) that executes them.
+ * <p>
+ * Note that the index is selected for the first values of the bind
+ * variables of a statement. If the cost of the indexes depends a lot on those
+ * values, the plan cache can be disabled by setting its size to 0.
+ */
+public class QueryCache {
+
+    public static final String OAK_QUERY_CONVERSION_CACHE_SIZE = "oak.query.conversionCacheSize";
+
+    public static final String OAK_QUERY_PLAN_CACHE_SIZE = "oak.query.planCacheSize";
+
+    /**
+     * The node containing the state of the asynchronous indexes
+     */
+    private static final String ASYNC = ":async";
+
+    /**
+     * The suffixes of the properties of the asynchronous indexing state which
+     * change on every indexing cycle, besides the checkpoints
+     */
+    private static final String LEASE_SUFFIX = "-lease";
+
+    private static final String TEMP_SUFFIX = "-temp";
+
+    private static final String LAST_INDEXED_TO_SUFFIX = "-LastIndexedTo";
+
+    static final int DEFAULT_CONVERSION_CACHE_SIZE =
+            Integer.getInteger(OAK_QUERY_CONVERSION_CACHE_SIZE, 1000);
+
+    static final int DEFAULT_PLAN_CACHE_SIZE =
+            Integer.getInteger(OAK_QUERY_PLAN_CACHE_SIZE, 1000);
+
+    private final int conversionCacheSize;
+
+    private final int planCacheSize;
+
+    private final Map<String, String> conversions;
+
+    private final Map<String, String> plans;
+
+    private final AtomicLong conversionHits = new AtomicLong();
+
+    private final AtomicLong conversionMisses = new AtomicLong();
+
+    private final AtomicLong planHits = new AtomicLong();
+
+    private final AtomicLong planMisses = new AtomicLong();
+
+    /**
+     * The index definitions the cached plans were selected with
+     */
+    private volatile IndexDefinitions definitions;
+
+    public QueryCache() {
+        this(DEFAULT_CONVERSION_CACHE_SIZE, DEFAULT_PLAN_CACHE_SIZE);
+    }
+
+    public QueryCache(int conversionCacheSize, int planCacheSize) {
+        this.conversionCacheSize = conversionCacheSize;
+        this.planCacheSize = planCacheSize;
+        this.conversions = newLruMap(conversionCacheSize);
+        this.plans = newLruMap(planCacheSize);
+    }
+
+    /**
+     * @param xpath the XPath statement
+     * @return the cached SQL-2 statement, or {@code null}
+     */
+    String getConversion(String xpath) {
+        if (conversionCacheSize <= 0) {
+            return null;
+        }
+        String sql2;
+        synchronized (conversions) {
+            sql2 = conversions.get(xpath);
+        }
+        (sql2 == null ? conversionMisses : conversionHits).incrementAndGet();
+        return sql2;
+    }
+
+    void putConversion(String xpath, String sql2) {
+        if (conversionCacheSize > 0) {
+            synchronized (conversions) {
+                conversions.put(xpath, sql2);
+            }
+        }
+    }
+
+    /**
+     * Get the name of the index selected for a query, if the index
+     * definitions didn't change since it was selected.
+     *
+     * @param key the key of the query
+     * @param rootState the root state the query is executed against
+     * @return the index name, or {@code null}
+     */
+    String getIndexName(String key, NodeState rootState) {
+        if (planCacheSize <= 0) {
+            return null;
+        }
+        IndexDefinitions current = getDefinitions(rootState);
+        String indexName;
+        synchronized (plans) {
+            if (definitions == null || definitions.fingerprint != current.fingerprint) {
+                plans.clear();
+            }
+            definitions = current;
+            indexName = plans.get(key);
+        }
+        (indexName == null ? planMisses : planHits).incrementAndGet();
+        return indexName;
+    }
+
+    void putIndexName(String key, NodeState rootState, String indexName) {
+        if (planCacheSize <= 0) {
+            return;
+        }
+        long fingerprint = getDefinitions(rootState).fingerprint;
+        synchronized (plans) {
+            if (definitions != null && definitions.fingerprint == fingerprint) {
+                plans.put(key, indexName);
+            }
+        }
+    }
+
+    /**
+     * Clear the cache, for example because a setting that influences the
+     * conversion of statements or the cost of indexes changed.
+     */
+    public void invalidate() {
+        synchronized (conversions) {
+            conversions.clear();
+        }
+        synchronized (plans) {
+            plans.clear();
+            definitions = null;
+        }
+    }
+
+    public long getConversionCacheHits() {
+        return conversionHits.get();
+    }
+
+    public long getConversionCacheMisses() {
+        return conversionMisses.get();
+    }
+
+    public long getPlanCacheHits() {
+        return planHits.get();
+    }
+
+    public long getPlanCacheMisses() {
+        return planMisses.get();
+    }
+
+    public void resetStats() {
+        conversionHits.set(0);
+        conversionMisses.set(0);
+        planHits.set(0);
+        planMisses.set(0);
+    }
+
+    private IndexDefinitions getDefinitions(NodeState rootState) {
+        NodeState oakIndex = rootState.getChildNode(INDEX_DEFINITIONS_NAME);
+        long lanes = lanes(rootState.getChildNode(ASYNC));
+        IndexDefinitions d = definitions;
+        if (d != null && d.lanes == lanes && !definitionsChanged(d.oakIndex, oakIndex)) {
+            return new IndexDefinitions(oakIndex, lanes, d.fingerprint);
+        }
+        return new IndexDefinitions(oakIndex, lanes, fingerprint(oakIndex, lanes));
+    }
+
+    /**
+     * Check whether any of the visible properties or child nodes of the index
+     * definitions changed. The node stores compare unchanged subtrees cheaply
+     * (by record id or revision), so the cost only depends on the changes, and
+     * changes of the index content (which is hidden) are not descended into.
+     *
+     * @param before the index definitions node the plans were cached with
+     * @param after the current index definitions node
+     * @return {@code true} if the fingerprint needs to be calculated again
+     */
+    static boolean definitionsChanged(NodeState before, NodeState after) {
+        return before != after && !after.compareAgainstBaseState(before, new DefinitionsDiff(false));
+    }
+
+    /**
+     * Calculate a fingerprint of the index definitions. Only the visible
+     * properties of the definitions are taken into account, so that writing
+     * index content doesn't change the fingerprint, while changing or
+     * re-indexing (which increments the reindex count) a definition does.
+     *
+     * @param oakIndex the index definitions node
+     * @param lanes the hash of the asynchronous indexing lanes
+     * @return the fingerprint
+     */
+    static long fingerprint(NodeState oakIndex, long lanes) {
+        long h = lanes;
+        for (ChildNodeEntry e : oakIndex.getChildNodeEntries()) {
+            if (NodeStateUtils.isHidden(e.getName())) {
+                continue;
+            }
+            long x = e.getName().hashCode() + hash(e.getNodeState());
+            // the order of the definitions is not relevant
+            h += x * 0xff51afd7ed558ccdL ^ (x >>> 29);
+        }
+        return h;
+    }
+
+    /**
+     * Calculate a hash of the asynchronous indexing lanes which indexed at
+     * least once, so that an index which becomes usable once its lane ran is
+     * taken into account. Only the names of the lane checkpoints are used: the
+     * values, the leases, the temporary checkpoints and the last indexed time
+     * change on every indexing cycle.
+     *
+     * @param async the state of the asynchronous indexes
+     * @return the hash
+     */
+    static long lanes(NodeState async) {
+        long x = 0;
+        for (PropertyState p : async.getProperties()) {
+            String name = p.getName();
+            if (name.endsWith(LEASE_SUFFIX) || name.endsWith(TEMP_SUFFIX)
+                    || name.endsWith(LAST_INDEXED_TO_SUFFIX)) {
+                continue;
+            }
+            x += name.hashCode() * 0x9e3779b97f4a7c15L;
+        }
+        return x;
+    }
+
+    private static long hash(NodeState node) {
+        long x = 0;
+        for (PropertyState p : node.getProperties()) {
+            if (NodeStateUtils.isHidden(p.getName())) {
+                continue;
+            }
+            long y = p.getName().hashCode();
+            if (p.getType().tag() != Type.BINARY.tag()) {
+                for (String v : p.getValue(Type.STRINGS)) {
+                    y = y * 31 + v.hashCode();
+                }
+            }
+            x += y * 0x9e3779b97f4a7c15L;
+        }
+        return x;
+    }
+
+    private static Map<String, String> newLruMap(final int maxSize) {
+        return new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private static final class IndexDefinitions {
+
+        final NodeState oakIndex;
+
+        final long lanes;
+
+        final long fingerprint;
+
+        IndexDefinitions(NodeState oakIndex, long lanes, long fingerprint) {
+            this.oakIndex = oakIndex;
+            this.lanes = lanes;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Stops at the first visible change of the index definitions. Changes of
+     * the properties of the index definitions node itself are ignored, as
+     * well as hidden properties and child nodes.
+     */
+    private static final class DefinitionsDiff extends DefaultNodeStateDiff {
+
+        /**
+         * Whether the compared nodes are index definitions (or below), or
+         * the index definitions node
+         */
+        private final boolean definition;
+
+        DefinitionsDiff(boolean definition) {
+            this.definition = definition;
+        }
+
+        @Override
+        public boolean propertyAdded(PropertyState after) {
+            return !definition || NodeStateUtils.isHidden(after.getName());
+        }
+
+        @Override
+        public boolean propertyChanged(PropertyState before, PropertyState after) {
+            return !definition || NodeStateUtils.isHidden(after.getName());
+        }
+
+        @Override
+        public boolean propertyDeleted(PropertyState before) {
+            return !definition || NodeStateUtils.isHidden(before.getName());
+        }
+
+        @Override
+        public boolean childNodeAdded(String name, NodeState after) {
+            return NodeStateUtils.isHidden(name);
+        }
+
+        @Override
+        public boolean childNodeChanged(String name, NodeState before, NodeState after) {
+            return NodeStateUtils.isHidden(name)
+                    || after.compareAgainstBaseState(before, new DefinitionsDiff(true));
+        }
+
+        @Override
+        public boolean childNodeDeleted(String name, NodeState before) {
+            return NodeStateUtils.isHidden(name);
+        }
+    }
+}
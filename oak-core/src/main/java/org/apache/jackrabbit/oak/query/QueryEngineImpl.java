@@ -190,8 +190,13 @@ public abstract class QueryEngineImpl implements QueryEngine {
             parser.setSupportSQL1(true);
             q = parser.parse(statement, false);
         } else if (XPATH.equals(language)) {
-            XPathToSQL2Converter converter = new XPathToSQL2Converter(settings);
-            String sql2 = converter.convert(statement);
+            QueryCache cache = settings.getQueryCache();
+            String sql2 = cache.getConversion(statement);
+            if (sql2 == null) {
+                XPathToSQL2Converter converter = new XPathToSQL2Converter(settings);
+                sql2 = converter.convert(statement);
+                cache.putConversion(statement, sql2);
+            }
             LOG.debug("XPath > SQL2: {}", sql2);
             try {
                 // OAK-874: No artificial XPath selector name in wildcards
@@ -96,6 +96,8 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
 
     private final QueryStatsMBeanImpl queryStats = new QueryStatsMBeanImpl(this);
 
+    private final QueryCache queryCache = new QueryCache();
+
     /**
      * StatisticsProvider used to record query side metrics.
      */
@@ -176,6 +178,7 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
     public void setAutoOptionsMappingJson(String json) {
         autoOptionsMappingJson = json;
         autoOptionsMapping = new QueryOptions.AutomaticQueryOptionsMapping(json);
+        queryCache.invalidate();
     }
 
     @Override
@@ -224,6 +227,7 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
 
     public void setStrictPathRestriction(String strictPathRestriction) {
         this.strictPathRestriction = StrictPathRestriction.stringToEnum(strictPathRestriction);
+        queryCache.invalidate();
     }
 
     public void setFullTextComparisonWithoutIndex(boolean fullTextComparisonWithoutIndex) {
@@ -246,6 +250,13 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
         return queryStats;
     }
 
+    /**
+     * @return the cache of statement conversions and selected indexes
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
     public StatisticsProvider getStatisticsProvider() {
         return statisticsProvider;
     }
@@ -1072,12 +1072,13 @@ public class QueryImpl implements Query {
 
     public SelectorExecutionPlan getBestSelectorExecutionPlan(FilterImpl filter) {
         return getBestSelectorExecutionPlan(context.getBaseState(), filter,
-                context.getIndexProvider(), traversalEnabled);
+                context.getIndexProvider(), traversalEnabled, true);
     }
 
     private SelectorExecutionPlan getBestSelectorExecutionPlan(
             NodeState rootState, FilterImpl filter,
-            QueryIndexProvider indexProvider, boolean traversalEnabled) {
+            QueryIndexProvider indexProvider, boolean traversalEnabled,
+            boolean usePlanCache) {
         QueryIndex bestIndex = null;
         if (LOG.isDebugEnabled()) {
             logDebug("cost using filter " + filter);
@@ -1098,8 +1099,25 @@ public class QueryImpl implements Query {
         List<? extends QueryIndex> queryIndexes = MINIMAL_COST_ORDERING
                 .sortedCopy(indexProvider.getQueryIndexes(rootState));
         List<OrderEntry> sortOrder = getSortOrder(filter); 
-        for (int i = 0; i < queryIndexes.size(); i++) {
-            QueryIndex index = queryIndexes.get(i);
+
+        // if the index was already selected for this query, only estimate
+        // the cost of that index
+        QueryCache cache = getSettings().getQueryCache();
+        String planKey = getPlanCacheKey(maxEntryCount);
+        List<? extends QueryIndex> candidates = queryIndexes;
+        if (planKey != null && usePlanCache) {
+            String cachedIndexName = cache.getIndexName(planKey, rootState);
+            if (cachedIndexName != null) {
+                for (QueryIndex index : queryIndexes) {
+                    if (cachedIndexName.equals(index.getIndexName())) {
+                        candidates = Collections.singletonList(index);
+                        break;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            QueryIndex index = candidates.get(i);
             double minCost = index.getMinimumCost();
             if (minCost > bestCost) {
                 if (Math.abs(minCost - bestIndex.getMinimumCost()) < .00001) {
@@ -1176,6 +1194,13 @@ public class QueryImpl implements Query {
                 almostBestIndex = index;
             }
         }
+        if (candidates != queryIndexes && bestIndex == null) {
+            // the cached index can't be used for this query any longer
+            return getBestSelectorExecutionPlan(rootState, filter, indexProvider, traversalEnabled, false);
+        }
+        if (candidates == queryIndexes && planKey != null && bestIndex != null) {
+            cache.putIndexName(planKey, rootState, bestIndex.getIndexName());
+        }
 
         if (LOG.isDebugEnabled() && Math.abs(bestCost - almostBestCost) <= 0.1) {
             String msg = (bestPlan != null && almostBestPlan != null) ? String.format("selected index %s with plan %s and %s with plan %s have similar costs %s and %s for query %s - " +
@@ -1224,6 +1249,21 @@ public class QueryImpl implements Query {
                 bestPlan, bestCost);
     }
     
+    /**
+     * Get the key of this query in the plan cache. Only queries without joins
+     * are cached, as the filter of the selectors of a join depends on the join
+     * order. The key contains the bind variable names, but not their values.
+     *
+     * @param maxEntryCount the maximum number of entries read
+     * @return the key, or {@code null} if the plan should not be cached
+     */
+    private String getPlanCacheKey(long maxEntryCount) {
+        if (explain || measure || !(source instanceof SelectorImpl)) {
+            return null;
+        }
+        return getStatement() + '\n' + this + '\n' + maxEntryCount;
+    }
+
     private long scaleEntryCount(NodeState rootState, FilterImpl filter, long count) {
         PathRestriction r = filter.getPathRestriction();
         if (r != PathRestriction.ALL_CHILDREN) {
@@ -22,6 +22,8 @@ import static java.util.Objects.requireNonNull;
 import static org.apache.jackrabbit.guava.common.collect.Lists.newArrayList;
 import static org.apache.jackrabbit.JcrConstants.NT_BASE;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -352,6 +354,8 @@ public class SelectorImpl extends SourceImpl {
     private void executeInternal(NodeState rootState) {
         QueryIndex index = plan.getIndex();
         timerDuration = null;
+        // a join executes the selector again for each row of the other selector
+        closeCursor();
         if (index == null) {
             cursor = Cursors.newPathCursor(new ArrayList<String>(), query.getSettings());
             planIndexName = "traverse";
@@ -576,6 +580,21 @@ public class SelectorImpl extends SourceImpl {
         return false;
     }
 
+    /**
+     * Closes the cursor, if it supports that, so that the index can stop
+     * loading results in the background.
+     */
+    private void closeCursor() {
+        if (cursor instanceof Closeable) {
+            try {
+                ((Closeable) cursor).close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close the cursor", e);
+            }
+        }
+        cursor = null;
+    }
+
     private void totalQueryStats(QueryEngineSettings queryEngineSettings) {
         if (updateTotalQueryHistogram) {
             updateTotalQueryHistogram = false;
@@ -603,7 +622,7 @@ public class SelectorImpl extends SourceImpl {
             if (!constraint.evaluate()) {
                 if (constraint.evaluateStop()) {
                     // stop processing from now on
-                    cursor = null;
+                    closeCursor();
                 }
                 return false;
             }
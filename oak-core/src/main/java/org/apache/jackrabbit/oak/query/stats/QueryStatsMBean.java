@@ -54,5 +54,17 @@ public interface QueryStatsMBean {
     void setCaptureStackTraces(boolean captureStackTraces);
     
     boolean getCaptureStackTraces();
+
+    @Description("Get the number of XPath statements whose conversion to SQL-2 was found in the cache.")
+    long getConversionCacheHits();
+
+    @Description("Get the number of XPath statements that had to be converted to SQL-2.")
+    long getConversionCacheMisses();
+
+    @Description("Get the number of queries for which the index selected earlier was found in the plan cache.")
+    long getPlanCacheHits();
+
+    @Description("Get the number of queries for which the cost of all indexes had to be estimated.")
+    long getPlanCacheMisses();
     
 }
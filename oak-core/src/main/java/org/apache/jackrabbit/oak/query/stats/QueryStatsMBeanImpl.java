@@ -95,6 +95,7 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
     @Override
     public void resetStats() {
         statistics.clear();
+        settings.getQueryCache().resetStats();
     }
     
     @Override
@@ -107,6 +108,26 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
         return captureStackTraces;
     }
     
+    @Override
+    public long getConversionCacheHits() {
+        return settings.getQueryCache().getConversionCacheHits();
+    }
+
+    @Override
+    public long getConversionCacheMisses() {
+        return settings.getQueryCache().getConversionCacheMisses();
+    }
+
+    @Override
+    public long getPlanCacheHits() {
+        return settings.getQueryCache().getPlanCacheHits();
+    }
+
+    @Override
+    public long getPlanCacheMisses() {
+        return settings.getQueryCache().getPlanCacheMisses();
+    }
+
     @Override
     public String asJson() {
         ArrayList<QueryStatsData> list = new ArrayList<QueryStatsData>(statistics.values());
@@ -491,11 +491,12 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
         private final TreeType type;
         private final boolean isReadableTree;
 
-        private Collection<PermissionEntry> userEntries;
-        private Collection<PermissionEntry> groupEntries;
+        // lazily initialized, possibly by several threads of a read-only session
+        private volatile Collection<PermissionEntry> userEntries;
+        private volatile Collection<PermissionEntry> groupEntries;
 
-        private boolean skipped;
-        private ReadStatus readStatus;
+        private volatile boolean skipped;
+        private volatile ReadStatus readStatus;
 
         private TreePermissionImpl(@NotNull Tree tree, @NotNull TreeType type, @NotNull TreePermission parentPermission) {
             this.tree = tree;
@@ -522,8 +523,9 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
             if (!isAcTree && isReadableTree) {
                 return true;
             }
-            if (readStatus == null) {
-                readStatus = ReadStatus.DENY_THIS;
+            ReadStatus status = readStatus;
+            if (status == null) {
+                status = ReadStatus.DENY_THIS;
 
                 long permission = (isAcTree) ? Permissions.READ_ACCESS_CONTROL : Permissions.READ_NODE;
                 PrivilegeBits requiredBits = READ_BITS.get(permission);
@@ -532,15 +534,16 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
                 while (it.hasNext()) {
                     PermissionEntry entry = it.next();
                     if (entry.privilegeBits.includes(requiredBits)) {
-                        readStatus = ReadStatus.create(entry, permission, skipped);
+                        status = ReadStatus.create(entry, permission, skipped);
                         break;
                     } else if (permission == Permissions.READ_NODE &&
                             entry.privilegeBits.includes(READ_BITS.get(Permissions.READ_PROPERTY))) {
                         skipped = true;
                     }
                 }
+                readStatus = status;
             }
-            return readStatus.allowsThis();
+            return status.allowsThis();
         }
 
         @Override
@@ -549,7 +552,8 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
             if (!isAcTree && isReadableTree) {
                 return true;
             }
-            if (readStatus != null && readStatus.allowsProperties()) {
+            ReadStatus status = readStatus;
+            if (status != null && status.allowsProperties()) {
                 return true;
             }
 
@@ -566,12 +570,14 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
 
         @Override
         public boolean canReadAll() {
-            return readStatus != null && readStatus.allowsAll();
+            ReadStatus status = readStatus;
+            return status != null && status.allowsAll();
         }
 
         @Override
         public boolean canReadProperties() {
-            return readStatus != null && readStatus.allowsProperties();
+            ReadStatus status = readStatus;
+            return status != null && status.allowsProperties();
         }
 
         @Override
@@ -610,18 +616,22 @@ final class CompiledPermissionImpl implements CompiledPermissions, PermissionCon
 
         @NotNull
         private Iterator<PermissionEntry> getUserEntries() {
-            if (userEntries == null) {
-                userEntries = userStore != null ? userStore.getEntries(tree) : Collections.emptyList();
+            Collection<PermissionEntry> entries = userEntries;
+            if (entries == null) {
+                entries = userStore != null ? userStore.getEntries(tree) : Collections.emptyList();
+                userEntries = entries;
             }
-            return userEntries.iterator();
+            return entries.iterator();
         }
 
         @NotNull
         private Iterator<PermissionEntry> getGroupEntries() {
-            if (groupEntries == null) {
-                groupEntries = groupStore != null ? groupStore.getEntries(tree) : Collections.emptyList();
+            Collection<PermissionEntry> entries = groupEntries;
+            if (entries == null) {
+                entries = groupStore != null ? groupStore.getEntries(tree) : Collections.emptyList();
+                groupEntries = entries;
             }
-            return groupEntries.iterator();
+            return entries.iterator();
         }
 
         private boolean isAcTree() {
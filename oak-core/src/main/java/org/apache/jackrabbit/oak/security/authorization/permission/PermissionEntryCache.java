@@ -26,7 +26,8 @@ import org.slf4j.LoggerFactory;
 /**
  * {@code PermissionEntryCache} caches the permission entries of principals.
  * The cache is held locally for each session and contains a version of the principal permission
- * entries of the session that read them last.
+ * entries of the session that read them last. Access is synchronized, as the
+ * permissions of a read-only session may be evaluated by several threads.
  */
 class PermissionEntryCache {
 
@@ -35,7 +36,7 @@ class PermissionEntryCache {
     private final Map<String, PrincipalPermissionEntries> entries = new HashMap<>();
 
     @NotNull
-    PrincipalPermissionEntries getFullyLoadedEntries(@NotNull PermissionStore store,
+    synchronized PrincipalPermissionEntries getFullyLoadedEntries(@NotNull PermissionStore store,
                                                      @NotNull String principalName) {
         PrincipalPermissionEntries ppe = entries.get(principalName);
         if (ppe == null || !ppe.isFullyLoaded()) {
@@ -45,13 +46,13 @@ class PermissionEntryCache {
         return ppe;
     }
 
-    void init(@NotNull String principalName, long expectedSize) {
+    synchronized void init(@NotNull String principalName, long expectedSize) {
         if (!entries.containsKey(principalName)) {
             entries.put(principalName, new PrincipalPermissionEntries(expectedSize));
         }
     }
 
-    void load(@NotNull PermissionStore store,
+    synchronized void load(@NotNull PermissionStore store,
               @NotNull Collection<PermissionEntry> ret,
               @NotNull String principalName,
               @NotNull String path) {
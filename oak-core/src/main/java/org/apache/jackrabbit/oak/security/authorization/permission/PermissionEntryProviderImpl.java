@@ -45,10 +45,14 @@ class PermissionEntryProviderImpl implements PermissionEntryProvider {
      */
     private boolean noExistingNames;
 
-    private boolean initialized = false;
+    /**
+     * Written after {@link #noExistingNames} and {@link #permissionCache}, so
+     * that concurrent readers which see it set also see them.
+     */
+    private volatile boolean initialized = false;
     private boolean isRefreshed = false;
 
-    private PermissionCache permissionCache;
+    private volatile PermissionCache permissionCache;
 
     PermissionEntryProviderImpl(@NotNull PermissionStore store, @NotNull Set<String> principalNames, @NotNull ConfigurationParameters options) {
         this.store = store;
@@ -56,18 +60,24 @@ class PermissionEntryProviderImpl implements PermissionEntryProvider {
         this.options = options;
     }
 
-    private void init() {
+    @NotNull
+    private PermissionCache init() {
         if (!initialized) {
-            PermissionCacheBuilder builder = new PermissionCacheBuilder(store);
-            noExistingNames = builder.init(principalNames, new CacheStrategyImpl(options, isRefreshed));
-            permissionCache = builder.build();
-            initialized = true;
+            synchronized (this) {
+                if (!initialized) {
+                    PermissionCacheBuilder builder = new PermissionCacheBuilder(store);
+                    noExistingNames = builder.init(principalNames, new CacheStrategyImpl(options, isRefreshed));
+                    permissionCache = builder.build();
+                    initialized = true;
+                }
+            }
         }
+        return permissionCache;
     }
 
     //--------------------------------------------< PermissionEntryProvider >---
     @Override
-    public void flush() {
+    public synchronized void flush() {
         initialized = false;
         isRefreshed = true;
     }
@@ -75,25 +85,26 @@ class PermissionEntryProviderImpl implements PermissionEntryProvider {
     @Override
     @NotNull
     public Iterator<PermissionEntry> getEntryIterator(@NotNull EntryPredicate predicate) {
-        init();
+        PermissionCache cache = init();
         if (noExistingNames) {
             return Collections.emptyIterator();
         } else {
-            return new EntryIterator(predicate);
+            return new EntryIterator(cache, predicate);
         }
     }
 
     @Override
     @NotNull
     public Collection<PermissionEntry> getEntries(@NotNull Tree accessControlledTree) {
-        init();
-        return permissionCache.getEntries(accessControlledTree);
+        return init().getEntries(accessControlledTree);
     }
 
     //------------------------------------------------------------< private >---
 
     private final class EntryIterator extends AbstractLazyIterator<PermissionEntry> {
 
+        private final PermissionCache cache;
+
         private final EntryPredicate predicate;
 
         // the ordered permission entries at a given path in the hierarchy
@@ -102,7 +113,8 @@ class PermissionEntryProviderImpl implements PermissionEntryProvider {
         // the next oak path for which to retrieve permission entries
         private String path;
 
-        private EntryIterator(@NotNull EntryPredicate predicate) {
+        private EntryIterator(@NotNull PermissionCache cache, @NotNull EntryPredicate predicate) {
+            this.cache = cache;
             this.predicate = predicate;
             this.path = Objects.toString(predicate.getPath(), "");
         }
@@ -129,7 +141,7 @@ class PermissionEntryProviderImpl implements PermissionEntryProvider {
 
         @NotNull
         private Collection<PermissionEntry> getEntries(@NotNull String path) {
-            return permissionCache.getEntries(path);
+            return cache.getEntries(path);
         }
     }
 }
@@ -138,7 +138,7 @@ class PermissionStoreImpl implements PermissionStore, PermissionConstants {
 
     //------------------------------------------------------------< private >---
     @Nullable
-    private Tree getPrincipalRoot(@NotNull String principalName) {
+    private synchronized Tree getPrincipalRoot(@NotNull String principalName) {
         if (principalTreeMap.containsKey(principalName)) {
             return principalTreeMap.get(principalName);
         } else {
@@ -220,6 +220,45 @@ public class AsyncIndexUpdateTest {
 
     }
 
+    @Test
+    public void testAsyncParallelIndexEditors() throws Exception {
+        NodeStore store = new MemoryNodeStore();
+        IndexEditorProvider provider = new PropertyIndexEditorProvider();
+
+        NodeBuilder builder = store.getRoot().builder();
+        createIndexDefinition(builder.child(INDEX_DEFINITIONS_NAME),
+                "rootIndex", true, false, ImmutableSet.of("foo"), null)
+                .setProperty(ASYNC_PROPERTY_NAME, "async");
+        createIndexDefinition(builder.child(INDEX_DEFINITIONS_NAME),
+                "rootIndexSecond", true, false, ImmutableSet.of("bar"), null)
+                .setProperty(ASYNC_PROPERTY_NAME, "async");
+        builder.child("testRoot").setProperty("foo", "abc");
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        AsyncIndexUpdate async = new AsyncIndexUpdate("async", store, provider)
+                .setParallelIndexEditors(true);
+        // initial run reindexes on the diff thread
+        async.run();
+
+        builder = store.getRoot().builder();
+        builder.child("testRoot").remove();
+        builder.child("testSecond").setProperty("foo", "def").setProperty("bar", "ghi");
+        for (int i = 0; i < 100; i++) {
+            builder.child("many").child("n" + i).setProperty("bar", "many");
+        }
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        async.run();
+        assertFalse(async.isFailing());
+        NodeState root = store.getRoot();
+
+        PropertyIndexLookup lookup = new PropertyIndexLookup(root);
+        assertEquals(ImmutableSet.<String> of(), find(lookup, "foo", "abc"));
+        assertEquals(ImmutableSet.of("testSecond"), find(lookup, "foo", "def"));
+        assertEquals(ImmutableSet.of("testSecond"), find(lookup, "bar", "ghi"));
+        assertEquals(100, find(lookup, "bar", "many").size());
+    }
+
     /**
      * Async Index Test with 2 index defs at different tree locations
      * <ul>
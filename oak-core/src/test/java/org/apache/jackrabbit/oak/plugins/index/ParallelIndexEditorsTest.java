@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.spi.commit.DefaultEditor;
+import org.apache.jackrabbit.oak.spi.commit.Editor;
+import org.apache.jackrabbit.oak.spi.commit.EditorDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class ParallelIndexEditorsTest {
+
+    @Test
+    public void flushPendingChanges() throws Exception {
+        NodeBuilder definition = EMPTY_NODE.builder().child("oak:index").child("test");
+        AtomicLong flushedBeforeLeave = new AtomicLong();
+        ParallelIndexEditors parallel = new ParallelIndexEditors("async", 1, 10,
+                NodeTraversalCallback.NOOP) {
+            @Override
+            public void leave(NodeState before, NodeState after) throws CommitFailedException {
+                flushedBeforeLeave.set(definition.getChildNodeCount(Long.MAX_VALUE));
+                super.leave(before, after);
+            }
+        };
+        assertTrue(parallel.reserve());
+        NodeBuilder isolated = ParallelIndexEditors.isolate(definition);
+        parallel.add("/oak:index/test", new ChildNodeEditor(isolated), isolated, definition);
+
+        NodeBuilder content = EMPTY_NODE.builder();
+        for (int i = 0; i < 100; i++) {
+            content.child("n" + i);
+        }
+        try {
+            assertNull(EditorDiff.process(parallel, EMPTY_NODE, content.getNodeState()));
+        } finally {
+            parallel.close();
+        }
+
+        // changes got applied to the definition while the diff was running
+        assertTrue(flushedBeforeLeave.get() > 0);
+        assertEquals(100, definition.getChildNodeCount(Long.MAX_VALUE));
+        assertTrue(definition.hasChildNode("n99"));
+    }
+
+    /**
+     * Adds a child node to the builder for each child node added at the root.
+     */
+    private static class ChildNodeEditor extends DefaultEditor {
+        private final NodeBuilder builder;
+
+        ChildNodeEditor(NodeBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public Editor childNodeAdded(String name, NodeState after) {
+            builder.child(name);
+            return null;
+        }
+    }
+}
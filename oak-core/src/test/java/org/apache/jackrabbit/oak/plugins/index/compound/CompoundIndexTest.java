@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.compound;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.apache.jackrabbit.oak.InitialContentHelper.INITIAL_CONTENT;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_CONTENT_NODE_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.PROPERTY_NAMES;
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.jcr.query.Query;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.IndexUpdateProvider;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.query.AbstractQueryTest;
+import org.apache.jackrabbit.oak.query.NodeStateNodeTypeInfoProvider;
+import org.apache.jackrabbit.oak.query.QueryEngineSettings;
+import org.apache.jackrabbit.oak.query.ast.NodeTypeInfo;
+import org.apache.jackrabbit.oak.query.ast.Operator;
+import org.apache.jackrabbit.oak.query.ast.SelectorImpl;
+import org.apache.jackrabbit.oak.query.index.FilterImpl;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EditorHook;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.IndexPlan;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.OrderEntry;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+import org.apache.jackrabbit.guava.common.collect.ImmutableList;
+
+/**
+ * Tests the compound index.
+ */
+public class CompoundIndexTest extends AbstractQueryTest {
+
+    private static final EditorHook HOOK = new EditorHook(
+            new IndexUpdateProvider(new CompoundIndexEditorProvider()));
+
+    @Override
+    protected ContentRepository createRepository() {
+        return new Oak().with(new InitialContent())
+                .with(new OpenSecurityProvider())
+                .with(new CompoundIndexProvider())
+                .with(new CompoundIndexEditorProvider())
+                .createContentRepository();
+    }
+
+    @Override
+    protected void createTestIndexNode() throws Exception {
+        Tree index = createTestIndexNode("statusTypeModified",
+                root.getTree("/"), CompoundIndexEditorProvider.TYPE);
+        index.setProperty(PROPERTY_NAMES,
+                asList("status", "type", "modified"), Type.NAMES);
+        root.commit();
+    }
+
+    @Test
+    public void query() throws Exception {
+        Tree t = root.getTree("/").addChild("test");
+        addNode(t, "a", "open", "page", 10);
+        addNode(t, "b", "open", "page", 9);
+        addNode(t, "c", "open", "page", 100);
+        addNode(t, "d", "open", "asset", 5);
+        addNode(t, "e", "closed", "page", 1);
+        t.addChild("f").setProperty("status", "open");
+        t.addChild("g").setProperty("type", "page");
+        root.commit();
+        setTraversalEnabled(false);
+
+        assertQuery("select [jcr:path] from [nt:base] where [status] = 'open'",
+                ImmutableList.of("/test/a", "/test/b", "/test/c", "/test/d", "/test/f"));
+        assertQuery("select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page'",
+                ImmutableList.of("/test/a", "/test/b", "/test/c"));
+        assertQuery("select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page' and [modified] > 9",
+                ImmutableList.of("/test/a", "/test/c"));
+        assertQuery("select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page' and [modified] > 9 and [modified] < 100",
+                ImmutableList.of("/test/a"));
+        assertQuery("select [jcr:path] from [nt:base] where [status] > 'd'",
+                ImmutableList.of("/test/a", "/test/b", "/test/c", "/test/d", "/test/f"));
+
+        // the modified values are compared as numbers, not as strings
+        assertQuery("select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page' order by [modified]",
+                SQL2, ImmutableList.of("/test/b", "/test/a", "/test/c"), false, true);
+        assertQuery("select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page' order by [modified] desc",
+                SQL2, ImmutableList.of("/test/c", "/test/a", "/test/b"), false, true);
+
+        String plan = executeQuery("explain select [jcr:path] from [nt:base] " +
+                "where [status] = 'open' and [type] = 'page' order by [modified]",
+                Query.JCR_SQL2).get(0);
+        assertTrue(plan, plan.contains("compound statusTypeModified"));
+        assertTrue(plan, plan.contains("status='open', type='page'"));
+        assertTrue(plan, plan.contains("orderBy: modified ASC"));
+
+        // no condition on the first property
+        plan = executeQuery("explain select [jcr:path] from [nt:base] where [type] = 'page'",
+                Query.JCR_SQL2).get(0);
+        assertFalse(plan, plan.contains("compound"));
+    }
+
+    @Test
+    public void prune() throws Exception {
+        NodeState root = EMPTY_NODE;
+        NodeBuilder builder = root.builder();
+        builder.child(INDEX_DEFINITIONS_NAME).child("statusType")
+                .setProperty("type", CompoundIndexEditorProvider.TYPE)
+                .setProperty(PROPERTY_NAMES, asList("status", "type"), Type.NAMES)
+                .setProperty("reindex", true);
+        NodeState before = builder.getNodeState();
+        builder.child("a").setProperty("status", "open").setProperty("type", "page");
+        builder.child("b").setProperty("status", "open");
+        NodeState indexed = HOOK.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+
+        NodeState index = indexed.getChildNode(INDEX_DEFINITIONS_NAME)
+                .getChildNode("statusType").getChildNode(INDEX_CONTENT_NODE_NAME);
+        List<String> keys = ImmutableList.copyOf(index.getChildNode("open").getChildNodeNames());
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("page"));
+        assertTrue(keys.contains(CompoundIndexEditor.NULL_KEY));
+
+        builder = indexed.builder();
+        builder.child("a").removeProperty("type");
+        builder.getChildNode("b").remove();
+        indexed = HOOK.processCommit(indexed, builder.getNodeState(), CommitInfo.EMPTY);
+        index = indexed.getChildNode(INDEX_DEFINITIONS_NAME)
+                .getChildNode("statusType").getChildNode(INDEX_CONTENT_NODE_NAME);
+        assertEquals(ImmutableList.of(CompoundIndexEditor.NULL_KEY),
+                ImmutableList.copyOf(index.getChildNode("open").getChildNodeNames()));
+
+        builder = indexed.builder();
+        builder.getChildNode("a").remove();
+        indexed = HOOK.processCommit(indexed, builder.getNodeState(), CommitInfo.EMPTY);
+        index = indexed.getChildNode(INDEX_DEFINITIONS_NAME)
+                .getChildNode("statusType").getChildNode(INDEX_CONTENT_NODE_NAME);
+        assertTrue(index.exists());
+        assertEquals(0, index.getChildNodeCount(1));
+    }
+
+    @Test
+    public void keyScanCost() throws Exception {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child(INDEX_DEFINITIONS_NAME).child("statusModified")
+                .setProperty("type", CompoundIndexEditorProvider.TYPE)
+                .setProperty(PROPERTY_NAMES, asList("status", "modified"), Type.NAMES)
+                .setProperty("reindex", true);
+        NodeState before = builder.getNodeState();
+        for (int i = 0; i < 50; i++) {
+            builder.child("n" + i).setProperty("status", "open").setProperty("modified", (long) i);
+        }
+        NodeState indexed = HOOK.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+
+        // no key is decoded for an equality condition
+        FilterImpl filter = createFilter();
+        filter.restrictProperty("status", Operator.EQUAL, PropertyValues.newString("open"));
+        assertEquals(CompoundIndexPlan.COST_OVERHEAD,
+                getPlan(filter, null, indexed).getCostPerExecution(), 0);
+
+        // all keys of the level are read for a range condition, and sorted
+        // on top of that if the result is ordered
+        filter.restrictProperty("modified", Operator.GREATER_THAN, PropertyValues.newLong(40L));
+        double range = getPlan(filter, null, indexed).getCostPerExecution();
+        assertEquals(CompoundIndexPlan.COST_OVERHEAD + 50 * CompoundIndexPlan.COST_PER_KEY, range, 0);
+        List<OrderEntry> sortOrder = singletonList(
+                new OrderEntry("modified", Type.LONG, OrderEntry.Order.ASCENDING));
+        assertTrue(getPlan(filter, sortOrder, indexed).getCostPerExecution() > range);
+    }
+
+    private static FilterImpl createFilter() {
+        NodeTypeInfo type = new NodeStateNodeTypeInfoProvider(INITIAL_CONTENT).getNodeTypeInfo("nt:base");
+        SelectorImpl selector = new SelectorImpl(type, "nt:base");
+        return new FilterImpl(selector, "SELECT * FROM [nt:base]", new QueryEngineSettings());
+    }
+
+    private static IndexPlan getPlan(FilterImpl filter, List<OrderEntry> sortOrder, NodeState root) {
+        List<IndexPlan> plans = new CompoundIndex().getPlans(filter, sortOrder, root);
+        assertEquals(1, plans.size());
+        return plans.get(0);
+    }
+
+    private static void addNode(Tree parent, String name, String status,
+            String type, long modified) {
+        Tree t = parent.addChild(name);
+        t.setProperty("status", status);
+        t.setProperty("type", type);
+        t.setProperty("modified", modified);
+    }
+
+}
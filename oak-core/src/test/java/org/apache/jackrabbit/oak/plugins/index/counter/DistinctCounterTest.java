@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.counter;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class DistinctCounterTest {
+
+    @Test
+    public void estimation() {
+        for (int n = 1; n <= 100000; n *= 10) {
+            DistinctCounter c = new DistinctCounter();
+            for (int i = 0; i < n; i++) {
+                c.add("x" + i);
+                // duplicates don't change the estimation
+                c.add("x" + i);
+            }
+            long est = c.getCount();
+            assertTrue("n: " + n + " estimation: " + est,
+                    Math.abs(est - n) <= n * 0.3);
+        }
+    }
+
+    @Test
+    public void mergeAndRead() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        assertEquals(-1, DistinctCounter.getCount(builder.getNodeState()));
+
+        DistinctCounter c = new DistinctCounter();
+        assertTrue(c.isEmpty());
+        c.merge(builder);
+        assertFalse(builder.hasProperty(DistinctCounter.DISTINCT_PROPERTY_NAME));
+
+        for (int i = 0; i < 1000; i++) {
+            c.add("x" + i);
+        }
+        assertFalse(c.isEmpty());
+        c.merge(builder);
+        assertEquals(c.getCount(), DistinctCounter.getCount(builder.getNodeState()));
+
+        // merging a subset doesn't change the stored registers
+        NodeState before = builder.getNodeState();
+        DistinctCounter subset = new DistinctCounter();
+        for (int i = 0; i < 100; i++) {
+            subset.add("x" + i);
+        }
+        subset.merge(builder);
+        assertEquals(before, builder.getNodeState());
+
+        // merging other values increases the count
+        DistinctCounter other = new DistinctCounter();
+        for (int i = 1000; i < 10000; i++) {
+            other.add("x" + i);
+        }
+        other.merge(builder);
+        long est = DistinctCounter.getCount(builder.getNodeState());
+        assertTrue("estimation: " + est, Math.abs(est - 10000) <= 3000);
+    }
+
+}
@@ -49,6 +49,7 @@ import org.apache.jackrabbit.oak.commons.junit.LogCustomizer;
 import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
 import org.apache.jackrabbit.oak.plugins.index.IndexUpdate;
 import org.apache.jackrabbit.oak.plugins.index.IndexUpdateProvider;
+import org.apache.jackrabbit.oak.plugins.index.counter.DistinctCounter;
 import org.apache.jackrabbit.oak.plugins.index.property.strategy.ContentMirrorStoreStrategy;
 import org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
@@ -144,6 +145,67 @@ public class PropertyIndexTest {
         assertTrue("cost: " + cost, cost >= MANY);
     }
 
+    @Test
+    public void costEstimationWithDistinctKeyCount() throws Exception {
+        NodeState root = INITIAL_CONTENT;
+
+        // Add index definition, with a configured entry count, but no key count
+        NodeBuilder builder = root.builder();
+        NodeBuilder index = createIndexDefinition(builder.child(INDEX_DEFINITIONS_NAME), "foo",
+                true, false, ImmutableSet.of("foo"), null);
+        index.setProperty("entryCount", (long) MANY * 10);
+        NodeState before = builder.getNodeState();
+
+        // Add some content and process it through the property index hook
+        for (int i = 0; i < MANY; i++) {
+            builder.child("n" + i).setProperty("foo", "x" + i % 20);
+        }
+        NodeState after = builder.getNodeState();
+
+        NodeState indexed = HOOK.processCommit(before, after, CommitInfo.EMPTY);
+        NodeState content = getNode(indexed, "/oak:index/foo/" + INDEX_CONTENT_NODE_NAME);
+        assertTrue(content.hasProperty(DistinctCounter.DISTINCT_PROPERTY_NAME));
+        long distinct = DistinctCounter.getCount(content);
+        assertTrue("distinct: " + distinct, distinct >= 15 && distinct <= 25);
+
+        // the entries of a key are estimated as entryCount / distinct keys;
+        // without the distinct key count, the cost would be above 1000
+        FilterImpl f = createFilter(indexed, NT_BASE);
+        PropertyIndexLookup lookup = new PropertyIndexLookup(indexed);
+        double cost = lookup.getCost(f, "foo", PropertyValues.newString("x1"));
+        assertTrue("cost: " + cost, cost >= 40 && cost <= 70);
+    }
+
+    @Test
+    public void distinctKeyCountOnlyMaintainedIfUsed() throws Exception {
+        NodeState root = INITIAL_CONTENT;
+
+        NodeBuilder builder = root.builder();
+        NodeBuilder defs = builder.child(INDEX_DEFINITIONS_NAME);
+        // no entry count: the approximate counter is used
+        createIndexDefinition(defs, "none", true, false, ImmutableSet.of("foo"), null);
+        // negative entry count: the entries are counted
+        createIndexDefinition(defs, "counted", true, false, ImmutableSet.of("foo"), null)
+                .setProperty("entryCount", -1);
+        // configured key count
+        createIndexDefinition(defs, "keyCount", true, false, ImmutableSet.of("foo"), null)
+                .setProperty("entryCount", (long) MANY * 10)
+                .setProperty("keyCount", 20L);
+        NodeState before = builder.getNodeState();
+
+        for (int i = 0; i < MANY; i++) {
+            builder.child("n" + i).setProperty("foo", "x" + i % 20);
+        }
+        NodeState after = builder.getNodeState();
+
+        NodeState indexed = HOOK.processCommit(before, after, CommitInfo.EMPTY);
+        for (String name : Arrays.asList("none", "counted", "keyCount")) {
+            NodeState content = getNode(indexed, "/oak:index/" + name + "/" + INDEX_CONTENT_NODE_NAME);
+            assertTrue(name, content.exists());
+            assertFalse(name, content.hasProperty(DistinctCounter.DISTINCT_PROPERTY_NAME));
+        }
+    }
+
     /**
      * This is essentially same test as {@link #costEstimation()} with one difference that it uses
      * path constraint in query and creates similar trees under 2 branches {@code path1} and {@code path2}.
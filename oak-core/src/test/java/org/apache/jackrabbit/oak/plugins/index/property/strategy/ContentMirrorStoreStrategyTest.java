@@ -37,6 +37,7 @@ import java.util.function.Supplier;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.plugins.index.counter.DistinctCounter;
 import org.apache.jackrabbit.oak.query.index.FilterImpl;
 import org.apache.jackrabbit.oak.spi.query.Filter;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
@@ -210,6 +211,45 @@ public class ContentMirrorStoreStrategyTest {
                         maxTraversal));
     }
 
+    @Test
+    public void testDistinctKeyCountUsage() {
+        final long approxNodeCount = 1000;
+        final long entryCount = 30 * DEFAULT_RESOLUTION;
+        final int maxTraversal = 200;
+        final String keyValue = KEY.iterator().next();
+        final String approxPropName = COUNT_PROPERTY_PREFIX + "gen_uuid";
+
+        IndexStoreStrategy store = new ContentMirrorStoreStrategy();
+        NodeState root = EMPTY_NODE;
+        NodeBuilder indexMeta = root.builder();
+        NodeBuilder index = indexMeta.child(INDEX_CONTENT_NODE_NAME);
+        index.setProperty(approxPropName, approxNodeCount, Type.LONG);
+        // a single entry for the key, without approximate count
+        index.child(keyValue).child("n").setProperty("match", true);
+
+        // prop=value query without distinct key count: the entries are counted
+        Assert.assertEquals(1, store.count(root, indexMeta.getNodeState(),
+                KEY, maxTraversal));
+
+        DistinctCounter distinct = new DistinctCounter();
+        for (int i = 0; i < 100; i++) {
+            distinct.add("k" + i);
+        }
+        distinct.merge(index);
+        long distinctCount = DistinctCounter.getCount(index.getNodeState());
+
+        // prop=value query with distinct key count: the entries of a key
+        // without approximate count are still counted
+        Assert.assertEquals(1, store.count(root, indexMeta.getNodeState(),
+                KEY, maxTraversal));
+
+        // prop=value query with entryCount but without keyCount
+        indexMeta.setProperty(ENTRY_COUNT_PROPERTY_NAME, entryCount, Type.LONG);
+        Assert.assertEquals("Distinct key count not used for key=value query",
+                entryCount / distinctCount + 1, store.count(root,
+                        indexMeta.getNodeState(), KEY, maxTraversal));
+    }
+
     @Test
     public void testIndexCountersUsageWithPathRestriction() {
         final String subPathName = "sub-path";
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.observation;
+
+import static org.apache.jackrabbit.oak.commons.PathUtils.concat;
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class MultiplexingHandlerTest {
+
+    private static final String[] PATHS = { "/", "/a", "/a/b", "/c/d", "/e" };
+
+    @Test
+    public void sameEventsAsSeparateDiffs() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("a").child("b").setProperty("p", 1);
+        builder.child("c").child("d").child("x");
+        builder.child("c").setProperty("q", 1);
+        builder.child("f");
+        NodeState before = builder.getNodeState();
+
+        builder.child("a").setProperty("p", 2);
+        builder.child("a").child("b").setProperty("p", 2);
+        builder.child("a").child("b").child("y");
+        builder.child("c").child("d").child("x").remove();
+        builder.child("c").setProperty("q", 2);
+        builder.child("e").child("z");
+        builder.child("f").remove();
+        NodeState after = builder.getNodeState();
+
+        MultiplexingHandler multiplexer = new MultiplexingHandler();
+        List<List<String>> multiplexed = new ArrayList<List<String>>();
+        List<List<String>> separate = new ArrayList<List<String>>();
+        for (String path : PATHS) {
+            List<String> events = new ArrayList<String>();
+            multiplexed.add(events);
+            multiplexer.addHandler(path, new RecordingHandler("/", events));
+
+            events = new ArrayList<String>();
+            separate.add(events);
+            generate(before, after, path, new RecordingHandler("/", events));
+        }
+        generate(new EventGenerator(before, after, multiplexer));
+
+        for (int i = 0; i < PATHS.length; i++) {
+            Collections.sort(multiplexed.get(i));
+            Collections.sort(separate.get(i));
+            assertEquals(PATHS[i], separate.get(i), multiplexed.get(i));
+        }
+        assertTrue(multiplexed.get(0).contains("nodeDeleted /f"));
+        assertTrue(multiplexed.get(3).contains("nodeDeleted /c/d/x"));
+        assertEquals(1, multiplexed.get(3).size());
+    }
+
+    @Test
+    public void unchangedPathNotDiffed() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("a");
+        NodeState before = builder.getNodeState();
+        builder.child("b");
+        NodeState after = builder.getNodeState();
+
+        List<String> events = new ArrayList<String>();
+        MultiplexingHandler multiplexer = new MultiplexingHandler();
+        multiplexer.addHandler("/a", new RecordingHandler("/", events));
+        generate(new EventGenerator(before, after, multiplexer));
+        assertTrue(events.isEmpty());
+    }
+
+    private static void generate(NodeState before, NodeState after, String path, EventHandler handler) {
+        for (String name : PathUtils.elements(path)) {
+            before = before.getChildNode(name);
+            after = after.getChildNode(name);
+            handler = handler.getChildHandler(name, before, after);
+        }
+        generate(new EventGenerator(before, after, handler));
+    }
+
+    private static void generate(EventGenerator generator) {
+        while (!generator.isDone()) {
+            generator.generate();
+        }
+    }
+
+    private static class RecordingHandler extends DefaultEventHandler {
+
+        private final String path;
+
+        private final List<String> events;
+
+        RecordingHandler(String path, List<String> events) {
+            this.path = path;
+            this.events = events;
+        }
+
+        @Override
+        public EventHandler getChildHandler(String name, NodeState before, NodeState after) {
+            return new RecordingHandler(concat(path, name), events);
+        }
+
+        @Override
+        public void propertyAdded(PropertyState after) {
+            events.add("propertyAdded " + concat(path, after.getName()));
+        }
+
+        @Override
+        public void propertyChanged(PropertyState before, PropertyState after) {
+            events.add("propertyChanged " + concat(path, after.getName()));
+        }
+
+        @Override
+        public void propertyDeleted(PropertyState before) {
+            events.add("propertyDeleted " + concat(path, before.getName()));
+        }
+
+        @Override
+        public void nodeAdded(String name, NodeState after) {
+            events.add("nodeAdded " + concat(path, name));
+        }
+
+        @Override
+        public void nodeDeleted(String name, NodeState before) {
+            events.add("nodeDeleted " + concat(path, name));
+        }
+    }
+}
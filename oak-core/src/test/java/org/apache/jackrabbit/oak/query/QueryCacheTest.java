@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class QueryCacheTest {
+
+    @Test
+    public void conversion() {
+        QueryCache cache = new QueryCache(10, 10);
+        assertNull(cache.getConversion("//*"));
+        cache.putConversion("//*", "select [jcr:path] from [nt:base] as a");
+        assertEquals("select [jcr:path] from [nt:base] as a", cache.getConversion("//*"));
+        assertEquals(1, cache.getConversionCacheHits());
+        assertEquals(1, cache.getConversionCacheMisses());
+
+        cache.invalidate();
+        assertNull(cache.getConversion("//*"));
+    }
+
+    @Test
+    public void planInvalidatedWhenDefinitionsChange() {
+        QueryCache cache = new QueryCache(10, 10);
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("oak:index").child("foo").setProperty("type", "property");
+        NodeState root = builder.getNodeState();
+
+        assertNull(cache.getIndexName("q", root));
+        cache.putIndexName("q", root, "foo");
+        assertEquals("foo", cache.getIndexName("q", root));
+
+        // writing index content doesn't invalidate the plans
+        builder.child("oak:index").child("foo").child(":index").setProperty("x", 1);
+        root = builder.getNodeState();
+        assertEquals("foo", cache.getIndexName("q", root));
+
+        // changing the definition does
+        builder.child("oak:index").child("foo").setProperty("reindexCount", 2);
+        root = builder.getNodeState();
+        assertNull(cache.getIndexName("q", root));
+        assertEquals(2, cache.getPlanCacheHits());
+        assertEquals(2, cache.getPlanCacheMisses());
+    }
+
+    @Test
+    public void planKeptWhileAsyncIndexingRuns() {
+        QueryCache cache = new QueryCache(10, 10);
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("oak:index").child("foo").setProperty("type", "lucene");
+        NodeState root = builder.getNodeState();
+
+        assertNull(cache.getIndexName("q", root));
+        cache.putIndexName("q", root, "foo");
+
+        // the first indexing cycle of a lane invalidates the plans
+        builder.child(":async").setProperty("async", "cp1");
+        root = builder.getNodeState();
+        assertNull(cache.getIndexName("q", root));
+        cache.putIndexName("q", root, "foo");
+
+        // the following cycles don't
+        builder.child(":async").setProperty("async", "cp2");
+        builder.child(":async").setProperty("async-lease", 42L);
+        builder.child(":async").setProperty("async-LastIndexedTo", "2026-10-19T00:00:00.000Z");
+        builder.child(":async").setProperty("async-temp", "cp3");
+        builder.child("oak:index").child("foo").child(":data").setProperty("x", 1);
+        builder.child("oak:index").child("foo").child(":status").setProperty("lastUpdated", "now");
+        root = builder.getNodeState();
+        assertEquals("foo", cache.getIndexName("q", root));
+    }
+
+    @Test
+    public void definitionsChanged() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("oak:index").child("foo").child("indexRules").child("nt:base");
+        NodeState before = builder.getNodeState().getChildNode("oak:index");
+
+        builder.child("oak:index").child("foo").child(":index").setProperty("x", 1);
+        builder.child("oak:index").setProperty("x", 1);
+        NodeState after = builder.getNodeState().getChildNode("oak:index");
+        assertFalse(QueryCache.definitionsChanged(before, after));
+
+        builder.child("oak:index").child("foo").child("indexRules").child("nt:base").setProperty("x", 1);
+        assertTrue(QueryCache.definitionsChanged(after, builder.getNodeState().getChildNode("oak:index")));
+
+        builder = after.builder();
+        builder.child("bar");
+        assertTrue(QueryCache.definitionsChanged(after, builder.getNodeState()));
+    }
+
+    @Test
+    public void disabled() {
+        QueryCache cache = new QueryCache(0, 0);
+        cache.putConversion("//*", "select [jcr:path] from [nt:base] as a");
+        assertNull(cache.getConversion("//*"));
+        cache.putIndexName("q", EMPTY_NODE, "foo");
+        assertNull(cache.getIndexName("q", EMPTY_NODE));
+    }
+}
@@ -27,24 +27,32 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Closeable;
+import java.io.File;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.plugins.observation.Filter;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringAwareObserver;
+import org.apache.jackrabbit.oak.plugins.observation.FilteringDispatcher;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringObserver;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
 import org.jetbrains.annotations.NotNull;
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.apache.jackrabbit.guava.common.collect.Lists;
 
@@ -58,6 +66,9 @@ public class BackgroundObserverTest {
     private CountDownLatch doneCounter;
     private final List<Closeable> closeables = Lists.newArrayList();
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder(new File("target"));
+
     /**
      * Assert that each observer of many running concurrently sees the same
      * linearly sequence of commits (i.e. sees the commits in the correct
@@ -390,6 +401,163 @@ public class BackgroundObserverTest {
         assertMatches("testExcludeCommitsWithFullQueue", expected, recorder.includedChanges);
     }
 
+    private static RootStateResolver newResolver(final Map<String, NodeState> states) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new RootStateResolver() {
+            @Override
+            public String getReference(@NotNull NodeState root) {
+                String reference = String.valueOf(counter.getAndIncrement());
+                states.put(reference, root);
+                return reference;
+            }
+
+            @Override
+            public NodeState resolve(@NotNull String reference) {
+                return states.get(reference);
+            }
+        };
+    }
+
+    @Test
+    public void testSpillWithFullQueue() throws Exception {
+        final Map<String, NodeState> states = new ConcurrentHashMap<String, NodeState>();
+        RootStateResolver resolver = newResolver(states);
+        // small files, to spill to more than one file
+        ContentChangeLog log = new ContentChangeLog(temporaryFolder.newFolder(), resolver, null, 256);
+        Recorder recorder = new Recorder();
+        ExecutorService executor = newSingleThreadExecutor();
+        BackgroundObserver bo = new BackgroundObserver(
+                new FilteringDispatcher(recorder), executor, 2, log);
+        FilteringObserver fo = new FilteringObserver(bo, new MyFilter());
+        closeables.add(fo);
+        List<Pair> expected = new LinkedList<Pair>();
+        NodeStateGenerator generator = new NodeStateGenerator();
+        recorder.pause();
+
+        NodeState previous = generator.next();
+        fo.contentChanged(previous, CommitInfo.EMPTY);
+        for (int i = 0; i < 100; i++) {
+            NodeState next = generator.next();
+            expected.add(new Pair(previous, next));
+            previous = next;
+            fo.contentChanged(next, COMMIT_INFO);
+        }
+        assertTrue(bo.getMBean().getSpilledQueueSize() > 0);
+        assertTrue(bo.getMBean().getSpillDiskUsage() > 0);
+
+        // a spilled change which can't be resolved anymore is skipped
+        Pair lost = expected.remove(90);
+        states.values().remove(lost.after);
+        expected.set(90, new Pair(lost.before, expected.get(90).after));
+
+        recorder.unpause();
+        assertTrue("testSpillWithFullQueue", bo.waitUntilStopped(5, TimeUnit.SECONDS));
+        assertMatches("testSpillWithFullQueue", expected, recorder.includedChanges);
+        assertEquals(0, log.size());
+        assertEquals(0, log.getDiskUsage());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSpillPinsRootStates() throws Exception {
+        final Map<String, NodeState> states = new ConcurrentHashMap<String, NodeState>();
+        final RootStateResolver references = newResolver(states);
+        final Map<Integer, Integer> pins = new ConcurrentHashMap<Integer, Integer>();
+        final List<String> unpinned = Collections.synchronizedList(new LinkedList<String>());
+        RootStateResolver resolver = new RootStateResolver() {
+            @Override
+            public String getReference(@NotNull NodeState root) {
+                return references.getReference(root);
+            }
+
+            @Override
+            public NodeState resolve(@NotNull String reference) {
+                // the root state compared against must be pinned as well
+                int previous = Math.max(0, Integer.parseInt(reference) - 1);
+                if (pins.keySet().stream().noneMatch(p -> p <= previous)) {
+                    unpinned.add(reference);
+                }
+                return references.resolve(reference);
+            }
+
+            @Override
+            public Closeable pin(@NotNull String reference) {
+                final int r = Integer.parseInt(reference);
+                pins.merge(r, 1, Integer::sum);
+                return () -> pins.computeIfPresent(r, (k, v) -> v == 1 ? null : v - 1);
+            }
+        };
+        // small files, to spill to more than one file
+        ContentChangeLog log = new ContentChangeLog(temporaryFolder.newFolder(), resolver, null, 256);
+        Recorder recorder = new Recorder();
+        ExecutorService executor = newSingleThreadExecutor();
+        BackgroundObserver bo = new BackgroundObserver(
+                new FilteringDispatcher(recorder), executor, 2, log);
+        FilteringObserver fo = new FilteringObserver(bo, new MyFilter());
+        closeables.add(fo);
+        List<Pair> expected = new LinkedList<Pair>();
+        NodeStateGenerator generator = new NodeStateGenerator();
+        recorder.pause();
+
+        NodeState previous = generator.next();
+        fo.contentChanged(previous, CommitInfo.EMPTY);
+        for (int i = 0; i < 100; i++) {
+            NodeState next = generator.next();
+            expected.add(new Pair(previous, next));
+            previous = next;
+            fo.contentChanged(next, COMMIT_INFO);
+        }
+        assertTrue("more than one file must be pinned", pins.size() > 1);
+
+        recorder.unpause();
+        assertTrue("testSpillPinsRootStates", bo.waitUntilStopped(5, TimeUnit.SECONDS));
+        assertMatches("testSpillPinsRootStates", expected, recorder.includedChanges);
+        assertEquals("resolved without a pin: " + unpinned, 0, unpinned.size());
+        // at most the pin of the last file is kept until the next read
+        assertTrue(pins.size() <= 1);
+        bo.close();
+        assertEquals(0, pins.size());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSpillExcludedCommits() throws Exception {
+        RootStateResolver resolver = newResolver(new ConcurrentHashMap<String, NodeState>());
+        ContentChangeLog log = FilteringObserver.createSpillLog(temporaryFolder.newFolder(), resolver);
+        MyFilter filter = new MyFilter();
+        Recorder recorder = new Recorder();
+        ExecutorService executor = newSingleThreadExecutor();
+        BackgroundObserver bo = new BackgroundObserver(
+                new FilteringDispatcher(recorder), executor, 2, log);
+        FilteringObserver fo = new FilteringObserver(bo, filter);
+        closeables.add(fo);
+        List<Pair> expected = new LinkedList<Pair>();
+        NodeStateGenerator generator = new NodeStateGenerator();
+        recorder.pause();
+
+        NodeState previous = generator.next();
+        fo.contentChanged(previous, CommitInfo.EMPTY);
+        for (int i = 0; i < 30; i++) {
+            // every third change is excluded, and spilled as a NOOP_CHANGE
+            // with the next included change
+            boolean exclude = i % 3 == 1;
+            filter.excludeNext(exclude);
+            NodeState next = generator.next();
+            if (!exclude) {
+                expected.add(new Pair(previous, next));
+            }
+            previous = next;
+            fo.contentChanged(next, COMMIT_INFO);
+        }
+        assertTrue(bo.getMBean().getSpilledQueueSize() > 0);
+
+        recorder.unpause();
+        assertTrue("testSpillExcludedCommits", bo.waitUntilStopped(5, TimeUnit.SECONDS));
+        assertMatches("testSpillExcludedCommits", expected, recorder.includedChanges);
+        assertEquals(0, log.size());
+        executor.shutdownNow();
+    }
+
     @Test
     public void testExcludeSomeCommits() throws Exception {
         ExecutorService executor = newSingleThreadExecutor();
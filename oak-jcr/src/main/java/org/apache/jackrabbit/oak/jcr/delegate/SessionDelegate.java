@@ -37,6 +37,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.jcr.ItemExistsException;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
+import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.nodetype.ConstraintViolationException;
 
 import org.apache.jackrabbit.guava.common.collect.ImmutableMap;
@@ -57,6 +58,7 @@ import org.apache.jackrabbit.oak.jcr.session.SessionStats;
 import org.apache.jackrabbit.oak.jcr.session.SessionStats.Counters;
 import org.apache.jackrabbit.oak.jcr.session.operation.SessionOperation;
 import org.apache.jackrabbit.oak.plugins.identifier.IdentifierManager;
+import org.apache.jackrabbit.oak.plugins.tree.factories.RootFactory;
 import org.apache.jackrabbit.oak.spi.security.SecurityProvider;
 import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionAware;
@@ -99,6 +101,7 @@ public class SessionDelegate {
 
     private final ContentSession contentSession;
     private final SecurityProvider securityProvider;
+    private final boolean readOnly;
     private final RefreshAtNextAccess refreshAtNextAccess = new RefreshAtNextAccess();
     private final SaveCountRefresh saveCountRefresh;
     private final RefreshStrategy refreshStrategy;
@@ -118,9 +121,14 @@ public class SessionDelegate {
     private final MeterStats writeCounter;
     private final TimerStats writeDuration;
 
-    private boolean isAlive = true;
+    private volatile boolean isAlive = true;
     private int sessionOpCount;
-    private long updateCount = 0;
+    private final AtomicLong updateCount = new AtomicLong();
+
+    /**
+     * Time of the last refresh of a read-only session
+     */
+    private final AtomicLong lastRefreshTime;
 
     private String userData = null;
 
@@ -157,16 +165,55 @@ public class SessionDelegate {
             @NotNull ThreadLocal<Long> threadSaveCount,
             @NotNull StatisticManager statisticManager,
             @NotNull Clock clock) {
+        this(contentSession, securityProvider, refreshStrategy, threadSaveCount,
+                statisticManager, clock, false);
+    }
+
+    /**
+     * Create a new session delegate for a {@code ContentSession}, which is
+     * read-only if {@code readOnly} is {@code true}.
+     * <p>
+     * A read-only session operates on a
+     * {@link RootFactory#createSnapshotRoot(ContentSession) snapshot} of the
+     * repository, which is safe for use by many threads. Its operations are
+     * therefore not serialized by the session lock. Operations updating the
+     * session fail with an {@code UnsupportedRepositoryOperationException},
+     * except for refresh and logout. The snapshot is only replaced by an
+     * explicit refresh, or when the {@code refreshStrategy} asks for it given
+     * the time since the last refresh. Items obtained before a refresh keep
+     * reflecting the snapshot they were obtained from.
+     *
+     * @param contentSession  the content session
+     * @param securityProvider the security provider
+     * @param refreshStrategy  the refresh strategy used for auto refreshing this session
+     * @param statisticManager the statistics manager for tracking session operations
+     * @param readOnly         whether the session is read-only
+     */
+    public SessionDelegate(
+            @NotNull ContentSession contentSession,
+            @NotNull SecurityProvider securityProvider,
+            @NotNull RefreshStrategy refreshStrategy,
+            @NotNull ThreadLocal<Long> threadSaveCount,
+            @NotNull StatisticManager statisticManager,
+            @NotNull Clock clock,
+            boolean readOnly) {
         this.contentSession = requireNonNull(contentSession);
         this.securityProvider = requireNonNull(securityProvider);
-        this.root = contentSession.getLatestRoot();
+        this.readOnly = readOnly;
+        this.root = readOnly ? RootFactory.createSnapshotRoot(contentSession) : contentSession.getLatestRoot();
         this.namespaces = new SessionNamespaces(this.root);
         this.saveCountRefresh = new SaveCountRefresh(requireNonNull(threadSaveCount));
-        this.refreshStrategy = Composite.create(requireNonNull(refreshStrategy),
-                refreshAtNextAccess, saveCountRefresh, new RefreshNamespaces(
-                        namespaces));
+        if (readOnly) {
+            this.refreshStrategy = Composite.create(requireNonNull(refreshStrategy),
+                    new RefreshNamespaces(namespaces));
+        } else {
+            this.refreshStrategy = Composite.create(requireNonNull(refreshStrategy),
+                    refreshAtNextAccess, saveCountRefresh, new RefreshNamespaces(
+                            namespaces));
+        }
         this.idManager = new IdentifierManager(root);
         this.clock = requireNonNull(clock);
+        this.lastRefreshTime = new AtomicLong(clock.getTime());
         requireNonNull(statisticManager);
         this.sessionStats = new SessionStats(contentSession.toString(),
                 contentSession.getAuthInfo(), clock, refreshStrategy, this, statisticManager);
@@ -183,6 +230,10 @@ public class SessionDelegate {
     }
 
     public void refreshAtNextAccess() {
+        if (readOnly) {
+            // the snapshot of a read-only session is not affected by changes
+            return;
+        }
         lock.lock();
         try {
             refreshAtNextAccess.refreshAtNextAccess(true);
@@ -193,12 +244,16 @@ public class SessionDelegate {
 
     /**
      * Wrap the passed {@code iterator} in an iterator that synchronizes
-     * all access to the underlying session.
+     * all access to the underlying session. The iterators of a read-only
+     * session are returned as is.
      * @param iterator  iterator to synchronized
      * @param <T>
      * @return  synchronized iterator
      */
     public <T> Iterator<T> sync(Iterator<T> iterator) {
+        if (readOnly) {
+            return iterator;
+        }
         return new SynchronizedIterator<>(iterator, lock);
     }
 
@@ -217,6 +272,12 @@ public class SessionDelegate {
     @NotNull
     public <T> T perform(@NotNull SessionOperation<T> sessionOperation) throws RepositoryException {
         long t0 = clock.getTime();
+        if (readOnly) {
+            prePerformReadOnly(sessionOperation, t0);
+            T result = sessionOperation.perform();
+            postPerformReadOnly(sessionOperation, t0);
+            return result;
+        }
 
         // Acquire the exclusive lock for accessing session internals.
         // No other session should be holding the lock, so we log a
@@ -254,6 +315,12 @@ public class SessionDelegate {
     @Nullable
     public <T> T performNullable(@NotNull SessionOperation<T> sessionOperation) throws RepositoryException {
         long t0 = clock.getTime();
+        if (readOnly) {
+            prePerformReadOnly(sessionOperation, t0);
+            T result = sessionOperation.performNullable();
+            postPerformReadOnly(sessionOperation, t0);
+            return result;
+        }
 
         // Acquire the exclusive lock for accessing session internals.
         // No other session should be holding the lock, so we log a
@@ -287,6 +354,12 @@ public class SessionDelegate {
      */
     public void performVoid(SessionOperation<Void> sessionOperation) throws RepositoryException {
         long t0 = clock.getTime();
+        if (readOnly) {
+            prePerformReadOnly(sessionOperation, t0);
+            sessionOperation.performVoid();
+            postPerformReadOnly(sessionOperation, t0);
+            return;
+        }
 
         // Acquire the exclusive lock for accessing session internals.
         // No other session should be holding the lock, so we log a
@@ -372,11 +445,18 @@ public class SessionDelegate {
         }
     }
 
+    /**
+     * @return {@code true} if this session is read-only
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     /**
      * @return session update counter
      */
     public long getUpdateCount() {
-        return updateCount;
+        return updateCount.get();
     }
 
     public void setUserData(String userData) {
@@ -628,6 +708,10 @@ public class SessionDelegate {
 
     @NotNull
     public PermissionProvider getPermissionProvider() {
+        if (readOnly) {
+            // the permission provider of the current snapshot
+            return ((PermissionAware) root).getPermissionProvider();
+        }
         if (permissionProvider == null) {
             if (root instanceof PermissionAware) {
                 permissionProvider = ((PermissionAware) root).getPermissionProvider();
@@ -670,12 +754,41 @@ public class SessionDelegate {
                     refreshStrategy.needsRefresh(SECONDS.convert(t0 - sessionCounters.accessTime, MILLISECONDS))) {
                 refresh(true);
                 refreshStrategy.refreshed();
-                updateCount++;
+                updateCount.incrementAndGet();
             }
             op.checkPreconditions();
         }
     }
 
+    private void prePerformReadOnly(@NotNull SessionOperation<?> op, long t0) throws RepositoryException {
+        if (!op.isRefresh() && !op.isLogout()) {
+            if (op.isUpdate()) {
+                throw new UnsupportedRepositoryOperationException(
+                        "This session is read-only: " + op);
+            }
+            // refresh the snapshot in only one of the threads using the session
+            long last = lastRefreshTime.get();
+            if (refreshStrategy.needsRefresh(SECONDS.convert(t0 - last, MILLISECONDS))
+                    && lastRefreshTime.compareAndSet(last, t0)) {
+                refresh(false);
+                refreshStrategy.refreshed();
+                updateCount.incrementAndGet();
+            }
+        }
+        op.checkPreconditions();
+    }
+
+    private void postPerformReadOnly(@NotNull SessionOperation<?> op, long t0) {
+        logOperationDetails(contentSession, op);
+        if (op.isRefresh()) {
+            lastRefreshTime.set(t0);
+            refreshStrategy.refreshed();
+            updateCount.incrementAndGet();
+        }
+        readCounter.mark();
+        readDuration.update(NANOSECONDS.convert(clock.getTime() - t0, MILLISECONDS), TimeUnit.NANOSECONDS);
+    }
+
     private void postPerform(@NotNull SessionOperation<?> op, long t0) {
         sessionCounters.accessTime = t0;
         long dt = NANOSECONDS.convert(clock.getTime() - t0, MILLISECONDS);
@@ -685,7 +798,7 @@ public class SessionDelegate {
             sessionCounters.writeCount++;
             writeCounter.mark();
             writeDuration.update(dt, TimeUnit.NANOSECONDS);
-            updateCount++;
+            updateCount.incrementAndGet();
         } else {
             sessionCounters.readTime = t0;
             sessionCounters.readCount++;
@@ -25,9 +25,12 @@ import static org.apache.jackrabbit.api.stats.RepositoryStatistics.Type.OBSERVAT
 import static org.apache.jackrabbit.api.stats.RepositoryStatistics.Type.OBSERVATION_EVENT_DURATION;
 import static org.apache.jackrabbit.oak.plugins.observation.filter.VisibleFilter.VISIBLE_FILTER;
 import static org.apache.jackrabbit.oak.spi.observation.ChangeSet.COMMIT_CONTEXT_OBSERVATION_CHANGESET;
+import static org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils.getService;
 import static org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils.registerMBean;
 import static org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils.scheduleWithFixedDelay;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -44,10 +47,13 @@ import org.apache.jackrabbit.oak.api.blob.BlobAccessProvider;
 import org.apache.jackrabbit.oak.commons.PerfLogger;
 import org.apache.jackrabbit.oak.namepath.NamePathMapper;
 import org.apache.jackrabbit.oak.plugins.observation.CommitRateLimiter;
+import org.apache.jackrabbit.oak.plugins.observation.EventGenerator;
+import org.apache.jackrabbit.oak.plugins.observation.EventHandler;
 import org.apache.jackrabbit.oak.plugins.observation.Filter;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringAwareObserver;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringDispatcher;
 import org.apache.jackrabbit.oak.plugins.observation.FilteringObserver;
+import org.apache.jackrabbit.oak.plugins.observation.MultiplexingHandler;
 import org.apache.jackrabbit.oak.plugins.observation.filter.EventFilter;
 import org.apache.jackrabbit.oak.plugins.observation.filter.FilterConfigMBean;
 import org.apache.jackrabbit.oak.plugins.observation.filter.FilterProvider;
@@ -57,9 +63,11 @@ import org.apache.jackrabbit.oak.spi.commit.BackgroundObserver;
 import org.apache.jackrabbit.oak.spi.commit.BackgroundObserverMBean;
 import org.apache.jackrabbit.oak.spi.commit.CommitContext;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.ContentChangeLog;
 import org.apache.jackrabbit.oak.spi.commit.Observer;
 import org.apache.jackrabbit.oak.spi.observation.ChangeSet;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
 import org.apache.jackrabbit.oak.spi.whiteboard.CompositeRegistration;
 import org.apache.jackrabbit.oak.spi.whiteboard.Registration;
 import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
@@ -70,6 +78,7 @@ import org.apache.jackrabbit.oak.stats.StatisticManager;
 import org.apache.jackrabbit.oak.stats.TimerStats;
 import org.apache.jackrabbit.stats.TimeSeriesMax;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -129,6 +138,15 @@ class ChangeProcessor implements FilteringAwareObserver {
             .getInteger("oak.observation.full-queue.warn.interval", 30));
     static Clock clock = Clock.SIMPLE;
 
+    static final String SPILL_DIRECTORY_PROPERTY = "oak.observation.spillDirectory";
+
+    /**
+     * Directory to spill the revision queues to once they are full, instead
+     * of compacting revisions and blocking commits. Requires a node store
+     * that is a {@link RootStateResolver}. Spilling is disabled by default.
+     */
+    static final String SPILL_DIRECTORY = System.getProperty(SPILL_DIRECTORY_PROPERTY);
+
     // OAK-4533: make DELAY_THRESHOLD and MAX_DELAY adjustable - using System.properties for now
     static {
         final String delayThresholdStr = System.getProperty("oak.commitRateLimiter.delayThreshold");
@@ -175,6 +193,12 @@ class ChangeProcessor implements FilteringAwareObserver {
     private final CommitRateLimiter commitRateLimiter;
     private final BlobAccessProvider blobAccessProvider;
 
+    /**
+     * The multiplexer generating the events of this change processor, or
+     * {@code null} if it generates its own events.
+     */
+    private final ObservationMultiplexer multiplexer;
+
     /**
      * Lazy initialization via the {@link #start(Whiteboard)} method
      */
@@ -210,6 +234,20 @@ class ChangeProcessor implements FilteringAwareObserver {
             int queueLength,
             CommitRateLimiter commitRateLimiter,
             BlobAccessProvider blobAccessProvider) {
+        this(contentSession, namePathMapper, tracker, filter, statisticManager,
+                queueLength, commitRateLimiter, blobAccessProvider, null);
+    }
+
+    public ChangeProcessor(
+            ContentSession contentSession,
+            NamePathMapper namePathMapper,
+            ListenerTracker tracker,
+            FilterProvider filter,
+            StatisticManager statisticManager,
+            int queueLength,
+            CommitRateLimiter commitRateLimiter,
+            BlobAccessProvider blobAccessProvider,
+            @Nullable ObservationMultiplexer multiplexer) {
         this.contentSession = contentSession;
         this.namePathMapper = namePathMapper;
         this.tracker = tracker;
@@ -221,6 +259,7 @@ class ChangeProcessor implements FilteringAwareObserver {
         this.queueLength = queueLength;
         this.commitRateLimiter = commitRateLimiter;
         this.blobAccessProvider = blobAccessProvider;
+        this.multiplexer = multiplexer;
     }
 
     /**
@@ -267,10 +306,15 @@ class ChangeProcessor implements FilteringAwareObserver {
      */
     public synchronized void start(Whiteboard whiteboard) {
         checkState(registration == null, "Change processor started already");
+        if (multiplexer != null) {
+            startMultiplexed(whiteboard);
+            return;
+        }
         final WhiteboardExecutor executor = new WhiteboardExecutor();
         executor.start(whiteboard);
-        final FilteringObserver filteringObserver = createObserver(executor);
         listenerId = COUNTER.incrementAndGet() + "";
+        final FilteringObserver filteringObserver = createObserver(executor,
+                createSpillLog(whiteboard));
         Map<String, String> attrs = ImmutableMap.of(LISTENER_ID, listenerId);
         String name = tracker.toString();
         registration = new CompositeRegistration(
@@ -306,83 +350,75 @@ class ChangeProcessor implements FilteringAwareObserver {
         );
     }
 
-    private FilteringObserver createObserver(final WhiteboardExecutor executor) {
-        FilteringDispatcher fd = new FilteringDispatcher(this);
-        BackgroundObserver bo = new BackgroundObserver(fd, executor, queueLength) {
-            private volatile long delay;
-            private volatile boolean blocking;
+    private void startMultiplexed(Whiteboard whiteboard) {
+        listenerId = COUNTER.incrementAndGet() + "";
+        Map<String, String> attrs = ImmutableMap.of(LISTENER_ID, listenerId);
+        String name = tracker.toString();
+        multiplexer.add(this);
+        registration = new CompositeRegistration(
+            registerMBean(whiteboard, EventListenerMBean.class,
+                    tracker.getListenerMBean(), "EventListener", name, attrs),
+            registerMBean(whiteboard, ChangeProcessorMBean.class,
+                    getMBean(), ChangeProcessorMBean.TYPE, name, attrs),
+            registerMBean(whiteboard, FilterConfigMBean.class,
+                    filterProvider.get().getConfigMBean(), FilterConfigMBean.TYPE, name, attrs),
+            new Registration() {
+                @Override
+                public void unregister() {
+                    multiplexer.remove(ChangeProcessor.this);
+                }
+            },
+            scheduleWithFixedDelay(whiteboard, new Runnable() {
+                @Override
+                public void run() {
+                    tracker.recordOneSecond();
+                }
+            }, 1)
+        );
+    }
 
-            private long lastQueueFullWarnTimestamp = -1;
+    /**
+     * Create the log to spill changes to once the queue of this change
+     * processor is full, if a spill directory is configured through
+     * {@link #SPILL_DIRECTORY} and the node store supports it.
+     *
+     * @return the log, or {@code null} if changes are not spilled
+     */
+    @Nullable
+    private ContentChangeLog createSpillLog(Whiteboard whiteboard) {
+        if (SPILL_DIRECTORY == null) {
+            return null;
+        }
+        RootStateResolver resolver = getService(whiteboard, RootStateResolver.class);
+        if (resolver == null) {
+            LOG.warn("Node store does not support spilling observation queues to disk, " +
+                    "ignoring {}={}", SPILL_DIRECTORY_PROPERTY, SPILL_DIRECTORY);
+            return null;
+        }
+        File directory = new File(SPILL_DIRECTORY, "listener-" + listenerId);
+        try {
+            return FilteringObserver.createSpillLog(directory, resolver);
+        } catch (IOException e) {
+            LOG.warn("Could not create observation spill log in " + directory, e);
+            return null;
+        }
+    }
 
+    private FilteringObserver createObserver(final WhiteboardExecutor executor,
+                                             @Nullable final ContentChangeLog spillLog) {
+        FilteringDispatcher fd = new FilteringDispatcher(this);
+        final QueueThrottle throttle = new QueueThrottle(queueLength, commitRateLimiter, spillLog != null);
+        BackgroundObserver bo = new BackgroundObserver(fd, executor, queueLength, spillLog) {
             @Override
             protected void added(int newQueueSize) {
                 queueSizeChanged(newQueueSize);
+                throttle.queueSizeChanged(newQueueSize);
             }
             
             @Override
             protected void removed(int newQueueSize, long created) {
                 queueSizeChanged(newQueueSize);
-            }
-            
-            private void queueSizeChanged(int newQueueSize) {
-                maxQueueLengthRecorder.recordValue(newQueueSize);
-                tracker.recordQueueLength(newQueueSize);
-                if (newQueueSize >= queueLength) {
-                    if (commitRateLimiter != null) {
-                        if (!blocking) {
-                            logQueueFullWarning("Revision queue is full. Further commits will be blocked.");
-                        }
-                        commitRateLimiter.blockCommits();
-                    } else if (!blocking) {
-                        logQueueFullWarning("Revision queue is full. Further revisions will be compacted.");
-                    }
-                    blocking = true;
-                } else {
-                    double fillRatio = (double) newQueueSize / queueLength;
-                    if (fillRatio > DELAY_THRESHOLD) {
-                        if (commitRateLimiter != null) {
-                            if (delay == 0) {
-                                LOG.warn("Revision queue is becoming full. Further commits will be delayed.");
-                            }
-
-                            // Linear backoff proportional to the number of items exceeding
-                            // DELAY_THRESHOLD. Offset by 1 to trigger the log message in the
-                            // else branch once the queue falls below DELAY_THRESHOLD again.
-                            int newDelay = 1 + (int) ((fillRatio - DELAY_THRESHOLD) / (1 - DELAY_THRESHOLD) * MAX_DELAY);
-                            if (newDelay > delay) {
-                                delay = newDelay;
-                                commitRateLimiter.setDelay(delay);
-                            }
-                        }
-                    } else {
-                        if (commitRateLimiter != null) {
-                            if (delay > 0) {
-                                LOG.debug("Revision queue becoming empty. Unblocking commits");
-                                commitRateLimiter.setDelay(0);
-                                delay = 0;
-                            }
-                            if (blocking) {
-                                LOG.debug("Revision queue becoming empty. Stop delaying commits.");
-                                commitRateLimiter.unblockCommits();
-                                blocking = false;
-                            }
-                        } else {
-                            blocking = false;
-                        }
-                    }
-                }
-            }
-
-            private void logQueueFullWarning(String message) {
-                long currTime = clock.getTime();
-                if (lastQueueFullWarnTimestamp + QUEUE_FULL_WARN_INTERVAL < currTime) {
-                    LOG.warn("{} Suppressing further such cases for {} minutes.",
-                            message,
-                            TimeUnit.MILLISECONDS.toMinutes(QUEUE_FULL_WARN_INTERVAL));
-                    lastQueueFullWarnTimestamp = currTime;
-                } else {
-                    LOG.debug(message);
-                }
+                throttle.queueSizeChanged(newQueueSize);
             }
             
             @Override
@@ -394,28 +430,140 @@ class ChangeProcessor implements FilteringAwareObserver {
             
             @Override
             public boolean excludes(NodeState root, CommitInfo info) {
-                final FilterResult filterResult = evalPrefilter(root, info, getChangeSet(info));
-                switch (filterResult) {
-                case PREFILTERING_SKIPPED: {
-                    prefilterSkipCount++;
-                    return false;
-                }
-                case EXCLUDE: {
-                    prefilterExcludeCount++;
-                    return true;
-                }
-                case INCLUDE: {
-                    prefilterIncludeCount++;
-                    return false;
+                return ChangeProcessor.this.excludes(root, info);
+            }
+        });
+    }
+
+    /**
+     * Record the length of the revision queue the events of this change
+     * processor are generated from.
+     *
+     * @param newQueueSize the number of revisions in the queue
+     */
+    void queueSizeChanged(int newQueueSize) {
+        maxQueueLengthRecorder.recordValue(newQueueSize);
+        tracker.recordQueueLength(newQueueSize);
+    }
+
+    /**
+     * Delays and eventually blocks commits through the {@link CommitRateLimiter}
+     * (if any) while a revision queue fills up, and warns once it is full.
+     */
+    static class QueueThrottle {
+        private final int queueLength;
+        private final CommitRateLimiter commitRateLimiter;
+        private final boolean spilling;
+
+        private volatile long delay;
+        private volatile boolean blocking;
+
+        private long lastQueueFullWarnTimestamp = -1;
+
+        /**
+         * @param queueLength the maximal length of the queue
+         * @param commitRateLimiter the rate limiter, or {@code null}
+         * @param spilling whether the queue spills the revisions to disk once
+         *                 full, instead of compacting them or blocking commits
+         */
+        QueueThrottle(int queueLength, @Nullable CommitRateLimiter commitRateLimiter, boolean spilling) {
+            this.queueLength = queueLength;
+            this.commitRateLimiter = commitRateLimiter;
+            this.spilling = spilling;
+        }
+
+        void queueSizeChanged(int newQueueSize) {
+            if (spilling) {
+                // changes are spilled to disk instead of throttling commits
+                if (newQueueSize >= queueLength && !blocking) {
+                    logQueueFullWarning("Revision queue is full. Further revisions will be spilled to disk.");
                 }
-                default: {
-                    LOG.info("isExcluded: unknown/unsupported filter result: " + filterResult);
-                    prefilterSkipCount++;
-                    return false;
+                blocking = newQueueSize >= queueLength;
+            } else if (newQueueSize >= queueLength) {
+                if (commitRateLimiter != null) {
+                    if (!blocking) {
+                        logQueueFullWarning("Revision queue is full. Further commits will be blocked.");
+                    }
+                    commitRateLimiter.blockCommits();
+                } else if (!blocking) {
+                    logQueueFullWarning("Revision queue is full. Further revisions will be compacted.");
                 }
+                blocking = true;
+            } else {
+                double fillRatio = (double) newQueueSize / queueLength;
+                if (fillRatio > DELAY_THRESHOLD) {
+                    if (commitRateLimiter != null) {
+                        if (delay == 0) {
+                            LOG.warn("Revision queue is becoming full. Further commits will be delayed.");
+                        }
+
+                        // Linear backoff proportional to the number of items exceeding
+                        // DELAY_THRESHOLD. Offset by 1 to trigger the log message in the
+                        // else branch once the queue falls below DELAY_THRESHOLD again.
+                        int newDelay = 1 + (int) ((fillRatio - DELAY_THRESHOLD) / (1 - DELAY_THRESHOLD) * MAX_DELAY);
+                        if (newDelay > delay) {
+                            delay = newDelay;
+                            commitRateLimiter.setDelay(delay);
+                        }
+                    }
+                } else {
+                    if (commitRateLimiter != null) {
+                        if (delay > 0) {
+                            LOG.debug("Revision queue becoming empty. Unblocking commits");
+                            commitRateLimiter.setDelay(0);
+                            delay = 0;
+                        }
+                        if (blocking) {
+                            LOG.debug("Revision queue becoming empty. Stop delaying commits.");
+                            commitRateLimiter.unblockCommits();
+                            blocking = false;
+                        }
+                    } else {
+                        blocking = false;
+                    }
                 }
             }
-        });
+        }
+
+        private void logQueueFullWarning(String message) {
+            long currTime = clock.getTime();
+            if (lastQueueFullWarnTimestamp + QUEUE_FULL_WARN_INTERVAL < currTime) {
+                LOG.warn("{} Suppressing further such cases for {} minutes.",
+                        message,
+                        TimeUnit.MILLISECONDS.toMinutes(QUEUE_FULL_WARN_INTERVAL));
+                lastQueueFullWarnTimestamp = currTime;
+            } else {
+                LOG.debug(message);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the prefilter for a commit, and update the statistics.
+     *
+     * @return {@code true} if the commit is definitely not of interest
+     */
+    boolean excludes(NodeState root, CommitInfo info) {
+        final FilterResult filterResult = evalPrefilter(root, info, getChangeSet(info));
+        switch (filterResult) {
+        case PREFILTERING_SKIPPED: {
+            prefilterSkipCount++;
+            return false;
+        }
+        case EXCLUDE: {
+            prefilterExcludeCount++;
+            return true;
+        }
+        case INCLUDE: {
+            prefilterIncludeCount++;
+            return false;
+        }
+        default: {
+            LOG.info("isExcluded: unknown/unsupported filter result: " + filterResult);
+            prefilterSkipCount++;
+            return false;
+        }
+        }
     }
 
     private final Monitor runningMonitor = new Monitor();
@@ -496,33 +644,73 @@ class ChangeProcessor implements FilteringAwareObserver {
             // FIXME don't rely on toString for session id
             if (provider.includeCommit(contentSession.toString(), info)) {
                 EventFilter filter = provider.getFilter(before, after);
-                EventIterator events = new EventQueue(namePathMapper,
+                EventQueue events = new EventQueue(namePathMapper,
                         blobAccessProvider, info, before, after,
                         provider.getSubTrees(), Filters.all(filter, VISIBLE_FILTER), 
                         provider.getEventAggregator());
+                deliver(events);
+            }
+            PERF_LOGGER.end(start, 100,
+                    "Generated events (before: {}, after: {})",
+                    before, after);
+        } catch (Exception e) {
+            LOG.warn("Error while dispatching observation events for " + tracker, e);
+        }
+    }
 
-                long time = System.nanoTime();
-                boolean hasEvents = events.hasNext();
-                tracker.recordProducerTime(System.nanoTime() - time, TimeUnit.NANOSECONDS);
-                if (hasEvents && runningMonitor.enterIf(running)) {
+    /**
+     * Add the handlers generating the events of this change processor to
+     * the handler of a diff shared with other change processors.
+     *
+     * @param handler the shared handler of the root node
+     * @param generator the shared generator
+     * @return the queue receiving the events, or {@code null} if the commit
+     *         is not of interest
+     */
+    @Nullable
+    EventQueue addHandlers(@NotNull MultiplexingHandler handler, @NotNull EventGenerator generator,
+            @NotNull NodeState before, @NotNull NodeState after, @NotNull CommitInfo info) {
+        FilterProvider provider = filterProvider.get();
+        // FIXME don't rely on toString for session id
+        if (!provider.includeCommit(contentSession.toString(), info)) {
+            return null;
+        }
+        EventFilter filter = provider.getFilter(before, after);
+        EventQueue events = new EventQueue(generator);
+        EventHandler root = events.createHandler(namePathMapper, blobAccessProvider, info,
+                before, after, Filters.all(filter, VISIBLE_FILTER), provider.getEventAggregator());
+        for (String path : provider.getSubTrees()) {
+            handler.addHandler(path, root);
+        }
+        return events;
+    }
+
+    /**
+     * Deliver the events of a content change to the listener, if there are
+     * any and this change processor is running.
+     *
+     * @param events the events
+     */
+    void deliver(@NotNull EventQueue events) {
+        try {
+            long time = System.nanoTime();
+            boolean hasEvents = events.hasNext();
+            tracker.recordProducerTime(System.nanoTime() - time, TimeUnit.NANOSECONDS);
+            if (hasEvents && runningMonitor.enterIf(running)) {
+                if (commitRateLimiter != null) {
+                    commitRateLimiter.beforeNonBlocking();
+                }
+                try {
+                    CountingIterator countingEvents = new CountingIterator(events);
+                    eventListener.onEvent(countingEvents);
+                    countingEvents.updateCounters(eventCount, eventDuration);
+                } finally {
                     if (commitRateLimiter != null) {
-                        commitRateLimiter.beforeNonBlocking();
-                    }
-                    try {
-                        CountingIterator countingEvents = new CountingIterator(events);
-                        eventListener.onEvent(countingEvents);
-                        countingEvents.updateCounters(eventCount, eventDuration);
-                    } finally {
-                        if (commitRateLimiter != null) {
-                            commitRateLimiter.afterNonBlocking();
-                        }
-                        runningMonitor.leave();
+                        commitRateLimiter.afterNonBlocking();
                     }
+                    runningMonitor.leave();
                 }
             }
-            PERF_LOGGER.end(start, 100,
-                    "Generated events (before: {}, after: {})",
-                    before, after);
         } catch (Exception e) {
             LOG.warn("Error while dispatching observation events for " + tracker, e);
         }
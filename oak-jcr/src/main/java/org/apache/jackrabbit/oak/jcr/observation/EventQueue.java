@@ -56,15 +56,40 @@ class EventQueue implements EventIterator {
             @NotNull NodeState before, @NotNull NodeState after,
             @NotNull Iterable<String> basePaths, @NotNull EventFilter filter,
             @Nullable EventAggregator aggregator) {
-        this.generator = new EventGenerator();
-        EventFactory factory = new EventFactory(mapper, blobAccessProvider, info);
-        EventHandler handler = new FilteredHandler(
-                filter, new QueueingHandler(this, factory, aggregator, before, after));
+        this(new EventGenerator());
+        EventHandler handler = createHandler(
+                mapper, blobAccessProvider, info, before, after, filter, aggregator);
         for (String path : basePaths) {
             addHandler(before, after, path, handler, generator);
         }
     }
 
+    /**
+     * Creates a queue whose events are generated by a generator shared with
+     * other queues. The handler of this queue is created through
+     * {@link #createHandler(NamePathMapper, BlobAccessProvider, CommitInfo, NodeState, NodeState, EventFilter, EventAggregator)}
+     * and added to the shared generator by the caller.
+     *
+     * @param generator the shared generator
+     */
+    EventQueue(@NotNull EventGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Creates the handler of the root node, which adds the events matching
+     * the filter to this queue.
+     */
+    EventHandler createHandler(
+            @NotNull NamePathMapper mapper,
+            @NotNull BlobAccessProvider blobAccessProvider, CommitInfo info,
+            @NotNull NodeState before, @NotNull NodeState after,
+            @NotNull EventFilter filter, @Nullable EventAggregator aggregator) {
+        EventFactory factory = new EventFactory(mapper, blobAccessProvider, info);
+        return new FilteredHandler(
+                filter, new QueueingHandler(this, factory, aggregator, before, after));
+    }
+
     private static void addHandler(NodeState before, NodeState after, String path,
             EventHandler handler, EventGenerator generator) {
         for (String name : PathUtils.elements(path)) {
@@ -85,6 +110,30 @@ class EventQueue implements EventIterator {
         queue.add(event);
     }
 
+    /**
+     * @return the number of events queued so far, and not yet iterated
+     */
+    int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Removes the events queued so far. Other than this queue, the returned
+     * queue doesn't generate any further events while it is iterated.
+     *
+     * @return the queued events, or {@code null} if there are none
+     */
+    @Nullable
+    EventQueue takeQueued() {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        EventQueue batch = new EventQueue(new EventGenerator());
+        batch.queue.addAll(queue);
+        queue.clear();
+        return batch;
+    }
+
     //-----------------------------------------------------< EventIterator >--
 
     @Override
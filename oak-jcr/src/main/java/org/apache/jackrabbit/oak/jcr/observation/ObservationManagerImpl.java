@@ -68,6 +68,7 @@ import org.apache.jackrabbit.oak.spi.commit.Observable;
 import org.apache.jackrabbit.oak.spi.security.authorization.AuthorizationConfiguration;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
 import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils;
 import org.apache.jackrabbit.oak.stats.StatisticManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -99,6 +100,7 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
     private final CommitRateLimiter commitRateLimiter;
     private final PermissionProviderFactory permissionProviderFactory;
     private final BlobAccessProvider blobAccessProvider;
+    private final ObservationMultiplexer multiplexer;
 
     /**
      * Create a new instance based on a {@link ContentSession} that needs to implement
@@ -123,6 +125,8 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
         this.queueLength = queueLength;
         this.commitRateLimiter = commitRateLimiter;
         this.blobAccessProvider = sessionContext.getBlobAccessProvider();
+        // registered by the repository if multiplexing is enabled
+        this.multiplexer = WhiteboardUtils.getService(whiteboard, ObservationMultiplexer.class);
         this.permissionProviderFactory = new PermissionProviderFactory() {
             Set<Principal> principals = sessionDelegate.getAuthInfo().getPrincipals();
             @NotNull
@@ -164,7 +168,7 @@ public class ObservationManagerImpl implements JackrabbitObservationManager {
             // session. See OAK-1368.
             processor = new ChangeProcessor(sessionDelegate.getContentSession(), namePathMapper,
                     tracker, filterProvider, statisticManager, queueLength,
-                    commitRateLimiter, blobAccessProvider);
+                    commitRateLimiter, blobAccessProvider, multiplexer);
             processors.put(listener, processor);
             processor.start(whiteboard);
         } else {
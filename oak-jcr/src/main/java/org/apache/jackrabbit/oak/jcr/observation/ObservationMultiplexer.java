@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.jcr.observation;
+
+import static java.util.Collections.emptyMap;
+import static org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils.registerMBean;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.jackrabbit.oak.commons.PerfLogger;
+import org.apache.jackrabbit.oak.plugins.observation.CommitRateLimiter;
+import org.apache.jackrabbit.oak.plugins.observation.EventGenerator;
+import org.apache.jackrabbit.oak.plugins.observation.FilteringAwareObserver;
+import org.apache.jackrabbit.oak.plugins.observation.FilteringDispatcher;
+import org.apache.jackrabbit.oak.plugins.observation.MultiplexingHandler;
+import org.apache.jackrabbit.oak.spi.commit.BackgroundObserver;
+import org.apache.jackrabbit.oak.spi.commit.BackgroundObserverMBean;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.Observer;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.whiteboard.CompositeRegistration;
+import org.apache.jackrabbit.oak.spi.whiteboard.Registration;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the events of several {@link ChangeProcessor}s with a single
+ * content diff per change, instead of one diff per change processor. The
+ * change processors are prefiltered as usual, and the handlers of the ones
+ * interested in a change are combined with a {@link MultiplexingHandler}, so
+ * that the diff only descends into the subtrees observed by at least one of
+ * them. Each change processor then gets its own queue of events.
+ * <p>
+ * All change processors share the background observer (and thus the queue
+ * of changes) of the multiplexer, and the events of a change are delivered to
+ * the listeners one after the other. A slow listener therefore delays the
+ * other listeners. This is why multiplexing is disabled by default. It can be
+ * enabled with the {@code oak.observation.multiplexing} system property.
+ * <p>
+ * The events of a change are generated in batches of about
+ * {@link #BATCH_SIZE} events (over all listeners), each generator step
+ * processing a bounded number of content changes. The events of a batch are
+ * delivered to all listeners before the next batch is generated, so that the
+ * events of a large change are not all kept in memory. A listener may
+ * therefore receive the events of a large change in several calls.
+ * <p>
+ * As the shared queue fills up, commits are delayed and then blocked through
+ * the {@link CommitRateLimiter}, as with the queue of a single change processor.
+ */
+public class ObservationMultiplexer implements FilteringAwareObserver, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObservationMultiplexer.class);
+    private static final PerfLogger PERF_LOGGER = new PerfLogger(
+            LoggerFactory.getLogger(ObservationMultiplexer.class.getName() + ".perf"));
+
+    /**
+     * Whether event listeners are registered with a multiplexer
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("oak.observation.multiplexing");
+
+    /**
+     * Number of queued events after which they are delivered, before
+     * generating further events of the same change.
+     */
+    static final int BATCH_SIZE = Integer.getInteger("oak.observation.multiplexing.batchSize", 10000);
+
+    private final CopyOnWriteArrayList<ChangeProcessor> processors =
+            new CopyOnWriteArrayList<ChangeProcessor>();
+
+    private final Whiteboard whiteboard;
+
+    private final int queueLength;
+
+    private final CommitRateLimiter commitRateLimiter;
+
+    /**
+     * Lazy initialization when the first change processor is added
+     */
+    private Registration registration;
+
+    public ObservationMultiplexer(@NotNull Whiteboard whiteboard, int queueLength,
+            @Nullable CommitRateLimiter commitRateLimiter) {
+        this.whiteboard = whiteboard;
+        this.queueLength = queueLength;
+        this.commitRateLimiter = commitRateLimiter;
+    }
+
+    synchronized void add(@NotNull ChangeProcessor processor) {
+        if (registration == null) {
+            start();
+        }
+        processors.add(processor);
+    }
+
+    void remove(@NotNull ChangeProcessor processor) {
+        processors.remove(processor);
+    }
+
+    private void start() {
+        final WhiteboardExecutor executor = new WhiteboardExecutor();
+        executor.start(whiteboard);
+        final ChangeProcessor.QueueThrottle throttle =
+                new ChangeProcessor.QueueThrottle(queueLength, commitRateLimiter, false);
+        final BackgroundObserver observer = new BackgroundObserver(
+                new FilteringDispatcher(this), executor, queueLength) {
+            @Override
+            protected void added(int newQueueSize) {
+                queueSizeChanged(newQueueSize);
+            }
+
+            @Override
+            protected void removed(int newQueueSize, long created) {
+                queueSizeChanged(newQueueSize);
+            }
+
+            private void queueSizeChanged(int newQueueSize) {
+                for (ChangeProcessor processor : processors) {
+                    processor.queueSizeChanged(newQueueSize);
+                }
+                throttle.queueSizeChanged(newQueueSize);
+            }
+
+            @Override
+            public String toString() {
+                return "BackgroundObserver for " + ObservationMultiplexer.this;
+            }
+        };
+        registration = new CompositeRegistration(
+            whiteboard.register(Observer.class, observer, emptyMap()),
+            registerMBean(whiteboard, BackgroundObserverMBean.class,
+                    observer.getMBean(), BackgroundObserverMBean.TYPE, "ObservationMultiplexer"),
+            new Registration() {
+                @Override
+                public void unregister() {
+                    observer.close();
+                }
+            },
+            new Registration() {
+                @Override
+                public void unregister() {
+                    executor.stop();
+                }
+            }
+        );
+    }
+
+    @Override
+    public void contentChanged(@NotNull NodeState before, @NotNull NodeState after,
+            @NotNull CommitInfo info) {
+        long start = PERF_LOGGER.start();
+        MultiplexingHandler handler = new MultiplexingHandler();
+        EventGenerator generator = new EventGenerator();
+        Map<ChangeProcessor, EventQueue> queues = new LinkedHashMap<ChangeProcessor, EventQueue>();
+        for (ChangeProcessor processor : processors) {
+            try {
+                if (!processor.excludes(after, info)) {
+                    EventQueue events = processor.addHandlers(handler, generator, before, after, info);
+                    if (events != null) {
+                        queues.put(processor, events);
+                    }
+                }
+            } catch (Exception e) {
+                LOG.warn("Error while preparing observation events for " + processor, e);
+            }
+        }
+        if (handler.isEmpty()) {
+            return;
+        }
+        generator.addHandler(before, after, handler);
+        while (!generator.isDone()) {
+            try {
+                int queued = 0;
+                while (queued < BATCH_SIZE && !generator.isDone()) {
+                    generator.generate();
+                    queued = 0;
+                    for (EventQueue events : queues.values()) {
+                        queued += events.getQueuedCount();
+                    }
+                }
+            } catch (Exception e) {
+                LOG.warn("Error while generating observation events", e);
+                return;
+            }
+            for (Map.Entry<ChangeProcessor, EventQueue> e : queues.entrySet()) {
+                EventQueue batch = e.getValue().takeQueued();
+                if (batch != null) {
+                    e.getKey().deliver(batch);
+                }
+            }
+        }
+        PERF_LOGGER.end(start, 100,
+                "Generated events for {} listeners (before: {}, after: {})",
+                queues.size(), before, after);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (registration != null) {
+            registration.unregister();
+            registration = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ObservationMultiplexer [listeners=" + processors.size() + "]";
+    }
+}
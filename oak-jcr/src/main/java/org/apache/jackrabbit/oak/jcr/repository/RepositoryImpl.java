@@ -17,7 +17,6 @@
 package org.apache.jackrabbit.oak.jcr.repository;
 
 import static java.util.Collections.emptyMap;
-import static java.util.Collections.singletonMap;
 import static java.util.Objects.requireNonNull;
 import static org.apache.jackrabbit.oak.spi.whiteboard.WhiteboardUtils.registerMBean;
 
@@ -53,6 +52,7 @@ import org.apache.jackrabbit.oak.api.blob.BlobAccessProvider;
 import org.apache.jackrabbit.oak.api.jmx.SessionMBean;
 import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.jcr.delegate.SessionDelegate;
+import org.apache.jackrabbit.oak.jcr.observation.ObservationMultiplexer;
 import org.apache.jackrabbit.oak.jcr.session.RefreshStrategy;
 import org.apache.jackrabbit.oak.jcr.session.RefreshStrategy.Composite;
 import org.apache.jackrabbit.oak.jcr.session.SessionContext;
@@ -96,6 +96,15 @@ public class RepositoryImpl implements JackrabbitRepository {
      */
     public static final String RELAXED_LOCKING = "oak.relaxed-locking";
 
+    /**
+     * Name of the session attribute for creating a read-only session. The
+     * operations of a read-only session are not serialized, so that it can be
+     * used by many threads concurrently. It only refreshes when asked to or
+     * after the {@link #REFRESH_INTERVAL refresh interval} since the last
+     * refresh, and all operations writing to the repository fail.
+     */
+    public static final String READ_ONLY = "oak.read-only";
+
     /**
      * Name of the session attribute exposing the associated principals
      *
@@ -122,6 +131,8 @@ public class RepositoryImpl implements JackrabbitRepository {
     private final MountInfoProvider mountInfoProvider;
     private final BlobAccessProvider blobAccessProvider;
     private final SessionQuerySettingsProvider sessionQuerySettingsProvider;
+    private final ObservationMultiplexer observationMultiplexer;
+    private final Registration observationMultiplexerRegistration;
 
     /**
      * {@link ThreadLocal} counter that keeps track of the save operations
@@ -178,6 +189,15 @@ public class RepositoryImpl implements JackrabbitRepository {
         this.frozenNodeLogger = new FrozenNodeLogger(clock, whiteboard);
         this.sessionQuerySettingsProvider = Optional.ofNullable(WhiteboardUtils.getService(whiteboard, SessionQuerySettingsProvider.class))
                 .orElseGet(() -> new FastQuerySizeSettingsProvider(fastQueryResultSize));
+        if (ObservationMultiplexer.ENABLED) {
+            this.observationMultiplexer = new ObservationMultiplexer(whiteboard, observationQueueLength,
+                    commitRateLimiter);
+            this.observationMultiplexerRegistration = whiteboard.register(
+                    ObservationMultiplexer.class, observationMultiplexer, emptyMap());
+        } else {
+            this.observationMultiplexer = null;
+            this.observationMultiplexerRegistration = null;
+        }
     }
 
     //---------------------------------------------------------< Repository >---
@@ -300,11 +320,12 @@ public class RepositoryImpl implements JackrabbitRepository {
                 throw new RepositoryException("Duplicate attribute '" + REFRESH_INTERVAL + "'.");
             }
             boolean relaxedLocking = getRelaxedLocking(attributes);
+            boolean readOnly = getReadOnly(attributes);
             ContentSession contentSession = contentRepository.login(credentials, workspaceName);
-            SessionDelegate sessionDelegate = createSessionDelegate(refreshInterval, contentSession);
+            SessionDelegate sessionDelegate = createSessionDelegate(refreshInterval, contentSession, readOnly);
             SessionContext context = createSessionContext(
                     statisticManager, securityProvider,
-                    createAttributes(refreshInterval, relaxedLocking),
+                    createAttributes(refreshInterval, relaxedLocking, readOnly),
                     sessionDelegate, observationQueueLength, commitRateLimiter);
             return context.getSession();
         } catch (LoginException e) {
@@ -314,7 +335,8 @@ public class RepositoryImpl implements JackrabbitRepository {
 
     private SessionDelegate createSessionDelegate(
             Long refreshInterval,
-            ContentSession contentSession) {
+            ContentSession contentSession,
+            boolean readOnly) {
 
         RefreshStrategy refreshStrategy;
         final RefreshOnGC refreshOnGC = new RefreshOnGC(gcMonitor);
@@ -326,7 +348,7 @@ public class RepositoryImpl implements JackrabbitRepository {
 
         return new SessionDelegate(
                 contentSession, securityProvider, refreshStrategy,
-                threadSaveCount, statisticManager, clock) {
+                threadSaveCount, statisticManager, clock, readOnly) {
             
             // Defer session MBean registration to avoid cluttering the
             // JMX name space with short lived sessions
@@ -356,6 +378,10 @@ public class RepositoryImpl implements JackrabbitRepository {
         statisticManager.dispose();
         gcMonitorRegistration.unregister();
         frozenNodeLogger.close();
+        if (observationMultiplexer != null) {
+            observationMultiplexerRegistration.unregister();
+            observationMultiplexer.close();
+        }
         clock.close();
         new ExecutorCloser(scheduledExecutor).close();
         if (contentRepository instanceof Closeable) {
@@ -464,7 +490,15 @@ public class RepositoryImpl implements JackrabbitRepository {
     }
 
     private static boolean getRelaxedLocking(Map<String, Object> attributes) {
-        Object value = attributes.get(RELAXED_LOCKING);
+        return getBoolean(attributes, RELAXED_LOCKING);
+    }
+
+    private static boolean getReadOnly(Map<String, Object> attributes) {
+        return getBoolean(attributes, READ_ONLY);
+    }
+
+    private static boolean getBoolean(Map<String, Object> attributes, String name) {
+        Object value = attributes.get(name);
         if (value instanceof Boolean) {
             return (Boolean) value;
         } else if (value instanceof String) {
@@ -497,18 +531,18 @@ public class RepositoryImpl implements JackrabbitRepository {
     }
 
     private static Map<String, Object> createAttributes(
-            Long refreshInterval, boolean relaxedLocking) {
-        if (refreshInterval == null && !relaxedLocking) {
-            return emptyMap();
-        } else if (refreshInterval == null) {
-            return singletonMap(RELAXED_LOCKING, (Object) Boolean.valueOf(relaxedLocking));
-        } else if (!relaxedLocking) {
-            return singletonMap(REFRESH_INTERVAL, (Object) refreshInterval);
-        } else {
-            return ImmutableMap.of(
-                    REFRESH_INTERVAL, (Object) refreshInterval,
-                    RELAXED_LOCKING,  (Object) Boolean.valueOf(relaxedLocking));
+            Long refreshInterval, boolean relaxedLocking, boolean readOnly) {
+        ImmutableMap.Builder<String, Object> attributes = ImmutableMap.builder();
+        if (refreshInterval != null) {
+            attributes.put(REFRESH_INTERVAL, refreshInterval);
+        }
+        if (relaxedLocking) {
+            attributes.put(RELAXED_LOCKING, Boolean.TRUE);
+        }
+        if (readOnly) {
+            attributes.put(READ_ONLY, Boolean.TRUE);
         }
+        return attributes.build();
     }
 
     private static class RefreshOnGC extends GCMonitor.Empty implements RefreshStrategy {
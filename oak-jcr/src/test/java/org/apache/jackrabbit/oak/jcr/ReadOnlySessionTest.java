@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.jcr;
+
+import static org.apache.jackrabbit.oak.jcr.repository.RepositoryImpl.READ_ONLY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.UnsupportedRepositoryOperationException;
+
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.fixture.NodeStoreFixture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ReadOnlySessionTest extends AbstractRepositoryTest {
+
+    public ReadOnlySessionTest(NodeStoreFixture fixture) {
+        super(fixture);
+    }
+
+    @Test
+    public void snapshotUntilRefresh() throws RepositoryException {
+        Session admin = getAdminSession();
+        admin.getRootNode().addNode("a").setProperty("p", 1);
+        admin.save();
+
+        Session session = createReadOnlySession();
+        try {
+            assertEquals(1, session.getProperty("/a/p").getLong());
+
+            admin.getNode("/a").setProperty("p", 2);
+            admin.getRootNode().addNode("b");
+            admin.save();
+            assertEquals(1, session.getProperty("/a/p").getLong());
+            assertFalse(session.nodeExists("/b"));
+
+            session.refresh(false);
+            assertEquals(2, session.getProperty("/a/p").getLong());
+            assertTrue(session.nodeExists("/b"));
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void writesFail() throws RepositoryException {
+        Session session = createReadOnlySession();
+        try {
+            session.getRootNode().addNode("c");
+            fail("Read-only session must not allow adding nodes");
+        } catch (UnsupportedRepositoryOperationException expected) {
+            // expected
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        Session admin = getAdminSession();
+        Node parent = admin.getRootNode().addNode("concurrent");
+        for (int i = 0; i < 100; i++) {
+            parent.addNode("n" + i).setProperty("p", i);
+        }
+        admin.save();
+
+        final Session session = createReadOnlySession();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws RepositoryException {
+                        long sum = 0;
+                        for (int k = 0; k < 10; k++) {
+                            for (int i = 0; i < 100; i++) {
+                                sum += session.getProperty("/concurrent/n" + i + "/p").getLong();
+                            }
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (Future<Long> f : futures) {
+                assertEquals(10 * 4950L, f.get().longValue());
+            }
+        } finally {
+            executor.shutdown();
+            session.logout();
+        }
+    }
+
+    private Session createReadOnlySession() throws RepositoryException {
+        return ((JackrabbitRepository) getRepository()).login(
+                getAdminCredentials(), null, Collections.<String, Object>singletonMap(READ_ONLY, true));
+    }
+}
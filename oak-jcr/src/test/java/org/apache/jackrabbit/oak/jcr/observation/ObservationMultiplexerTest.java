@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.jcr.observation;
+
+import static java.util.Collections.emptyMap;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import ch.qos.logback.classic.Level;
+import org.apache.jackrabbit.oak.commons.junit.LogCustomizer;
+import org.apache.jackrabbit.oak.fixture.NodeStoreFixture;
+import org.apache.jackrabbit.oak.jcr.AbstractRepositoryTest;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Registration;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Tests the delivery of events through an {@link ObservationMultiplexer}.
+ */
+@RunWith(Parameterized.class)
+public class ObservationMultiplexerTest extends AbstractRepositoryTest {
+
+    private static final int QUEUE_LENGTH = 5;
+
+    private static final long TIMEOUT = 10;
+
+    private final Whiteboard whiteboard = new DefaultWhiteboard();
+
+    private ObservationMultiplexer multiplexer;
+
+    private Registration registration;
+
+    private ObservationManager observationManager;
+
+    public ObservationMultiplexerTest(NodeStoreFixture fixture) {
+        super(fixture);
+    }
+
+    @Override
+    protected Jcr initJcr(Jcr jcr) {
+        multiplexer = new ObservationMultiplexer(whiteboard, QUEUE_LENGTH, null);
+        registration = whiteboard.register(ObservationMultiplexer.class, multiplexer, emptyMap());
+        return super.initJcr(jcr).with(whiteboard).withObservationQueueLength(QUEUE_LENGTH);
+    }
+
+    @Before
+    public void setup() throws RepositoryException {
+        Session session = getAdminSession();
+        session.getRootNode().addNode("a");
+        session.getRootNode().addNode("b");
+        session.save();
+        observationManager = session.getWorkspace().getObservationManager();
+    }
+
+    @After
+    public void tearDown() {
+        if (registration != null) {
+            registration.unregister();
+            multiplexer.close();
+        }
+    }
+
+    @Test
+    public void eventsOfEachListener() throws Exception {
+        RecordingListener root = new RecordingListener(3);
+        RecordingListener a = new RecordingListener(1);
+        RecordingListener b = new RecordingListener(2);
+        observationManager.addEventListener(root, NODE_ADDED, "/", true, null, null, false);
+        observationManager.addEventListener(a, NODE_ADDED, "/a", true, null, null, false);
+        observationManager.addEventListener(b, NODE_ADDED, "/b", true, null, null, false);
+        try {
+            assertEquals("ObservationMultiplexer [listeners=3]", multiplexer.toString());
+
+            Session session = getAdminSession();
+            session.getNode("/a").addNode("x");
+            Node y = session.getNode("/b").addNode("y");
+            y.addNode("z");
+            session.save();
+
+            assertTrue(root.await());
+            assertTrue(a.await());
+            assertTrue(b.await());
+            assertEquals(Set.of("/a/x", "/b/y", "/b/y/z"), root.paths);
+            assertEquals(Set.of("/a/x"), a.paths);
+            assertEquals(Set.of("/b/y", "/b/y/z"), b.paths);
+        } finally {
+            observationManager.removeEventListener(root);
+            observationManager.removeEventListener(a);
+            observationManager.removeEventListener(b);
+        }
+        assertEquals("ObservationMultiplexer [listeners=0]", multiplexer.toString());
+    }
+
+    @Test
+    public void largeChangeDeliveredInBatches() throws Exception {
+        // more nodes than content changes processed by a single generator step
+        int count = 12000;
+        BatchCountingListener a = new BatchCountingListener(count);
+        BatchCountingListener b = new BatchCountingListener(count);
+        observationManager.addEventListener(a, NODE_ADDED, "/a", true, null, null, false);
+        observationManager.addEventListener(b, NODE_ADDED, "/a", true, null, null, false);
+        try {
+            Session session = getAdminSession();
+            Node parent = session.getNode("/a");
+            for (int i = 0; i < count; i++) {
+                parent.addNode("n" + i);
+            }
+            session.save();
+
+            assertTrue(a.await());
+            assertTrue(b.await());
+            assertEquals(count, a.events.get());
+            assertEquals(count, b.events.get());
+            assertTrue("batches: " + a.batches.get(), a.batches.get() > 1);
+            assertTrue("batches: " + b.batches.get(), b.batches.get() > 1);
+        } finally {
+            observationManager.removeEventListener(a);
+            observationManager.removeEventListener(b);
+        }
+    }
+
+    @Test
+    public void warnOnQueueFull() throws Exception {
+        LogCustomizer logs = LogCustomizer.forLogger(ChangeProcessor.class.getName())
+                .filter(Level.WARN)
+                .contains("Revision queue is full. Further revisions will be compacted.")
+                .create();
+        BlockingListener listener = new BlockingListener();
+        observationManager.addEventListener(listener, NODE_ADDED, "/a", true, null, null, false);
+        logs.starting();
+        try {
+            Session session = getAdminSession();
+            Node a = session.getNode("/a");
+            for (int i = 0; i <= 2 * QUEUE_LENGTH; i++) {
+                a.addNode("n" + i);
+                session.save();
+            }
+            assertTrue("Observation queue full warning must get logged", logs.getLogs().size() > 0);
+        } finally {
+            logs.finished();
+            listener.blocked.release(Integer.MAX_VALUE / 2);
+            observationManager.removeEventListener(listener);
+        }
+    }
+
+    private static class RecordingListener implements EventListener {
+
+        private final Set<String> paths = ConcurrentHashMap.newKeySet();
+
+        private final CountDownLatch latch;
+
+        RecordingListener(int expected) {
+            this.latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onEvent(EventIterator events) {
+            while (events.hasNext()) {
+                Event event = events.nextEvent();
+                try {
+                    paths.add(event.getPath());
+                } catch (RepositoryException e) {
+                    throw new IllegalStateException(e);
+                }
+                latch.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class BatchCountingListener implements EventListener {
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        private final AtomicInteger events = new AtomicInteger();
+
+        private final CountDownLatch latch;
+
+        BatchCountingListener(int expected) {
+            this.latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onEvent(EventIterator it) {
+            batches.incrementAndGet();
+            while (it.hasNext()) {
+                it.nextEvent();
+                events.incrementAndGet();
+                latch.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Blocks on the first event until released, so that the queue fills up
+     */
+    private static class BlockingListener implements EventListener {
+
+        private final Semaphore blocked = new Semaphore(0);
+
+        @Override
+        public void onEvent(EventIterator events) {
+            try {
+                blocked.tryAcquire(TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            while (events.hasNext()) {
+                events.nextEvent();
+            }
+        }
+    }
+}
@@ -81,6 +81,8 @@ public class IndexTracker {
     private final LuceneIndexReaderFactory readerFactory;
     private final NRTIndexFactory nrtFactory;
     private final BadIndexTracker badIndexTracker = new BadIndexTracker();
+    // package private to be replaced in tests
+    IndexWarmer warmer = new IndexWarmer();
 
     private NodeState root = EMPTY_NODE;
 
@@ -88,6 +90,12 @@ public class IndexTracker {
 
     private volatile Map<String, LuceneIndexNodeManager> indices = emptyMap();
 
+    /**
+     * Updated indexes which are being warmed up, and replace the current
+     * index once that is done. Guarded by this.
+     */
+    private final Map<String, LuceneIndexNodeManager> warming = new HashMap<>();
+
     private volatile boolean refresh;
     private volatile long nextAutoRefresh = System.currentTimeMillis() + AUTO_REFRESH_MILLIS;
 
@@ -115,6 +123,8 @@ public class IndexTracker {
     public synchronized void close() {
         Map<String, LuceneIndexNodeManager> indices = this.indices;
         this.indices = emptyMap();
+        // indexes still being warmed up are closed once that is done
+        warming.clear();
 
         for (Map.Entry<String, LuceneIndexNodeManager> entry : indices.entrySet()) {
             try {
@@ -158,6 +168,7 @@ public class IndexTracker {
 
         Map<String, LuceneIndexNodeManager> original = indices;
         final Map<String, LuceneIndexNodeManager> updates = new HashMap<>();
+        final Map<String, LuceneIndexNodeManager> toWarmUp = new HashMap<>();
 
         Set<String> indexPaths = Sets.newHashSet();
         indexPaths.addAll(original.keySet());
@@ -173,7 +184,12 @@ public class IndexTracker {
                             long start = PERF_LOGGER.start();
                             LuceneIndexNodeManager index = LuceneIndexNodeManager.open(path, root, after, readerFactory, nrtFactory);
                             PERF_LOGGER.end(start, -1, "[{}] Index found to be updated. Reopening the LuceneIndexNode", path);
-                            updates.put(path, index); // index can be null
+                            if (index != null && warmer.isEnabled()) {
+                                // swapped in once warmed up
+                                toWarmUp.put(path, index);
+                            } else {
+                                updates.put(path, index); // index can be null
+                            }
                         }
                     } catch (IOException e) {
                         badIndexTracker.markBadPersistedIndex(path, e);
@@ -185,6 +201,18 @@ public class IndexTracker {
         EditorDiff.process(CompositeEditor.compose(editors), this.root, root);
         this.root = root;
 
+        // a pending warm up is superseded by any newer version of the index
+        warming.keySet().removeAll(updates.keySet());
+        if (!toWarmUp.isEmpty()) {
+            badIndexTracker.markGoodIndexes(toWarmUp.keySet());
+            for (Map.Entry<String, LuceneIndexNodeManager> e : toWarmUp.entrySet()) {
+                String path = e.getKey();
+                LuceneIndexNodeManager index = e.getValue();
+                warming.put(path, index);
+                warmer.warmUpAsync(path, index, () -> swapIn(path, index));
+            }
+        }
+
         if (!updates.isEmpty()) {
             indices = ImmutableMap.<String, LuceneIndexNodeManager>builder()
                     .putAll(Maps.filterKeys(original, not(x -> updates.keySet().contains(x))))
@@ -192,6 +220,11 @@ public class IndexTracker {
                     .build();
 
             badIndexTracker.markGoodIndexes(updates.keySet());
+            for (Map.Entry<String, LuceneIndexNodeManager> e : updates.entrySet()) {
+                if (e.getValue() == null) {
+                    warmer.remove(e.getKey());
+                }
+            }
 
             //This might take some time as close need to acquire the
             //write lock which might be held by current running searches
@@ -210,6 +243,35 @@ public class IndexTracker {
         }
     }
 
+    /**
+     * Replaces the current index with the given warmed up index, unless it
+     * got superseded in the meantime.
+     */
+    private synchronized void swapIn(String path, LuceneIndexNodeManager index) {
+        if (!warming.remove(path, index)) {
+            // a newer version got opened, or the tracker got closed
+            try {
+                index.close();
+            } catch (IOException e) {
+                log.error("Failed to close Lucene index at {}", path, e);
+            }
+            return;
+        }
+        Map<String, LuceneIndexNodeManager> original = indices;
+        Map<String, LuceneIndexNodeManager> updated = new HashMap<>(original);
+        updated.put(path, index);
+        indices = ImmutableMap.copyOf(updated);
+
+        LuceneIndexNodeManager old = original.get(path);
+        try {
+            if (old != null) {
+                old.close();
+            }
+        } catch (IOException e) {
+            log.error("Failed to close Lucene index at {}", path, e);
+        }
+    }
+
     public void refresh() {
         log.info("Marked tracker to refresh upon next cycle");
         refresh = true;
@@ -308,6 +370,10 @@ public class IndexTracker {
         return indices.keySet();
     }
 
+    IndexWarmer getWarmer() {
+        return warmer;
+    }
+
     public BadIndexTracker getBadIndexTracker() {
         return badIndexTracker;
     }
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.PerfLogger;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.jackrabbit.guava.common.util.concurrent.ThreadFactoryBuilder;
+
+import static org.apache.jackrabbit.guava.common.collect.Maps.newConcurrentMap;
+
+/**
+ * Warms up newly opened index nodes before the {@link IndexTracker} makes them
+ * visible to queries. Norms and doc values (used for sorting and facets) of all
+ * segments are loaded and a sample of the queries recently run against the
+ * index is replayed, so that the first queries after an index update do not pay
+ * for loading them.
+ * <p>
+ * The warm up runs on a background thread, so that it does not hold back the
+ * tracker (and the observer calling it) from processing further updates.
+ */
+class IndexWarmer {
+    private static final Logger log = LoggerFactory.getLogger(IndexWarmer.class);
+    private static final PerfLogger PERF_LOGGER =
+            new PerfLogger(LoggerFactory.getLogger(IndexWarmer.class.getName() + ".perf"));
+
+    static final String WARMUP_ENABLED_NAME = "oak.lucene.warmup";
+    static final String WARMUP_QUERIES_NAME = "oak.lucene.warmupQueries";
+
+    private final boolean enabled;
+    private final int querySampleSize;
+    private final ConcurrentMap<String, QuerySample> querySamples = newConcurrentMap();
+    private final ConcurrentMap<String, WarmupStats> stats = newConcurrentMap();
+    private final Executor executor;
+
+    IndexWarmer() {
+        this(Boolean.getBoolean(WARMUP_ENABLED_NAME), Integer.getInteger(WARMUP_QUERIES_NAME, 20));
+    }
+
+    IndexWarmer(boolean enabled, int querySampleSize) {
+        this(enabled, querySampleSize, null);
+    }
+
+    /**
+     * @param executor the executor to warm up on, or {@code null} to use a
+     *                 single background thread shared by all warmers
+     */
+    IndexWarmer(boolean enabled, int querySampleSize, @Nullable Executor executor) {
+        this.enabled = enabled;
+        this.querySampleSize = querySampleSize;
+        this.executor = executor;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a query run against the given index, to be replayed when the
+     * next version of the index is warmed up.
+     */
+    void recordQuery(String indexPath, Query query, @Nullable Sort sort) {
+        if (!enabled || querySampleSize <= 0) {
+            return;
+        }
+        QuerySample sample = querySamples.get(indexPath);
+        if (sample == null) {
+            QuerySample newSample = new QuerySample(querySampleSize);
+            sample = querySamples.putIfAbsent(indexPath, newSample);
+            if (sample == null) {
+                sample = newSample;
+            }
+        }
+        sample.add(query, sort);
+    }
+
+    /**
+     * Warms up the given index in the background and then runs the given
+     * callback, also if the warm up failed.
+     */
+    void warmUpAsync(String indexPath, LuceneIndexNodeManager index, Runnable onWarmedUp) {
+        Executor e = executor != null ? executor : WarmupExecutorHolder.EXECUTOR;
+        e.execute(() -> {
+            try {
+                warmUp(indexPath, index);
+            } finally {
+                onWarmedUp.run();
+            }
+        });
+    }
+
+    /**
+     * Warms up the given index. This is done before the index gets visible
+     * to queries, hence it does not compete with them for the searcher.
+     */
+    void warmUp(String indexPath, LuceneIndexNodeManager index) {
+        if (!enabled) {
+            return;
+        }
+        LuceneIndexNode indexNode = index.acquire();
+        if (indexNode == null) {
+            return;
+        }
+        long start = PERF_LOGGER.start();
+        long startNanos = System.nanoTime();
+        int replayed = 0;
+        try {
+            IndexSearcher searcher = indexNode.getSearcher();
+            for (AtomicReaderContext context : searcher.getIndexReader().leaves()) {
+                loadSegment(context.reader());
+            }
+
+            QuerySample sample = querySamples.get(indexPath);
+            if (sample != null) {
+                for (SampledQuery q : sample.getQueries()) {
+                    try {
+                        if (q.sort == null) {
+                            searcher.search(q.query, 1);
+                        } else {
+                            searcher.search(q.query, 1, q.sort);
+                        }
+                        replayed++;
+                    } catch (Exception e) {
+                        log.debug("[{}] Failed to replay query {} while warming up", indexPath, q.query, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[{}] Error occurred while warming up index", indexPath, e);
+        } finally {
+            indexNode.release();
+        }
+        long timeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        stats.computeIfAbsent(indexPath, p -> new WarmupStats()).record(timeMillis, replayed);
+        PERF_LOGGER.end(start, -1, "[{}] Warmed up index replaying {} queries", indexPath, replayed);
+    }
+
+    /**
+     * @return the warm up statistics keyed by index path
+     */
+    Map<String, WarmupStats> getStats() {
+        return stats;
+    }
+
+    void remove(String indexPath) {
+        querySamples.remove(indexPath);
+        stats.remove(indexPath);
+    }
+
+    private static void loadSegment(AtomicReader reader) throws IOException {
+        for (FieldInfo info : reader.getFieldInfos()) {
+            if (info.hasNorms()) {
+                reader.getNormValues(info.name);
+            }
+            if (info.hasDocValues()) {
+                switch (info.getDocValuesType()) {
+                    case NUMERIC:
+                        reader.getNumericDocValues(info.name);
+                        break;
+                    case BINARY:
+                        reader.getBinaryDocValues(info.name);
+                        break;
+                    case SORTED:
+                        reader.getSortedDocValues(info.name);
+                        break;
+                    case SORTED_SET:
+                        reader.getSortedSetDocValues(info.name);
+                        break;
+                    default:
+                }
+            }
+        }
+    }
+
+    /**
+     * Executor shared by all warmers, created on first use.
+     */
+    private static final class WarmupExecutorHolder {
+        static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("oak-lucene-warmup-%d").setDaemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    static class WarmupStats {
+        private volatile long lastWarmupTimeMillis;
+        private volatile long lastWarmupAt;
+        private volatile int lastReplayedQueries;
+        private long totalWarmupTimeMillis;
+        private int warmupCount;
+
+        synchronized void record(long timeMillis, int replayedQueries) {
+            lastWarmupTimeMillis = timeMillis;
+            lastReplayedQueries = replayedQueries;
+            lastWarmupAt = System.currentTimeMillis();
+            totalWarmupTimeMillis += timeMillis;
+            warmupCount++;
+        }
+
+        long getLastWarmupTimeMillis() {
+            return lastWarmupTimeMillis;
+        }
+
+        long getLastWarmupAt() {
+            return lastWarmupAt;
+        }
+
+        int getLastReplayedQueries() {
+            return lastReplayedQueries;
+        }
+
+        synchronized long getTotalWarmupTimeMillis() {
+            return totalWarmupTimeMillis;
+        }
+
+        synchronized int getWarmupCount() {
+            return warmupCount;
+        }
+    }
+
+    private static class SampledQuery {
+        final Query query;
+        final Sort sort;
+
+        SampledQuery(Query query, @Nullable Sort sort) {
+            this.query = query;
+            this.sort = sort;
+        }
+    }
+
+    /**
+     * The most recently used distinct queries of an index.
+     */
+    private static class QuerySample {
+        private final Map<String, SampledQuery> queries;
+
+        QuerySample(final int maxSize) {
+            this.queries = new LinkedHashMap<String, SampledQuery>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SampledQuery> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized void add(Query query, @Nullable Sort sort) {
+            String key = sort == null ? query.toString() : query + " " + sort;
+            queries.put(key, new SampledQuery(query, sort));
+        }
+
+        synchronized List<SampledQuery> getQueries() {
+            return new ArrayList<>(queries.values());
+        }
+    }
+}
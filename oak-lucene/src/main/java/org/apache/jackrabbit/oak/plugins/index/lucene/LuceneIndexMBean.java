@@ -34,6 +34,10 @@ public interface LuceneIndexMBean extends IndexMBean {
 
     TabularData getBadPersistedIndexStats();
 
+    @Description("Statistics about the warm up of index readers done before they are used for queries. " +
+            "Warm up is enabled with the system property oak.lucene.warmup")
+    TabularData getWarmupStats();
+
     boolean isFailing();
 
     @Description("Determines the set of index paths up to given maxLevel. This can be used to determine the value for" +
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Function;
@@ -202,6 +203,22 @@ public class LuceneIndexMBeanImpl extends AnnotatedStandardMBean implements Luce
         return tds;
     }
 
+    @Override
+    public TabularData getWarmupStats() {
+        TabularDataSupport tds;
+        try {
+            TabularType tt = new TabularType(LuceneIndexMBeanImpl.class.getName(),
+                    "Lucene Index Warmup Stats", WarmupStatsData.TYPE, new String[]{"path"});
+            tds = new TabularDataSupport(tt);
+            for (Map.Entry<String, IndexWarmer.WarmupStats> e : indexTracker.getWarmer().getStats().entrySet()) {
+                tds.put(new WarmupStatsData(e.getKey(), e.getValue()).toCompositeData());
+            }
+        } catch (OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+        return tds;
+    }
+
     @Override
     public boolean isFailing() {
         return indexTracker.getBadIndexTracker().hasBadIndexes();
@@ -848,6 +865,75 @@ public class LuceneIndexMBeanImpl extends AnnotatedStandardMBean implements Luce
             }
         }
     }
+    private static class WarmupStatsData {
+        static final String[] FIELD_NAMES = new String[]{
+                "path",
+                "lastWarmupTimeMillis",
+                "lastReplayedQueries",
+                "lastWarmupAt",
+                "warmupCount",
+                "totalWarmupTimeMillis"
+        };
+
+        static final String[] FIELD_DESCRIPTIONS = new String[]{
+                "Path",
+                "Time taken by the last warm up in millis",
+                "Number of queries replayed by the last warm up",
+                "Time of the last warm up",
+                "Number of warm ups",
+                "Total time taken by warm ups in millis"
+        };
+
+        @SuppressWarnings("rawtypes")
+        static final OpenType[] FIELD_TYPES = new OpenType[]{
+                SimpleType.STRING,
+                SimpleType.LONG,
+                SimpleType.INTEGER,
+                SimpleType.STRING,
+                SimpleType.INTEGER,
+                SimpleType.LONG,
+        };
+
+        static final CompositeType TYPE = createCompositeType();
+
+        static CompositeType createCompositeType() {
+            try {
+                return new CompositeType(
+                        WarmupStatsData.class.getName(),
+                        "Composite data type for Lucene Index warm up statistics",
+                        WarmupStatsData.FIELD_NAMES,
+                        WarmupStatsData.FIELD_DESCRIPTIONS,
+                        WarmupStatsData.FIELD_TYPES);
+            } catch (OpenDataException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private final String path;
+        private final IndexWarmer.WarmupStats stats;
+
+        public WarmupStatsData(String path, IndexWarmer.WarmupStats stats) {
+            this.path = path;
+            this.stats = stats;
+        }
+
+        CompositeDataSupport toCompositeData() {
+            Object[] values = new Object[]{
+                    path,
+                    stats.getLastWarmupTimeMillis(),
+                    stats.getLastReplayedQueries(),
+                    String.format("%tc", stats.getLastWarmupAt()),
+                    stats.getWarmupCount(),
+                    stats.getTotalWarmupTimeMillis(),
+            };
+            try {
+                return new CompositeDataSupport(TYPE, FIELD_NAMES, values);
+            } catch (OpenDataException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
     //~---------------------------------------------------------< Internal >
 
     private static IndexReader getPrimaryReader(List<LuceneIndexReader> indexReaders) {
@@ -19,6 +19,7 @@
 package org.apache.jackrabbit.oak.plugins.index.lucene;
 
 import javax.jcr.PropertyType;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,7 +31,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
@@ -43,6 +52,8 @@ import org.apache.jackrabbit.guava.common.collect.Iterators;
 import org.apache.jackrabbit.guava.common.collect.Maps;
 import org.apache.jackrabbit.guava.common.collect.Queues;
 import org.apache.jackrabbit.guava.common.collect.Sets;
+import org.apache.jackrabbit.guava.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.jackrabbit.guava.common.util.concurrent.Uninterruptibles;
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
@@ -215,6 +226,19 @@ public class LucenePropertyIndex extends FulltextIndex {
 
     private static boolean FLAG_CACHE_FACET_RESULTS_CHANGE = true;
 
+    /**
+     * Enables read-ahead of result pages: while one page of results is consumed,
+     * the next one is searched and loaded in the background.
+     */
+    public final static String PREFETCH_PAGES_NAME = "oak.lucene.prefetchPages";
+    private final static int PREFETCH_THREADS = Integer.getInteger("oak.lucene.prefetchThreads", 4);
+    private final static int PREFETCH_QUEUE_SIZE = Integer.getInteger("oak.lucene.prefetchQueueSize", 100);
+    /**
+     * Maximum number of results searched for by a single prefetch, so that a
+     * prefetch the consumer might never need does not get too expensive.
+     */
+    private final static int PREFETCH_MAX_BATCH_SIZE = Integer.getInteger("oak.lucene.prefetchMaxBatchSize", 1000);
+
     /**
      * Batch size for fetching results from Lucene queries.
      */
@@ -229,6 +253,8 @@ public class LucenePropertyIndex extends FulltextIndex {
 
     private final IndexAugmentorFactory augmentorFactory;
 
+    private boolean prefetchPages = Boolean.getBoolean(PREFETCH_PAGES_NAME);
+
     static {
         if (!NON_LAZY) {
             LOG.warn("Lazy index download is enabled explicitly; this is not recommended, see OAK-10102.");
@@ -258,6 +284,15 @@ public class LucenePropertyIndex extends FulltextIndex {
         return "lucene-property";
     }
 
+    /**
+     * Number of result pages which were taken from a prefetch.
+     */
+    final AtomicLong prefetchedPages = new AtomicLong();
+
+    void setPrefetchPages(boolean prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+
     @Override
     public Cursor query(final IndexPlan plan, NodeState rootState) {
         if (plan.isDeprecated()) {
@@ -277,17 +312,34 @@ public class LucenePropertyIndex extends FulltextIndex {
             private IndexSearcher indexSearcher;
             private int indexNodeId = -1;
             private FacetProvider facetProvider;
-            private int rewoundCount = 0;
+            private volatile int rewoundCount = 0;
+            private Future<Deque<FulltextResultRow>> prefetch;
+            // only results of plain queries are prefetched, suggestions and
+            // spellchecks are checked for access on the query thread
+            private boolean pageable;
 
             @Override
             protected FulltextResultRow computeNext() {
-                while (!queue.isEmpty() || loadDocs()) {
+                while (!queue.isEmpty() || loadNextPage()) {
                     return queue.remove();
                 }
                 releaseSearcher();
                 return endOfData();
             }
 
+            @Override
+            public void close() {
+                Future<Deque<FulltextResultRow>> f = prefetch;
+                prefetch = null;
+                if (f != null) {
+                    // not interrupting, as that would close the file channels
+                    // of the index directory; a running prefetch still
+                    // completes, but is bounded by the maximum batch size
+                    f.cancel(false);
+                }
+                releaseSearcher();
+            }
+
             @Override
             public int rewoundCount() {
                 return rewoundCount;
@@ -332,11 +384,60 @@ public class LucenePropertyIndex extends FulltextIndex {
                 return null;
             }
 
+            /**
+             * Loads the next page of results into the queue. In read-ahead mode, the
+             * page is taken from the background prefetch if one is pending, and the
+             * prefetch of the following page is started right away.
+             * @return true if any document is loaded
+             */
+            private boolean loadNextPage() {
+                boolean loaded;
+                if (prefetch != null) {
+                    loaded = awaitPrefetch();
+                } else {
+                    loaded = loadDocs(queue, Integer.MAX_VALUE);
+                }
+                if (loaded && prefetchPages && pageable && !noDocs) {
+                    startPrefetch();
+                }
+                return loaded;
+            }
+
+            private void startPrefetch() {
+                Deque<FulltextResultRow> rows = Queues.newArrayDeque();
+                try {
+                    // loadDocs acquires and releases the index node itself, so the
+                    // searcher is never used after the index node got released
+                    prefetch = PrefetchExecutorHolder.EXECUTOR.submit(() -> {
+                        loadDocs(rows, PREFETCH_MAX_BATCH_SIZE);
+                        return rows;
+                    });
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Prefetch executor busy, next page for query {} is loaded on demand", filter);
+                    prefetch = null;
+                }
+            }
+
+            private boolean awaitPrefetch() {
+                Future<Deque<FulltextResultRow>> f = prefetch;
+                prefetch = null;
+                try {
+                    Deque<FulltextResultRow> rows = Uninterruptibles.getUninterruptibly(f);
+                    prefetchedPages.incrementAndGet();
+                    queue.addAll(rows);
+                    return !rows.isEmpty();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Prefetching results failed for query " + filter, e.getCause());
+                }
+            }
+
             /**
              * Loads the lucene documents in batches
+             * @param rows the queue to add the loaded rows to
+             * @param maxBatchSize the maximum number of results to search for
              * @return true if any document is loaded
              */
-            private boolean loadDocs() {
+            private boolean loadDocs(Deque<FulltextResultRow> rows, int maxBatchSize) {
 
                 if (noDocs) {
                     return false;
@@ -351,6 +452,7 @@ public class LucenePropertyIndex extends FulltextIndex {
                     LuceneRequestFacade luceneRequestFacade = getLuceneRequest(plan, augmentorFactory, searcher.getIndexReader());
                     if (luceneRequestFacade.getLuceneRequest() instanceof Query) {
                         Query query = (Query) luceneRequestFacade.getLuceneRequest();
+                        pageable = true;
 
                         TopDocs docs;
                         long start = PERF_LOGGER.start();
@@ -366,19 +468,21 @@ public class LucenePropertyIndex extends FulltextIndex {
                                     }
                                 }
                             }
+                            int batchSize = Math.min(nextBatchSize, maxBatchSize);
                             if (lastDoc != null) {
-                                LOG.debug("loading the next {} entries for query {}", nextBatchSize, query);
+                                LOG.debug("loading the next {} entries for query {}", batchSize, query);
                                 if (sort == null) {
-                                    docs = searcher.searchAfter(lastDoc, query, nextBatchSize);
+                                    docs = searcher.searchAfter(lastDoc, query, batchSize);
                                 } else {
-                                    docs = searcher.searchAfter(lastDoc, query, nextBatchSize, sort);
+                                    docs = searcher.searchAfter(lastDoc, query, batchSize, sort);
                                 }
                             } else {
-                                LOG.debug("loading the first {} entries for query {}", nextBatchSize, query);
+                                LOG.debug("loading the first {} entries for query {}", batchSize, query);
+                                tracker.getWarmer().recordQuery(indexNode.getDefinition().getIndexPath(), query, sort);
                                 if (sort == null) {
-                                    docs = searcher.search(query, nextBatchSize);
+                                    docs = searcher.search(query, batchSize);
                                 } else {
-                                    docs = searcher.search(query, nextBatchSize, sort);
+                                    docs = searcher.search(query, batchSize, sort);
                                 }
                             }
                             PERF_LOGGER.end(start, -1, "{} ...", docs.scoreDocs.length);
@@ -465,7 +569,7 @@ public class LucenePropertyIndex extends FulltextIndex {
 
                                 FulltextResultRow row = convertToRow(doc, searcher, excerpts, facetProvider, explanation);
                                 if (row != null) {
-                                    queue.add(row);
+                                    rows.add(row);
                                 }
                                 lastDocToRecord = doc;
                             }
@@ -474,7 +578,7 @@ public class LucenePropertyIndex extends FulltextIndex {
                                 noDocs = true;
                                 break;
                             }
-                            if (queue.isEmpty() && docs.scoreDocs.length > 0) {
+                            if (rows.isEmpty() && docs.scoreDocs.length > 0) {
                                 //queue is still empty but more results can be fetched
                                 //from Lucene so still continue
                                 lastDoc = lastDocToRecord;
@@ -504,7 +608,7 @@ public class LucenePropertyIndex extends FulltextIndex {
                                         prefix = "";
                                     }
                                     if (filter.isAccessible(prefix + retrievedDoc.get(FieldNames.PATH))) {
-                                        queue.add(new FulltextResultRow(suggestion.string));
+                                        rows.add(new FulltextResultRow(suggestion.string));
                                         break;
                                     }
                                 }
@@ -536,7 +640,7 @@ public class LucenePropertyIndex extends FulltextIndex {
                                         prefix = "";
                                     }
                                     if (filter.isAccessible(prefix + retrievedDoc.get(FieldNames.PATH))) {
-                                        queue.add(new FulltextResultRow(suggestion.key.toString(), suggestion.value));
+                                        rows.add(new FulltextResultRow(suggestion.key.toString(), suggestion.value));
                                         break;
                                     }
                                 }
@@ -553,7 +657,7 @@ public class LucenePropertyIndex extends FulltextIndex {
                     this.lastDoc = lastDocToRecord;
                 }
 
-                return !queue.isEmpty();
+                return !rows.isEmpty();
             }
 
             private IndexSearcher getCurrentSearcher(LuceneIndexNode indexNode) {
@@ -1889,7 +1993,30 @@ public class LucenePropertyIndex extends FulltextIndex {
 
     }
 
-    static abstract class LuceneResultRowIterator extends AbstractIterator<FulltextResultRow> implements IteratorRewoundStateProvider {
+    /**
+     * Executor used to prefetch result pages, created on first use. Both the
+     * number of threads and pending prefetches are bounded; if it is busy,
+     * pages are loaded on demand by the query thread.
+     */
+    private static final class PrefetchExecutorHolder {
+        static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS,
+                    60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE),
+                    new ThreadFactoryBuilder().setNameFormat("oak-lucene-prefetch-%d").setDaemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    static abstract class LuceneResultRowIterator extends AbstractIterator<FulltextResultRow> implements IteratorRewoundStateProvider, Closeable {
+        /**
+         * Stops loading results, for example cancelling a pending prefetch.
+         */
+        @Override
+        public void close() {
+        }
     }
 
 }
@@ -19,7 +19,10 @@
 
 package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -41,6 +44,8 @@ import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NoLockFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +64,19 @@ public class CopyOnReadDirectory extends FilterDirectory {
     public static final String DELETE_MARGIN_MILLIS_NAME = "oak.lucene.delete.margin";
     public final long DELETE_MARGIN_MILLIS = Long.getLong(DELETE_MARGIN_MILLIS_NAME, TimeUnit.MINUTES.toMillis(5));
 
+    /**
+     * Enables reading fully copied local files through a memory mapped directory,
+     * irrespective of the {@code FSDirectory} implementation used for the local copy.
+     * Term dictionary files are additionally paged in on first open.
+     */
+    public static final String MMAP_LOCAL_NAME = "oak.lucene.cor.mmap";
+
+    /**
+     * Extensions of the (block tree) term dictionary and its index, which are
+     * accessed randomly for every term lookup.
+     */
+    private static final Set<String> PRELOAD_EXTENSIONS = ImmutableSet.of("tim", "tip");
+
     private final IndexCopier indexCopier;
     private final Directory remote;
     private final Directory local;
@@ -66,12 +84,16 @@ public class CopyOnReadDirectory extends FilterDirectory {
     private final String indexPath;
     private final Executor executor;
     private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Directory localReadDir;
 
     // exported as package private to be useful in tests
     static final String WAIT_OTHER_COPY_SYSPROP_NAME = "cor.waitCopyMillis";
 
     long waitOtherCopyTimeoutMillis = Long.getLong(WAIT_OTHER_COPY_SYSPROP_NAME, TimeUnit.SECONDS.toMillis(30));
 
+    // package private to be changed in tests
+    boolean mmapLocal = Boolean.getBoolean(MMAP_LOCAL_NAME);
+
     private final ConcurrentMap<String, CORFileReference> files = newConcurrentMap();
 
     public CopyOnReadDirectory(IndexCopier indexCopier, Directory remote, Directory local, boolean prefetch,
@@ -152,6 +174,73 @@ public class CopyOnReadDirectory extends FilterDirectory {
         return local;
     }
 
+    /**
+     * Returns the directory used to read local files which have been fully copied.
+     * With {@link #MMAP_LOCAL_NAME} enabled this is a memory mapped view on the
+     * local directory, otherwise the local directory itself.
+     */
+    private Directory getLocalReadDirectory() throws IOException {
+        Directory dir = localReadDir;
+        if (dir == null) {
+            synchronized (this) {
+                dir = localReadDir;
+                if (dir == null) {
+                    dir = local;
+                    File localDir = LocalIndexFile.getFSDir(local);
+                    if (mmapLocal && localDir != null && !(unwrap(local) instanceof MMapDirectory)) {
+                        dir = new MMapDirectory(localDir, NoLockFactory.getNoLockFactory());
+                        log.debug("[{}] reading local files of {} through memory mapped directory", indexPath, localDir);
+                    }
+                    localReadDir = dir;
+                }
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Asks the OS to page in the given local file by mapping it and touching
+     * every page in background, similar to {@code madvise(MADV_WILLNEED)}.
+     */
+    private void preloadLocalFile(final String name) {
+        final File localDir = LocalIndexFile.getFSDir(local);
+        if (localDir == null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed.get()) {
+                    return;
+                }
+                long start = PERF_LOGGER.start();
+                File file = new File(localDir, name);
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    for (long pos = 0; pos < size; pos += Integer.MAX_VALUE) {
+                        channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Integer.MAX_VALUE, size - pos)).load();
+                    }
+                    PERF_LOGGER.end(start, 10, "[{}] Preloaded file {} of size {}", indexPath, name,
+                            humanReadableByteCount(size));
+                } catch (IOException e) {
+                    log.debug("[{}] Error occurred while preloading file {}", indexPath, file, e);
+                }
+            }
+        });
+    }
+
+    private static boolean isPreloadCandidate(String name) {
+        int idx = name.lastIndexOf('.');
+        return idx != -1 && PRELOAD_EXTENSIONS.contains(name.substring(idx + 1));
+    }
+
+    private static Directory unwrap(Directory dir) {
+        while (dir instanceof FilterDirectory) {
+            dir = ((FilterDirectory) dir).getDelegate();
+        }
+        return dir;
+    }
+
     private void copy(final CORFileReference reference) {
         indexCopier.scheduledForCopy();
         executor.execute(new Runnable() {
@@ -301,6 +390,10 @@ public class CopyOnReadDirectory extends FilterDirectory {
                     //This would also remove old index files if current
                     //directory was based on newerRevision as local would
                     //be of type DeleteOldDirOnClose
+                    Directory readDir = localReadDir;
+                    if (readDir != null && readDir != local) {
+                        readDir.close();
+                    }
                     local.close();
                     remote.close();
                 } catch (IOException e) {
@@ -371,6 +464,7 @@ public class CopyOnReadDirectory extends FilterDirectory {
     private class CORFileReference {
         final String name;
         private volatile boolean valid;
+        private final AtomicBoolean preloaded = new AtomicBoolean();
 
         private CORFileReference(String name) {
             this.name = name;
@@ -382,7 +476,13 @@ public class CopyOnReadDirectory extends FilterDirectory {
 
         IndexInput openLocalInput( IOContext context) throws IOException {
             indexCopier.readFromLocal(true);
-            return local.openInput(name, context);
+            Directory dir = getLocalReadDirectory();
+            IndexInput input = dir.openInput(name, context);
+            if (dir != local && isPreloadCandidate(name)
+                    && preloaded.compareAndSet(false, true)) {
+                preloadLocalFile(name);
+            }
+            return input;
         }
 
         void markValid(){
@@ -294,6 +294,17 @@ class OakStreamingIndexFile implements OakIndexFile, AutoCloseable {
 
     @Override
     public void copyBytes(DataInput input, final long numBytes) throws IOException {
+        OakStreamingIndexFile source = getStreamingSource(input);
+        if (source != null) {
+            // sequential copy (e.g. while merging or building compound files) of another
+            // streamed file: pipe the source blob straight into the new blob instead of
+            // pulling it through DataInput#readBytes chunk by chunk
+            try (InputStream in = source.openRangeStream(numBytes)) {
+                pushData(in);
+            }
+            return;
+        }
+
         InputStream in = new InputStream() {
             long bytesLeftToRead = numBytes;
 
@@ -326,6 +337,71 @@ class OakStreamingIndexFile implements OakIndexFile, AutoCloseable {
         pushData(in);
     }
 
+    /**
+     * Returns a stream over the next {@code numBytes} of this file. The stream
+     * reads from the positioned blob stream of this file, which is kept open
+     * for subsequent reads and copies, and moves the position as it is read.
+     */
+    private InputStream openRangeStream(final long numBytes) throws IOException {
+        if (numBytes < 0 || position + numBytes > length) {
+            String msg = String.format("Invalid byte range request for [%s][%s], " +
+                    "position: %d, file length: %d, len: %d", dirDetails, name, position, length, numBytes);
+            releaseInputStream();
+            throw new IOException(msg);
+        }
+
+        setupInputStream();
+        return new InputStream() {
+            long bytesLeftToRead = numBytes;
+
+            @Override
+            public int read() throws IOException {
+                if (bytesLeftToRead == 0) {
+                    return -1;
+                }
+                int b = blobInputStream.read();
+                if (b < 0) {
+                    throw unexpectedEnd();
+                }
+                bytesLeftToRead--;
+                position++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (bytesLeftToRead == 0) {
+                    return -1;
+                }
+                int readCnt = blobInputStream.read(b, off, (int) Math.min(len, bytesLeftToRead));
+                if (readCnt < 0) {
+                    throw unexpectedEnd();
+                }
+                bytesLeftToRead -= readCnt;
+                position += readCnt;
+                return readCnt;
+            }
+
+            private IOException unexpectedEnd() {
+                String msg = String.format("Couldn't read byte range request for [%s][%s], " +
+                        "position: %d, file length: %d, len: %d. Bytes left to read %d",
+                        dirDetails, name, position, length, numBytes, bytesLeftToRead);
+                releaseInputStream();
+                return new IOException(msg);
+            }
+        };
+    }
+
+    private static OakStreamingIndexFile getStreamingSource(DataInput input) {
+        if (input instanceof OakIndexInput) {
+            OakIndexFile file = ((OakIndexInput) input).file;
+            if (file instanceof OakStreamingIndexFile && ((OakStreamingIndexFile) file).blob != null) {
+                return (OakStreamingIndexFile) file;
+            }
+        }
+        return null;
+    }
+
     private void pushData(InputStream in) throws IOException {
         if (uniqueKey != null) {
             in = new SequenceInputStream(in,
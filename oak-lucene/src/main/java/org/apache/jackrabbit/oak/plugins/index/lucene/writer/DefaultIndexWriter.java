@@ -23,11 +23,17 @@ import static java.util.Objects.requireNonNull;
 import static org.apache.jackrabbit.oak.plugins.index.lucene.TermFactory.newPathTerm;
 import static org.apache.jackrabbit.oak.plugins.index.lucene.writer.IndexWriterUtils.getIndexWriterConfig;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PerfLogger;
@@ -46,6 +52,8 @@ import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.NoLockFactory;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +77,17 @@ class DefaultIndexWriter implements LuceneIndexWriter {
     private long genAtStart = -1;
     private boolean indexUpdated = false;
 
+    /**
+     * Writers of the per-thread sub-indexes used while reindexing with
+     * {@link LuceneIndexWriterConfig#isPerThreadSubIndex()} enabled. The first
+     * thread writing to this index uses the main writer directly, every other
+     * thread gets its own local index which is merged into the main one on close.
+     */
+    private final Map<Thread, IndexWriter> subIndexWriters = new ConcurrentHashMap<>();
+    private volatile Thread mainWriterThread;
+    private File subIndexBaseDir;
+    private int subIndexCount;
+
     public DefaultIndexWriter(LuceneIndexDefinition definition, NodeBuilder definitionBuilder,
                               DirectoryFactory directoryFactory, String dirName, String suggestDirName,
                               boolean reindex, LuceneIndexWriterConfig writerConfig) {
@@ -91,7 +110,7 @@ class DefaultIndexWriter implements LuceneIndexWriter {
             if (containsOnlyPath && isPropertyRegexMatchingEnabled) {
                 return;
             }
-            getWriter().addDocument(doc);
+            getReindexWriter().addDocument(doc);
         } else {
             // if the new document only contains path field, we don't add it to index. Instead we delete existing
             // document of the same path.
@@ -108,15 +127,26 @@ class DefaultIndexWriter implements LuceneIndexWriter {
     public void deleteDocuments(String path) throws IOException {
         getWriter().deleteDocuments(newPathTerm(path));
         getWriter().deleteDocuments(new PrefixQuery(newPathTerm(path + "/")));
+        for (IndexWriter subWriter : subIndexWriters.values()) {
+            subWriter.deleteDocuments(newPathTerm(path));
+            subWriter.deleteDocuments(new PrefixQuery(newPathTerm(path + "/")));
+        }
     }
 
     void deleteAll() throws IOException {
         getWriter().deleteAll();
+        for (IndexWriter subWriter : subIndexWriters.values()) {
+            subWriter.deleteAll();
+        }
         indexUpdated = true;
     }
 
     @Override
     public boolean close(long timestamp) throws IOException {
+        if (!subIndexWriters.isEmpty()) {
+            mergeSubIndexes();
+        }
+
         //If reindex or fresh index and write is null on close
         //it indicates that the index is empty. In such a case trigger
         //creation of write such that an empty Lucene index state is persisted
@@ -171,6 +201,7 @@ class DefaultIndexWriter implements LuceneIndexWriter {
                     directory = directoryFactory.newInstance(definition, definitionBuilder, dirName, reindex);
                     IndexWriterConfig config = getIndexWriterConfig(definition, directoryFactory.remoteDirectory(), writerConfig);
                     config.setMergePolicy(definition.getMergePolicy());
+                    config.setRAMBufferSizeMB(getRamBufferShare());
                     writer = localRefWriter = new IndexWriter(directory, config);
                     genAtStart = getLatestGeneration(directory);
                     log.trace("IndexWriterConfig for index [{}] is {}", definition.getIndexPath(), config);
@@ -181,6 +212,107 @@ class DefaultIndexWriter implements LuceneIndexWriter {
         return localRefWriter;
     }
 
+    /**
+     * Returns the writer to add documents to during reindex. With per-thread
+     * sub-indexes enabled, concurrent indexing threads do not share the same
+     * writer but each write to their own local index.
+     */
+    private IndexWriter getReindexWriter() throws IOException {
+        if (!writerConfig.isPerThreadSubIndex()) {
+            return getWriter();
+        }
+        Thread current = Thread.currentThread();
+        Thread owner = mainWriterThread;
+        if (owner == null) {
+            synchronized (this) {
+                if (mainWriterThread == null) {
+                    mainWriterThread = current;
+                }
+                owner = mainWriterThread;
+            }
+        }
+        if (owner == current) {
+            return getWriter();
+        }
+        // only the current thread adds a writer for itself, so there is no race here
+        IndexWriter subWriter = subIndexWriters.get(current);
+        if (subWriter == null) {
+            subWriter = createSubIndexWriter(current);
+        }
+        return subWriter;
+    }
+
+    private synchronized IndexWriter createSubIndexWriter(Thread current) throws IOException {
+        final long start = PERF_LOGGER.start();
+        if (subIndexBaseDir == null) {
+            File workDir = requireNonNull(writerConfig.getSubIndexDir());
+            FileUtils.forceMkdir(workDir);
+            subIndexBaseDir = Files.createTempDirectory(workDir.toPath(), "oak-lucene-subindex-").toFile();
+        }
+        File subDir = new File(subIndexBaseDir, String.valueOf(subIndexCount++));
+        FileUtils.forceMkdir(subDir);
+        Directory subDirectory = FSDirectory.open(subDir, NoLockFactory.getNoLockFactory());
+        IndexWriterConfig config = getIndexWriterConfig(definition, false, writerConfig);
+        config.setMergePolicy(definition.getMergePolicy());
+        IndexWriter subWriter = new IndexWriter(subDirectory, config);
+        subIndexWriters.put(current, subWriter);
+
+        // all writers share the configured RAM buffer
+        double share = getRamBufferShare();
+        if (writer != null) {
+            writer.getConfig().setRAMBufferSizeMB(share);
+        }
+        for (IndexWriter w : subIndexWriters.values()) {
+            w.getConfig().setRAMBufferSizeMB(share);
+        }
+        PERF_LOGGER.end(start, -1, "Created sub-index IndexWriter in {} for directory {}", subDir, definition);
+        return subWriter;
+    }
+
+    Iterable<IndexWriter> getSubIndexWriters() {
+        return subIndexWriters.values();
+    }
+
+    /**
+     * The RAM buffer size of each writer, so that the main writer and the
+     * per-thread sub-index writers together don't use more than configured.
+     */
+    private double getRamBufferShare() {
+        return writerConfig.getRamBufferSizeMB() / (1 + subIndexWriters.size());
+    }
+
+    /**
+     * Closes the per-thread sub-indexes and adds their segments to the main index.
+     * All sub-index writers and directories are closed and the work directory is
+     * removed, even if closing one of them or the merge fails.
+     */
+    private void mergeSubIndexes() throws IOException {
+        final long start = PERF_LOGGER.start();
+        final File baseDir = subIndexBaseDir;
+        subIndexBaseDir = null;
+        List<Directory> subDirectories = new ArrayList<>();
+        Closer directories = Closer.create();
+        // registered first so that it runs after all directories are closed
+        directories.register(() -> FileUtils.deleteQuietly(baseDir));
+        try {
+            Closer writers = Closer.create();
+            for (IndexWriter subWriter : subIndexWriters.values()) {
+                subDirectories.add(directories.register(subWriter.getDirectory()));
+                writers.register(subWriter);
+            }
+            subIndexWriters.clear();
+            writers.close();
+            getWriter().addIndexes(subDirectories.toArray(new Directory[0]));
+            indexUpdated = true;
+            log.debug("Merged {} sub-indexes into index {}", subDirectories.size(), definition.getIndexPath());
+        } catch (Throwable t) {
+            throw directories.rethrow(t);
+        } finally {
+            directories.close();
+        }
+        PERF_LOGGER.end(start, -1, "Merged {} sub-indexes for directory {}", subDirectories.size(), definition);
+    }
+
     /**
      * eventually update suggest dictionary
      * @throws IOException if suggest dictionary update fails
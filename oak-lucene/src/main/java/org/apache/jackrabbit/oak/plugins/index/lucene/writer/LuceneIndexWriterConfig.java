@@ -19,7 +19,10 @@
 
 package org.apache.jackrabbit.oak.plugins.index.lucene.writer;
 
+import java.io.File;
+
 import org.apache.lucene.index.IndexWriterConfig;
+import org.jetbrains.annotations.Nullable;
 
 public class LuceneIndexWriterConfig {
     /**
@@ -34,18 +37,36 @@ public class LuceneIndexWriterConfig {
      */
     public final static String RAM_PER_THREAD_HARD_LIMIT_MB_KEY = "oak.index.lucene.ramPerThreadHardLimitMB";
 
+    /**
+     * This property enables per-thread sub-indexes while reindexing. Each indexing thread
+     * writes to its own local Lucene index which is merged into the target index on close.
+     * It is read by the tools creating the config, see {@link #LuceneIndexWriterConfig(double, File)}.
+     */
+    public final static String PER_THREAD_SUB_INDEX_KEY = "oak.index.lucene.perThreadSubIndex";
+
     private final double ramBufferSizeMB;
     private final int maxBufferedDeleteTerms = Integer.getInteger(MAX_BUFFERED_DELETE_TERMS_KEY,
             IndexWriterConfig.DISABLE_AUTO_FLUSH);
     private final int ramPerThreadHardLimitMB = Integer.getInteger(RAM_PER_THREAD_HARD_LIMIT_MB_KEY,
             IndexWriterConfig.DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB);
+    private final File subIndexDir;
 
     public LuceneIndexWriterConfig() {
         this(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
     }
 
     public LuceneIndexWriterConfig(double ramBufferSizeMB) {
+        this(ramBufferSizeMB, null);
+    }
+
+    /**
+     * @param ramBufferSizeMB the RAM buffer size, shared by the per-thread sub-indexes
+     * @param subIndexDir the directory to create the per-thread sub-indexes in,
+     *                    or null to disable them
+     */
+    public LuceneIndexWriterConfig(double ramBufferSizeMB, @Nullable File subIndexDir) {
         this.ramBufferSizeMB = ramBufferSizeMB;
+        this.subIndexDir = subIndexDir;
     }
 
     public double getRamBufferSizeMB() {
@@ -59,4 +80,13 @@ public class LuceneIndexWriterConfig {
     public int getRamPerThreadHardLimitMB() {
         return ramPerThreadHardLimitMB;
     }
+
+    public boolean isPerThreadSubIndex() {
+        return subIndexDir != null;
+    }
+
+    @Nullable
+    public File getSubIndexDir() {
+        return subIndexDir;
+    }
 }
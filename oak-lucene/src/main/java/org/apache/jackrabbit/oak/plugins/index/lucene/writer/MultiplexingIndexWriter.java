@@ -21,8 +21,8 @@ package org.apache.jackrabbit.oak.plugins.index.lucene.writer;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.jackrabbit.guava.common.collect.Maps;
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.DirectoryFactory;
 import org.apache.jackrabbit.oak.spi.mount.Mount;
@@ -42,7 +42,8 @@ class MultiplexingIndexWriter implements LuceneIndexWriter {
     private final boolean reindex;
     private final LuceneIndexWriterConfig writerConfig;
 
-    private final Map<Mount, DefaultIndexWriter> writers = Maps.newHashMap();
+    // writers may be looked up concurrently when reindexing with multiple threads
+    private final Map<Mount, DefaultIndexWriter> writers = new ConcurrentHashMap<>();
 
     public MultiplexingIndexWriter(DirectoryFactory directoryFactory, MountInfoProvider mountInfoProvider,
                                    LuceneIndexDefinition definition, NodeBuilder definitionBuilder,
@@ -99,12 +100,7 @@ class MultiplexingIndexWriter implements LuceneIndexWriter {
     }
 
     private DefaultIndexWriter getWriter(Mount mount) {
-        DefaultIndexWriter writer = writers.get(mount);
-        if (writer == null) {
-            writer = createWriter(mount);
-            writers.put(mount, writer);
-        }
-        return writer;
+        return writers.computeIfAbsent(mount, this::createWriter);
     }
 
     private DefaultIndexWriter createWriter(Mount m) {
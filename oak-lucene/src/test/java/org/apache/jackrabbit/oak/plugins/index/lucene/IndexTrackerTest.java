@@ -19,7 +19,9 @@
 
 package org.apache.jackrabbit.oak.plugins.index.lucene;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jackrabbit.guava.common.collect.ImmutableSet;
@@ -38,6 +40,8 @@ import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.EditorHook;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -46,6 +50,7 @@ import static org.apache.jackrabbit.oak.plugins.index.lucene.util.LuceneIndexHel
 import static org.apache.jackrabbit.oak.InitialContentHelper.INITIAL_CONTENT;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -99,6 +104,45 @@ public class IndexTrackerTest {
         assertEquals(0, tracker.getIndexNodePaths().size());
     }
 
+    @Test
+    public void warmUpBeforeSwap() throws Exception{
+        List<Runnable> warmups = new ArrayList<>();
+        tracker.warmer = new IndexWarmer(true, 10, warmups::add);
+        createIndex("foo");
+
+        NodeState before = builder.getNodeState();
+        builder.setProperty("foo", "bar");
+        NodeState indexed = hook.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        tracker.update(indexed);
+
+        LuceneIndexNode indexNode = tracker.acquireIndexNode("/oak:index/foo");
+        int oldId = indexNode.getIndexNodeId();
+        indexNode.release();
+        tracker.getWarmer().recordQuery("/oak:index/foo", new TermQuery(new Term("foo", "bar")), null);
+
+        builder = indexed.builder();
+        before = indexed;
+        builder.setProperty("foo", "baz");
+        indexed = hook.processCommit(before, builder.getNodeState(), CommitInfo.EMPTY);
+        tracker.update(indexed);
+
+        // the update does not wait for the warm up, the old index stays in use
+        assertEquals(1, warmups.size());
+        indexNode = tracker.acquireIndexNode("/oak:index/foo");
+        assertEquals(oldId, indexNode.getIndexNodeId());
+        indexNode.release();
+
+        warmups.remove(0).run();
+        IndexWarmer.WarmupStats stats = tracker.getWarmer().getStats().get("/oak:index/foo");
+        assertNotNull(stats);
+        assertEquals(1, stats.getWarmupCount());
+        assertEquals(1, stats.getLastReplayedQueries());
+
+        indexNode = tracker.acquireIndexNode("/oak:index/foo");
+        assertNotEquals(oldId, indexNode.getIndexNodeId());
+        indexNode.release();
+    }
+
     @Test
     public void badIndexAccess() throws Exception{
         createIndex("foo");
@@ -228,6 +228,39 @@ public class LuceneIndexTest {
         assertEquals(LuceneIndex.LUCENE_QUERY_BATCH_SIZE + 1, paths.size());
     }
 
+    @Test
+    public void testLuceneLazyCursorWithPrefetch() throws Exception {
+        NodeBuilder index = builder.child(INDEX_DEFINITIONS_NAME);
+        newLucenePropertyIndexDefinition(index, "lucene", ImmutableSet.of("foo"), null);
+
+        NodeState before = builder.getNodeState();
+        // spans several result pages
+        int count = LuceneIndex.LUCENE_QUERY_BATCH_SIZE * 5;
+        for(int i = 0; i < count; i++){
+            builder.child("parent").child("child"+i).setProperty("foo", "bar");
+        }
+
+        NodeState after = builder.getNodeState();
+
+        NodeState indexed = HOOK.processCommit(before, after, CommitInfo.EMPTY);
+
+        tracker = new IndexTracker();
+        tracker.update(indexed);
+        LucenePropertyIndex queryIndex = new LucenePropertyIndex(tracker);
+        queryIndex.setPrefetchPages(true);
+        FilterImpl filter = createFilter(NT_BASE);
+        filter.restrictProperty("foo", Operator.EQUAL,
+            PropertyValues.newString("bar"));
+        List<IndexPlan> plans = queryIndex.getPlans(filter, null, indexed);
+        Cursor cursor = queryIndex.query(plans.get(0), indexed);
+
+        List<String> paths = copyOf(transform(cursor, IndexRow::getPath));
+        assertEquals(count, paths.size());
+        assertEquals(count, newHashSet(paths).size());
+        // the pages after the first one were loaded in the background
+        assertTrue(queryIndex.prefetchedPages.get() > 0);
+    }
+
     @Test
     public void testLucene2() throws Exception {
         NodeBuilder index = builder.child(INDEX_DEFINITIONS_NAME);
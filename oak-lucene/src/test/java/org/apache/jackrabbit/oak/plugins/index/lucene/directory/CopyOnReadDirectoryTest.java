@@ -20,17 +20,24 @@
 package org.apache.jackrabbit.oak.plugins.index.lucene.directory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jackrabbit.oak.plugins.index.lucene.IndexCopier;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RAMDirectory;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import static org.apache.jackrabbit.guava.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class CopyOnReadDirectoryTest {
@@ -49,4 +56,44 @@ public class CopyOnReadDirectoryTest {
         assertEquals(1, executionCount.get());
     }
 
+    @Test
+    public void mmapLocalRead() throws Exception{
+        byte[] data = "term dictionary".getBytes();
+        Directory remote = new RAMDirectory();
+        try (IndexOutput o = remote.createOutput("_0.tim", IOContext.DEFAULT)) {
+            o.writeBytes(data, data.length);
+        }
+
+        AtomicInteger localOpenCount = new AtomicInteger();
+        Directory local = new FilterDirectory(FSDirectory.open(temporaryFolder.newFolder())) {
+            @Override
+            public IndexInput openInput(String name, IOContext context) throws IOException {
+                localOpenCount.incrementAndGet();
+                return super.openInput(name, context);
+            }
+        };
+        AtomicInteger executionCount = new AtomicInteger();
+        Executor e = r -> {executionCount.incrementAndGet(); r.run();};
+        IndexCopier c = new IndexCopier(newDirectExecutorService(), temporaryFolder.newFolder(), true);
+        CopyOnReadDirectory dir = new CopyOnReadDirectory(c, remote, local, false, "foo", e);
+        dir.mmapLocal = true;
+
+        try (IndexInput input = dir.openInput("_0.tim", IOContext.DEFAULT)) {
+            byte[] read = new byte[data.length];
+            input.readBytes(read, 0, read.length);
+            assertArrayEquals(data, read);
+        }
+        // the copied file is read through the mapped view, not the local directory
+        assertEquals(0, localOpenCount.get());
+        assertEquals(1, c.getReaderLocalReadCount());
+
+        // the term dictionary is preloaded only once
+        int executions = executionCount.get();
+        try (IndexInput input = dir.openInput("_0.tim", IOContext.DEFAULT)) {
+            assertEquals(data.length, input.length());
+        }
+        assertEquals(executions, executionCount.get());
+        assertEquals(0, localOpenCount.get());
+        dir.close();
+    }
 }
@@ -270,6 +270,43 @@ public class OakStreamingIndexFileTest {
         logRecorder.finished();
     }
 
+    @Test
+    public void copyFromStreamingFile() throws Exception {
+        byte[] fileBytes = writeFile();
+        int half = (fileBytes.length - 10) / 2;
+        byte[] expectedBytes = Arrays.copyOfRange(fileBytes, 10, 10 + half);
+        byte[] remainingBytes = Arrays.copyOfRange(fileBytes, 10 + half, fileBytes.length);
+
+        NodeBuilder fooBuilder = builder.child("foo");
+        NodeBuilder barBuilder = builder.child("bar");
+        try (OakIndexInput input = new OakIndexInput("foo", fooBuilder, "dirDetails",
+                modeDependantBlobFactory.getNodeBuilderBlobFactory(fooBuilder));
+             OakStreamingIndexFile writeFile = new OakStreamingIndexFile("bar", barBuilder, "dirDetails",
+                modeDependantBlobFactory.getNodeBuilderBlobFactory(barBuilder))
+        ) {
+            assertTrue("Input must be streamed", input.file instanceof OakStreamingIndexFile);
+
+            input.seek(10);
+            writeFile.copyBytes(input, expectedBytes.length);
+            writeFile.flush();
+            assertEquals("Copy must move source position", 10 + half, input.getFilePointer());
+
+            // reading continues on the positioned source stream
+            byte[] readBytes = new byte[remainingBytes.length];
+            input.readBytes(readBytes, 0, readBytes.length);
+            assertTrue("Must read data after copied range", Arrays.equals(remainingBytes, readBytes));
+        }
+
+        try (OakStreamingIndexFile readFile = new OakStreamingIndexFile("bar", barBuilder, "dirDetails",
+                modeDependantBlobFactory.getNodeBuilderBlobFactory(barBuilder))
+        ) {
+            byte[] readBytes = new byte[expectedBytes.length];
+            readFile.readBytes(readBytes, 0, readBytes.length);
+            assertEquals("Must copy requested range", expectedBytes.length, readFile.length());
+            assertTrue("Must get back copied data", Arrays.equals(expectedBytes, readBytes));
+        }
+    }
+
     static class ModeDependantBlobFactory {
 
         private final BlobFactoryMode blobFactoryMode;
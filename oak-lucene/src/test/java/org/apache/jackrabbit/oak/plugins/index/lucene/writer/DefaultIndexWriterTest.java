@@ -20,6 +20,9 @@
 package org.apache.jackrabbit.oak.plugins.index.lucene.writer;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexDefinition;
 import org.apache.jackrabbit.oak.plugins.index.lucene.directory.DefaultDirectoryFactory;
@@ -28,8 +31,11 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -44,6 +50,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class DefaultIndexWriterTest {
 
@@ -142,6 +149,109 @@ public class DefaultIndexWriterTest {
         writer.close(100);
     }
 
+    @Test
+    public void perThreadSubIndexMergedOnClose() throws Exception{
+        File subIndexDir = folder.newFolder();
+        writerConfig = new LuceneIndexWriterConfig(16, subIndexDir);
+
+        LuceneIndexDefinition defn = new LuceneIndexDefinition(root, builder.getNodeState(), "/foo");
+        DefaultIndexWriter writer = createWriter(defn, true);
+
+        Thread[] threads = new Thread[3];
+        Exception[] failures = new Exception[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int t = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 10; j++) {
+                        String path = "/t" + t + "/n" + j;
+                        Document document = new Document();
+                        document.add(newPathField(path));
+                        writer.updateDocument(path, document);
+                    }
+                } catch (Exception e) {
+                    failures[t] = e;
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (Exception e : failures) {
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        assertTrue(writer.close(100));
+        // the sub-indexes in the work directory are removed once merged
+        assertEquals(0, subIndexDir.list().length);
+
+        Directory dir = new DefaultDirectoryFactory(null, null).newInstance(defn, builder, INDEX_DATA_CHILD_NAME, false);
+        try (DirectoryReader reader = DirectoryReader.open(dir)) {
+            assertEquals(30, reader.numDocs());
+        }
+        dir.close();
+    }
+
+    @Test
+    public void perThreadSubIndexCleanedUpOnMergeFailure() throws Exception{
+        File subIndexDir = folder.newFolder();
+        writerConfig = new LuceneIndexWriterConfig(16, subIndexDir);
+
+        LuceneIndexDefinition defn = new LuceneIndexDefinition(root, builder.getNodeState(), "/foo");
+        DefaultIndexWriter writer = createWriter(defn, true);
+        // the current thread writes to the main index, all others to a sub-index
+        Document main = new Document();
+        main.add(newPathField("/main"));
+        writer.updateDocument("/main", main);
+
+        Thread[] threads = new Thread[3];
+        for (int i = 0; i < threads.length; i++) {
+            final int t = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    String path = "/t" + t;
+                    Document document = new Document();
+                    document.add(newPathField(path));
+                    writer.updateDocument(path, document);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        List<IndexWriter> subWriters = new ArrayList<>();
+        writer.getSubIndexWriters().forEach(subWriters::add);
+        assertEquals(threads.length, subWriters.size());
+
+        // closing the directory makes closing the first sub-index writer fail
+        subWriters.get(0).getDirectory().close();
+        try {
+            writer.close(100);
+            fail("Closing the writer should fail");
+        } catch (AlreadyClosedException expected) {
+            // expected
+        }
+
+        // the remaining sub-index writers are closed nevertheless
+        for (IndexWriter subWriter : subWriters.subList(1, subWriters.size())) {
+            try {
+                subWriter.commit();
+                fail("Sub-index writer should be closed");
+            } catch (AlreadyClosedException expected) {
+                // expected
+            }
+        }
+        // and the work directory is cleaned up
+        assertEquals(0, subIndexDir.list().length);
+    }
+
     private DefaultIndexWriter createWriter(LuceneIndexDefinition defn, boolean reindex) {
         return new DefaultIndexWriter(defn, builder,
                 new DefaultDirectoryFactory(null, null), INDEX_DATA_CHILD_NAME,
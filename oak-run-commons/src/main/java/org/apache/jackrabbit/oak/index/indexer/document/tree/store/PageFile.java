@@ -23,6 +23,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.jackrabbit.oak.index.indexer.document.tree.store.utils.MemoryObject;
 
@@ -43,6 +44,10 @@ public class PageFile implements MemoryObject {
 
     private static ByteBuffer REUSED_BUFFER = ByteBuffer.allocate(1024 * 1024);
 
+    // guards REUSED_BUFFER; a lock instead of synchronization, so that
+    // virtual threads don't pin their carrier thread while waiting
+    private static final ReentrantLock REUSED_BUFFER_LOCK = new ReentrantLock();
+
     private ArrayList<String> keys = new ArrayList<>();
     private ArrayList<String> values = new ArrayList<>();
     private long update;
@@ -107,8 +112,9 @@ public class PageFile implements MemoryObject {
     }
 
     public byte[] toBytes() {
-        // synchronization is needed because we share the buffer
-        synchronized (PageFile.class) {
+        // locking is needed because we share the buffer
+        REUSED_BUFFER_LOCK.lock();
+        try {
             ByteBuffer buff = REUSED_BUFFER;
             if (buff.capacity() < sizeInBytes * 2) {
                 buff = REUSED_BUFFER = ByteBuffer.allocate(sizeInBytes * 2);
@@ -140,6 +146,8 @@ public class PageFile implements MemoryObject {
             // reset the limit
             REUSED_BUFFER = ByteBuffer.wrap(buff.array());
             return array;
+        } finally {
+            REUSED_BUFFER_LOCK.unlock();
         }
     }
 
@@ -23,6 +23,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.jackrabbit.oak.index.indexer.document.IndexerConfiguration;
 import org.apache.jackrabbit.oak.plugins.index.lucene.IndexCopier;
 import org.apache.jackrabbit.oak.plugins.index.lucene.IndexCopier.COWDirectoryTracker;
 import org.apache.jackrabbit.oak.plugins.index.lucene.LuceneIndexEditorProvider;
@@ -81,7 +82,15 @@ public class LuceneIndexHelper implements Closeable {
         log.info("Setting RAMBufferSize for LuceneIndexWriter (configurable via " +
                 "system property '{}') to {} MB", PROP_BUFFER_SIZE, buffSize);
 
-        return new LuceneIndexWriterConfig(buffSize);
+        // with parallel indexing enabled each indexing thread writes to its own sub-index by default
+        boolean perThreadSubIndex = Boolean.parseBoolean(System.getProperty(
+                LuceneIndexWriterConfig.PER_THREAD_SUB_INDEX_KEY,
+                String.valueOf(IndexerConfiguration.parallelIndexEnabled())));
+        log.info("Per-thread sub-indexes for LuceneIndexWriter (configurable via " +
+                "system property '{}') enabled: {}", LuceneIndexWriterConfig.PER_THREAD_SUB_INDEX_KEY, perThreadSubIndex);
+
+        File subIndexDir = perThreadSubIndex ? new File(extendedIndexHelper.getWorkDir(), "subIndexWorkDir") : null;
+        return new LuceneIndexWriterConfig(buffSize, subIndexDir);
     }
 
     public void setDirectoryFactory(DirectoryFactory directoryFactory) {
@@ -19,11 +19,13 @@ package org.apache.jackrabbit.oak.run;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.jcr.Repository;
 
 import org.apache.jackrabbit.oak.Oak;
 import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.commons.concurrent.VirtualThreads;
 import org.apache.jackrabbit.oak.http.OakServlet;
 import org.apache.jackrabbit.oak.jcr.Jcr;
 import org.apache.jackrabbit.server.remoting.davex.JcrRemotingServlet;
@@ -31,8 +33,11 @@ import org.apache.jackrabbit.webdav.jcr.JCRWebdavServerServlet;
 import org.apache.jackrabbit.webdav.server.AbstractWebdavServlet;
 import org.apache.jackrabbit.webdav.simple.SimpleWebdavServlet;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 class HttpServer {
 
@@ -52,7 +57,10 @@ class HttpServer {
             addServlets(entry.getKey(), entry.getValue());
         }
 
-        server = new Server(port);
+        server = new Server(createThreadPool());
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(port);
+        server.addConnector(connector);
         server.setHandler(context);
         server.start();
     }
@@ -65,6 +73,18 @@ class HttpServer {
         server.stop();
     }
 
+    /**
+     * Requests are handled on virtual threads if supported by the runtime,
+     * as they mostly block on I/O of the underlying node store.
+     */
+    private static ThreadPool createThreadPool() {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        if (executor != null) {
+            return new VirtualThreadPool(executor);
+        }
+        return new QueuedThreadPool();
+    }
+
     private void addServlets(Oak oak, String path) {
         Jcr jcr = new Jcr(oak);
 
@@ -50,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.PropertyType;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
@@ -389,13 +390,16 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
     /**
      * A cursor over Fulltext results. The result includes the path,
      * and the jcr:score pseudo-property as returned by Lucene.
+     * Closing the cursor closes the underlying result iterator, if it is
+     * {@link Closeable}.
      */
-    protected static class FulltextPathCursor implements Cursor {
+    protected static class FulltextPathCursor implements Cursor, Closeable {
 
         private final Logger log = LoggerFactory.getLogger(getClass());
         private final int TRAVERSING_WARNING = Integer.getInteger("oak.traversing.warning", 10000);
 
         private final Cursor pathCursor;
+        private final IteratorRewoundStateProvider iterStateProvider;
         private final String pathPrefix;
         private final SizeEstimator sizeEstimator;
         private final int numberOfFacets;
@@ -410,6 +414,7 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
         public FulltextPathCursor(final Iterator<FulltextResultRow> it, final IteratorRewoundStateProvider iterStateProvider,
                                   final IndexPlan plan, QueryLimits settings, SizeEstimator sizeEstimator) {
             pathPrefix = plan.getPathPrefix();
+            this.iterStateProvider = iterStateProvider;
             this.sizeEstimator = sizeEstimator;
             Iterator<String> pathIterator = new Iterator<String>() {
 
@@ -430,7 +435,12 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
                     currentRowInPathIterator = it.next();
                     readCount++;
                     if (readCount % TRAVERSING_WARNING == 0) {
-                        Cursors.checkReadLimit(readCount, settings);
+                        try {
+                            Cursors.checkReadLimit(readCount, settings);
+                        } catch (RuntimeException e) {
+                            close();
+                            throw e;
+                        }
                         if (readCount == 2 * TRAVERSING_WARNING) {
                             log.warn("Index-Traversed {} nodes with filter {}", readCount, plan.getFilter(),
                                     new Exception("call stack"));
@@ -482,6 +492,17 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
             }
             return estimatedSize = sizeEstimator.getSize();
         }
+
+        @Override
+        public void close() {
+            if (iterStateProvider instanceof Closeable) {
+                try {
+                    ((Closeable) iterStateProvider).close();
+                } catch (IOException e) {
+                    log.debug("Failed to close the result iterator", e);
+                }
+            }
+        }
     }
 
     private static class IndexResultRow implements IndexRow {
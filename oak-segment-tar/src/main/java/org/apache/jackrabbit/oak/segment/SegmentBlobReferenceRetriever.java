@@ -20,10 +20,13 @@
 package org.apache.jackrabbit.oak.segment;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.jackrabbit.oak.plugins.blob.BlobReferenceRetriever;
 import org.apache.jackrabbit.oak.plugins.blob.ReferenceCollector;
 import org.apache.jackrabbit.oak.segment.file.AbstractFileStore;
+import org.apache.jackrabbit.oak.segment.file.tar.TarFiles;
 
 /**
  * Implementation of {@link BlobReferenceRetriever} to retrieve blob references from the
@@ -41,5 +44,34 @@ public class SegmentBlobReferenceRetriever implements BlobReferenceRetriever {
     public void collectReferences(final ReferenceCollector collector) throws IOException {
         store.collectBlobReferences(s -> collector.addReference(s, null));
     }
-}
 
+    /**
+     * Partitions the retrieval of references by TAR file. The TAR files are
+     * determined once for all the partitions, by the first partition to be
+     * collected.
+     */
+    @Override
+    public List<BlobReferenceRetriever> partition(int maxPartitions) {
+        Snapshot snapshot = new Snapshot();
+        List<BlobReferenceRetriever> partitions = new ArrayList<>(maxPartitions);
+        for (int i = 0; i < maxPartitions; i++) {
+            int partition = i;
+            partitions.add(collector -> store.collectBlobReferences(snapshot.get(),
+                s -> collector.addReference(s, null), maxPartitions, partition));
+        }
+        return partitions;
+    }
+
+    private class Snapshot {
+
+        private TarFiles.BlobReferenceSnapshot snapshot;
+
+        synchronized TarFiles.BlobReferenceSnapshot get() throws IOException {
+            if (snapshot == null) {
+                snapshot = store.snapshotBlobReferences();
+            }
+            return snapshot;
+        }
+
+    }
+}
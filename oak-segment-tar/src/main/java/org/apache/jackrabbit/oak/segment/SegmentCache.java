@@ -91,6 +91,15 @@ public abstract class SegmentCache {
      */
     public abstract void putSegment(@NotNull Segment segment);
 
+    /**
+     * Determine whether a segment is in the cache without affecting its
+     * eviction order or the statistics of this cache.
+     *
+     * @param id the id of the segment
+     * @return {@code true} iff the segment identified by {@code id} is cached
+     */
+    public abstract boolean containsSegment(@NotNull SegmentId id);
+
     /**
      * Clear all segment from the cache
      */
@@ -198,6 +207,11 @@ public abstract class SegmentCache {
             }
         }
 
+        @Override
+        public boolean containsSegment(@NotNull SegmentId id) {
+            return cache.asMap().containsKey(id);
+        }
+
         @Override
         public void clear() {
             cache.invalidateAll();
@@ -242,6 +256,11 @@ public abstract class SegmentCache {
             segment.getSegmentId().unloaded();
         }
 
+        @Override
+        public boolean containsSegment(@NotNull SegmentId id) {
+            return false;
+        }
+
         @Override
         public void clear() {}
 
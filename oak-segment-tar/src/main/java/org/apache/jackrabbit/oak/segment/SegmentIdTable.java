@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -64,6 +65,11 @@ public class SegmentIdTable {
 
     private static final Logger LOG = LoggerFactory.getLogger(SegmentIdTable.class);
 
+    /**
+     * Guards the table. A lock is used instead of synchronization, so that
+     * virtual threads waiting for the table don't pin their carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * The refresh count (for diagnostics and testing).
@@ -87,7 +93,17 @@ public class SegmentIdTable {
      * @return the segment id
      */
     @NotNull
-    synchronized SegmentId newSegmentId(long msb, long lsb, SegmentIdFactory maker) {
+    SegmentId newSegmentId(long msb, long lsb, SegmentIdFactory maker) {
+        lock.lock();
+        try {
+            return getOrCreateSegmentId(msb, lsb, maker);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    private SegmentId getOrCreateSegmentId(long msb, long lsb, SegmentIdFactory maker) {
         int index = getIndex(lsb);
         boolean shouldRefresh = false;
 
@@ -114,7 +130,7 @@ public class SegmentIdTable {
             shouldRefresh = true;
         }
         if (shouldRefresh) {
-            refresh();
+            doRefresh();
         }
         return id;
     }
@@ -128,7 +144,16 @@ public class SegmentIdTable {
         ids.addAll(refresh());
     }
 
-    private synchronized Collection<SegmentId> refresh() {
+    private Collection<SegmentId> refresh() {
+        lock.lock();
+        try {
+            return doRefresh();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Collection<SegmentId> doRefresh() {
         int size = references.size();
         Map<SegmentId, WeakReference<SegmentId>> ids =
                 newHashMapWithExpectedSize(size);
@@ -194,14 +219,19 @@ public class SegmentIdTable {
         return ((int) lsb) & (references.size() - 1);
     }
 
-    synchronized void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
-        for (WeakReference<SegmentId> reference : references) {
-            if (reference != null) {
-                SegmentId id = reference.get();
-                if (id != null && reclaimed.contains(id.asUUID())) {
-                    id.reclaimed(gcInfo);
+    void clearSegmentIdTables(@NotNull Set<UUID> reclaimed, @NotNull String gcInfo) {
+        lock.lock();
+        try {
+            for (WeakReference<SegmentId> reference : references) {
+                if (reference != null) {
+                    SegmentId id = reference.get();
+                    if (id != null && reclaimed.contains(id.asUUID())) {
+                        id.reclaimed(gcInfo);
+                    }
                 }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
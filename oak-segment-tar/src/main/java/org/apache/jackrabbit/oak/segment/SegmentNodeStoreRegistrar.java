@@ -293,6 +293,14 @@ class SegmentNodeStoreRegistrar {
             segmentCacheStats.getName()
         ));
 
+        CacheStatsMBean segmentPrefetchStats = store.getSegmentPrefetchStats();
+        registerCloseable(registerMBean(
+            CacheStatsMBean.class,
+            segmentPrefetchStats,
+            CacheStats.TYPE,
+            segmentPrefetchStats.getName()
+        ));
+
         // Expose stats about the string and template caches
 
         CacheStatsMBean stringCacheStats = store.getStringCacheStats();
@@ -115,6 +115,9 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
     @NotNull
     final SegmentCache segmentCache;
 
+    @NotNull
+    final SegmentPrefetcher segmentPrefetcher;
+
     final TarRecovery recovery = new TarRecovery() {
 
         @Override
@@ -143,6 +146,7 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         });
         this.blobStore = builder.getBlobStore();
         this.segmentCache = newSegmentCache(builder.getSegmentCacheSize());
+        this.segmentPrefetcher = new SegmentPrefetcher(builder.getSegmentPrefetchThreads(), tracker, segmentCache);
         this.segmentReader = new CachingSegmentReader(
             this::getWriter,
             blobStore,
@@ -170,6 +174,15 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         return segmentCache.getCacheStats();
     }
 
+    /**
+     * @return statistics of the segment read-ahead. The hit count is the
+     * number of segments served from prefetched segments.
+     */
+    @NotNull
+    public CacheStatsMBean getSegmentPrefetchStats() {
+        return segmentPrefetcher.getStats();
+    }
+
     @NotNull
     public CacheStatsMBean getStringCacheStats() {
         return segmentReader.getStringCacheStats();
@@ -301,6 +314,24 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
         return new Segment(tracker, segmentReader, id, buffer);
     }
 
+    /**
+     * Load a segment not found in the segment cache, from the segments read
+     * ahead by the {@link SegmentPrefetcher} if available.
+     */
+    Segment loadSegment(TarFiles tarFiles, SegmentId id) {
+        return segmentPrefetcher.loadSegment(id,
+                sid -> readSegmentUncached(tarFiles, sid),
+                sid -> prefetchSegment(tarFiles, sid));
+    }
+
+    /**
+     * Read a segment ahead of its use, on a thread of the {@link
+     * SegmentPrefetcher}.
+     */
+    Segment prefetchSegment(TarFiles tarFiles, SegmentId id) {
+        return readSegmentUncached(tarFiles, id);
+    }
+
     /**
      * Finds all external blob references that are currently accessible
      * in this repository and adds them to the given collector. Useful
@@ -314,4 +345,27 @@ public abstract class AbstractFileStore implements SegmentStore, Closeable {
      * @param collector  reference collector called back for each blob reference found
      */
     public abstract void collectBlobReferences(Consumer<String> collector) throws IOException;
+
+    /**
+     * Determine the TAR files whose blob references are collected by {@link
+     * #collectBlobReferences(TarFiles.BlobReferenceSnapshot, Consumer, int, int)}.
+     * Pending segments are flushed once, when the snapshot is taken.
+     * @return the snapshot of the TAR files
+     */
+    public abstract TarFiles.BlobReferenceSnapshot snapshotBlobReferences() throws IOException;
+
+    /**
+     * Like {@link #collectBlobReferences(Consumer)}, but only collects the
+     * blob references of one partition of a snapshot of the TAR files.
+     * Collecting all the partitions from {@code 0} to {@code partitions - 1}
+     * finds all the blob references, which allows to collect them
+     * concurrently.
+     * @param snapshot    the snapshot of the TAR files
+     * @param collector   reference collector called back for each blob reference found
+     * @param partitions  the total number of partitions
+     * @param partition   the partition to collect
+     */
+    public void collectBlobReferences(TarFiles.BlobReferenceSnapshot snapshot, Consumer<String> collector, int partitions, int partition) throws IOException {
+        snapshot.collectBlobReferences(collector, partitions, partition);
+    }
 }
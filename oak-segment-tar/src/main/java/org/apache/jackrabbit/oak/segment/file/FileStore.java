@@ -446,6 +446,20 @@ public class FileStore extends AbstractFileStore {
         }
     }
 
+    @Override
+    public TarFiles.BlobReferenceSnapshot snapshotBlobReferences() throws IOException {
+        try (ShutDownCloser ignored = shutDown.keepAlive()) {
+            return garbageCollector.snapshotBlobReferences();
+        }
+    }
+
+    @Override
+    public void collectBlobReferences(TarFiles.BlobReferenceSnapshot snapshot, Consumer<String> collector, int partitions, int partition) throws IOException {
+        try (ShutDownCloser ignored = shutDown.keepAlive()) {
+            super.collectBlobReferences(snapshot, collector, partitions, partition);
+        }
+    }
+
     /**
      * Cancel a running revision garbage collection compaction process as soon as possible.
      * Does nothing if gc is not running.
@@ -483,6 +497,9 @@ public class FileStore extends AbstractFileStore {
                 log.warn("Unable to flush the store", e);
             }
 
+            // stop reading ahead before closing the TAR files
+            segmentPrefetcher.close();
+
             Closer closer = Closer.create();
             closer.register(repositoryLock::unlock);
             closer.register(tarFiles) ;
@@ -509,7 +526,7 @@ public class FileStore extends AbstractFileStore {
     @NotNull
     public Segment readSegment(final SegmentId id) {
         try (ShutDownCloser ignored = shutDown.keepAlive()) {
-            return segmentCache.getSegment(id, () -> readSegmentUncached(tarFiles, id));
+            return segmentCache.getSegment(id, () -> loadSegment(tarFiles, id));
         } catch (ExecutionException | UncheckedExecutionException e) {
             if (e.getCause() instanceof RepositoryNotReachableException) {
                 RepositoryNotReachableException re = (RepositoryNotReachableException) e.getCause();
@@ -524,6 +541,13 @@ public class FileStore extends AbstractFileStore {
         }
     }
 
+    @Override
+    Segment prefetchSegment(TarFiles tarFiles, SegmentId id) {
+        try (ShutDownCloser ignored = shutDown.keepAlive()) {
+            return super.prefetchSegment(tarFiles, id);
+        }
+    }
+
     @Override
     public void writeSegment(SegmentId id, byte[] buffer, int offset, int length) throws IOException {
         try (ShutDownCloser ignored = shutDown.keepAlive()) {
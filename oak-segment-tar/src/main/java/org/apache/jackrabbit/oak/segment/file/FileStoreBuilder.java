@@ -98,6 +98,8 @@ public class FileStoreBuilder {
     
     private int binariesInlineThreshold = Segment.MEDIUM_LIMIT;
 
+    private int segmentPrefetchThreads = Integer.getInteger("oak.segment.prefetch.threads", 0);
+
     private SegmentNodeStorePersistence persistence;
 
     @NotNull
@@ -409,6 +411,20 @@ public class FileStoreBuilder {
         return this;
     }
 
+    /**
+     * Number of threads reading ahead the segments referenced by segments
+     * loaded while traversing the repository. Read-ahead is disabled for
+     * non positive values, which is the default.
+     *
+     * @param segmentPrefetchThreads number of read-ahead threads
+     * @return this instance
+     */
+    @NotNull
+    public FileStoreBuilder withSegmentPrefetchThreads(int segmentPrefetchThreads) {
+        this.segmentPrefetchThreads = segmentPrefetchThreads;
+        return this;
+    }
+
     public Backend buildProcBackend(AbstractFileStore fileStore) throws IOException {
         return new FileStoreProcBackend(fileStore, persistence);
     }
@@ -591,6 +607,10 @@ public class FileStoreBuilder {
         return binariesInlineThreshold;
     }
 
+    int getSegmentPrefetchThreads() {
+        return segmentPrefetchThreads;
+    }
+
     @Override
     public String toString() {
         return "FileStoreBuilder{" +
@@ -607,6 +627,7 @@ public class FileStoreBuilder {
                 ", nodeDeduplicationCacheSize=" + nodeDeduplicationCacheSize +
                 ", memoryMapping=" + memoryMapping +
                 ", offHeapAccess=" + offHeapAccess +
+                ", segmentPrefetchThreads=" + segmentPrefetchThreads +
                 ", gcOptions=" + gcOptions +
                 '}';
     }
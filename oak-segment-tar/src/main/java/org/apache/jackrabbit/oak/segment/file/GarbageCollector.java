@@ -324,6 +324,20 @@ class GarbageCollector {
             newOldReclaimer(lastCompactionType, getGcGeneration(), gcOptions.getRetainedGenerations()));
     }
 
+    /**
+     * Flush the pending segments and determine the TAR files whose blob
+     * references are collected. Unlike {@link
+     * #collectBlobReferences(Consumer)}, the references are collected
+     * outside of this monitor, one partition at a time.
+     *
+     * @return the snapshot of the TAR files
+     */
+    synchronized TarFiles.BlobReferenceSnapshot snapshotBlobReferences() throws IOException {
+        segmentWriter.flush();
+        return tarFiles.snapshotBlobReferences(
+            newOldReclaimer(lastCompactionType, getGcGeneration(), gcOptions.getRetainedGenerations()));
+    }
+
     void cancel() {
         cancelRequested = true;
     }
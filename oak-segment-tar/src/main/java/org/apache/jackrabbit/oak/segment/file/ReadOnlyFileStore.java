@@ -123,7 +123,7 @@ public class ReadOnlyFileStore extends AbstractFileStore {
             return segmentCache.getSegment(id, new Callable<Segment>() {
                 @Override
                 public Segment call() throws Exception {
-                    return readSegmentUncached(tarFiles, id);
+                    return loadSegment(tarFiles, id);
                 }
             });
         } catch (ExecutionException | UncheckedExecutionException e) {
@@ -136,6 +136,7 @@ public class ReadOnlyFileStore extends AbstractFileStore {
         Closer closer = Closer.create();
         closer.register(tarFiles);
         closer.register(revisions);
+        closer.register(segmentPrefetcher);
         closeAndLogOnFail(closer);
         System.gc(); // for any memory-mappings that are no longer used
         log.info("TarMK closed: {}", directory);
@@ -179,4 +180,10 @@ public class ReadOnlyFileStore extends AbstractFileStore {
         tarFiles.collectBlobReferences(collector,
             newOldReclaimer(SegmentGCOptions.GCType.FULL, revisions.getHead().getSegmentId().getGcGeneration(), gcRetainedGenerations));
     }
+
+    @Override
+    public TarFiles.BlobReferenceSnapshot snapshotBlobReferences() throws IOException {
+        return tarFiles.snapshotBlobReferences(
+            newOldReclaimer(SegmentGCOptions.GCType.FULL, revisions.getHead().getSegmentId().getGcGeneration(), gcRetainedGenerations));
+    }
 }
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.jackrabbit.guava.common.cache.CacheStats;
+import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
+import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentCache;
+import org.apache.jackrabbit.oak.segment.SegmentId;
+import org.apache.jackrabbit.oak.segment.SegmentIdProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-ahead of segments for traversal workloads. When a segment loaded from
+ * disk is referenced by a segment loaded shortly before, the store is assumed
+ * to be walking the segment graph and the segments referenced by the loaded
+ * segment are read in the background.
+ * <p>
+ * Prefetched segments are kept in a small bounded buffer and handed over to
+ * the {@link SegmentCache} on their first access. Segments which are not
+ * accessed before being pushed out of the buffer are discarded. The
+ * effectiveness of the prefetcher is reported through {@link #getStats()}:
+ * hits are loads served from the buffer, misses are loads which had to go to
+ * disk and evictions are prefetched segments which were never used.
+ */
+class SegmentPrefetcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentPrefetcher.class);
+
+    private static final String NAME = "Segment Prefetch";
+
+    /**
+     * Number of consecutive loads following references after which a
+     * traversal is assumed.
+     */
+    static final int TRAVERSAL_THRESHOLD = Integer.getInteger("oak.segment.prefetch.threshold", 2);
+
+    /**
+     * Maximum number of prefetched segments kept until they are accessed.
+     */
+    static final int MAX_PREFETCHED = Integer.getInteger("oak.segment.prefetch.maxSegments", 64);
+
+    private static final int MAX_RECENT_REFERENCES = 1024;
+
+    @Nullable
+    private final ThreadPoolExecutor executor;
+
+    @NotNull
+    private final SegmentIdProvider idProvider;
+
+    @NotNull
+    private final SegmentCache segmentCache;
+
+    /**
+     * Segments referenced by recently loaded segments.
+     */
+    private final Map<UUID, Boolean> recentReferences = new LinkedHashMap<UUID, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > MAX_RECENT_REFERENCES;
+        }
+    };
+
+    /**
+     * Segments read ahead and not accessed yet.
+     */
+    private final Map<SegmentId, Segment> prefetched = new LinkedHashMap<SegmentId, Segment>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SegmentId, Segment> eldest) {
+            if (size() > MAX_PREFETCHED) {
+                stats.evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final Set<SegmentId> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger traversalLength = new AtomicInteger();
+
+    private final Stats stats = new Stats();
+
+    /**
+     * @param threads      number of threads reading ahead. Read-ahead is
+     *                     disabled if not positive.
+     * @param idProvider   provider of the ids of referenced segments
+     * @param segmentCache the segment cache, used to skip segments already
+     *                     cached
+     */
+    SegmentPrefetcher(int threads, @NotNull SegmentIdProvider idProvider, @NotNull SegmentCache segmentCache) {
+        this.idProvider = idProvider;
+        this.segmentCache = segmentCache;
+        if (threads > 0) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(MAX_PREFETCHED), new PrefetchThreadFactory());
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Load a segment, preferring a previously prefetched copy over the
+     * {@code loader}. The segments referenced by the loaded segment are
+     * prefetched if the load is part of a traversal.
+     *
+     * @param id             the id of the segment to load
+     * @param loader         the loader reading a segment from disk
+     * @param prefetchLoader the loader reading a segment from disk on the
+     *                       threads reading ahead
+     * @return the segment identified by {@code id}
+     */
+    @NotNull
+    Segment loadSegment(@NotNull SegmentId id, @NotNull Function<SegmentId, Segment> loader,
+            @NotNull Function<SegmentId, Segment> prefetchLoader) {
+        if (executor == null || !id.isDataSegmentId()) {
+            return loader.apply(id);
+        }
+
+        Segment segment;
+        synchronized (prefetched) {
+            segment = prefetched.remove(id);
+        }
+        if (segment != null) {
+            stats.hitCount.incrementAndGet();
+        } else {
+            stats.missCount.incrementAndGet();
+            segment = loader.apply(id);
+        }
+
+        if (isTraversing(segment)) {
+            prefetchReferences(segment, prefetchLoader);
+        }
+        return segment;
+    }
+
+    private boolean isTraversing(Segment segment) {
+        boolean referenced;
+        synchronized (recentReferences) {
+            referenced = recentReferences.remove(segment.getSegmentId().asUUID()) != null;
+            for (int i = 0; i < segment.getReferencedSegmentIdCount(); i++) {
+                recentReferences.put(segment.getReferencedSegmentId(i), Boolean.TRUE);
+            }
+        }
+        if (referenced) {
+            return traversalLength.incrementAndGet() >= TRAVERSAL_THRESHOLD;
+        } else {
+            traversalLength.set(0);
+            return false;
+        }
+    }
+
+    private void prefetchReferences(Segment segment, Function<SegmentId, Segment> loader) {
+        for (int i = 0; i < segment.getReferencedSegmentIdCount(); i++) {
+            UUID uuid = segment.getReferencedSegmentId(i);
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            if (!SegmentId.isDataSegmentId(lsb)) {
+                continue;
+            }
+            SegmentId id = idProvider.newSegmentId(msb, lsb);
+            if (segmentCache.containsSegment(id) || isPrefetched(id) || !inFlight.add(id)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> prefetch(id, loader));
+            } catch (RejectedExecutionException e) {
+                // Queue full or shutting down: don't read further ahead
+                inFlight.remove(id);
+                return;
+            }
+        }
+    }
+
+    private boolean isPrefetched(SegmentId id) {
+        synchronized (prefetched) {
+            return prefetched.containsKey(id);
+        }
+    }
+
+    private void prefetch(SegmentId id, Function<SegmentId, Segment> loader) {
+        long t0 = System.nanoTime();
+        try {
+            if (segmentCache.containsSegment(id)) {
+                return;
+            }
+            Segment segment = loader.apply(id);
+            synchronized (prefetched) {
+                prefetched.put(id, segment);
+            }
+            stats.loadSuccessCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            // The segment will be read again when accessed, and the
+            // error reported at that point if it persists
+            log.debug("Unable to prefetch segment {}", id, e);
+            stats.loadExceptionCount.incrementAndGet();
+        } finally {
+            stats.loadTime.addAndGet(System.nanoTime() - t0);
+            inFlight.remove(id);
+        }
+    }
+
+    @NotNull
+    AbstractCacheStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        synchronized (prefetched) {
+            prefetched.clear();
+        }
+    }
+
+    private int size() {
+        synchronized (prefetched) {
+            return prefetched.size();
+        }
+    }
+
+    private class Stats extends AbstractCacheStats {
+
+        final AtomicLong hitCount = new AtomicLong();
+
+        final AtomicLong missCount = new AtomicLong();
+
+        final AtomicLong loadSuccessCount = new AtomicLong();
+
+        final AtomicLong loadExceptionCount = new AtomicLong();
+
+        final AtomicLong loadTime = new AtomicLong();
+
+        final AtomicLong evictionCount = new AtomicLong();
+
+        Stats() {
+            super(NAME);
+        }
+
+        @Override
+        protected CacheStats getCurrentStats() {
+            return new CacheStats(
+                    hitCount.get(),
+                    missCount.get(),
+                    loadSuccessCount.get(),
+                    loadExceptionCount.get(),
+                    loadTime.get(),
+                    evictionCount.get()
+            );
+        }
+
+        @Override
+        public long getElementCount() {
+            return size();
+        }
+
+        @Override
+        public long getMaxTotalWeight() {
+            return MAX_PREFETCHED;
+        }
+
+        @Override
+        public long estimateCurrentWeight() {
+            return size();
+        }
+    }
+
+    private static class PrefetchThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "segment-prefetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
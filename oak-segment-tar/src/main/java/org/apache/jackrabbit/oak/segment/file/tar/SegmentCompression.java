@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file.tar;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.jackrabbit.oak.commons.Buffer;
+
+/**
+ * Compression of segment entries in TAR archives. A compressed entry is
+ * flagged in the index of the archive and its TAR entry name carries the
+ * {@link #COMPRESSED_ENTRY_SUFFIX}. The compressed data is prefixed by the
+ * length of the uncompressed segment (4 bytes).
+ * <p>
+ * Compression is disabled by default and can be enabled by setting the
+ * system property {@link #COMPRESSION_PROPERTY} to {@code deflate}. Archives
+ * which contain compressed entries are written with a new index format
+ * version which can't be read by older versions of Oak.
+ */
+final class SegmentCompression {
+
+    static final String COMPRESSION_PROPERTY = "oak.segment.tar.compression";
+
+    static final String COMPRESSED_ENTRY_SUFFIX = ".z";
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private SegmentCompression() {
+        // Prevent instantiation.
+    }
+
+    static boolean isCompressionEnabled() {
+        return "deflate".equalsIgnoreCase(System.getProperty(COMPRESSION_PROPERTY));
+    }
+
+    /**
+     * Compress a segment.
+     *
+     * @return the compressed segment, or {@code null} if compression would not
+     * reduce the size of the segment.
+     */
+    static byte[] compress(byte[] data, int offset, int size) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        try {
+            deflater.setInput(data, offset, size);
+            deflater.finish();
+
+            // not worth it if the compressed data doesn't fit in less
+            // space than the uncompressed one
+            byte[] compressed = new byte[size];
+            int length = Integer.BYTES;
+            while (!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            if (!deflater.finished() || length >= size) {
+                return null;
+            }
+
+            Buffer.wrap(compressed).putInt(size);
+            byte[] result = new byte[length];
+            System.arraycopy(compressed, 0, result, 0, length);
+            return result;
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decompress a segment previously compressed with {@link #compress(byte[], int, int)}.
+     * The compressed data is read from the current position to the limit of
+     * the given buffer.
+     */
+    static Buffer decompress(Buffer compressed) throws IOException {
+        int size = compressed.getInt();
+        int length = compressed.remaining();
+
+        byte[] input = buffers.poll();
+        if (input == null || input.length < length) {
+            input = new byte[length];
+        }
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            compressed.get(input, 0, length);
+            inflater.setInput(input, 0, length);
+
+            Buffer data = Buffer.allocate(size);
+            byte[] output = data.array();
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int inflated = inflater.inflate(output, n, size - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != size) {
+                throw new IOException("Invalid compressed segment: expected " + size + " bytes, got " + n);
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed segment", e);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+            buffers.offer(input);
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.file.tar;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash table mapping segment identifiers to the index of the TAR file
+ * containing them, e.g. {@code 12} for {@code data00012a.tar}. The index of a
+ * TAR file doesn't change when it is swept by the garbage collector, only its
+ * generation does.
+ * <p>
+ * The table uses open addressing with linear probing and is stored off-heap.
+ * Every entry takes 20 bytes: the most and least significant bits of the
+ * segment identifier and the TAR file index plus one. A TAR file index of
+ * {@code 0} marks a free slot and {@code -1} a removed entry.
+ * <p>
+ * This class is not thread safe. Modifications must be serialised with
+ * respect to lookups by the caller.
+ */
+final class SegmentLocationIndex {
+
+    private static final int ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final int FREE = 0;
+
+    private static final int REMOVED = -1;
+
+    private ByteBuffer table;
+
+    private int capacity;
+
+    private int size;
+
+    private int removed;
+
+    SegmentLocationIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.table = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE);
+        this.capacity = capacity;
+        this.size = 0;
+        this.removed = 0;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * @return the slot containing the given segment, or the free slot where
+     * it should be inserted.
+     */
+    private int find(long msb, long lsb) {
+        int mask = capacity - 1;
+        int slot = hash(msb, lsb) & mask;
+        int firstRemoved = -1;
+        while (true) {
+            int position = slot * ENTRY_SIZE;
+            int tar = table.getInt(position + 2 * Long.BYTES);
+            if (tar == FREE) {
+                return firstRemoved >= 0 ? firstRemoved : slot;
+            }
+            if (tar == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = slot;
+                }
+            } else if (table.getLong(position) == msb && table.getLong(position + Long.BYTES) == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int slot, long msb, long lsb) {
+        int position = slot * ENTRY_SIZE;
+        int tar = table.getInt(position + 2 * Long.BYTES);
+        return tar != FREE && tar != REMOVED
+                && table.getLong(position) == msb
+                && table.getLong(position + Long.BYTES) == lsb;
+    }
+
+    /**
+     * Record the location of a segment, replacing a previous one.
+     *
+     * @param msb      the most significant bits of the segment identifier
+     * @param lsb      the least significant bits of the segment identifier
+     * @param tarIndex the index of the TAR file containing the segment
+     */
+    void put(long msb, long lsb, int tarIndex) {
+        if ((size + removed + 1) * 4L > capacity * 3L) {
+            rehash(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(size + 1, 1)) * 4));
+        }
+        int slot = find(msb, lsb);
+        int position = slot * ENTRY_SIZE;
+        int tar = table.getInt(position + 2 * Long.BYTES);
+        if (tar == FREE || tar == REMOVED) {
+            size++;
+            if (tar == REMOVED) {
+                removed--;
+            }
+            table.putLong(position, msb);
+            table.putLong(position + Long.BYTES, lsb);
+        }
+        table.putInt(position + 2 * Long.BYTES, tarIndex + 1);
+    }
+
+    /**
+     * @param msb the most significant bits of the segment identifier
+     * @param lsb the least significant bits of the segment identifier
+     * @return the index of the TAR file containing the segment, or {@code -1}
+     * if the location of the segment is not known.
+     */
+    int get(long msb, long lsb) {
+        int slot = find(msb, lsb);
+        if (matches(slot, msb, lsb)) {
+            return table.getInt(slot * ENTRY_SIZE + 2 * Long.BYTES) - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Forget the location of a segment.
+     *
+     * @param msb the most significant bits of the segment identifier
+     * @param lsb the least significant bits of the segment identifier
+     */
+    void remove(long msb, long lsb) {
+        int slot = find(msb, lsb);
+        if (matches(slot, msb, lsb)) {
+            table.putInt(slot * ENTRY_SIZE + 2 * Long.BYTES, REMOVED);
+            size--;
+            removed++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int newCapacity) {
+        ByteBuffer oldTable = table;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = slot * ENTRY_SIZE;
+            int tar = oldTable.getInt(position + 2 * Long.BYTES);
+            if (tar != FREE && tar != REMOVED) {
+                put(oldTable.getLong(position), oldTable.getLong(position + Long.BYTES), tar - 1);
+            }
+        }
+    }
+
+}
@@ -134,7 +134,8 @@ public class SegmentTarManager implements SegmentArchiveManager {
 
     @Override
     public SegmentArchiveWriter create(String archiveName) {
-        return new SegmentTarWriter(new File(segmentstoreDir, archiveName), fileStoreMonitor, ioMonitor);
+        return new SegmentTarWriter(new File(segmentstoreDir, archiveName), fileStoreMonitor, ioMonitor,
+                SegmentCompression.isCompressionEnabled());
     }
 
     @Override
@@ -260,6 +261,16 @@ public class SegmentTarManager implements SegmentArchiveManager {
                         access.seek(position + (BLOCK_SIZE - remainder));
                     }
 
+                    if (SegmentCompression.COMPRESSED_ENTRY_SUFFIX.equals(matcher.group(4))) {
+                        try {
+                            data = SegmentCompression.decompress(wrap(data)).array();
+                        } catch (IOException e) {
+                            log.warn("Invalid compressed entry {} in tar file {}, skipping...",
+                                    name, file);
+                            continue;
+                        }
+                    }
+
                     if (checksum != null) {
                         CRC32 crc = new CRC32();
                         crc.update(data, 0, data.length);
@@ -83,6 +83,9 @@ public class SegmentTarReader implements SegmentArchiveReader {
         Buffer buffer = access.read(indexEntry.getPosition(), indexEntry.getLength());
         long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
         ioMonitor.afterSegmentRead(file, msb, lsb, indexEntry.getLength(), elapsed);
+        if (indexEntry.isCompressed()) {
+            return SegmentCompression.decompress(buffer);
+        }
         return buffer;
     }
 
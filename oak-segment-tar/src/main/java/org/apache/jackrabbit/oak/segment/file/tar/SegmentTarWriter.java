@@ -86,10 +86,20 @@ public class SegmentTarWriter implements SegmentArchiveWriter {
 
     private volatile long length;
 
+    /**
+     * Whether segments are compressed before being written.
+     */
+    private final boolean compression;
+
     public SegmentTarWriter(File file, FileStoreMonitor monitor, IOMonitor ioMonitor) {
+        this(file, monitor, ioMonitor, false);
+    }
+
+    public SegmentTarWriter(File file, FileStoreMonitor monitor, IOMonitor ioMonitor, boolean compression) {
         this.file = file;
         this.monitor = monitor;
         this.ioMonitor = ioMonitor;
+        this.compression = compression;
     }
 
     @Override
@@ -98,6 +108,17 @@ public class SegmentTarWriter implements SegmentArchiveWriter {
         CRC32 checksum = new CRC32();
         checksum.update(data, offset, size);
         String entryName = String.format("%s.%08x", uuid, checksum.getValue());
+
+        // The checksum in the entry name is always the one of the uncompressed
+        // segment, the suffix tells recovery to decompress the entry first.
+        byte[] compressed = compression ? SegmentCompression.compress(data, offset, size) : null;
+        if (compressed != null) {
+            entryName += SegmentCompression.COMPRESSED_ENTRY_SUFFIX;
+            data = compressed;
+            offset = 0;
+            size = compressed.length;
+        }
+
         byte[] header = newEntryHeader(entryName, size);
 
         log.debug("Writing segment {} to {}", uuid, file);
@@ -129,7 +150,7 @@ public class SegmentTarWriter implements SegmentArchiveWriter {
 
         length = currentLength;
 
-        index.put(new UUID(msb, lsb), new SimpleIndexEntry(msb, lsb, (int) dataOffset, size, generation, fullGeneration, compacted));
+        index.put(new UUID(msb, lsb), new SimpleIndexEntry(msb, lsb, (int) dataOffset, size, generation, fullGeneration, compacted, compressed != null));
     }
 
     @Override
@@ -144,6 +165,9 @@ public class SegmentTarWriter implements SegmentArchiveWriter {
             throw new EOFException();
         }
         data.rewind();
+        if (indexEntry.isCompressed()) {
+            return SegmentCompression.decompress(data);
+        }
         return data;
     }
 
@@ -201,7 +225,8 @@ public class SegmentTarWriter implements SegmentArchiveWriter {
                     entry.getLength(),
                     entry.getGeneration(),
                     entry.getFullGeneration(),
-                    entry.isCompacted()
+                    entry.isCompacted(),
+                    entry.isCompressed()
             );
         }
 
@@ -22,6 +22,7 @@ import static org.apache.jackrabbit.guava.common.base.Preconditions.checkState;
 import static org.apache.jackrabbit.guava.common.collect.Lists.newArrayList;
 
 import static org.apache.jackrabbit.guava.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 
 import java.io.Closeable;
@@ -55,6 +56,7 @@ import org.apache.jackrabbit.oak.segment.spi.monitor.FileStoreMonitor;
 import org.apache.jackrabbit.oak.segment.spi.monitor.FileStoreMonitorAdapter;
 import org.apache.jackrabbit.oak.segment.spi.monitor.IOMonitor;
 import org.apache.jackrabbit.oak.segment.spi.monitor.RemoteStoreMonitor;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveEntry;
 import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveManager;
 import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.apache.jackrabbit.oak.stats.CounterStats;
@@ -110,6 +112,63 @@ public class TarFiles implements Closeable {
 
     }
 
+    /**
+     * The TAR files whose blob references are collected by a blob garbage
+     * collection. The TAR files are assigned to partitions by their index,
+     * which stays the same when a TAR file is swept by the garbage collector.
+     * <p>
+     * The TAR readers are only resolved when a partition is collected, while
+     * holding the lock which prevents {@link #cleanup(CleanupContext)} from
+     * closing swept TAR readers. A TAR file swept in the meantime is read in
+     * its swept version, which only lacks the reclaimed segments.
+     */
+    public static class BlobReferenceSnapshot {
+
+        private final TarFiles tarFiles;
+
+        private final Set<Integer> indices;
+
+        private final Predicate<GCGeneration> reclaim;
+
+        private BlobReferenceSnapshot(TarFiles tarFiles, Set<Integer> indices, Predicate<GCGeneration> reclaim) {
+            this.tarFiles = tarFiles;
+            this.indices = indices;
+            this.reclaim = reclaim;
+        }
+
+        /**
+         * Collect the blob references of one partition of the TAR files.
+         *
+         * @param collector  called back for each blob reference found
+         * @param partitions the total number of partitions
+         * @param partition  the partition to collect, between {@code 0} and
+         *                   {@code partitions - 1}
+         */
+        public void collectBlobReferences(Consumer<String> collector, int partitions, int partition) {
+            checkArgument(partitions > 0, "partitions must be positive");
+            checkArgument(partition >= 0 && partition < partitions, "invalid partition");
+            tarFiles.closeLock.readLock().lock();
+            try {
+                Node head;
+                tarFiles.lock.readLock().lock();
+                try {
+                    head = tarFiles.readers;
+                } finally {
+                    tarFiles.lock.readLock().unlock();
+                }
+                for (TarReader reader : iterable(head)) {
+                    int index = getTarIndex(reader.getFileName());
+                    if (indices.contains(index) && Math.floorMod(index, partitions) == partition) {
+                        reader.collectBlobReferences(collector, reclaim);
+                    }
+                }
+            } finally {
+                tarFiles.closeLock.readLock().unlock();
+            }
+        }
+
+    }
+
     public static class Builder {
 
         private File directory;
@@ -262,6 +321,14 @@ public class TarFiles implements Closeable {
 
     private static final Pattern FILE_NAME_PATTERN = Pattern.compile("(data)((0|[1-9][0-9]*)[0-9]{4})([a-z])?.tar");
 
+    /**
+     * Whether the location of the segments is recorded in a {@link
+     * SegmentLocationIndex} to avoid searching every TAR reader when reading
+     * a segment. Enabled by default.
+     */
+    private static final boolean LOCATION_INDEX_ENABLED =
+            Boolean.parseBoolean(System.getProperty("oak.segment.tar.locationIndex", "true"));
+
     private static Node reverse(Node n) {
         Node r = null;
         while (n != null) {
@@ -307,6 +374,36 @@ public class TarFiles implements Closeable {
         };
     }
 
+    private static int getTarIndex(String fileName) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(fileName);
+        if (matcher.matches()) {
+            return Integer.parseInt(matcher.group(2));
+        }
+        return -1;
+    }
+
+    private static Map<Integer, TarReader> indexReaders(Node head) {
+        Map<Integer, TarReader> byIndex = new HashMap<>();
+        for (TarReader reader : iterable(head)) {
+            byIndex.put(getTarIndex(reader.getFileName()), reader);
+        }
+        return byIndex;
+    }
+
+    /**
+     * @return the TAR readers whose segments are not recorded in the
+     * location index, in the same order.
+     */
+    private static Node unindexedReaders(Node head, boolean all) {
+        Node unindexed = null;
+        for (TarReader reader : iterable(head)) {
+            if (all || getTarIndex(reader.getFileName()) < 0) {
+                unindexed = new Node(reader, unindexed);
+            }
+        }
+        return reverse(unindexed);
+    }
+
     private static Map<Integer, Map<Character, String>> collectFiles(SegmentArchiveManager archiveManager) throws IOException {
         Map<Integer, Map<Character, String>> dataFiles = new HashMap<>();
         for (String file : archiveManager.listArchives()) {
@@ -341,6 +438,14 @@ public class TarFiles implements Closeable {
      */
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * Held in read mode while the blob references of a {@link
+     * BlobReferenceSnapshot} are collected, and in write mode while the TAR
+     * readers swept by {@link #cleanup(CleanupContext)} are closed, so that
+     * no TAR reader is closed under a running collection.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
     /**
      * Points to the first node of the linked list of TAR readers. Every node in
      * the linked list is immutable. Thus, you need to to hold {@link #lock}
@@ -359,6 +464,27 @@ public class TarFiles implements Closeable {
      */
     private TarWriter writer;
 
+    /**
+     * Location of the segments in the TAR readers, or {@code null} if
+     * disabled. Avoids searching the index of every TAR reader for a segment.
+     * Its access is protected by {@link #lock}.
+     */
+    private final SegmentLocationIndex locations;
+
+    /**
+     * The TAR readers of {@link #readers} by the index of their TAR file.
+     * Its access is protected by {@link #lock}.
+     */
+    private Map<Integer, TarReader> readersByIndex = emptyMap();
+
+    /**
+     * The TAR readers of {@link #readers} whose segments are not recorded in
+     * {@link #locations}, that is all of them if the location index is
+     * disabled. A segment missing from the location index can only be in
+     * one of these. Its access is protected by {@link #lock}.
+     */
+    private Node unindexed;
+
     /**
      * If {@code true}, a user requested this instance to close. This flag is
      * used in long running, background operations - like {@link
@@ -396,6 +522,7 @@ public class TarFiles implements Closeable {
         segmentCount = builder.segmentCountStats;
         readOnly = builder.readOnly;
         tarRecovery = builder.tarRecovery;
+        locations = LOCATION_INDEX_ENABLED ? new SegmentLocationIndex() : null;
 
         if (builder.initialiseReadersAndWriters) {
             init();
@@ -422,7 +549,9 @@ public class TarFiles implements Closeable {
             segmentCount.inc(getSegmentCount(r));
             readers = new Node(r, readers);
             readerCount.inc();
+            addLocations(r);
         }
+        updateReaderIndex(readers);
         if (!readOnly) {
             int writeNumber = 0;
             if (indices.length > 0) {
@@ -434,6 +563,52 @@ public class TarFiles implements Closeable {
         initialised = true;
     }
 
+    /**
+     * Record the location of the segments of a TAR reader. This method must
+     * be invoked while holding {@link #lock} in write mode, unless the
+     * instance is being initialised.
+     */
+    private void addLocations(TarReader reader) {
+        if (locations == null) {
+            return;
+        }
+        int index = getTarIndex(reader.getFileName());
+        if (index < 0) {
+            return;
+        }
+        for (SegmentArchiveEntry entry : reader.getEntries()) {
+            locations.put(entry.getMsb(), entry.getLsb(), index);
+        }
+    }
+
+    /**
+     * Update the lookup structures derived from the list of TAR readers. This
+     * method must be invoked while holding {@link #lock} in write mode, unless
+     * the instance is being initialised.
+     */
+    private void updateReaderIndex(Node head) {
+        readersByIndex = indexReaders(head);
+        unindexed = unindexedReaders(head, locations == null);
+    }
+
+    /**
+     * Find the TAR reader containing a segment from its recorded location.
+     * This method must be invoked while holding {@link #lock}.
+     *
+     * @return the TAR reader, or {@code null} if the location of the segment
+     * is not known.
+     */
+    private TarReader locate(long msb, long lsb) {
+        if (locations == null) {
+            return null;
+        }
+        int index = locations.get(msb, lsb);
+        if (index < 0) {
+            return null;
+        }
+        return readersByIndex.get(index);
+    }
+
     private void checkInitialised() {
         if (!initialised) {
             throw new IllegalRepositoryStateException("TarFiles not initialised");
@@ -572,6 +747,7 @@ public class TarFiles implements Closeable {
 
     public boolean containsSegment(long msb, long lsb) {
         Node head;
+        TarReader located;
 
         lock.readLock().lock();
         try {
@@ -580,11 +756,16 @@ public class TarFiles implements Closeable {
                     return true;
                 }
             }
-            head = readers;
+            head = unindexed;
+            located = locate(msb, lsb);
         } finally {
             lock.readLock().unlock();
         }
 
+        if (located != null && located.containsEntry(msb, lsb)) {
+            return true;
+        }
+
         for (TarReader reader : iterable(head)) {
             if (reader.containsEntry(msb, lsb)) {
                 return true;
@@ -596,6 +777,7 @@ public class TarFiles implements Closeable {
     public Buffer readSegment(long msb, long lsb) {
         try {
             Node head;
+            TarReader located;
 
             lock.readLock().lock();
             try {
@@ -605,11 +787,21 @@ public class TarFiles implements Closeable {
                         return b;
                     }
                 }
-                head = readers;
+                head = unindexed;
+                located = locate(msb, lsb);
             } finally {
                 lock.readLock().unlock();
             }
 
+            // The location index is authoritative for the TAR readers it
+            // covers, only the other ones need to be searched.
+            if (located != null) {
+                Buffer b = located.readEntry(msb, lsb);
+                if (b != null) {
+                    return b;
+                }
+            }
+
             for (TarReader reader : iterable(head)) {
                 Buffer b = reader.readEntry(msb, lsb);
                 if (b != null) {
@@ -672,6 +864,8 @@ public class TarFiles implements Closeable {
         readers = new Node(reader, readers);
         segmentCount.inc(getSegmentCount(reader));
         readerCount.inc();
+        addLocations(reader);
+        updateReaderIndex(readers);
         writer = newWriter;
     }
 
@@ -804,6 +998,12 @@ public class TarFiles implements Closeable {
             try {
                 if (readers == head) {
                     readers = swept;
+                    updateReaderIndex(swept);
+                    if (locations != null) {
+                        for (UUID id : result.reclaimedSegmentIds) {
+                            locations.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+                        }
+                    }
                     break;
                 } else {
                     head = readers;
@@ -817,13 +1017,18 @@ public class TarFiles implements Closeable {
 
         result.reclaimedSize -= reclaimed;
 
-        for (TarReader closeable : iterable(closeables)) {
-            try {
-                closeable.close();
-            } catch (IOException e) {
-                log.warn("Unable to close swept TAR reader", e);
+        closeLock.writeLock().lock();
+        try {
+            for (TarReader closeable : iterable(closeables)) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Unable to close swept TAR reader", e);
+                }
+                result.removableFiles.add(closeable.getFileName());
             }
-            result.removableFiles.add(closeable.getFileName());
+        } finally {
+            closeLock.writeLock().unlock();
         }
 
         return result;
@@ -838,6 +1043,18 @@ public class TarFiles implements Closeable {
     }
 
     public void collectBlobReferences(Consumer<String> collector, Predicate<GCGeneration> reclaim) throws IOException {
+        snapshotBlobReferences(reclaim).collectBlobReferences(collector, 1, 0);
+    }
+
+    /**
+     * Start a new TAR file and return the TAR files existing at this point,
+     * whose blob references can then be collected in partitions without
+     * holding the lock of the TAR readers and writer.
+     *
+     * @param reclaim the generations whose references are skipped
+     * @return the snapshot of the TAR files
+     */
+    public BlobReferenceSnapshot snapshotBlobReferences(Predicate<GCGeneration> reclaim) throws IOException {
         checkInitialised();
         Node head;
         lock.writeLock().lock();
@@ -849,10 +1066,11 @@ public class TarFiles implements Closeable {
         } finally {
             lock.writeLock().unlock();
         }
-
+        Set<Integer> indices = new HashSet<>();
         for (TarReader reader : iterable(head)) {
-            reader.collectBlobReferences(collector, reclaim);
+            indices.add(getTarIndex(reader.getFileName()));
         }
+        return new BlobReferenceSnapshot(this, indices, reclaim);
     }
 
     public Iterable<UUID> getSegmentIds() {
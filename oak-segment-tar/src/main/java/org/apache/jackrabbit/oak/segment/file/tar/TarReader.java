@@ -503,6 +503,9 @@ public class TarReader implements Closeable {
                 cleaned.add(id);
                 entries[i] = null;
             } else {
+                // the length stored in the index, which is the compressed
+                // one for compressed entries, even if they are rewritten
+                // uncompressed because compression got disabled since
                 afterSize += archive.getEntrySize(entry.getLength());
                 afterCount += 1;
             }
@@ -540,10 +543,13 @@ public class TarReader implements Closeable {
             if (entry != null) {
                 long msb = entry.getMsb();
                 long lsb = entry.getLsb();
-                int size = entry.getLength();
                 GCGeneration gen = GCGeneration.newGCGeneration(entry);
+                // compressed entries are read decompressed, so the length of
+                // the entry is not the length of the segment
+                Buffer buffer = archive.readSegment(msb, lsb);
+                int size = buffer.remaining();
                 byte[] data = new byte[size];
-                archive.readSegment(msb, lsb).get(data);
+                buffer.get(data);
                 writer.writeEntry(msb, lsb, data, 0, size, gen);
             }
         }
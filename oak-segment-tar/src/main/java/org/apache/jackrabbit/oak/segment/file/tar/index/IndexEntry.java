@@ -75,6 +75,17 @@ public interface IndexEntry extends SegmentArchiveEntry {
      */
     boolean isCompacted();
 
+    /**
+     * Return {@code true} if the data of this entry is stored compressed in
+     * the TAR file. In that case {@link #getLength()} is the length of the
+     * compressed data.
+     *
+     * @return {@code true} if the data of this entry is compressed.
+     */
+    default boolean isCompressed() {
+        return false;
+    }
+
     Comparator<IndexEntry> POSITION_ORDER = new Comparator<IndexEntry>() {
         @Override
         public int compare(IndexEntry a, IndexEntry b) {
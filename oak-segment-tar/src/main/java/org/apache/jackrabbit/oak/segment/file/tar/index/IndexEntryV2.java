@@ -64,7 +64,12 @@ class IndexEntryV2 implements IndexEntry {
 
     @Override
     public boolean isCompacted() {
-        return index.get(position + 32) != 0;
+        return (index.get(position + 32) & IndexV2.COMPACTED_FLAG) != 0;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return (index.get(position + 32) & IndexV2.COMPRESSED_FLAG) != 0;
     }
 
 }
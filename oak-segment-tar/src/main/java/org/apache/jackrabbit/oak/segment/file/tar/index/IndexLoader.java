@@ -70,6 +70,7 @@ public class IndexLoader {
             case IndexLoaderV1.MAGIC:
                 return v1.loadIndex(reader);
             case IndexLoaderV2.MAGIC:
+            case IndexLoaderV2.COMPRESSED_MAGIC:
                 return v2.loadIndex(reader);
             default:
                 throw new InvalidIndexException("Unrecognized magic number");
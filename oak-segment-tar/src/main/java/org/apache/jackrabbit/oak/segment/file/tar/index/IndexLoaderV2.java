@@ -29,6 +29,12 @@ class IndexLoaderV2 {
 
     static final int MAGIC = ('\n' << 24) + ('1' << 16) + ('K' << 8) + '\n';
 
+    /**
+     * Magic number of indexes with the same layout as {@link #MAGIC}, whose
+     * entries may be flagged as compressed.
+     */
+    static final int COMPRESSED_MAGIC = ('\n' << 24) + ('2' << 16) + ('K' << 8) + '\n';
+
     private final int blockSize;
 
     IndexLoaderV2(int blockSize) {
@@ -43,7 +49,7 @@ class IndexLoaderV2 {
         int bytes = meta.getInt();
         int magic = meta.getInt();
 
-        if (magic != MAGIC) {
+        if (magic != MAGIC && magic != COMPRESSED_MAGIC) {
             throw new InvalidIndexException("Magic number mismatch");
         }
         if (count < 1) {
@@ -29,6 +29,19 @@ class IndexV2 implements Index {
 
     static final int FOOTER_SIZE = 16;
 
+    /**
+     * Flag in the last byte of an entry marking the entry as generated by a
+     * compaction operation.
+     */
+    static final int COMPACTED_FLAG = 1;
+
+    /**
+     * Flag in the last byte of an entry marking the data of the entry as
+     * compressed. Only used in indexes with the {@link
+     * IndexLoaderV2#COMPRESSED_MAGIC} magic number.
+     */
+    static final int COMPRESSED_FLAG = 2;
+
     private final Buffer entries;
 
     IndexV2(Buffer entries) {
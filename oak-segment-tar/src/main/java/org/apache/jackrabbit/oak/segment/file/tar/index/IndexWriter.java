@@ -85,6 +85,24 @@ public class IndexWriter {
      *                       compaction operation.
      */
     public void addEntry(long msb, long lsb, int offset, int size, int generation, int fullGeneration, boolean isCompacted) {
+        addEntry(msb, lsb, offset, size, generation, fullGeneration, isCompacted, false);
+    }
+
+    /**
+     * Add an entry to this index.
+     *
+     * @param msb            The most significant bits of the entry identifier.
+     * @param lsb            The least significant bits of the entry
+     *                       identifier.
+     * @param offset         The position of the entry in the file.
+     * @param size           The size of the entry, as stored in the file.
+     * @param generation     The generation of the entry.
+     * @param fullGeneration The full generation of the entry.
+     * @param isCompacted    Whether the entry is generated as part of a
+     *                       compaction operation.
+     * @param isCompressed   Whether the data of the entry is compressed.
+     */
+    public void addEntry(long msb, long lsb, int offset, int size, int generation, int fullGeneration, boolean isCompacted, boolean isCompressed) {
         Entry entry = new Entry();
         entry.msb = msb;
         entry.lsb = lsb;
@@ -93,6 +111,7 @@ public class IndexWriter {
         entry.generation = generation;
         entry.fullGeneration = fullGeneration;
         entry.isCompacted = isCompacted;
+        entry.isCompressed = isCompressed;
         entries.add(entry);
     }
 
@@ -126,14 +145,24 @@ public class IndexWriter {
             return 0;
         });
 
+        boolean hasCompressedEntries = false;
+
         for (Entry entry : entries) {
+            int flags = 0;
+            if (entry.isCompacted) {
+                flags |= IndexV2.COMPACTED_FLAG;
+            }
+            if (entry.isCompressed) {
+                flags |= IndexV2.COMPRESSED_FLAG;
+                hasCompressedEntries = true;
+            }
             buffer.putLong(entry.msb);
             buffer.putLong(entry.lsb);
             buffer.putInt(entry.offset);
             buffer.putInt(entry.size);
             buffer.putInt(entry.generation);
             buffer.putInt(entry.fullGeneration);
-            buffer.put((byte) (entry.isCompacted ? 1 : 0));
+            buffer.put((byte) flags);
         }
 
         CRC32 checksum = new CRC32();
@@ -142,7 +171,9 @@ public class IndexWriter {
         buffer.putInt((int) checksum.getValue());
         buffer.putInt(entries.size());
         buffer.putInt(totalSize);
-        buffer.putInt(IndexLoaderV2.MAGIC);
+        // Only use the new format version if needed, so that archives without
+        // compressed entries can still be read by older versions.
+        buffer.putInt(hasCompressedEntries ? IndexLoaderV2.COMPRESSED_MAGIC : IndexLoaderV2.MAGIC);
 
         return buffer.array();
     }
@@ -19,9 +19,13 @@ package org.apache.jackrabbit.oak.segment.standby.client;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
@@ -59,6 +63,15 @@ import org.slf4j.LoggerFactory;
 
 class StandbyClient implements AutoCloseable {
 
+    /**
+     * Callback receiving the responses of pipelined requests.
+     */
+    interface ResponseConsumer<T> {
+
+        void accept(T response) throws Exception;
+
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -286,6 +299,96 @@ class StandbyClient implements AutoCloseable {
         return response.getReferences();
     }
 
+    /**
+     * Fetch the references of many segments. At most {@code window} requests
+     * are in flight at any time, hence the round trip time is paid once per
+     * window rather than once per segment.
+     *
+     * @param segmentIds the distinct identifiers of the segments
+     * @param window     the maximum number of requests in flight
+     * @return the references by segment identifier, or {@code null} if a
+     * response was not received in time.
+     */
+    @Nullable
+    Map<String, Iterable<String>> getReferences(List<String> segmentIds, int window) throws Exception {
+        Map<String, Iterable<String>> references = new HashMap<>();
+        boolean completed = pipeline(
+                segmentIds,
+                window,
+                id -> new GetReferencesRequest(clientId, id),
+                referencesQueue,
+                GetReferencesResponse::getSegmentId,
+                response -> references.put(response.getSegmentId(), response.getReferences())
+        );
+        return completed ? references : null;
+    }
+
+    /**
+     * Fetch many segments. At most {@code window} requests are in flight at
+     * any time. The segments are passed to the {@code consumer} in the order
+     * of {@code segmentIds}, independently of the order they are received in.
+     *
+     * @param segmentIds the distinct identifiers of the segments
+     * @param window     the maximum number of requests in flight
+     * @param consumer   the consumer of the segments
+     * @return {@code true} if all the segments were received, {@code false}
+     * if a response was not received in time.
+     */
+    boolean getSegments(List<String> segmentIds, int window, ResponseConsumer<GetSegmentResponse> consumer) throws Exception {
+        return pipeline(
+                segmentIds,
+                window,
+                id -> new GetSegmentRequest(clientId, id),
+                segmentQueue,
+                GetSegmentResponse::getSegmentId,
+                consumer
+        );
+    }
+
+    private <T> boolean pipeline(
+            List<String> ids,
+            int window,
+            Function<String, Object> newRequest,
+            BlockingQueue<T> queue,
+            Function<T, String> idOf,
+            ResponseConsumer<T> consumer
+    ) throws Exception {
+        Map<String, T> received = new HashMap<>();
+        int sent = 0;
+        int consumed = 0;
+
+        while (consumed < ids.size()) {
+            int pending = sent;
+            while (sent - consumed < window && sent < ids.size()) {
+                channel.write(newRequest.apply(ids.get(sent++)));
+            }
+            if (sent > pending) {
+                channel.flush();
+            }
+
+            T response = queue.poll(readTimeoutMs, TimeUnit.MILLISECONDS);
+
+            if (response == null) {
+                return false;
+            }
+
+            String id = idOf.apply(response);
+
+            if (ids.subList(consumed, sent).contains(id)) {
+                received.put(id, response);
+            } else {
+                log.debug("Discarding unexpected response for {}", id);
+            }
+
+            // Responses are consumed in the order of the requests
+            while (consumed < sent && received.containsKey(ids.get(consumed))) {
+                consumer.accept(received.remove(ids.get(consumed++)));
+            }
+        }
+
+        return true;
+    }
+
     public int getReadTimeoutMs() {
         return readTimeoutMs;
     }
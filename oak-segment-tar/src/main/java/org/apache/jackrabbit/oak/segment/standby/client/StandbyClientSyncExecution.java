@@ -16,9 +16,15 @@
  */
 package org.apache.jackrabbit.oak.segment.standby.client;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
@@ -46,6 +52,13 @@ class StandbyClientSyncExecution {
 
     private static final Logger log = LoggerFactory.getLogger(StandbyClientSyncExecution.class);
 
+    /**
+     * Maximum number of segment and reference requests in flight when
+     * copying a hierarchy of segments from the primary. A value of 1 sends
+     * one request at a time.
+     */
+    private static final int REQUEST_WINDOW = Math.max(1, Integer.getInteger("oak.standby.client.requestWindow", 16));
+
     private final FileStore store;
 
     private final SegmentIdProvider idProvider;
@@ -105,25 +118,71 @@ class StandbyClientSyncExecution {
     }
 
     private void copySegmentHierarchyFromPrimary(StandbyClient client, UUID segmentId) throws Exception {
+        Map<UUID, List<UUID>> graph = readGraph(client, segmentId);
+
         Set<UUID> visited = new HashSet<>();
         List<UUID> bulk = new LinkedList<>();
         List<UUID> data = new LinkedList<>();
 
-        deriveTopologicalOrder(client, segmentId, visited, data, bulk);
+        deriveTopologicalOrder(graph, segmentId, visited, data, bulk);
+
+        log.info("Copying {} bulk segments and {} data segments from primary", bulk.size(), data.size());
+
+        copySegmentsFromPrimary(client, bulk);
+        copySegmentsFromPrimary(client, data);
+    }
 
-        for (UUID id : bulk) {
-            log.info("Copying bulk segment {} from primary", id);
-            copySegmentFromPrimary(client, id);
+    /**
+     * Read the references of the missing segments reachable from {@code
+     * segmentId}, level by level. The references of the segments of a level
+     * are requested in a pipeline of up to {@link #REQUEST_WINDOW} requests.
+     */
+    private Map<UUID, List<UUID>> readGraph(StandbyClient client, UUID segmentId) throws Exception {
+        Map<UUID, List<UUID>> graph = new HashMap<>();
+        Set<UUID> seen = new HashSet<>();
+        List<UUID> level = new ArrayList<>();
+
+        if (!isLocal(segmentId)) {
+            seen.add(segmentId);
+            level.add(segmentId);
         }
 
-        for (UUID id : data) {
-            log.info("Copying data segment {} from primary", id);
-            copySegmentFromPrimary(client, id);
+        while (!level.isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            for (UUID id : level) {
+                if (SegmentId.isDataSegmentId(id.getLeastSignificantBits())) {
+                    ids.add(id.toString());
+                } else {
+                    graph.put(id, emptyList());
+                }
+            }
+
+            Map<String, Iterable<String>> references = readReferences(client, ids);
+
+            List<UUID> next = new ArrayList<>();
+            for (String id : ids) {
+                log.debug("Inspecting segment {}", id);
+                List<UUID> referenced = new ArrayList<>();
+                for (String s : references.get(id)) {
+                    UUID reference = UUID.fromString(s);
+                    log.debug("Found reference from {} to {}", id, reference);
+                    referenced.add(reference);
+                    if (seen.add(reference) && !isLocal(reference)) {
+                        next.add(reference);
+                    }
+                }
+                graph.put(UUID.fromString(id), referenced);
+            }
+            level = next;
         }
+
+        return graph;
     }
 
-    private void deriveTopologicalOrder(StandbyClient client, UUID id, Set<UUID> visited, List<UUID> data, List<UUID> bulk) throws Exception {
-        if (visited.contains(id) || isLocal(id)) {
+    private static void deriveTopologicalOrder(Map<UUID, List<UUID>> graph, UUID id, Set<UUID> visited, List<UUID> data, List<UUID> bulk) {
+        List<UUID> references = graph.get(id);
+
+        if (references == null || !visited.add(id)) {
             return;
         }
 
@@ -131,14 +190,9 @@ class StandbyClientSyncExecution {
         // to add each data segment to the data list only
         // after all its references were already added
 
-        log.debug("Inspecting segment {}", id);
-        visited.add(id);
-
         if (SegmentId.isDataSegmentId(id.getLeastSignificantBits())) {
-            for (String s : readReferences(client, id)) {
-                UUID referenced = UUID.fromString(s);
-                log.debug("Found reference from {} to {}", id, referenced);
-                deriveTopologicalOrder(client, referenced, visited, data, bulk);
+            for (UUID referenced : references) {
+                deriveTopologicalOrder(graph, referenced, visited, data, bulk);
             }
 
             data.add(id);
@@ -147,11 +201,15 @@ class StandbyClientSyncExecution {
         }
     }
 
-    private Iterable<String> readReferences(StandbyClient client, UUID id) throws InterruptedException {
-        Iterable<String> references = client.getReferences(id.toString());
+    private static Map<String, Iterable<String>> readReferences(StandbyClient client, List<String> ids) throws Exception {
+        if (ids.isEmpty()) {
+            return emptyMap();
+        }
+
+        Map<String, Iterable<String>> references = client.getReferences(ids, REQUEST_WINDOW);
 
         if (references == null) {
-            throw new IllegalStateException(String.format("Unable to read references of segment %s from primary", id));
+            throw new IllegalStateException(String.format("Unable to read references of segments %s from primary", ids));
         }
 
         return references;
@@ -164,17 +222,30 @@ class StandbyClientSyncExecution {
         ));
     }
 
-    private void copySegmentFromPrimary(StandbyClient client, UUID uuid) throws Exception {
-        byte[] data = client.getSegment(uuid.toString());
+    private void copySegmentsFromPrimary(StandbyClient client, List<UUID> uuids) throws Exception {
+        if (uuids.isEmpty()) {
+            return;
+        }
 
-        if (data == null) {
-            throw new IllegalStateException("Unable to read segment " + uuid);
+        List<String> ids = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            ids.add(uuid.toString());
         }
 
-        long msb = uuid.getMostSignificantBits();
-        long lsb = uuid.getLeastSignificantBits();
-        SegmentId segmentId = idProvider.newSegmentId(msb, lsb);
-        store.writeSegment(segmentId, data, 0, data.length);
+        // Segments are written in the order they are requested in, such that
+        // data segments are only written after the segments they reference
+
+        boolean completed = client.getSegments(ids, REQUEST_WINDOW, response -> {
+            log.debug("Copying segment {} from primary", response.getSegmentId());
+            UUID uuid = UUID.fromString(response.getSegmentId());
+            byte[] data = response.getSegmentData();
+            SegmentId segmentId = idProvider.newSegmentId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            store.writeSegment(segmentId, data, 0, data.length);
+        });
+
+        if (!completed) {
+            throw new IllegalStateException("Unable to read segments from primary");
+        }
     }
 
 }
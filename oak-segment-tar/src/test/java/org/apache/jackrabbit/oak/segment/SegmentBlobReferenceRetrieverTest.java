@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment;
+
+import static org.apache.jackrabbit.oak.segment.file.FileStoreBuilder.fileStoreBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.plugins.blob.BlobReferenceRetriever;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreBlobStore;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.OakFileDataStore;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SegmentBlobReferenceRetriever}
+ */
+public class SegmentBlobReferenceRetrieverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    @Test
+    public void partitionsCollectAllReferences() throws Exception {
+        OakFileDataStore dataStore = new OakFileDataStore();
+        dataStore.setPath(folder.newFolder("blobstore").getAbsolutePath());
+        dataStore.init(null);
+
+        try (FileStore fileStore = fileStoreBuilder(folder.newFolder("segmentstore"))
+            .withBlobStore(new DataStoreBlobStore(dataStore)).build()) {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+
+            // each round of collected references starts a new TAR file
+            Set<String> expected = new HashSet<>();
+            Random random = new Random(42);
+            for (int i = 0; i < 8; i++) {
+                byte[] data = new byte[18000];
+                random.nextBytes(data);
+                Blob blob = nodeStore.createBlob(new ByteArrayInputStream(data));
+                NodeBuilder builder = nodeStore.getRoot().builder();
+                builder.setProperty("bin" + i, blob);
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+                expected.add(blob.getContentIdentity());
+                fileStore.collectBlobReferences(s -> {});
+            }
+
+            BlobReferenceRetriever retriever = new SegmentBlobReferenceRetriever(fileStore);
+            List<BlobReferenceRetriever> partitions = retriever.partition(3);
+            assertEquals(3, partitions.size());
+
+            ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
+            List<Set<String>> collected = new ArrayList<>();
+            try {
+                List<Future<Set<String>>> futures = new ArrayList<>();
+                for (BlobReferenceRetriever partition : partitions) {
+                    futures.add(executor.submit(() -> {
+                        Set<String> references = new HashSet<>();
+                        partition.collectReferences((reference, nodeId) -> references.add(reference));
+                        return references;
+                    }));
+                }
+                for (Future<Set<String>> future : futures) {
+                    collected.add(future.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            Set<String> actual = new HashSet<>();
+            int nonEmpty = 0;
+            for (Set<String> references : collected) {
+                actual.addAll(references);
+                if (!references.isEmpty()) {
+                    nonEmpty++;
+                }
+            }
+            assertEquals(expected, actual);
+            assertTrue("references should be spread over the partitions", nonEmpty > 1);
+
+            // the partitions collect the same references as a single pass
+            Set<String> single = new HashSet<>();
+            retriever.collectReferences((reference, nodeId) -> single.add(reference));
+            assertEquals(single, actual);
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ package org.apache.jackrabbit.oak.segment.file;
 import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.api.jmx.CacheStatsMBean;
 import org.apache.jackrabbit.oak.segment.LongIdMappingBlobStore;
 import org.apache.jackrabbit.oak.segment.SegmentId;
 import org.apache.jackrabbit.oak.segment.SegmentNodeBuilder;
@@ -103,6 +104,45 @@ public class FileStoreTest {
         }
     }
 
+    @Test
+    public void segmentPrefetch() throws Exception {
+        File directory = getFileStoreFolder();
+        try (FileStore fileStore = fileStoreBuilder(directory).build()) {
+            SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            for (int i = 0; i < 20; i++) {
+                NodeBuilder builder = nodeStore.getRoot().builder();
+                builder.child("n" + i).setProperty("p", i);
+                nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+                fileStore.flush();
+            }
+        }
+
+        try (FileStore fileStore = fileStoreBuilder(directory).withSegmentPrefetchThreads(2).build()) {
+            SegmentNodeState head = fileStore.getHead();
+            for (int i = 19; i >= 0; i--) {
+                assertEquals(i, head.getChildNode("n" + i).getProperty("p").getValue(Type.LONG).intValue());
+            }
+
+            CacheStatsMBean stats = fileStore.getSegmentPrefetchStats();
+            assertTrue(stats.getMissCount() > 0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stats.getLoadCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(stats.getLoadCount() > 0);
+        }
+    }
+
+    @Test
+    public void segmentPrefetchAfterClose() throws Exception {
+        FileStore fileStore = fileStoreBuilder(getFileStoreFolder()).withSegmentPrefetchThreads(2).build();
+        SegmentId id = fileStore.getHead().getRecordId().getSegmentId();
+        fileStore.close();
+
+        // a prefetch still queued when the store is closed doesn't read from the closed TAR files
+        assertThrows(IllegalStateException.class, () -> fileStore.prefetchSegment(null, id));
+    }
+
     @Test
     public void writeSegment_shouldThrowUnrecoverableExceptionWhenFailToCloseArchive() throws Exception {
         File directory = getFileStoreFolder();
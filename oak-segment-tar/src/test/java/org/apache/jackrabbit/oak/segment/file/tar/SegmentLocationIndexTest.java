@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jackrabbit.oak.segment.file.tar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class SegmentLocationIndexTest {
+
+    @Test
+    public void testPutGetRemove() {
+        SegmentLocationIndex index = new SegmentLocationIndex();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), i % 100);
+        }
+        assertEquals(ids.size(), index.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            assertEquals(i % 100, index.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        }
+
+        for (int i = 0; i < ids.size(); i += 2) {
+            UUID id = ids.get(i);
+            index.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+        assertEquals(ids.size() / 2, index.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            int expected = i % 2 == 0 ? -1 : i % 100;
+            assertEquals(expected, index.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        }
+
+        UUID moved = ids.get(1);
+        index.put(moved.getMostSignificantBits(), moved.getLeastSignificantBits(), 0);
+        assertEquals(0, index.get(moved.getMostSignificantBits(), moved.getLeastSignificantBits()));
+        assertEquals(ids.size() / 2, index.size());
+    }
+}
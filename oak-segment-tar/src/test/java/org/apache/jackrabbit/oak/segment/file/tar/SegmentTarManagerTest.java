@@ -23,6 +23,10 @@ import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
 import org.apache.jackrabbit.oak.segment.file.FileStore;
 import org.apache.jackrabbit.oak.segment.file.FileStoreBuilder;
 import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.segment.file.tar.index.IndexEntry;
+import org.apache.jackrabbit.oak.segment.spi.monitor.FileStoreMonitorAdapter;
+import org.apache.jackrabbit.oak.segment.spi.monitor.IOMonitorAdapter;
+import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentArchiveReader;
 import org.apache.jackrabbit.oak.segment.spi.persistence.SegmentNodeStorePersistence;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
@@ -33,8 +37,16 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.UUID;
 
+import org.apache.jackrabbit.oak.commons.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SegmentTarManagerTest {
 
@@ -106,4 +118,41 @@ public class SegmentTarManagerTest {
         storeToRecover.close();
         store.close();
     }
+
+    @Test
+    public void testCompressedEntries() throws IOException {
+        byte[] data = new byte[4096];
+        Arrays.fill(data, (byte) 'a');
+        UUID id = UUID.randomUUID();
+
+        File folder = getSourceFileStoreFolder();
+        SegmentTarWriter writer = new SegmentTarWriter(new File(folder, "data00000a.tar"),
+                new FileStoreMonitorAdapter(), new IOMonitorAdapter(), true);
+        writer.writeSegment(id.getMostSignificantBits(), id.getLeastSignificantBits(), data, 0, data.length, 0, 0, false);
+        assertBuffer(data, writer.readSegment(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        writer.writeBinaryReferences(new byte[0]);
+        writer.writeGraph(new byte[0]);
+        writer.close();
+
+        SegmentTarManager manager = new SegmentTarManager(folder, new FileStoreMonitorAdapter(),
+                new IOMonitorAdapter(), false, false);
+        SegmentArchiveReader reader = manager.open("data00000a.tar");
+        assertNotNull(reader);
+        IndexEntry entry = (IndexEntry) reader.listSegments().get(0);
+        assertTrue(entry.isCompressed());
+        assertTrue(entry.getLength() < data.length);
+        assertBuffer(data, reader.readSegment(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        reader.close();
+
+        LinkedHashMap<UUID, byte[]> recovered = new LinkedHashMap<>();
+        manager.recoverEntries("data00000a.tar", recovered);
+        assertArrayEquals(data, recovered.get(id));
+    }
+
+    private static void assertBuffer(byte[] expected, Buffer buffer) {
+        assertNotNull(buffer);
+        byte[] actual = new byte[buffer.remaining()];
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+    }
 }
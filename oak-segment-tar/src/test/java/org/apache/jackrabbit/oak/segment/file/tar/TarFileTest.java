@@ -23,11 +23,15 @@ import static org.apache.jackrabbit.guava.common.collect.Lists.newArrayList;
 import static org.apache.jackrabbit.oak.segment.file.tar.GCGeneration.newGCGeneration;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.internal.util.collections.Sets.newSet;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -268,4 +272,41 @@ public class TarFileTest {
         }
     }
 
+    @Test
+    public void compressedEntriesShouldBeCopiedOnSweep() throws Exception {
+        // only local tar files support compressed entries
+        assumeTrue(archiveManager instanceof SegmentTarManager);
+
+        byte[] data = new byte[4096];
+        Arrays.fill(data, (byte) 42);
+
+        System.setProperty(SegmentCompression.COMPRESSION_PROPERTY, "deflate");
+        try {
+            writeEntries("data00000a.tar", data, 4);
+
+            Set<UUID> sweep = newSet(new UUID(1, 1), new UUID(1, 3));
+
+            try (TarReader reader = TarReader.open("data00000a.tar", archiveManager)) {
+                try (TarReader swept = reader.sweep(sweep, new HashSet<>())) {
+                    assertNotNull(swept);
+                    assertNotSame(reader, swept);
+                    assertEquals(2, swept.getEntries().length);
+                    assertNull(swept.readEntry(1, 1));
+                    assertEquals(Buffer.wrap(data), swept.readEntry(1, 2));
+                    assertEquals(Buffer.wrap(data), swept.readEntry(1, 4));
+                }
+            }
+        } finally {
+            System.clearProperty(SegmentCompression.COMPRESSION_PROPERTY);
+        }
+    }
+
+    private void writeEntries(String name, byte[] data, int count) throws IOException {
+        try (TarWriter writer = new TarWriter(archiveManager, name)) {
+            for (int i = 1; i <= count; i++) {
+                writer.writeEntry(1, i, data, 0, data.length, generation(1));
+            }
+        }
+    }
+
 }
@@ -34,9 +34,15 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jackrabbit.oak.api.IllegalRepositoryStateException;
 import org.apache.jackrabbit.oak.commons.Buffer;
+import org.apache.jackrabbit.oak.segment.file.tar.TarFiles.BlobReferenceSnapshot;
 import org.apache.jackrabbit.oak.segment.file.tar.TarFiles.CleanupResult;
 import org.apache.jackrabbit.oak.segment.spi.monitor.FileStoreMonitorAdapter;
 import org.apache.jackrabbit.oak.segment.spi.monitor.IOMonitorAdapter;
@@ -292,6 +298,71 @@ public class TarFilesTest {
         assertEquals("unexpected results for collectBlobReferences, UUIDs were " + u1 + " and " + u2, singleton("ok"), references);
     }
 
+    @Test
+    public void testCleanupDuringBlobReferenceCollection() throws Exception {
+        UUID live = randomUUID();
+        writeSegmentWithBinaryReferences(live, "a");
+        UUID garbage = randomUUID();
+        writeSegmentWithBinaryReferences(garbage, "b");
+        BlobReferenceSnapshot snapshot = tarFiles.snapshotBlobReferences(gen -> false);
+
+        CountDownLatch collecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Set<String> references = new HashSet<>();
+            Future<?> collection = executor.submit(() -> snapshot.collectBlobReferences(reference -> {
+                collecting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                references.add(reference);
+            }, 1, 0));
+            assertTrue(collecting.await(10, TimeUnit.SECONDS));
+
+            Future<CleanupResult> cleanup = executor.submit(() -> tarFiles.cleanup(new CleanupContext() {
+
+                @Override
+                public Collection<UUID> initialReferences() {
+                    return singletonList(live);
+                }
+
+                @Override
+                public boolean shouldReclaim(UUID id, GCGeneration generation, boolean referenced) {
+                    return !referenced;
+                }
+
+                @Override
+                public boolean shouldFollow(UUID from, UUID to) {
+                    return true;
+                }
+
+            }));
+
+            // the swept TAR reader is not closed while it is being read
+            Thread.sleep(500);
+            assertFalse(cleanup.isDone());
+
+            release.countDown();
+            collection.get(10, TimeUnit.SECONDS);
+            assertEquals(new HashSet<>(asList("a", "b")), references);
+
+            CleanupResult result = cleanup.get(10, TimeUnit.SECONDS);
+            assertEquals(singleton(garbage), result.getReclaimedSegmentIds());
+            assertFalse(result.getRemovableFiles().isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        // a later collection reads the swept TAR file
+        Set<String> references = new HashSet<>();
+        snapshot.collectBlobReferences(references::add, 1, 0);
+        assertEquals(singleton("a"), references);
+    }
+
     @Test
     public void testGetSegmentId() throws Exception {
         UUID a = randomUUID();
@@ -308,6 +379,30 @@ public class TarFilesTest {
         assertEquals(new HashSet<>(asList(a, b, c)), segmentIds);
     }
 
+    @Test
+    public void testReadSegmentsAcrossTarFiles() throws Exception {
+        UUID[] ids = new UUID[4];
+        byte[][] data = new byte[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = randomUUID();
+            data[i] = randomData();
+            writeSegment(ids[i], data[i]);
+            if (i < ids.length - 1) {
+                tarFiles.newWriter();
+            }
+        }
+
+        // the last segment is still in the TAR writer
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(containsSegment(ids[i]));
+            assertArrayEquals(data[i], readSegment(ids[i]));
+        }
+
+        UUID missing = randomUUID();
+        assertFalse(containsSegment(missing));
+        assertNull(readSegment(missing));
+    }
+
     @Test
     public void testCleanup() throws Exception {
         UUID a = randomUUID();
@@ -19,7 +19,9 @@ package org.apache.jackrabbit.oak.segment.file.tar.index;
 
 import static org.apache.jackrabbit.oak.segment.file.tar.index.IndexLoader.newIndexLoader;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.jackrabbit.oak.commons.Buffer;
 import org.junit.Test;
@@ -74,6 +76,23 @@ public class IndexLoaderTest {
         assertEntry(index.entry(1), 6, 7, 8, 9, 10, 10, true);
     }
 
+    @Test
+    public void testLoadCompressedIndex() throws Exception {
+        IndexWriter writer = IndexWriter.newIndexWriter(1);
+        writer.addEntry(7, 8, 9, 10, 11, 12, true, true);
+        writer.addEntry(1, 2, 3, 4, 5, 6, false, false);
+        Buffer buffer = Buffer.wrap(writer.write());
+        assertEquals(IndexLoaderV2.COMPRESSED_MAGIC, buffer.getInt(buffer.limit() - Integer.BYTES));
+
+        Index index = loadIndex(buffer);
+        assertNotNull(index);
+        assertEquals(2, index.count());
+        assertEntry(index.entry(0), 1, 2, 3, 4, 5, 6, false);
+        assertEntry(index.entry(1), 7, 8, 9, 10, 11, 12, true);
+        assertFalse(index.entry(0).isCompressed());
+        assertTrue(index.entry(1).isCompressed());
+    }
+
     @Test
     public void testLoadIndexV2() throws Exception {
         Buffer buffer = Buffer.allocate(2 * IndexEntryV2.SIZE + IndexV2.FOOTER_SIZE);
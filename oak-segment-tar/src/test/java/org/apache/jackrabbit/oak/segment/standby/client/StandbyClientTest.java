@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.segment.standby.client;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.handler.codec.compression.SnappyFrameEncoder;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.util.CharsetUtil;
+import org.apache.jackrabbit.guava.common.collect.ImmutableList;
+import org.apache.jackrabbit.oak.commons.junit.TemporaryPort;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetReferencesRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetReferencesResponse;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetReferencesResponseEncoder;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentRequest;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentResponse;
+import org.apache.jackrabbit.oak.segment.standby.codec.GetSegmentResponseEncoder;
+import org.apache.jackrabbit.oak.segment.standby.codec.RequestDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StandbyClientTest {
+
+    private static final int WINDOW = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File("target"));
+
+    @Rule
+    public TemporaryPort serverPort = new TemporaryPort();
+
+    private NioEventLoopGroup group;
+
+    private Channel server;
+
+    private ReversingHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        group = new NioEventLoopGroup(2);
+        handler = new ReversingHandler(WINDOW);
+        server = new ServerBootstrap()
+            .group(group)
+            .channel(NioServerSocketChannel.class)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+
+                @Override
+                public void initChannel(SocketChannel ch) {
+                    ChannelPipeline p = ch.pipeline();
+                    p.addLast(new LineBasedFrameDecoder(8192));
+                    p.addLast(new StringDecoder(CharsetUtil.UTF_8));
+                    p.addLast(new RequestDecoder());
+                    p.addLast(new SnappyFrameEncoder());
+                    p.addLast(new GetSegmentResponseEncoder());
+                    p.addLast(new GetReferencesResponseEncoder());
+                    p.addLast(handler);
+                }
+
+            })
+            .bind(serverPort.getPort())
+            .sync()
+            .channel();
+    }
+
+    @After
+    public void tearDown() {
+        server.close().awaitUninterruptibly(1, TimeUnit.SECONDS);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void segmentsShouldBeConsumedInRequestOrder() throws Exception {
+        List<String> ids = newSegmentIds(2 * WINDOW);
+        List<String> consumed = new ArrayList<>();
+
+        try (StandbyClient client = newClient()) {
+            assertTrue(client.getSegments(ids, WINDOW, response -> {
+                assertArrayEquals(data(response.getSegmentId()), response.getSegmentData());
+                consumed.add(response.getSegmentId());
+            }));
+        }
+
+        assertEquals(ids, consumed);
+        assertEquals(WINDOW, handler.maxPending);
+        assertEquals(reverse(ids.subList(0, WINDOW)), handler.answered.subList(0, WINDOW));
+    }
+
+    @Test
+    public void referencesShouldBeMatchedBySegmentId() throws Exception {
+        List<String> ids = newSegmentIds(2 * WINDOW);
+        Map<String, Iterable<String>> references;
+
+        try (StandbyClient client = newClient()) {
+            references = client.getReferences(ids, WINDOW);
+        }
+
+        assertNotNull(references);
+        assertEquals(ids.size(), references.size());
+        for (String id : ids) {
+            assertEquals(singletonList(reference(id)), ImmutableList.copyOf(references.get(id)));
+        }
+        assertEquals(WINDOW, handler.maxPending);
+    }
+
+    private StandbyClient newClient() throws Exception {
+        return StandbyClient.builder()
+            .withHost("localhost")
+            .withPort(serverPort.getPort())
+            .withGroup(group)
+            .withClientId("client")
+            .withSecure(false)
+            .withReadTimeoutMs(10000)
+            .withSpoolFolder(folder.newFolder())
+            .build();
+    }
+
+    private static List<String> newSegmentIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+
+    private static List<String> reverse(List<String> ids) {
+        List<String> reversed = new ArrayList<>(ids);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    private static byte[] data(String segmentId) {
+        return segmentId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String reference(String segmentId) {
+        return new UUID(0, segmentId.hashCode()).toString();
+    }
+
+    /**
+     * Holds back the requests until {@code batch} of them are pending, then
+     * answers them in the reverse order they were received in.
+     */
+    private static class ReversingHandler extends SimpleChannelInboundHandler<Object> {
+
+        private final int batch;
+
+        private final List<Object> pending = new ArrayList<>();
+
+        private final List<String> answered = new ArrayList<>();
+
+        private volatile int maxPending;
+
+        ReversingHandler(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+            pending.add(msg);
+            maxPending = Math.max(maxPending, pending.size());
+
+            if (pending.size() < batch) {
+                return;
+            }
+
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                Object request = pending.get(i);
+                if (request instanceof GetSegmentRequest) {
+                    String id = ((GetSegmentRequest) request).getSegmentId();
+                    answered.add(id);
+                    ctx.write(new GetSegmentResponse("client", id, data(id)));
+                } else if (request instanceof GetReferencesRequest) {
+                    String id = ((GetReferencesRequest) request).getSegmentId();
+                    answered.add(id);
+                    ctx.write(new GetReferencesResponse("client", id, singletonList(reference(id))));
+                }
+            }
+            pending.clear();
+            ctx.flush();
+        }
+
+    }
+
+}
@@ -30,6 +30,7 @@ import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.jackrabbit.guava.common.collect.Maps;
 
@@ -58,6 +59,18 @@ final class CommitQueue {
      */
     private final Map<Semaphore, SuspendedCommit> suspendedCommits = Maps.newIdentityHashMap();
 
+    /**
+     * Guards {@link #commits}. Locks are used instead of synchronization, so
+     * that virtual threads waiting for the queue don't pin their carrier
+     * thread.
+     */
+    private final ReentrantLock commitsLock = new ReentrantLock();
+
+    /**
+     * Guards {@link #suspendedCommits}.
+     */
+    private final ReentrantLock suspendedCommitsLock = new ReentrantLock();
+
     private final RevisionContext context;
 
     /**
@@ -86,12 +99,15 @@ final class CommitQueue {
         checkArgument(num > 0);
         SortedSet<Revision> revs = new TreeSet<Revision>(StableRevisionComparator.INSTANCE);
         Revision rev = null;
-        synchronized (this) {
+        commitsLock.lock();
+        try {
             for (int i = 0; i < num; i++) {
                 rev = context.newRevision();
                 revs.add(rev);
             }
             commits.put(rev, new Entry(rev));
+        } finally {
+            commitsLock.unlock();
         }
         LOG.debug("created commit {}", rev);
         return revs;
@@ -108,8 +124,11 @@ final class CommitQueue {
     }
 
     boolean contains(@NotNull Revision revision) {
-        synchronized (this) {
+        commitsLock.lock();
+        try {
             return commits.containsKey(requireNonNull(revision));
+        } finally {
+            commitsLock.unlock();
         }
     }
 
@@ -151,7 +170,8 @@ final class CommitQueue {
             throws InterruptedException {
         Semaphore s;
         int addedRevisions;
-        synchronized (suspendedCommits) {
+        suspendedCommitsLock.lock();
+        try {
             RevisionVector headRevision = context.getHeadRevision();
             Set<Revision> afterHead = new HashSet<Revision>(revisions.size());
             for (Revision r : revisions) {
@@ -163,12 +183,17 @@ final class CommitQueue {
             s = new Semaphore(0);
             suspendedCommits.put(s, new SuspendedCommit(s, afterHead));
             addedRevisions = afterHead.size();
+        } finally {
+            suspendedCommitsLock.unlock();
         }
         try {
             s.tryAcquire(addedRevisions, suspendTimeoutMillis, TimeUnit.MILLISECONDS);
         } finally {
-            synchronized (suspendedCommits) {
+            suspendedCommitsLock.lock();
+            try {
                 suspendedCommits.remove(s);
+            } finally {
+                suspendedCommitsLock.unlock();
             }
         }
     }
@@ -185,8 +210,11 @@ final class CommitQueue {
      * @return the number of suspended threads on this commit queue.
      */
     int numSuspendedThreads() {
-        synchronized (suspendedCommits) {
+        suspendedCommitsLock.lock();
+        try {
             return suspendedCommits.size();
+        } finally {
+            suspendedCommitsLock.unlock();
         }
     }
 
@@ -226,7 +254,8 @@ final class CommitQueue {
     }
 
     private void notifySuspendedCommits() {
-        synchronized (suspendedCommits) {
+        suspendedCommitsLock.lock();
+        try {
             if (suspendedCommits.isEmpty()) {
                 return;
             }
@@ -238,12 +267,15 @@ final class CommitQueue {
                     it.remove();
                 }
             }
+        } finally {
+            suspendedCommitsLock.unlock();
         }
     }
 
     private void notifySuspendedCommits(@NotNull Revision revision) {
         requireNonNull(revision);
-        synchronized (suspendedCommits) {
+        suspendedCommitsLock.lock();
+        try {
             if (suspendedCommits.isEmpty()) {
                 return;
             }
@@ -254,18 +286,23 @@ final class CommitQueue {
                     it.remove();
                 }
             }
+        } finally {
+            suspendedCommitsLock.unlock();
         }
     }
 
     private void removeCommit(@NotNull Revision rev) {
         // simply remove and notify next head if any
-        synchronized (this) {
+        commitsLock.lock();
+        try {
             boolean wasHead = commits.firstKey().equals(rev);
             commits.remove(rev);
             LOG.debug("removed commit {}, wasHead={}", rev, wasHead);
             if (wasHead) {
                 notifyHead();
             }
+        } finally {
+            commitsLock.unlock();
         }
     }
 
@@ -275,9 +312,12 @@ final class CommitQueue {
 
         boolean isHead;
         Entry commitEntry;
-        synchronized (this) {
+        commitsLock.lock();
+        try {
             isHead = commits.firstKey().equals(rev);
             commitEntry = commits.get(rev);
+        } finally {
+            commitsLock.unlock();
         }
         if (isHead) {
             statsCollector.doneWaitUntilHead(0);
@@ -288,7 +328,8 @@ final class CommitQueue {
         try {
             c.headOfQueue(rev);
         } finally {
-            synchronized (this) {
+            commitsLock.lock();
+            try {
                 commits.remove(rev);
                 try {
                     LOG.debug("removed {}, head is now {}", rev, commits.isEmpty() ? null : commits.firstKey());
@@ -296,6 +337,8 @@ final class CommitQueue {
                     // notify next if there is any
                     notifyHead();
                 }
+            } finally {
+                commitsLock.unlock();
             }
         }
     }
@@ -120,6 +120,7 @@ import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
 import org.apache.jackrabbit.oak.spi.toggle.Feature;
 import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
 import org.apache.jackrabbit.oak.stats.Clock;
@@ -144,7 +145,8 @@ import org.apache.jackrabbit.guava.common.collect.Sets;
  * Implementation of a NodeStore on {@link DocumentStore}.
  */
 public final class DocumentNodeStore
-        implements NodeStore, RevisionContext, Observable, Clusterable, PrefetchNodeStore, NodeStateDiffer {
+        implements NodeStore, RevisionContext, Observable, Clusterable, PrefetchNodeStore, NodeStateDiffer,
+        RootStateResolver {
 
     private static final Logger LOG = LoggerFactory.getLogger(DocumentNodeStore.class);
 
@@ -226,6 +228,13 @@ public final class DocumentNodeStore
     public static final String SYS_PROP_PREFETCH = "oak.documentstore.prefetch";
     private final boolean prefetchEnabled = SystemPropertySupplier.create(SYS_PROP_PREFETCH, false).loggingTo(LOG).get();
 
+    /**
+     * Lifetime of the checkpoints of pinned root states (see
+     * {@link #pin(String)}), in case they are not released
+     */
+    private final long pinLifetimeMillis = SystemPropertySupplier.create("oak.documentMK.pinLifetimeMillis",
+            TimeUnit.DAYS.toMillis(7)).loggingTo(LOG).get();
+
     /**
      * The document store without potentially lease checking wrapper.
      */
@@ -497,6 +506,12 @@ public final class DocumentNodeStore
 
     private final Checkpoints checkpoints;
 
+    /**
+     * The number of pins of each revision pinned through {@link #pin(String)}.
+     * A pinned revision is kept with a checkpoint.
+     */
+    private final Map<Revision, Integer> pins = Maps.newHashMap();
+
     private final VersionGarbageCollector versionGarbageCollector;
 
     private final JournalGarbageCollector journalGarbageCollector;
@@ -4055,4 +4070,90 @@ public final class DocumentNodeStore
         return prefetchEnabled
                 || (prefetchFeature != null && prefetchFeature.isEnabled());
     }
+
+    //-----------------------------< RootStateResolver >------------------------
+
+    /**
+     * Returns the root revision of the given trunk root state, prefixed with
+     * {@code x} if the state is from an external change.
+     */
+    @Nullable
+    @Override
+    public String getReference(@NotNull NodeState root) {
+        if (root instanceof DocumentNodeState) {
+            DocumentNodeState state = (DocumentNodeState) root;
+            RevisionVector revision = state.getRootRevision();
+            if (state.getPath().isRoot() && !revision.isBranch()) {
+                String reference = revision.asString();
+                return state.isFromExternalChange() ? "x" + reference : reference;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public NodeState resolve(@NotNull String reference) {
+        boolean external = reference.startsWith("x");
+        try {
+            DocumentNodeState root = getRoot(RevisionVector.fromString(
+                    external ? reference.substring(1) : reference));
+            return external ? root.fromExternalChange() : root;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOG.debug("Unable to resolve root state {}", reference, e);
+            return null;
+        }
+    }
+
+    /**
+     * Pins the oldest revision of the given root state with a checkpoint,
+     * beyond which the revision garbage collection does not collect. The
+     * pins of a revision share the checkpoint, which expires after
+     * {@code oak.documentMK.pinLifetimeMillis} (default 7 days) if it is not
+     * released.
+     */
+    @Nullable
+    @Override
+    public Closeable pin(@NotNull String reference) {
+        Revision oldest = null;
+        try {
+            for (Revision r : RevisionVector.fromString(
+                    reference.startsWith("x") ? reference.substring(1) : reference)) {
+                oldest = Utils.min(oldest, r);
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Unable to pin root state {}", reference, e);
+            return null;
+        }
+        if (oldest == null) {
+            return null;
+        }
+        final Revision revision = oldest;
+        synchronized (pins) {
+            checkOpen();
+            Integer count = pins.get(revision);
+            if (count == null) {
+                checkpoints.create(pinLifetimeMillis,
+                        Collections.singletonMap("creator", "RootStateResolver.pin"), revision);
+            }
+            pins.put(revision, count == null ? 1 : count + 1);
+        }
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                unpin(revision);
+            }
+        };
+    }
+
+    private void unpin(Revision revision) {
+        synchronized (pins) {
+            int count = pins.remove(revision) - 1;
+            if (count > 0) {
+                pins.put(revision, count);
+            } else if (!isDisposed.get()) {
+                checkpoints.release(revision.toString());
+            }
+        }
+    }
 }
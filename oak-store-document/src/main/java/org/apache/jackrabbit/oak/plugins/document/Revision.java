@@ -32,6 +32,21 @@ public final class Revision implements CacheValue {
 
     static final int SHALLOW_MEMORY_USAGE = 32;
 
+    /**
+     * The number of entries of the cache of parsed revisions (rounded down to
+     * a power of two; 0 to disable the cache).
+     */
+    static final int PARSE_CACHE_SIZE = Integer.highestOneBit(Math.max(0,
+            Integer.getInteger("oak.documentMK.revisionParseCacheSize", 4096)));
+
+    /**
+     * Recently parsed revisions. The same revisions are parsed many times
+     * (for example the keys of the revision maps of documents), so that
+     * the cache avoids creating and retaining many equal instances. Revisions
+     * are immutable, so that unsynchronized access is safe.
+     */
+    private static final Revision[] PARSE_CACHE = new Revision[PARSE_CACHE_SIZE];
+
     private static volatile long lastTimestamp;
 
     private static volatile long lastRevisionTimestamp;
@@ -149,6 +164,10 @@ public final class Revision implements CacheValue {
      * @return -1, 0, or 1
      */
     int compareTo(Revision other) {
+        if (this == other) {
+            // common for revisions from the parse cache
+            return 0;
+        }
         int comp = compareRevisionTimeThenClusterId(other);
         if (comp == 0) {
             if (branch != other.branch) {
@@ -229,12 +248,24 @@ public final class Revision implements CacheValue {
     }
 
     public static Revision fromString(String rev) {
-        boolean isBranch = rev.charAt(0) == 'b';
-        int idx = isBranch ? 2 : 1;
+        return fromString(rev, 0, rev.length());
+    }
+
+    /**
+     * Parse a revision from a part of a string, without creating a
+     * substring.
+     *
+     * @param rev the string
+     * @param start the index of the first character of the revision
+     * @param len the index after the last character of the revision
+     * @return the revision
+     */
+    static Revision fromString(String rev, int start, int len) {
+        boolean isBranch = rev.charAt(start) == 'b';
+        int idx = start + (isBranch ? 2 : 1);
         if (rev.charAt(idx - 1) != 'r') {
-            throw new IllegalArgumentException(rev);
+            throw new IllegalArgumentException(rev.substring(start, len));
         }
-        int len = rev.length();
         // Parse timestamp
         long timestamp = 0;
         for (; idx < len; idx++) {
@@ -262,7 +293,31 @@ public final class Revision implements CacheValue {
             int digit = c >= 'a' ? c - 'a' + 10 : c - '0';
             clusterId = (clusterId << 4) + digit;
         }
-        return new Revision(timestamp, counter, clusterId, isBranch);
+        return intern(timestamp, counter, clusterId, isBranch);
+    }
+
+    /**
+     * Get a revision with the given values, from the parse cache if possible.
+     */
+    private static Revision intern(long timestamp, int counter, int clusterId, boolean branch) {
+        if (PARSE_CACHE_SIZE == 0) {
+            return new Revision(timestamp, counter, clusterId, branch);
+        }
+        int hash = (int) (timestamp >>> 32) ^ (int) timestamp;
+        hash = hash * 31 + counter;
+        hash = hash * 31 + clusterId;
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        int index = hash & (PARSE_CACHE_SIZE - 1);
+        Revision r = PARSE_CACHE[index];
+        if (r != null && r.timestamp == timestamp && r.counter == counter
+                && r.clusterId == clusterId && r.branch == branch) {
+            return r;
+        }
+        r = new Revision(timestamp, counter, clusterId, branch);
+        PARSE_CACHE[index] = r;
+        return r;
     }
 
     @Override
@@ -359,13 +359,30 @@ public final class RevisionVector implements Iterable<Revision>, Comparable<Revi
      * @throws IllegalArgumentException if the string is malformed
      */
     public static RevisionVector fromString(String s) {
-        if (s.isEmpty()) {
+        // trailing separators are ignored, as with String.split()
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ',') {
+            end--;
+        }
+        if (end == 0) {
             return EMPTY;
         }
-        String[] list = s.split(",");
-        Revision[] revisions = new Revision[list.length];
-        for (int i = 0; i < list.length; i++) {
-            revisions[i] = Revision.fromString(list[i]);
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (s.charAt(i) == ',') {
+                count++;
+            }
+        }
+        // parse the revisions in place, without creating substrings
+        Revision[] revisions = new Revision[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int next = s.indexOf(',', start);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            revisions[i] = Revision.fromString(s, start, next);
+            start = next + 1;
         }
         return new RevisionVector(revisions);
     }
@@ -18,6 +18,7 @@
  */
 package org.apache.jackrabbit.oak.plugins.document;
 
+import java.io.Closeable;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -454,4 +455,33 @@ public class CheckpointsTest {
         Map<String, String> info = Collections.emptyMap();
         Assert.assertThrows(IllegalArgumentException.class, () -> checkpoints.create(ONE_HOUR, info, r));
     }
+
+    @Test
+    public void pinRootState() throws Exception {
+        String reference = store.getReference(store.getRoot());
+        assertNotNull(reference);
+        Revision revision = store.getHeadRevision().getRevision(store.getClusterId());
+
+        NodeBuilder builder = store.getRoot().builder();
+        builder.child("x");
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        assertNull(store.getCheckpoints().getOldestRevisionToKeep());
+
+        // the pins of a root state share a checkpoint
+        Closeable p1 = store.pin(reference);
+        Closeable p2 = store.pin(reference);
+        assertNotNull(p1);
+        assertNotNull(p2);
+        assertEquals(1, store.getCheckpoints().size());
+        assertEquals(revision, store.getCheckpoints().getOldestRevisionToKeep());
+
+        // releasing a pin twice doesn't release the other one
+        p1.close();
+        p1.close();
+        assertEquals(revision, store.getCheckpoints().getOldestRevisionToKeep());
+
+        p2.close();
+        assertNull(store.getCheckpoints().getOldestRevisionToKeep());
+        assertEquals(0, store.getCheckpoints().size());
+    }
 }
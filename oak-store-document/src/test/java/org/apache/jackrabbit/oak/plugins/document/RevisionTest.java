@@ -29,7 +29,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -91,6 +93,27 @@ public class RevisionTest {
         }
     }
 
+    @Test
+    public void fromStringCached() {
+        Revision r = new Revision(0x1234567890L, 3, 2, true);
+        Revision r1 = Revision.fromString(r.toString());
+        Revision r2 = Revision.fromString(r.toString());
+        assertEquals(r, r1);
+        assertSame(r1, r2);
+        assertEquals(0, StableRevisionComparator.INSTANCE.compare(r1, r2));
+        // a different revision is not taken from the cache
+        Revision r3 = Revision.fromString(r.asTrunkRevision().toString());
+        assertEquals(r.asTrunkRevision(), r3);
+        assertNotEquals(r1, r3);
+    }
+
+    @Test
+    public void fromStringRange() {
+        String s = "x" + new Revision(0x1234567890L, 3, 2, true) + ",";
+        assertEquals(new Revision(0x1234567890L, 3, 2, true),
+                Revision.fromString(s, 1, s.length() - 1));
+    }
+
     @Test
     public void difference() throws InterruptedException {
         long t0 = Revision.getCurrentTimestamp();
@@ -28,6 +28,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RevisionVectorTest {
 
@@ -401,6 +402,17 @@ public class RevisionVectorTest {
         String rvstr = rv.asString();
         RevisionVector rvFromStr = RevisionVector.fromString(rvstr);
         assertEquals(rv, rvFromStr);
+
+        // trailing separators are ignored
+        assertEquals(rv, RevisionVector.fromString(rvstr + ","));
+        assertEquals(new RevisionVector(new Revision(1, 0, 1)),
+                RevisionVector.fromString(new Revision(1, 0, 1).toString()));
+        try {
+            RevisionVector.fromString(rvstr + ",x");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
     }
 
     @Test
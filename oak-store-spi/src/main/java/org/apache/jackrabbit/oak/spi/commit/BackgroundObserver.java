@@ -25,6 +25,7 @@ import static org.apache.jackrabbit.guava.common.collect.Iterables.size;
 import static org.apache.jackrabbit.guava.common.collect.Queues.newArrayBlockingQueue;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -34,6 +35,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.jackrabbit.oak.commons.concurrent.NotifyingFutureTask;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +51,12 @@ import org.slf4j.LoggerFactory;
  * the background observer thread has yet to process are optionally
  * (see {@code alwaysCollapseExternalEvents} and {@code oak.observation.alwaysCollapseExternal})
  * automatically merged to just one change.
+ * <p>
+ * Alternatively, changes can be spilled to a {@link ContentChangeLog} on the
+ * local disk once the queue is full, instead of being merged. Spilled changes
+ * are delivered in order after the changes in the queue. A spilled change
+ * whose root node state can't be resolved anymore is skipped, and the next
+ * change is delivered as an external change covering the skipped ones.
  */
 public class BackgroundObserver implements Observer, Closeable {
 
@@ -90,13 +98,28 @@ public class BackgroundObserver implements Observer, Closeable {
     private final boolean alwaysCollapseExternalEvents =
             Boolean.parseBoolean(System.getProperty("oak.observation.alwaysCollapseExternal", "false"));
 
-    private static class ContentChange {
-        private final NodeState root;
-        private final CommitInfo info;
-        private final long created = System.currentTimeMillis();
+    /**
+     * Log to spill changes to when the queue is full, or {@code null}
+     */
+    private final ContentChangeLog spillLog;
+
+    /**
+     * Whether the next change needs to be delivered as an external change,
+     * because spilled changes before it were lost
+     */
+    private boolean collapseNext;
+
+    static class ContentChange {
+        final NodeState root;
+        final CommitInfo info;
+        final long created;
         ContentChange(NodeState root, CommitInfo info) {
+            this(root, info, System.currentTimeMillis());
+        }
+        ContentChange(NodeState root, CommitInfo info, long created) {
             this.root = root;
             this.info = info;
+            this.created = created;
         }
     }
 
@@ -121,6 +144,9 @@ public class BackgroundObserver implements Observer, Closeable {
             public Void call() throws Exception {
                 try {
                     ContentChange change = queue.poll();
+                    if (change == null && spillLog != null) {
+                        change = unspill();
+                    }
                     if (change != null && change != STOP) {
                         observer.contentChanged(change.root, change.info);
                         removed(queue.size(), change.created);
@@ -150,23 +176,52 @@ public class BackgroundObserver implements Observer, Closeable {
             @NotNull Executor executor,
             int queueLength,
             @NotNull UncaughtExceptionHandler exceptionHandler) {
+        this(observer, executor, queueLength, exceptionHandler, null);
+    }
+
+    /**
+     * @param spillLog the log to spill changes to when the queue is full, or
+     *                 {@code null} to merge changes instead. The log is
+     *                 closed when this observer is closed.
+     * @see #BackgroundObserver(Observer, Executor, int, ContentChangeLog)
+     */
+    public BackgroundObserver(
+            @NotNull Observer observer,
+            @NotNull Executor executor,
+            int queueLength,
+            @NotNull UncaughtExceptionHandler exceptionHandler,
+            @Nullable ContentChangeLog spillLog) {
         this.observer = requireNonNull(observer);
         this.executor = requireNonNull(executor);
         this.exceptionHandler = requireNonNull(exceptionHandler);
         this.maxQueueLength = queueLength;
         this.queue = newArrayBlockingQueue(maxQueueLength);
+        this.spillLog = spillLog;
     }
 
     public BackgroundObserver(
             @NotNull final Observer observer,
             @NotNull Executor executor,
             int queueLength) {
+        this(observer, executor, queueLength, (ContentChangeLog) null);
+    }
+
+    /**
+     * @param spillLog the log to spill changes to when the queue is full, or
+     *                 {@code null} to merge changes instead. The log is
+     *                 closed when this observer is closed.
+     */
+    public BackgroundObserver(
+            @NotNull final Observer observer,
+            @NotNull Executor executor,
+            int queueLength,
+            @Nullable ContentChangeLog spillLog) {
         this(observer, executor, queueLength, new UncaughtExceptionHandler() {
             @Override
             public void uncaughtException(Thread t, Throwable e) {
                 getLogger(observer).error("Uncaught exception in " + observer, e);
             }
-        });
+        }, spillLog);
     }
 
     public BackgroundObserver(
@@ -213,6 +268,9 @@ public class BackgroundObserver implements Observer, Closeable {
         queue.clear();
         queue.add(STOP);
         stopped = true;
+        if (spillLog != null) {
+            spillLog.close();
+        }
     }
 
     @NotNull
@@ -244,6 +302,21 @@ public class BackgroundObserver implements Observer, Closeable {
                 return size(filter(queue,
                         input -> input.info.isExternal()));
             }
+
+            @Override
+            public int getSpilledQueueSize() {
+                return spillLog == null ? 0 : spillLog.size();
+            }
+
+            @Override
+            public long getSpilledEventCount() {
+                return spillLog == null ? 0 : spillLog.getSpilledCount();
+            }
+
+            @Override
+            public long getSpillDiskUsage() {
+                return spillLog == null ? 0 : spillLog.getDiskUsage();
+            }
         };
     }
 
@@ -270,6 +343,23 @@ public class BackgroundObserver implements Observer, Closeable {
 
         ContentChange change = new ContentChange(root, info);
 
+        if (spillLog != null && (spillLog.size() > 0 || queue.remainingCapacity() == 0)) {
+            // once spilling started, changes need to go to the log
+            // until it is drained, to keep them in order
+            if (spill(change)) {
+                last = null;
+                currentTask.onComplete(completionHandler);
+                added(queue.size());
+                return;
+            }
+        }
+
+        if (collapseNext) {
+            // changes were lost from the spill log
+            change = new ContentChange(root, CommitInfo.EMPTY_EXTERNAL);
+            collapseNext = false;
+        }
+
         // Try to add this change to the queue without blocking
         boolean full = !queue.offer(change);
 
@@ -299,6 +389,67 @@ public class BackgroundObserver implements Observer, Closeable {
 
     //------------------------------------------------------------< internal >---
 
+    /**
+     * Appends a change to the spill log.
+     *
+     * @return {@code true} if the change was spilled or dropped, {@code false}
+     *          if it needs to be added to the queue instead.
+     */
+    private boolean spill(ContentChange change) {
+        CommitInfo info = collapseNext ? CommitInfo.EMPTY_EXTERNAL : change.info;
+        try {
+            if (spillLog.append(change.root, info, change.created)) {
+                collapseNext = false;
+                return true;
+            }
+        } catch (IOException e) {
+            getLogger(observer).warn("Could not spill change to " + spillLog
+                    + ", dropping " + spillLog.size() + " spilled changes", e);
+            spillLog.clear();
+            collapseNext = true;
+        }
+        if (spillLog.size() > 0) {
+            // the change can't be queued before the changes already spilled.
+            // drop it, the next change will be delivered as external change
+            collapseNext = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the next change from the spill log. Called on the background
+     * thread once the queue is empty. The root node states are resolved
+     * without holding the lock of this observer, so that new changes can be
+     * added meanwhile.
+     */
+    @Nullable
+    private ContentChange unspill() {
+        ContentChange change;
+        try {
+            while ((change = spillLog.poll()) != null) {
+                synchronized (this) {
+                    if (change.root == null) {
+                        collapseNext = true;
+                    } else if (collapseNext) {
+                        collapseNext = false;
+                        return new ContentChange(change.root, CommitInfo.EMPTY_EXTERNAL, change.created);
+                    } else {
+                        return change;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                getLogger(observer).warn("Could not read spilled change from " + spillLog
+                        + ", dropping " + spillLog.size() + " spilled changes", e);
+                spillLog.clear();
+                collapseNext = true;
+            }
+        }
+        return null;
+    }
+
     private static Logger getLogger(@NotNull Observer observer) {
         return LoggerFactory.getLogger(requireNonNull(observer).getClass());
     }
@@ -311,7 +462,7 @@ public class BackgroundObserver implements Observer, Closeable {
         boolean added = false;
         while(done > System.currentTimeMillis()) {
             synchronized(this) {
-                if (!added) {
+                if (!added && (spillLog == null || spillLog.size() == 0)) {
                     added = queue.offer(STOP);
                     if (added) {
                         currentTask.onComplete(completionHandler);
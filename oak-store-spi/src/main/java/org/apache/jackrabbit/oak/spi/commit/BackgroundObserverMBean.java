@@ -31,4 +31,25 @@ public interface BackgroundObserverMBean {
     int getExternalEventCount();
 
     String getClassName();
+
+    /**
+     * @return the number of changes spilled to disk and not yet processed
+     */
+    default int getSpilledQueueSize() {
+        return 0;
+    }
+
+    /**
+     * @return the number of changes spilled to disk so far
+     */
+    default long getSpilledEventCount() {
+        return 0;
+    }
+
+    /**
+     * @return the disk space in bytes used by the spilled changes
+     */
+    default long getSpillDiskUsage() {
+        return 0;
+    }
 }
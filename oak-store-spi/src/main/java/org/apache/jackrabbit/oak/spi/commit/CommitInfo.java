@@ -54,7 +54,7 @@ public final class CommitInfo {
 
     private final String userId;
 
-    private final long date = System.currentTimeMillis();
+    private final long date;
 
     private final Map<String, Object> info;
 
@@ -90,10 +90,20 @@ public final class CommitInfo {
      * @param external indicates if the commit info is from external change
      */
     public CommitInfo(@NotNull String sessionId, @Nullable String userId, Map<String, Object> info, boolean external) {
+        this(sessionId, userId, info, external, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a commit info with the time stamp of a commit that happened
+     * earlier. Used to restore commit information read back from disk.
+     */
+    CommitInfo(@NotNull String sessionId, @Nullable String userId, Map<String, Object> info,
+               boolean external, long date) {
         this.sessionId = requireNonNull(sessionId);
         this.userId = (userId == null) ? OAK_UNKNOWN : userId;
         this.info = requireNonNull(info);
         this.external = external;
+        this.date = date;
     }
 
     /**
@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.spi.commit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.apache.jackrabbit.oak.spi.observation.ChangeSet.COMMIT_CONTEXT_OBSERVATION_CHANGESET;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jackrabbit.oak.spi.observation.ChangeSet;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.RootStateResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of content changes on the local disk, used by the
+ * {@link BackgroundObserver} to spill changes once its queue is full. The
+ * root node states are written as references obtained from a
+ * {@link RootStateResolver}, together with the commit information: session
+ * id, user id, date, the string entries of the info map and the
+ * {@link ChangeSet} of the {@link CommitContext}, if any. Other entries of the
+ * info map are not retained. A marker commit information, such as the one of
+ * the changes a {@code FilteringDispatcher} skips, is written as a marker and
+ * read back as the same instance.
+ * <p>
+ * The log is split into files of at most {@code oak.observation.spillFileSize}
+ * bytes (default 64 MB), which are deleted once they have been read. Files
+ * left over in the directory from a previous run are deleted when the log
+ * is created.
+ * <p>
+ * The root node state of the first change of each file is pinned (see
+ * {@link RootStateResolver#pin(String)}), so that the root node states of the
+ * file are not garbage collected before they are read. The pin of a file is
+ * released when the first change of the next file has been delivered, as the
+ * consumer compares it against the last root node state of the file.
+ */
+public class ContentChangeLog implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentChangeLog.class);
+
+    private static final int MAX_FILE_SIZE =
+            Integer.getInteger("oak.observation.spillFileSize", 64 * 1024 * 1024);
+
+    private static final String FILE_PREFIX = "changes-";
+
+    private static final String FILE_SUFFIX = ".log";
+
+    private final File directory;
+
+    private final RootStateResolver resolver;
+
+    /**
+     * The marker commit information, or {@code null}
+     */
+    private final CommitInfo marker;
+
+    private final int maxFileSize;
+
+    /**
+     * The files not yet entirely read, in the order they were written
+     */
+    private final Deque<LogFile> files = new ArrayDeque<LogFile>();
+
+    /**
+     * Writes to the last file, or {@code null} if no file is open
+     */
+    private DataOutputStream out;
+
+    /**
+     * Reads from the first file, or {@code null} if no file is open
+     */
+    private DataInputStream in;
+
+    /**
+     * The pin of the file read entirely with the last change, or {@code null}
+     */
+    private Closeable finishedPin;
+
+    /**
+     * The pin to release with the next change read, or {@code null}
+     */
+    private Closeable releasePin;
+
+    private int fileCount;
+
+    private int size;
+
+    private long diskUsage;
+
+    private long spilledCount;
+
+    private boolean closed;
+
+    public ContentChangeLog(@NotNull File directory, @NotNull RootStateResolver resolver)
+            throws IOException {
+        this(directory, resolver, null);
+    }
+
+    /**
+     * @param directory the directory of the log files
+     * @param resolver the resolver of the root node states
+     * @param marker the commit information to read back as the same instance,
+     *               or {@code null}
+     * @throws IOException if the directory can't be created
+     */
+    public ContentChangeLog(@NotNull File directory, @NotNull RootStateResolver resolver,
+            @Nullable CommitInfo marker) throws IOException {
+        this(directory, resolver, marker, MAX_FILE_SIZE);
+    }
+
+    ContentChangeLog(@NotNull File directory, @NotNull RootStateResolver resolver,
+            @Nullable CommitInfo marker, int maxFileSize) throws IOException {
+        this.directory = requireNonNull(directory);
+        this.resolver = requireNonNull(resolver);
+        this.marker = marker;
+        this.maxFileSize = maxFileSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        File[] stale = directory.listFiles((dir, name) ->
+                name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (stale != null) {
+            for (File f : stale) {
+                delete(f);
+            }
+        }
+    }
+
+    /**
+     * Appends a change to the log.
+     *
+     * @param root the root node state of the change
+     * @param info the commit information of the change
+     * @param created the time in milliseconds when the change was received
+     * @return {@code true} if the change was appended, {@code false} if the
+     *          root node state can't be referenced or the log is closed.
+     * @throws IOException if the change couldn't be written. The log needs
+     *          to be cleared in this case, as it may contain a partial entry.
+     */
+    synchronized boolean append(@NotNull NodeState root, @NotNull CommitInfo info, long created)
+            throws IOException {
+        if (closed) {
+            return false;
+        }
+        String reference = resolver.getReference(root);
+        if (reference == null) {
+            return false;
+        }
+        if (out == null || out.size() >= maxFileSize) {
+            startFile();
+            try {
+                files.getLast().pin = resolver.pin(reference);
+            } catch (RuntimeException e) {
+                throw new IOException("Could not pin root state " + reference, e);
+            }
+        }
+        LogFile file = files.getLast();
+        int start = out.size();
+        out.writeLong(created);
+        writeString(out, reference);
+        boolean isMarker = marker != null && info == marker;
+        out.writeBoolean(isMarker);
+        if (!isMarker) {
+            out.writeBoolean(info.isExternal());
+            writeString(out, info.getSessionId());
+            writeString(out, info.getUserId());
+            out.writeLong(info.getDate());
+            Map<String, String> strings = new HashMap<String, String>();
+            for (Map.Entry<String, Object> e : info.getInfo().entrySet()) {
+                if (e.getValue() instanceof String) {
+                    strings.put(e.getKey(), (String) e.getValue());
+                }
+            }
+            out.writeInt(strings.size());
+            for (Map.Entry<String, String> e : strings.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+            ChangeSet changeSet = getChangeSet(info);
+            writeString(out, changeSet == null ? null : changeSet.asString());
+        }
+        file.entries++;
+        file.bytes += out.size() - start;
+        diskUsage += out.size() - start;
+        size++;
+        spilledCount++;
+        return true;
+    }
+
+    /**
+     * Reads the oldest change from the log. The root node state is resolved
+     * after the change has been read, without holding the lock of the log.
+     *
+     * @return the change, or {@code null} if the log is empty. The root node
+     *          state of the change is {@code null} if it can't be resolved
+     *          anymore.
+     * @throws IOException if the change can't be read.
+     */
+    @Nullable
+    BackgroundObserver.ContentChange poll() throws IOException {
+        Entry entry = read();
+        if (entry == null) {
+            return null;
+        }
+        NodeState root = resolver.resolve(entry.reference);
+        return new BackgroundObserver.ContentChange(root, entry.info, entry.created);
+    }
+
+    @Nullable
+    private synchronized Entry read() throws IOException {
+        // the change read before has been delivered, so the pin of the
+        // file before it is not needed anymore
+        closeQuietly(releasePin);
+        releasePin = finishedPin;
+        finishedPin = null;
+        if (size == 0) {
+            closeQuietly(releasePin);
+            releasePin = null;
+            return null;
+        }
+        LogFile file = files.getFirst();
+        if (file == files.getLast()) {
+            // make the changes appended so far visible to the reader
+            out.flush();
+        }
+        if (in == null) {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.file)));
+        }
+        long created = in.readLong();
+        String reference = requireNonNull(readString(in));
+        CommitInfo info;
+        if (in.readBoolean()) {
+            info = requireNonNull(marker, "Marker change without a marker");
+        } else {
+            boolean external = in.readBoolean();
+            String sessionId = readString(in);
+            String userId = readString(in);
+            long date = in.readLong();
+            Map<String, Object> map = new HashMap<String, Object>();
+            for (int i = in.readInt(); i > 0; i--) {
+                map.put(readString(in), readString(in));
+            }
+            String changeSet = readString(in);
+            if (changeSet != null) {
+                CommitContext context = new SimpleCommitContext();
+                context.set(COMMIT_CONTEXT_OBSERVATION_CHANGESET, ChangeSet.fromString(changeSet));
+                map.put(CommitContext.NAME, context);
+            }
+            info = new CommitInfo(requireNonNull(sessionId), userId, map, external, date);
+        }
+
+        size--;
+        if (--file.entries == 0) {
+            closeQuietly(in);
+            in = null;
+            if (file == files.getLast()) {
+                closeQuietly(out);
+                out = null;
+            }
+            files.removeFirst();
+            diskUsage -= file.bytes;
+            delete(file.file);
+            finishedPin = file.pin;
+        }
+        return new Entry(reference, info, created);
+    }
+
+    /**
+     * @return the number of changes in the log
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used by the log on disk
+     */
+    public synchronized long getDiskUsage() {
+        return diskUsage;
+    }
+
+    /**
+     * @return the number of changes appended to the log since it was created
+     */
+    public synchronized long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * Removes all changes from the log.
+     */
+    public synchronized void clear() {
+        closeQuietly(in);
+        in = null;
+        closeQuietly(out);
+        out = null;
+        closeQuietly(finishedPin);
+        finishedPin = null;
+        closeQuietly(releasePin);
+        releasePin = null;
+        for (LogFile file : files) {
+            delete(file.file);
+            closeQuietly(file.pin);
+        }
+        files.clear();
+        size = 0;
+        diskUsage = 0;
+    }
+
+    /**
+     * Removes all changes from the log. Further changes are not appended.
+     */
+    @Override
+    public synchronized void close() {
+        clear();
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentChangeLog[" + directory + "]";
+    }
+
+    //------------------------------------------------------------< internal >---
+
+    private void startFile() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        File f = new File(directory, FILE_PREFIX + (fileCount++) + FILE_SUFFIX);
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+        files.addLast(new LogFile(f));
+    }
+
+    @Nullable
+    private static ChangeSet getChangeSet(CommitInfo info) {
+        Object context = info.getInfo().get(CommitContext.NAME);
+        if (context instanceof CommitContext) {
+            Object changeSet = ((CommitContext) context).get(COMMIT_CONTEXT_OBSERVATION_CHANGESET);
+            if (changeSet instanceof ChangeSet) {
+                return (ChangeSet) changeSet;
+            }
+        }
+        return null;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void delete(File f) {
+        if (f.exists() && !f.delete()) {
+            LOG.warn("Could not delete {}", f);
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                LOG.debug("Error while closing {}", c, e);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final String reference;
+
+        final CommitInfo info;
+
+        final long created;
+
+        Entry(String reference, CommitInfo info, long created) {
+            this.reference = reference;
+            this.info = info;
+            this.created = created;
+        }
+    }
+
+    private static final class LogFile {
+
+        final File file;
+
+        int entries;
+
+        long bytes;
+
+        /**
+         * The pin of the first root node state, or {@code null}
+         */
+        Closeable pin;
+
+        LogFile(File file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.spi.state;
+
+import java.io.Closeable;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Experimental {@link NodeStore} extension that allows to refer to a root
+ * node state with a string, and to get the root node state back from that
+ * string later on. This allows to keep track of root node states outside of
+ * the heap, for example when the queue of an observer is spilled to disk.
+ */
+public interface RootStateResolver {
+
+    /**
+     * Returns a reference to the given root node state.
+     *
+     * @param root a root node state of this store.
+     * @return the reference, or {@code null} if the given state can't be
+     *          referenced, e.g. because it is not a root state of this store.
+     */
+    @Nullable
+    String getReference(@NotNull NodeState root);
+
+    /**
+     * Returns the root node state for a reference obtained from
+     * {@link #getReference(NodeState)}.
+     *
+     * @param reference the reference.
+     * @return the root node state, or {@code null} if it can't be resolved
+     *          anymore, e.g. because it was garbage collected.
+     */
+    @Nullable
+    NodeState resolve(@NotNull String reference);
+
+    /**
+     * Prevents the root node state of the given reference, and the root node
+     * states of this store after it, from being garbage collected until the
+     * returned pin is closed.
+     *
+     * @param reference a reference obtained from {@link #getReference(NodeState)}.
+     * @return the pin, or {@code null} if this store can't pin root node
+     *          states. Garbage collected root node states then either can't
+     *          be resolved anymore, or may be resolved inconsistently.
+     */
+    @Nullable
+    default Closeable pin(@NotNull String reference) {
+        return null;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.oak.upgrade.cli.blob;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataRecord;
 import org.apache.jackrabbit.core.data.DataStore;
@@ -71,7 +72,7 @@ public class SafeDataStoreBlobStore extends DataStoreBlobStore {
 
 
     @Override
-    protected InputStream getStream(String blobId) throws IOException {
+    protected InputStream getStream(String blobId, long offset) throws IOException {
         try {
             DataRecord record = getDataRecord(blobId);
             if (record == null) {
@@ -79,6 +80,7 @@ public class SafeDataStoreBlobStore extends DataStoreBlobStore {
                 return new ByteArrayInputStream(new byte[0]);
             }
             InputStream in = getDataRecord(blobId).getStream();
+            IOUtils.skipFully(in, offset);
             if (!(in instanceof BufferedInputStream)){
                 in = new BufferedInputStream(in);
             }